@@ -0,0 +1,26 @@
+package mx.sugus.json.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks with the GC profiler enabled, so that the bytes allocated per operation
+ * ({@code gc.alloc.rate.norm}) are reported next to ops/s and MB/s. Accepts the same arguments as
+ * the JMH command line, e.g., {@code java -jar target/benchmarks.jar ParserBenchmark -p
+ * corpus=NUMBERS}.
+ */
+public class BenchmarkMain {
+
+  public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+    Options options = new OptionsBuilder()
+        .parent(new CommandLineOptions(args))
+        .addProfiler(GCProfiler.class)
+        .build();
+    new Runner(options).run();
+  }
+}
@@ -0,0 +1,194 @@
+package mx.sugus.json.benchmarks;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+/**
+ * Deterministically generated JSON documents used by the benchmarks.
+ */
+public enum Corpus {
+
+  /**
+   * A typical REST API response, a couple hundred bytes.
+   */
+  SMALL_API {
+    @Override
+    String generate(Random random) {
+      StringBuilder buf = new StringBuilder();
+      buf.append("{\"id\": ").append(random.nextInt(1_000_000))
+          .append(", \"name\": \"").append(word(random, 12)).append('"')
+          .append(", \"email\": \"").append(word(random, 8)).append("@example.com\"")
+          .append(", \"active\": ").append(random.nextBoolean())
+          .append(", \"score\": ").append(random.nextDouble() * 100)
+          .append(", \"tags\": [\"").append(word(random, 5)).append("\", \"")
+          .append(word(random, 6)).append("\"]")
+          .append(", \"manager\": null}");
+      return buf.toString();
+    }
+  },
+
+  /**
+   * An array of a few thousand records, each with nested objects and lists, about 1 MB.
+   */
+  LARGE_NESTED {
+    @Override
+    String generate(Random random) {
+      StringBuilder buf = new StringBuilder();
+      buf.append("[\n");
+      for (int i = 0; i < 3_000; i++) {
+        if (i > 0) {
+          buf.append(",\n");
+        }
+        buf.append("  {\n")
+            .append("    \"id\": ").append(i).append(",\n")
+            .append("    \"user\": {\"name\": \"").append(word(random, 10))
+            .append("\", \"age\": ").append(18 + random.nextInt(60))
+            .append(", \"verified\": ").append(random.nextBoolean()).append("},\n")
+            .append("    \"location\": {\"lat\": ").append(random.nextDouble() * 180 - 90)
+            .append(", \"lon\": ").append(random.nextDouble() * 360 - 180).append("},\n")
+            .append("    \"items\": [");
+        int items = random.nextInt(6);
+        for (int j = 0; j < items; j++) {
+          if (j > 0) {
+            buf.append(", ");
+          }
+          buf.append("{\"sku\": \"").append(word(random, 8))
+              .append("\", \"qty\": ").append(1 + random.nextInt(9))
+              .append(", \"price\": ").append(random.nextInt(100_000) / 100.0).append('}');
+        }
+        buf.append("],\n")
+            .append("    \"note\": ").append(random.nextBoolean() ? "null" : "\"" + word(random, 30) + "\"")
+            .append("\n  }");
+      }
+      buf.append("\n]\n");
+      return buf.toString();
+    }
+  },
+
+  /**
+   * Arrays of integers and floating point numbers, as found in telemetry and time series.
+   */
+  NUMBERS {
+    @Override
+    String generate(Random random) {
+      StringBuilder buf = new StringBuilder();
+      buf.append("{\"timestamps\": [");
+      long timestamp = 1_600_000_000_000L;
+      for (int i = 0; i < 20_000; i++) {
+        if (i > 0) {
+          buf.append(',');
+        }
+        timestamp += random.nextInt(1_000);
+        buf.append(timestamp);
+      }
+      buf.append("], \"values\": [");
+      for (int i = 0; i < 20_000; i++) {
+        if (i > 0) {
+          buf.append(',');
+        }
+        buf.append(random.nextGaussian() * 1e3);
+      }
+      buf.append("], \"exponents\": [");
+      for (int i = 0; i < 5_000; i++) {
+        if (i > 0) {
+          buf.append(',');
+        }
+        buf.append(random.nextInt(1_000)).append('e').append(random.nextInt(40) - 20);
+      }
+      buf.append("]}");
+      return buf.toString();
+    }
+  },
+
+  /**
+   * Long strings with escape sequences and non-ASCII characters.
+   */
+  STRINGS {
+    @Override
+    String generate(Random random) {
+      StringBuilder buf = new StringBuilder();
+      buf.append('[');
+      for (int i = 0; i < 5_000; i++) {
+        if (i > 0) {
+          buf.append(", ");
+        }
+        buf.append('"');
+        int words = 5 + random.nextInt(40);
+        for (int j = 0; j < words; j++) {
+          switch (random.nextInt(12)) {
+            case 0:
+              buf.append("\\n");
+              break;
+            case 1:
+              buf.append("\\\"quoted\\\"");
+              break;
+            case 2:
+              buf.append("\\u00e9t\\u00e9");
+              break;
+            case 3:
+              buf.append("caf\u00e9 \u2192 \u00fcber");
+              break;
+            case 4:
+              buf.append("C:\\\\path\\\\to\\\\file");
+              break;
+            default:
+              buf.append(word(random, 3 + random.nextInt(10)));
+          }
+          buf.append(' ');
+        }
+        buf.append('"');
+      }
+      buf.append(']');
+      return buf.toString();
+    }
+  },
+
+  /**
+   * Deeply nested lists and objects.
+   */
+  DEEP_NESTING {
+    @Override
+    String generate(Random random) {
+      StringBuilder buf = new StringBuilder();
+      int depth = 500;
+      for (int i = 0; i < depth; i++) {
+        if ((i & 1) == 0) {
+          buf.append("{\"level").append(i).append("\": ");
+        } else {
+          buf.append("[").append(i).append(", ");
+        }
+      }
+      buf.append("\"bottom\"");
+      for (int i = depth - 1; i >= 0; i--) {
+        buf.append((i & 1) == 0 ? '}' : ']');
+      }
+      return buf.toString();
+    }
+  };
+
+  private static final long SEED = 0x5eed_cafeL;
+
+  abstract String generate(Random random);
+
+  /**
+   * Returns the document for this corpus, always the same for a given corpus.
+   */
+  public String json() {
+    return generate(new Random(SEED));
+  }
+
+  /**
+   * Returns the document for this corpus encoded as UTF-8.
+   */
+  public byte[] utf8() {
+    return json().getBytes(StandardCharsets.UTF_8);
+  }
+
+  private static String word(Random random, int length) {
+    char[] chars = new char[length];
+    for (int i = 0; i < length; i++) {
+      chars[i] = (char) ('a' + random.nextInt(26));
+    }
+    return new String(chars);
+  }
+}
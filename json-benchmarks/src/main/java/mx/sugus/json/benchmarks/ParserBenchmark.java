@@ -0,0 +1,119 @@
+package mx.sugus.json.benchmarks;
+
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+import mx.sugus.json.KeyCache;
+import mx.sugus.json.LazyParser;
+import mx.sugus.json.ParallelParser;
+import mx.sugus.json.ParseMetrics;
+import mx.sugus.json.ParseOptions;
+import mx.sugus.json.ParserPool;
+import mx.sugus.json.Parser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@link Parser#parse()} over each of the {@link Corpus} documents.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ParserBenchmark {
+
+  @Param
+  public Corpus corpus;
+
+  private final ParseOptions keyCache = ParseOptions.DEFAULT.withKeyCache(new KeyCache());
+  private final ParseOptions primitiveArrays = ParseOptions.DEFAULT.withPrimitiveArrays(true);
+  private final ParseOptions lazyNumbers = ParseOptions.DEFAULT.withLazyNumbers(true);
+  private final ParseOptions instrumented = ParseOptions.DEFAULT.withListener(new ParseMetrics());
+  private final ParserPool pool = ParserPool.threadLocal(ParseOptions.DEFAULT);
+  private String json;
+  private byte[] utf8;
+  private long utf8Length;
+
+  @Setup
+  public void setUp() {
+    json = corpus.json();
+    utf8 = corpus.utf8();
+    utf8Length = utf8.length;
+  }
+
+  @Benchmark
+  public Object parseString(Throughput throughput) {
+    throughput.consumed(utf8Length);
+    return new Parser(json).parse();
+  }
+
+  @Benchmark
+  public Object parseReader(Throughput throughput) {
+    throughput.consumed(utf8Length);
+    return new Parser(new StringReader(json)).parse();
+  }
+
+  @Benchmark
+  public Object parseUtf8(Throughput throughput) {
+    throughput.consumed(utf8Length);
+    return new Parser(utf8).parse();
+  }
+
+  @Benchmark
+  public Object parseStringKeyCache(Throughput throughput) {
+    throughput.consumed(utf8Length);
+    return new Parser(json, keyCache).parse();
+  }
+
+  @Benchmark
+  public Object parseStringPrimitiveArrays(Throughput throughput) {
+    throughput.consumed(utf8Length);
+    return new Parser(json, primitiveArrays).parse();
+  }
+
+  @Benchmark
+  public Object parseStringLazyNumbers(Throughput throughput) {
+    throughput.consumed(utf8Length);
+    return new Parser(json, lazyNumbers).parse();
+  }
+
+  @Benchmark
+  public Object parseStringInstrumented(Throughput throughput) {
+    throughput.consumed(utf8Length);
+    return new Parser(json, instrumented).parse();
+  }
+
+  @Benchmark
+  public Object parseStringPooled(Throughput throughput) {
+    throughput.consumed(utf8Length);
+    return pool.parse(json);
+  }
+
+  @Benchmark
+  public Object parseLazy(Throughput throughput) {
+    throughput.consumed(utf8Length);
+    return new LazyParser(json).parse();
+  }
+
+  @Benchmark
+  public Object parseParallel(Throughput throughput) {
+    throughput.consumed(utf8Length);
+    return new ParallelParser(utf8).parse();
+  }
+
+  @Benchmark
+  public Object parseLazyUtf8(Throughput throughput) {
+    throughput.consumed(utf8Length);
+    return new LazyParser(utf8).parse();
+  }
+}
@@ -0,0 +1,26 @@
+package mx.sugus.json.benchmarks;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Secondary counter reporting the input consumed, JMH reports it as a rate, i.e., MB/s.
+ */
+@State(Scope.Thread)
+@AuxCounters(AuxCounters.Type.OPERATIONS)
+public class Throughput {
+
+  public double megabytes;
+
+  @Setup(Level.Iteration)
+  public void reset() {
+    megabytes = 0;
+  }
+
+  void consumed(long bytes) {
+    megabytes += bytes / 1_000_000.0;
+  }
+}
@@ -0,0 +1,65 @@
+package mx.sugus.json.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import mx.sugus.json.JsonReader;
+import mx.sugus.json.Token;
+import mx.sugus.json.Tokenizer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures {@link Tokenizer#next()} and {@link JsonReader#nextEvent()} over each of the
+ * {@link Corpus} documents.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TokenizerBenchmark {
+
+  @Param
+  public Corpus corpus;
+
+  private String json;
+  private long utf8Length;
+
+  @Setup
+  public void setUp() {
+    json = corpus.json();
+    utf8Length = corpus.utf8().length;
+  }
+
+  @Benchmark
+  public void tokenize(Throughput throughput, Blackhole blackhole) {
+    throughput.consumed(utf8Length);
+    Tokenizer tokenizer = new Tokenizer(json);
+    Token token;
+    do {
+      token = tokenizer.next();
+      blackhole.consume(token);
+    } while (token != Token.EOF);
+  }
+
+  @Benchmark
+  public void readEvents(Throughput throughput, Blackhole blackhole) {
+    throughput.consumed(utf8Length);
+    JsonReader reader = new JsonReader(json);
+    JsonReader.Event event;
+    do {
+      event = reader.nextEvent();
+      blackhole.consume(event);
+    } while (event != JsonReader.Event.END_DOCUMENT);
+  }
+}
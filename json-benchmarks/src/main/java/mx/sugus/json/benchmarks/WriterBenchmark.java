@@ -0,0 +1,56 @@
+package mx.sugus.json.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import mx.sugus.json.JsonWriter;
+import mx.sugus.json.Parser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@link JsonWriter} writing the parsed {@link Corpus} documents, reusing the writer
+ * and its buffer between invocations.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class WriterBenchmark {
+
+  @Param
+  public Corpus corpus;
+
+  private Object value;
+  private long utf8Length;
+  private final JsonWriter writer = new JsonWriter();
+
+  @Setup
+  public void setUp() {
+    value = new Parser(corpus.json()).parse();
+    utf8Length = corpus.utf8().length;
+  }
+
+  @Benchmark
+  public String writeString(Throughput throughput) {
+    throughput.consumed(utf8Length);
+    writer.reset();
+    return writer.write(value).toString();
+  }
+
+  @Benchmark
+  public byte[] writeUtf8(Throughput throughput) {
+    throughput.consumed(utf8Length);
+    writer.reset();
+    return writer.write(value).toByteArray();
+  }
+}
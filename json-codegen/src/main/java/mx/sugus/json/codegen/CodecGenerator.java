@@ -0,0 +1,585 @@
+package mx.sugus.json.codegen;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.type.WildcardType;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+
+/**
+ * Generates the source of the codec of a class. The reader dispatches each key with a switch on
+ * the key, canonicalized through a {@code KeyCache} so that known keys are neither allocated nor
+ * hashed again, and reads each field with a call specific to its type, e.g.,
+ * {@code Codecs.readInt} for an int, so primitives are never boxed. The writer writes each field
+ * in turn with the streaming methods of {@code JsonWriter}. Enums, arrays, collections and maps
+ * get a pair of static read and write methods each, fields of other annotated classes delegate
+ * to their codec.
+ */
+final class CodecGenerator {
+
+  /**
+   * Thrown for a class, or a field, the generator cannot handle.
+   */
+  static final class InvalidElementException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final transient Element element;
+
+    InvalidElementException(String message, Element element) {
+      super(message);
+      this.element = element;
+    }
+
+    Element element() {
+      return element;
+    }
+  }
+
+  /**
+   * Thrown for a field type the generator cannot handle, reported on the field.
+   */
+  private static final class UnsupportedTypeException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    UnsupportedTypeException(String message) {
+      super(message);
+    }
+  }
+
+  private final Types types;
+  private final Elements elements;
+  private final TypeElement type;
+  private final String packageName;
+  private final String codecName;
+  private final String typeName;
+  private final String elementName;
+  // Helper methods by the type they read and write, and their source.
+  private final Map<String, Integer> helpers = new HashMap<>();
+  private final StringBuilder helperSource = new StringBuilder();
+
+  CodecGenerator(ProcessingEnvironment env, TypeElement type) {
+    this.types = env.getTypeUtils();
+    this.elements = env.getElementUtils();
+    this.type = type;
+    this.packageName = elements.getPackageOf(type).getQualifiedName().toString();
+    this.codecName = codecName(type);
+    this.typeName = type.getQualifiedName().toString();
+    String name = type.getSimpleName().toString();
+    for (Element e = type.getEnclosingElement(); e instanceof TypeElement;
+        e = e.getEnclosingElement()) {
+      name = e.getSimpleName() + "." + name;
+    }
+    this.elementName = name;
+  }
+
+  /**
+   * Returns the simple name of the codec of a class, {@code Outer_InnerCodec} for nested ones.
+   */
+  static String codecName(TypeElement type) {
+    StringBuilder name = new StringBuilder(type.getSimpleName());
+    for (Element e = type.getEnclosingElement(); e instanceof TypeElement;
+        e = e.getEnclosingElement()) {
+      name.insert(0, e.getSimpleName() + "_");
+    }
+    return name.append("Codec").toString();
+  }
+
+  String qualifiedCodecName() {
+    return packageName.isEmpty() ? codecName : packageName + "." + codecName;
+  }
+
+  String generate() {
+    checkType();
+    StringBuilder reads = new StringBuilder();
+    StringBuilder writes = new StringBuilder();
+    for (VariableElement field : fields()) {
+      String name = field.getSimpleName().toString();
+      String element = quote(elementName + "." + name);
+      try {
+        reads.append("        case ").append(quote(name)).append(":\n")
+            .append("          value.").append(name).append(" = ")
+            .append(read(field.asType(), element)).append(";\n")
+            .append("          break;\n");
+        writes.append("    writer.name(").append(quote(name)).append(");\n")
+            .append(write(field.asType(), "value." + name, "    "));
+      } catch (UnsupportedTypeException e) {
+        throw new InvalidElementException(e.getMessage(), field);
+      }
+    }
+    StringBuilder source = new StringBuilder();
+    source.append("// Generated by ").append(CodecProcessor.class.getName()).append(" from ")
+        .append(typeName).append(", do not edit.\n");
+    if (!packageName.isEmpty()) {
+      source.append("package ").append(packageName).append(";\n");
+    }
+    source.append("\n")
+        .append("import mx.sugus.json.Codecs;\n")
+        .append("import mx.sugus.json.JsonCodec;\n")
+        .append("import mx.sugus.json.JsonReader;\n")
+        .append("import mx.sugus.json.JsonReader.Event;\n")
+        .append("import mx.sugus.json.JsonWriter;\n")
+        .append("import mx.sugus.json.KeyCache;\n")
+        .append("\n")
+        .append("/**\n")
+        .append(" * Reads and writes {@link ").append(typeName).append("} without reflection.\n")
+        .append(" */\n")
+        .append(isPublic() ? "public " : "").append("final class ").append(codecName)
+        .append(" implements JsonCodec<").append(typeName).append("> {\n")
+        .append("\n")
+        .append("  public static final ").append(codecName).append(" INSTANCE = new ")
+        .append(codecName).append("();\n")
+        .append("\n")
+        .append("  private static final KeyCache KEYS = new KeyCache();\n")
+        .append("\n")
+        .append("  private ").append(codecName).append("() {\n")
+        .append("  }\n")
+        .append("\n")
+        .append("  @Override\n")
+        .append("  public ").append(typeName).append(" read(JsonReader reader) {\n")
+        .append("    if (Codecs.isNull(reader)) {\n")
+        .append("      return null;\n")
+        .append("    }\n")
+        .append("    Codecs.expect(reader, Event.START_OBJECT, ").append(quote(elementName))
+        .append(");\n")
+        .append("    ").append(typeName).append(" value = new ").append(typeName).append("();\n")
+        .append("    String key;\n")
+        .append("    while ((key = Codecs.nextKey(reader, KEYS)) != null) {\n")
+        .append("      reader.nextEvent();\n")
+        .append("      switch (key) {\n")
+        .append(reads)
+        .append("        default:\n")
+        .append("          reader.skipValue();\n")
+        .append("      }\n")
+        .append("    }\n")
+        .append("    return value;\n")
+        .append("  }\n")
+        .append("\n")
+        .append("  @Override\n")
+        .append("  public void write(JsonWriter writer, ").append(typeName).append(" value) {\n")
+        .append("    if (value == null) {\n")
+        .append("      writer.nullValue();\n")
+        .append("      return;\n")
+        .append("    }\n")
+        .append("    writer.beginObject();\n")
+        .append(writes)
+        .append("    writer.endObject();\n")
+        .append("  }\n")
+        .append(helperSource)
+        .append("}\n");
+    return source.toString();
+  }
+
+  private void checkType() {
+    if (type.getKind() != ElementKind.CLASS || type.getModifiers().contains(Modifier.ABSTRACT)) {
+      throw new InvalidElementException("@GenerateCodec needs a concrete class", type);
+    }
+    if (!type.getTypeParameters().isEmpty()) {
+      throw new InvalidElementException("@GenerateCodec does not support generic classes", type);
+    }
+    for (Element e = type; e instanceof TypeElement; e = e.getEnclosingElement()) {
+      if (e.getModifiers().contains(Modifier.PRIVATE)) {
+        throw new InvalidElementException("@GenerateCodec classes must not be private", type);
+      }
+      if (e.getEnclosingElement() instanceof TypeElement
+          && !e.getModifiers().contains(Modifier.STATIC)) {
+        throw new InvalidElementException("@GenerateCodec classes must not be inner classes",
+            type);
+      }
+    }
+    boolean constructor = false;
+    for (ExecutableElement c : ElementFilter.constructorsIn(type.getEnclosedElements())) {
+      if (c.getParameters().isEmpty() && !c.getModifiers().contains(Modifier.PRIVATE)) {
+        constructor = true;
+      }
+    }
+    if (!constructor) {
+      throw new InvalidElementException(
+          "@GenerateCodec classes need a non-private no-arg constructor", type);
+    }
+  }
+
+  private boolean isPublic() {
+    for (Element e = type; e instanceof TypeElement; e = e.getEnclosingElement()) {
+      if (!e.getModifiers().contains(Modifier.PUBLIC)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Returns the fields to read and write, inherited ones first. Fields hidden by a subclass
+   * are left out.
+   */
+  private List<VariableElement> fields() {
+    List<List<VariableElement>> hierarchy = new ArrayList<>();
+    Set<String> names = new HashSet<>();
+    PackageElement codecPackage = elements.getPackageOf(type);
+    for (TypeElement c = type; c != null; c = superclass(c)) {
+      List<VariableElement> declared = new ArrayList<>();
+      for (VariableElement field : ElementFilter.fieldsIn(c.getEnclosedElements())) {
+        Set<Modifier> modifiers = field.getModifiers();
+        if (modifiers.contains(Modifier.STATIC) || modifiers.contains(Modifier.TRANSIENT)
+            || !names.add(field.getSimpleName().toString())) {
+          continue;
+        }
+        if (modifiers.contains(Modifier.PRIVATE)) {
+          throw new InvalidElementException("@GenerateCodec fields must not be private, make "
+              + field.getSimpleName() + " transient to leave it out", field);
+        }
+        if (modifiers.contains(Modifier.FINAL)) {
+          throw new InvalidElementException("@GenerateCodec fields must not be final", field);
+        }
+        if (!modifiers.contains(Modifier.PUBLIC)
+            && !elements.getPackageOf(c).equals(codecPackage)) {
+          throw new InvalidElementException(field.getSimpleName() + " is not accessible from "
+              + codecPackage.getQualifiedName(), type);
+        }
+        declared.add(field);
+      }
+      hierarchy.add(0, declared);
+    }
+    List<VariableElement> fields = new ArrayList<>();
+    for (List<VariableElement> declared : hierarchy) {
+      fields.addAll(declared);
+    }
+    return fields;
+  }
+
+  private static TypeElement superclass(TypeElement c) {
+    TypeMirror superclass = c.getSuperclass();
+    if (superclass.getKind() != TypeKind.DECLARED) {
+      return null;
+    }
+    TypeElement element = (TypeElement) ((DeclaredType) superclass).asElement();
+    return element.getQualifiedName().contentEquals("java.lang.Object") ? null : element;
+  }
+
+  /**
+   * Returns an expression that reads a value of the given type at the current event, element
+   * is an expression naming it for errors.
+   */
+  private String read(TypeMirror t, String element) {
+    switch (t.getKind()) {
+      case BOOLEAN:
+        return "Codecs.readBoolean(reader, " + element + ")";
+      case CHAR:
+        return "Codecs.readChar(reader, " + element + ")";
+      case BYTE:
+        return "Codecs.readByte(reader, " + element + ")";
+      case SHORT:
+        return "Codecs.readShort(reader, " + element + ")";
+      case INT:
+        return "Codecs.readInt(reader, " + element + ")";
+      case LONG:
+        return "Codecs.readLong(reader, " + element + ")";
+      case FLOAT:
+        return "Codecs.readFloat(reader, " + element + ")";
+      case DOUBLE:
+        return "Codecs.readDouble(reader, " + element + ")";
+      case ARRAY:
+        return "read" + helper(t) + "(reader, " + element + ")";
+      case DECLARED:
+        break;
+      default:
+        throw unsupported(t);
+    }
+    TypeElement declared = (TypeElement) types.asElement(t);
+    String name = declared.getQualifiedName().toString();
+    TypeMirror primitive = unboxed(t);
+    if (primitive != null) {
+      return "(Codecs.isNull(reader) ? null : " + name + ".valueOf("
+          + read(primitive, element) + "))";
+    }
+    switch (name) {
+      case "java.lang.String":
+        return "Codecs.readString(reader, " + element + ")";
+      case "java.math.BigInteger":
+        return "Codecs.readBigInteger(reader, " + element + ")";
+      case "java.math.BigDecimal":
+        return "Codecs.readBigDecimal(reader, " + element + ")";
+      default:
+        break;
+    }
+    if (isAnnotated(declared)) {
+      return codecOf(declared) + ".INSTANCE.read(reader)";
+    }
+    if (declared.getKind() == ElementKind.ENUM || isMap(t) || isCollection(t)) {
+      return "read" + helper(t) + "(reader, " + element + ")";
+    }
+    throw unsupported(t);
+  }
+
+  /**
+   * Returns statements that write value, an expression of the given type.
+   */
+  private String write(TypeMirror t, String value, String indent) {
+    switch (t.getKind()) {
+      case CHAR:
+        return indent + "writer.value(String.valueOf(" + value + "));\n";
+      case BOOLEAN:
+      case BYTE:
+      case SHORT:
+      case INT:
+      case LONG:
+      case FLOAT:
+      case DOUBLE:
+        return indent + "writer.value(" + value + ");\n";
+      case ARRAY:
+        return indent + "write" + helper(t) + "(writer, " + value + ");\n";
+      case DECLARED:
+        break;
+      default:
+        throw unsupported(t);
+    }
+    TypeElement declared = (TypeElement) types.asElement(t);
+    String name = declared.getQualifiedName().toString();
+    if (name.equals("java.lang.Character")) {
+      return indent + "writer.value(" + value + " == null ? null : " + value + ".toString());\n";
+    }
+    if (unboxed(t) != null || name.equals("java.math.BigInteger")
+        || name.equals("java.math.BigDecimal")) {
+      // Written as is, or as null.
+      return indent + "writer.write(" + value + ");\n";
+    }
+    if (name.equals("java.lang.String")) {
+      return indent + "writer.value(" + value + ");\n";
+    }
+    if (isAnnotated(declared)) {
+      return indent + codecOf(declared) + ".INSTANCE.write(writer, " + value + ");\n";
+    }
+    return indent + "write" + helper(t) + "(writer, " + value + ");\n";
+  }
+
+  /**
+   * Returns the index of the read and write helper methods of an enum, array, collection or map
+   * type, generating them on first use.
+   */
+  private int helper(TypeMirror t) {
+    String key = t.toString();
+    Integer index = helpers.get(key);
+    if (index != null) {
+      return index;
+    }
+    index = helpers.size();
+    helpers.put(key, index);
+    StringBuilder source = new StringBuilder();
+    source.append("\n")
+        .append("  private static ").append(key).append(" read").append(index)
+        .append("(JsonReader reader, String element) {\n")
+        .append("    if (Codecs.isNull(reader)) {\n")
+        .append("      return null;\n")
+        .append("    }\n");
+    String item;
+    TypeMirror itemType;
+    if (t.getKind() == TypeKind.ARRAY) {
+      itemType = ((ArrayType) t).getComponentType();
+      if (itemType.getKind() == TypeKind.DECLARED
+          && !((DeclaredType) itemType).getTypeArguments().isEmpty()) {
+        throw unsupported(t);
+      }
+      item = itemType.toString();
+      String component = item;
+      int bracket = component.indexOf('[');
+      String array = bracket < 0 ? component + "[8]"
+          : component.substring(0, bracket) + "[8]" + component.substring(bracket);
+      source.append("    Codecs.expect(reader, Event.START_ARRAY, element);\n")
+          .append("    ").append(key).append(" result = new ").append(array).append(";\n")
+          .append("    int size = 0;\n")
+          .append("    while (Codecs.nextElement(reader)) {\n")
+          .append("      if (size == result.length) {\n")
+          .append("        result = java.util.Arrays.copyOf(result, size * 2);\n")
+          .append("      }\n")
+          .append("      result[size++] = ").append(read(itemType, "element")).append(";\n")
+          .append("    }\n")
+          .append("    return java.util.Arrays.copyOf(result, size);\n");
+    } else if (types.asElement(t).getKind() == ElementKind.ENUM) {
+      itemType = null;
+      item = null;
+      List<String> constants = new ArrayList<>();
+      source.append("    switch (Codecs.readString(reader, element)) {\n");
+      for (Element constant : types.asElement(t).getEnclosedElements()) {
+        if (constant.getKind() == ElementKind.ENUM_CONSTANT) {
+          String name = constant.getSimpleName().toString();
+          constants.add(name);
+          source.append("      case ").append(quote(name)).append(":\n")
+              .append("        return ").append(key).append(".").append(name).append(";\n");
+        }
+      }
+      source.append("      default:\n")
+          .append("        throw Codecs.unexpected(reader, element, ")
+          .append(quote("one of " + constants)).append(");\n")
+          .append("    }\n");
+    } else if (isMap(t)) {
+      List<? extends TypeMirror> arguments = ((DeclaredType) t).getTypeArguments();
+      if (arguments.size() != 2
+          || !types.isSameType(bound(arguments.get(0)), string())) {
+        throw new UnsupportedTypeException("Cannot generate a codec for " + t
+            + ", JSON keys are strings");
+      }
+      itemType = bound(arguments.get(1));
+      item = itemType.toString();
+      String implementation = implementation(t, "java.util.HashMap", "java.util.LinkedHashMap");
+      String local = generic(implementation, "java.lang.String, " + item);
+      source.append("    Codecs.expect(reader, Event.START_OBJECT, element);\n")
+          .append("    ").append(local).append(" result = new ").append(local).append("();\n")
+          .append("    String key;\n")
+          .append("    while ((key = Codecs.nextKey(reader, KEYS)) != null) {\n")
+          .append("      reader.nextEvent();\n")
+          .append("      result.put(key, ").append(read(itemType, "element")).append(");\n")
+          .append("    }\n")
+          .append("    return result;\n");
+    } else {
+      List<? extends TypeMirror> arguments = ((DeclaredType) t).getTypeArguments();
+      if (arguments.size() != 1) {
+        throw unsupported(t);
+      }
+      itemType = bound(arguments.get(0));
+      item = itemType.toString();
+      String implementation = implementation(t, "java.util.ArrayList",
+          "java.util.LinkedHashSet");
+      String local = generic(implementation, item);
+      source.append("    Codecs.expect(reader, Event.START_ARRAY, element);\n")
+          .append("    ").append(local).append(" result = new ").append(local).append("();\n")
+          .append("    while (Codecs.nextElement(reader)) {\n")
+          .append("      result.add(").append(read(itemType, "element")).append(");\n")
+          .append("    }\n")
+          .append("    return result;\n");
+    }
+    source.append("  }\n")
+        .append("\n")
+        .append("  private static void write").append(index)
+        .append("(JsonWriter writer, ").append(key).append(" value) {\n");
+    if (itemType == null) {
+      source.append("    writer.value(value == null ? null : value.name());\n");
+    } else {
+      source.append("    if (value == null) {\n")
+          .append("      writer.nullValue();\n")
+          .append("      return;\n")
+          .append("    }\n");
+      if (isMap(t)) {
+        source.append("    writer.beginObject();\n")
+            .append("    for (java.util.Map.Entry<java.lang.String, ? extends ").append(item)
+            .append("> entry : value.entrySet()) {\n")
+            .append("      writer.name(String.valueOf(entry.getKey()));\n")
+            .append(write(itemType, "entry.getValue()", "      "))
+            .append("    }\n")
+            .append("    writer.endObject();\n");
+      } else {
+        source.append("    writer.beginArray();\n")
+            .append("    for (").append(item).append(" item : value) {\n")
+            .append(write(itemType, "item", "      "))
+            .append("    }\n")
+            .append("    writer.endArray();\n");
+      }
+    }
+    source.append("  }\n");
+    helperSource.append(source);
+    return index;
+  }
+
+  /**
+   * Returns the class to instantiate for a collection or map type: the type itself if it is a
+   * concrete class, otherwise the first of the given implementations that fits it.
+   */
+  private String implementation(TypeMirror t, String... candidates) {
+    TypeElement declared = (TypeElement) types.asElement(t);
+    if (declared.getKind() == ElementKind.CLASS
+        && !declared.getModifiers().contains(Modifier.ABSTRACT)) {
+      return declared.getQualifiedName().toString();
+    }
+    for (String candidate : candidates) {
+      TypeMirror implementation = types.erasure(elements.getTypeElement(candidate).asType());
+      if (types.isAssignable(implementation, types.erasure(t))) {
+        return candidate;
+      }
+    }
+    throw unsupported(t);
+  }
+
+  private String generic(String implementation, String arguments) {
+    if (elements.getTypeElement(implementation).getTypeParameters().isEmpty()) {
+      return implementation;
+    }
+    return implementation + "<" + arguments + ">";
+  }
+
+  private TypeMirror bound(TypeMirror t) {
+    if (t.getKind() == TypeKind.WILDCARD && ((WildcardType) t).getExtendsBound() != null) {
+      return ((WildcardType) t).getExtendsBound();
+    }
+    if (t.getKind() != TypeKind.DECLARED && t.getKind() != TypeKind.ARRAY) {
+      throw unsupported(t);
+    }
+    return t;
+  }
+
+  private TypeMirror unboxed(TypeMirror t) {
+    try {
+      return types.unboxedType(t);
+    } catch (IllegalArgumentException e) {
+      return null;
+    }
+  }
+
+  private boolean isMap(TypeMirror t) {
+    return isSubtype(t, "java.util.Map");
+  }
+
+  private boolean isCollection(TypeMirror t) {
+    return isSubtype(t, "java.util.Collection");
+  }
+
+  private boolean isSubtype(TypeMirror t, String name) {
+    return types.isSubtype(types.erasure(t),
+        types.erasure(elements.getTypeElement(name).asType()));
+  }
+
+  private TypeMirror string() {
+    return elements.getTypeElement("java.lang.String").asType();
+  }
+
+  private static boolean isAnnotated(TypeElement declared) {
+    for (AnnotationMirror annotation : declared.getAnnotationMirrors()) {
+      if (annotation.getAnnotationType().toString().equals(CodecProcessor.ANNOTATION)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private String codecOf(TypeElement declared) {
+    String codecPackage = elements.getPackageOf(declared).getQualifiedName().toString();
+    return codecPackage.isEmpty() ? codecName(declared) : codecPackage + "." + codecName(declared);
+  }
+
+  private static UnsupportedTypeException unsupported(TypeMirror t) {
+    return new UnsupportedTypeException("Cannot generate a codec for " + t + ", supported are"
+        + " primitives and their wrappers, String, BigInteger, BigDecimal, enums, arrays,"
+        + " collections, maps with String keys and other @GenerateCodec classes");
+  }
+
+  private static String quote(String value) {
+    return "\"" + value.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+  }
+}
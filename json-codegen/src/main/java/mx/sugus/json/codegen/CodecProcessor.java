@@ -0,0 +1,59 @@
+package mx.sugus.json.codegen;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Collections;
+import java.util.Set;
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.TypeElement;
+import javax.tools.Diagnostic.Kind;
+
+/**
+ * Generates a {@code mx.sugus.json.JsonCodec} for each class annotated with
+ * {@code mx.sugus.json.GenerateCodec}, see {@link CodecGenerator} for what the generated code
+ * looks like. Classes that cannot be bound, e.g., with a private field or a field of an
+ * unsupported type, are reported as compilation errors on the offending element.
+ */
+public class CodecProcessor extends AbstractProcessor {
+
+  static final String ANNOTATION = "mx.sugus.json.GenerateCodec";
+
+  @Override
+  public Set<String> getSupportedAnnotationTypes() {
+    return Collections.singleton(ANNOTATION);
+  }
+
+  @Override
+  public SourceVersion getSupportedSourceVersion() {
+    return SourceVersion.latestSupported();
+  }
+
+  @Override
+  public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment round) {
+    for (TypeElement annotation : annotations) {
+      for (Element element : round.getElementsAnnotatedWith(annotation)) {
+        if (!(element instanceof TypeElement)) {
+          continue;
+        }
+        TypeElement type = (TypeElement) element;
+        try {
+          CodecGenerator generator = new CodecGenerator(processingEnv, type);
+          String source = generator.generate();
+          try (Writer writer = processingEnv.getFiler()
+              .createSourceFile(generator.qualifiedCodecName(), type).openWriter()) {
+            writer.write(source);
+          }
+        } catch (CodecGenerator.InvalidElementException e) {
+          processingEnv.getMessager().printMessage(Kind.ERROR, e.getMessage(), e.element());
+        } catch (IOException e) {
+          processingEnv.getMessager().printMessage(Kind.ERROR,
+              "Cannot write the codec of " + type + ": " + e.getMessage(), type);
+        }
+      }
+    }
+    return true;
+  }
+}
@@ -0,0 +1,217 @@
+package mx.sugus.json.codegen;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Locale;
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import mx.sugus.json.JsonReader;
+import mx.sugus.json.ParseException;
+import mx.sugus.json.Parser;
+import org.junit.Test;
+
+public class CodecProcessorTest {
+
+  private static final String JSON = "{\"id\": 7, \"name\": \"first\", \"paid\": true, \"grade\": \"A\","
+      + " \"priority\": -1, \"region\": 300, \"weight\": 1.5, \"total\": 1e3, \"boxed\": null,"
+      + " \"serial\": 12345678901234567890, \"initial\": \"x\", \"status\": \"SHIPPED\","
+      + " \"unknown\": {\"a\": [1, {\"b\": 2}]},"
+      + " \"first\": {\"sku\": \"a-1\", \"quantity\": 2, \"price\": 9.99},"
+      + " \"lines\": [{\"quantity\": 1}, null], \"history\": [\"OPEN\", \"SHIPPED\", \"OPEN\"],"
+      + " \"groups\": {\"g\": [1, 2], \"h\": []}, \"timestamps\": [1, 2, 3, 4, 5, 6, 7, 8, 9],"
+      + " \"notes\": [[\"n\"], []], \"cached\": 5}";
+
+  @Test
+  public void testRead() {
+    // Act
+    Order order = OrderCodec.INSTANCE.read(JSON);
+
+    // Assert
+    assertEquals(7, order.id);
+    assertEquals("first", order.name);
+    assertTrue(order.paid);
+    assertEquals('A', order.grade);
+    assertEquals(-1, order.priority);
+    assertEquals(300, order.region);
+    assertEquals(1.5f, order.weight, 0);
+    assertEquals(1000, order.total, 0);
+    assertNull(order.boxed);
+    assertEquals(new BigInteger("12345678901234567890"), order.serial);
+    assertEquals(Character.valueOf('x'), order.initial);
+    assertEquals(Order.Status.SHIPPED, order.status);
+    assertEquals("a-1", order.first.sku);
+    assertEquals(new BigDecimal("9.99"), order.first.price);
+    assertEquals(1, order.lines.get(0).quantity);
+    assertNull(order.lines.get(1));
+    assertEquals(EnumSet.allOf(Order.Status.class), order.history);
+    assertEquals(Arrays.asList(1, 2), order.groups.get("g"));
+    assertEquals(Collections.emptyList(), order.groups.get("h"));
+    assertArrayEquals(new long[]{1, 2, 3, 4, 5, 6, 7, 8, 9}, order.timestamps);
+    assertArrayEquals(new String[][]{{"n"}, {}}, order.notes);
+    assertEquals(0, order.cached);
+  }
+
+  @Test
+  public void testRoundTrip() {
+    // Arrange
+    Order order = OrderCodec.INSTANCE.read(JSON.getBytes(StandardCharsets.UTF_8));
+
+    // Act
+    String json = OrderCodec.INSTANCE.toJson(order);
+
+    // Assert
+    assertEquals(json, OrderCodec.INSTANCE.toJson(OrderCodec.INSTANCE.read(json)));
+    Object expected = new Parser(JSON.replace("\"unknown\": {\"a\": [1, {\"b\": 2}]},", "")
+        .replace(", \"cached\": 5", "").replace("\"OPEN\", \"SHIPPED\", \"OPEN\"",
+            "\"OPEN\", \"SHIPPED\"").replace("1e3", "1000.0")
+        .replace("{\"quantity\": 1}", "{\"sku\": null, \"quantity\": 1, \"price\": null}"))
+        .parse();
+    assertEquals(expected, new Parser(json).parse());
+  }
+
+  @Test
+  public void testReadWithinDocument() {
+    // Arrange
+    JsonReader reader = new JsonReader("[{\"sku\": \"a\"}, null, {\"sku\": \"b\"}]");
+    reader.nextEvent();
+
+    // Act
+    StringBuilder skus = new StringBuilder();
+    while (reader.nextEvent() != JsonReader.Event.END_ARRAY) {
+      Order.Line line = Order_LineCodec.INSTANCE.read(reader);
+      skus.append(line == null ? "-" : line.sku);
+    }
+
+    // Assert
+    assertEquals("a-b", skus.toString());
+  }
+
+  @Test
+  public void testFloatRoundedOnce() {
+    // Arrange, the closest double is halfway between two floats.
+    String number = "1.00000017881393432617187499";
+
+    // Act
+    Order order = OrderCodec.INSTANCE.read("{\"weight\": " + number + "}");
+
+    // Assert
+    assertEquals(Float.parseFloat(number), order.weight, 0);
+  }
+
+  @Test(expected = ParseException.class)
+  public void testOverflow() {
+    // Act
+    OrderCodec.INSTANCE.read("{\"region\": 32768}");
+
+    // Assert
+    assertTrue(false);
+  }
+
+  @Test(expected = ParseException.class)
+  public void testIntegerDigits() {
+    // Act
+    OrderCodec.INSTANCE.read("{\"serial\": 1e1000000000}");
+
+    // Assert
+    assertTrue(false);
+  }
+
+  @Test(expected = ParseException.class)
+  public void testNullIntoPrimitive() {
+    // Act
+    OrderCodec.INSTANCE.read("{\"total\": null}");
+
+    // Assert
+    assertTrue(false);
+  }
+
+  @Test(expected = ParseException.class)
+  public void testUnknownConstant() {
+    // Act
+    OrderCodec.INSTANCE.read("{\"status\": \"LOST\"}");
+
+    // Assert
+    assertTrue(false);
+  }
+
+  @Test(expected = ParseException.class)
+  public void testTrailingValue() {
+    // Act
+    OrderCodec.INSTANCE.read("{} {}");
+
+    // Assert
+    assertTrue(false);
+  }
+
+  @Test
+  public void testInvalidClasses() throws IOException {
+    // Arrange
+    String[] sources = {
+        "@mx.sugus.json.GenerateCodec class Invalid { private int x; }",
+        "@mx.sugus.json.GenerateCodec class Invalid { Object x; }",
+        "@mx.sugus.json.GenerateCodec class Invalid { java.util.Map<Integer, String> x; }",
+        "@mx.sugus.json.GenerateCodec class Invalid { Invalid(int x) {} }",
+        "@mx.sugus.json.GenerateCodec abstract class Invalid { }",
+    };
+
+    for (String source : sources) {
+      // Act
+      List<Diagnostic<? extends JavaFileObject>> errors = compile(source);
+
+      // Assert
+      assertFalse(source, errors.isEmpty());
+      assertTrue(errors.get(0).getMessage(Locale.ROOT), errors.get(0).getMessage(Locale.ROOT)
+          .contains("@GenerateCodec") || errors.get(0).getMessage(Locale.ROOT)
+          .contains("Cannot generate a codec"));
+    }
+  }
+
+  /**
+   * Compiles the source with the processor, returns the errors.
+   */
+  private static List<Diagnostic<? extends JavaFileObject>> compile(String source)
+      throws IOException {
+    JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+    DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+    Path directory = Files.createTempDirectory("codec");
+    try (StandardJavaFileManager files = compiler.getStandardFileManager(null, null, null)) {
+      Path file = directory.resolve("Invalid.java");
+      Files.write(file, source.getBytes(StandardCharsets.UTF_8));
+      List<String> options = Arrays.asList("-d", directory.toString(), "-classpath",
+          System.getProperty("java.class.path"), "-processor", CodecProcessor.class.getName());
+      compiler.getTask(null, files, diagnostics, options, null,
+          files.getJavaFileObjects(file.toFile())).call();
+    }
+    for (File f : directory.toFile().listFiles()) {
+      f.delete();
+    }
+    directory.toFile().delete();
+    List<Diagnostic<? extends JavaFileObject>> errors = new ArrayList<>();
+    for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics()) {
+      if (diagnostic.getKind() == Diagnostic.Kind.ERROR) {
+        errors.add(diagnostic);
+      }
+    }
+    return errors;
+  }
+}
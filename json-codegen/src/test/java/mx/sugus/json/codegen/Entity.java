@@ -0,0 +1,7 @@
+package mx.sugus.json.codegen;
+
+public class Entity {
+
+  public long id;
+  public String name;
+}
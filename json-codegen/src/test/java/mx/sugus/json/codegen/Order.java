@@ -0,0 +1,41 @@
+package mx.sugus.json.codegen;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import mx.sugus.json.GenerateCodec;
+
+@GenerateCodec
+public class Order extends Entity {
+
+  enum Status {
+    OPEN, SHIPPED
+  }
+
+  @GenerateCodec
+  static class Line {
+    String sku;
+    int quantity;
+    BigDecimal price;
+  }
+
+  boolean paid;
+  char grade;
+  byte priority;
+  short region;
+  float weight;
+  double total;
+  BigInteger serial;
+  Integer boxed;
+  Character initial;
+  Status status;
+  Line first;
+  List<Line> lines;
+  Set<Status> history;
+  Map<String, List<Integer>> groups;
+  long[] timestamps;
+  String[][] notes;
+  transient int cached;
+}
@@ -0,0 +1,896 @@
+package mx.sugus.json;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.GenericArrayType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.WildcardType;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Reads a value of a given Java type straight from the tokens of a {@link Parser}, see
+ * {@link Parser#parse(Class)}. Binders for classes are built once, on first use, and cached for
+ * the life of the class. Fields are set through method handles, primitive fields without boxing,
+ * records are created through their canonical constructor.
+ */
+abstract class Binder {
+
+  private static final ClassValue<Binder> BINDERS = new ClassValue<Binder>() {
+    @Override
+    protected Binder computeValue(Class<?> type) {
+      return create(type);
+    }
+  };
+
+  /**
+   * Reads the value starting with the given token.
+   */
+  abstract Object read(Parser parser, Token.Type type);
+
+  static Binder of(Class<?> type) {
+    return BINDERS.get(type);
+  }
+
+  static Binder of(Type type) {
+    if (type instanceof Class) {
+      return of((Class<?>) type);
+    }
+    if (type instanceof ParameterizedType) {
+      ParameterizedType parameterized = (ParameterizedType) type;
+      Class<?> raw = (Class<?>) parameterized.getRawType();
+      Type[] arguments = parameterized.getActualTypeArguments();
+      if (Map.class.isAssignableFrom(raw)) {
+        checkMapKey(raw, arguments[0]);
+        return new MapBinder(raw, of(arguments[1]));
+      }
+      if (Collection.class.isAssignableFrom(raw)) {
+        return new CollectionBinder(raw, of(arguments[0]));
+      }
+      return of(raw);
+    }
+    if (type instanceof GenericArrayType) {
+      Type component = ((GenericArrayType) type).getGenericComponentType();
+      return new ArrayBinder(rawClass(component), of(component));
+    }
+    if (type instanceof WildcardType) {
+      return of(((WildcardType) type).getUpperBounds()[0]);
+    }
+    // Type variables are bound to whatever they are.
+    return ANY;
+  }
+
+  private static Class<?> rawClass(Type type) {
+    if (type instanceof Class) {
+      return (Class<?>) type;
+    }
+    if (type instanceof ParameterizedType) {
+      return (Class<?>) ((ParameterizedType) type).getRawType();
+    }
+    if (type instanceof GenericArrayType) {
+      return Array.newInstance(rawClass(((GenericArrayType) type).getGenericComponentType()), 0)
+          .getClass();
+    }
+    return Object.class;
+  }
+
+  private static void checkMapKey(Class<?> raw, Type key) {
+    if (key != String.class && key != Object.class && !(key instanceof WildcardType)) {
+      throw new IllegalArgumentException("Cannot bind " + raw.getName() + " with " + key
+          + " keys, JSON keys are strings");
+    }
+  }
+
+  private static Binder create(Class<?> type) {
+    if (type.isPrimitive() || Number.class.isAssignableFrom(type) || type == Boolean.class
+        || type == Character.class) {
+      Kind kind = Kind.of(type);
+      if (kind != null) {
+        return new ScalarBinder(kind, type.getSimpleName());
+      }
+    }
+    if (type == String.class || type == CharSequence.class) {
+      return STRING;
+    }
+    if (type == Object.class || type == Number.class) {
+      return ANY;
+    }
+    if (type.isEnum()) {
+      return new EnumBinder(type);
+    }
+    if (type.isArray()) {
+      return new ArrayBinder(type.getComponentType(), of(type.getComponentType()));
+    }
+    if (Map.class.isAssignableFrom(type)) {
+      return new MapBinder(type, ANY);
+    }
+    if (Collection.class.isAssignableFrom(type)) {
+      return new CollectionBinder(type, ANY);
+    }
+    if (type.isInterface() || Modifier.isAbstract(type.getModifiers())) {
+      throw new IllegalArgumentException("Cannot bind abstract " + type.getName());
+    }
+    if (isRecord(type)) {
+      return new RecordBinder(type);
+    }
+    return new ObjectBinder(type);
+  }
+
+  // Class.isRecord() is only there from Java 16 on.
+  private static boolean isRecord(Class<?> type) {
+    Class<?> superclass = type.getSuperclass();
+    return superclass != null && superclass.getName().equals("java.lang.Record");
+  }
+
+  /**
+   * How a value is converted, and set into a field, for primitives, their wrappers and the
+   * other number types.
+   */
+  enum Kind {
+    BOOLEAN, CHAR, BYTE, SHORT, INT, LONG, FLOAT, DOUBLE, BIG_INTEGER, BIG_DECIMAL;
+
+    static Kind of(Class<?> type) {
+      if (type == boolean.class || type == Boolean.class) {
+        return BOOLEAN;
+      } else if (type == char.class || type == Character.class) {
+        return CHAR;
+      } else if (type == byte.class || type == Byte.class) {
+        return BYTE;
+      } else if (type == short.class || type == Short.class) {
+        return SHORT;
+      } else if (type == int.class || type == Integer.class) {
+        return INT;
+      } else if (type == long.class || type == Long.class) {
+        return LONG;
+      } else if (type == float.class || type == Float.class) {
+        return FLOAT;
+      } else if (type == double.class || type == Double.class) {
+        return DOUBLE;
+      } else if (type == BigInteger.class) {
+        return BIG_INTEGER;
+      } else if (type == BigDecimal.class) {
+        return BIG_DECIMAL;
+      }
+      return null;
+    }
+  }
+
+  static long longValue(Parser parser, Token.Type type, String element) {
+    Tokenizer tokenizer = parser.tokenizer();
+    if (type == Token.Type.LONG && tokenizer.isLong()) {
+      return tokenizer.longValue();
+    }
+    if (type == Token.Type.LONG || type == Token.Type.DOUBLE) {
+      try {
+        return tokenizer.bigDecimalValue().longValueExact();
+      } catch (ArithmeticException e) {
+        throw parser.parseError(element, "number in range", type);
+      }
+    }
+    throw parser.parseError(element, "number", type);
+  }
+
+  static long longValue(Parser parser, Token.Type type, String element, long min, long max) {
+    long value = longValue(parser, type, element);
+    if (value < min || value > max) {
+      throw parser.parseError(element, "number in range", type);
+    }
+    return value;
+  }
+
+  static double doubleValue(Parser parser, Token.Type type, String element) {
+    if (type == Token.Type.LONG || type == Token.Type.DOUBLE) {
+      return parser.tokenizer().doubleValue();
+    }
+    throw parser.parseError(element, "number", type);
+  }
+
+  static float floatValue(Parser parser, Token.Type type, String element) {
+    if (type == Token.Type.LONG || type == Token.Type.DOUBLE) {
+      return parser.tokenizer().floatValue();
+    }
+    throw parser.parseError(element, "number", type);
+  }
+
+  static boolean booleanValue(Parser parser, Token.Type type, String element) {
+    if (type == Token.Type.TRUE || type == Token.Type.FALSE) {
+      return type == Token.Type.TRUE;
+    }
+    throw parser.parseError(element, "boolean", type);
+  }
+
+  static char charValue(Parser parser, Token.Type type, String element) {
+    Tokenizer tokenizer = parser.tokenizer();
+    if (type == Token.Type.STRING && tokenizer.textLength() == 1) {
+      return tokenizer.textChars()[tokenizer.textStart()];
+    }
+    throw parser.parseError(element, "single character string", type);
+  }
+
+  private static final Binder ANY = new Binder() {
+    @Override
+    Object read(Parser parser, Token.Type type) {
+      return parser.parseOneValue(type);
+    }
+  };
+
+  private static final Binder STRING = new Binder() {
+    @Override
+    Object read(Parser parser, Token.Type type) {
+      if (type == Token.Type.NULL) {
+        return null;
+      }
+      parser.consume(type, "string", Token.Type.STRING);
+      return parser.tokenizer().stringValue();
+    }
+  };
+
+  /**
+   * Binds numbers, booleans and chars, boxed.
+   */
+  private static final class ScalarBinder extends Binder {
+
+    private final Kind kind;
+    private final String element;
+
+    ScalarBinder(Kind kind, String element) {
+      this.kind = kind;
+      this.element = element;
+    }
+
+    @Override
+    Object read(Parser parser, Token.Type type) {
+      if (type == Token.Type.NULL) {
+        return null;
+      }
+      switch (kind) {
+        case BOOLEAN:
+          return booleanValue(parser, type, element);
+        case CHAR:
+          return charValue(parser, type, element);
+        case BYTE:
+          return (byte) longValue(parser, type, element, Byte.MIN_VALUE, Byte.MAX_VALUE);
+        case SHORT:
+          return (short) longValue(parser, type, element, Short.MIN_VALUE, Short.MAX_VALUE);
+        case INT:
+          return (int) longValue(parser, type, element, Integer.MIN_VALUE, Integer.MAX_VALUE);
+        case LONG:
+          return longValue(parser, type, element);
+        case FLOAT:
+          return floatValue(parser, type, element);
+        case DOUBLE:
+          return doubleValue(parser, type, element);
+        case BIG_INTEGER:
+          checkNumber(parser, type);
+          try {
+            return parser.tokenizer().bigIntegerValue(true);
+          } catch (ArithmeticException e) {
+            throw parser.parseError(element, "integer", type);
+          }
+        default:
+          checkNumber(parser, type);
+          return parser.tokenizer().bigDecimalValue();
+      }
+    }
+
+    private void checkNumber(Parser parser, Token.Type type) {
+      if (type != Token.Type.LONG && type != Token.Type.DOUBLE) {
+        throw parser.parseError(element, "number", type);
+      }
+    }
+  }
+
+  private static final class EnumBinder extends Binder {
+
+    private final Map<String, Object> constants = new HashMap<>();
+    private final String element;
+
+    EnumBinder(Class<?> type) {
+      for (Object constant : type.getEnumConstants()) {
+        constants.put(((Enum<?>) constant).name(), constant);
+      }
+      this.element = type.getSimpleName();
+    }
+
+    @Override
+    Object read(Parser parser, Token.Type type) {
+      if (type == Token.Type.NULL) {
+        return null;
+      }
+      parser.consume(type, element, Token.Type.STRING);
+      Object constant = constants.get(parser.tokenizer().stringValue());
+      if (constant == null) {
+        throw parser.parseError(element, "one of " + constants.keySet(), type);
+      }
+      return constant;
+    }
+  }
+
+  private static final class CollectionBinder extends Binder {
+
+    private final MethodHandle constructor;
+    private final Binder elements;
+
+    CollectionBinder(Class<?> type, Binder elements) {
+      Class<?> implementation = type;
+      if (type.isAssignableFrom(ArrayList.class)) {
+        implementation = ArrayList.class;
+      } else if (type.isAssignableFrom(LinkedHashSet.class)) {
+        implementation = LinkedHashSet.class;
+      }
+      this.constructor = constructor(implementation);
+      this.elements = elements;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    Object read(Parser parser, Token.Type type) {
+      if (type == Token.Type.NULL) {
+        return null;
+      }
+      parser.consume(type, "list", Token.Type.START_LIST);
+      parser.enterRecursive();
+      Collection<Object> result = (Collection<Object>) newInstance(constructor);
+      type = parser.next();
+      while (type != Token.Type.END_LIST && type != Token.Type.EOF) {
+        result.add(elements.read(parser, type));
+        type = parser.next();
+        if (type != Token.Type.COMMA) {
+          break;
+        }
+        type = parser.next();
+      }
+      parser.consume(type, "list", Token.Type.END_LIST);
+      parser.exit();
+      return result;
+    }
+  }
+
+  /**
+   * Binds arrays, those of primitive numbers are filled from a long[] or double[] without
+   * boxing the elements.
+   */
+  private static final class ArrayBinder extends Binder {
+
+    private final Class<?> componentType;
+    private final Binder elements;
+    // Kind of the elements of primitive number arrays, null for any other array.
+    private final Kind kind;
+    private final String element;
+
+    ArrayBinder(Class<?> componentType, Binder elements) {
+      this.componentType = componentType;
+      this.elements = elements;
+      Kind kind = componentType.isPrimitive() ? Kind.of(componentType) : null;
+      this.kind = kind == Kind.BOOLEAN || kind == Kind.CHAR ? null : kind;
+      this.element = componentType.getName();
+    }
+
+    @Override
+    Object read(Parser parser, Token.Type type) {
+      if (type == Token.Type.NULL) {
+        return null;
+      }
+      parser.consume(type, "list", Token.Type.START_LIST);
+      parser.enterRecursive();
+      Object array;
+      if (kind == Kind.FLOAT) {
+        array = readFloats(parser);
+      } else if (kind == Kind.DOUBLE) {
+        array = readDoubles(parser);
+      } else if (kind != null) {
+        array = readLongs(parser);
+      } else {
+        array = readObjects(parser);
+      }
+      parser.exit();
+      return array;
+    }
+
+    private Object readLongs(Parser parser) {
+      long min = kind == Kind.BYTE ? Byte.MIN_VALUE : kind == Kind.SHORT ? Short.MIN_VALUE
+          : kind == Kind.INT ? Integer.MIN_VALUE : Long.MIN_VALUE;
+      long max = kind == Kind.BYTE ? Byte.MAX_VALUE : kind == Kind.SHORT ? Short.MAX_VALUE
+          : kind == Kind.INT ? Integer.MAX_VALUE : Long.MAX_VALUE;
+      long[] values = new long[8];
+      int size = 0;
+      Token.Type type = parser.next();
+      while (type != Token.Type.END_LIST && type != Token.Type.EOF) {
+        if (size == values.length) {
+          values = Arrays.copyOf(values, size * 2);
+        }
+        values[size++] = longValue(parser, type, element, min, max);
+        type = parser.next();
+        if (type != Token.Type.COMMA) {
+          break;
+        }
+        type = parser.next();
+      }
+      parser.consume(type, "list", Token.Type.END_LIST);
+      switch (kind) {
+        case BYTE:
+          byte[] bytes = new byte[size];
+          for (int i = 0; i < size; i++) {
+            bytes[i] = (byte) values[i];
+          }
+          return bytes;
+        case SHORT:
+          short[] shorts = new short[size];
+          for (int i = 0; i < size; i++) {
+            shorts[i] = (short) values[i];
+          }
+          return shorts;
+        case INT:
+          int[] ints = new int[size];
+          for (int i = 0; i < size; i++) {
+            ints[i] = (int) values[i];
+          }
+          return ints;
+        default:
+          return size == values.length ? values : Arrays.copyOf(values, size);
+      }
+    }
+
+    private Object readDoubles(Parser parser) {
+      double[] values = new double[8];
+      int size = 0;
+      Token.Type type = parser.next();
+      while (type != Token.Type.END_LIST && type != Token.Type.EOF) {
+        if (size == values.length) {
+          values = Arrays.copyOf(values, size * 2);
+        }
+        values[size++] = doubleValue(parser, type, element);
+        type = parser.next();
+        if (type != Token.Type.COMMA) {
+          break;
+        }
+        type = parser.next();
+      }
+      parser.consume(type, "list", Token.Type.END_LIST);
+      return size == values.length ? values : Arrays.copyOf(values, size);
+    }
+
+    private Object readFloats(Parser parser) {
+      float[] values = new float[8];
+      int size = 0;
+      Token.Type type = parser.next();
+      while (type != Token.Type.END_LIST && type != Token.Type.EOF) {
+        if (size == values.length) {
+          values = Arrays.copyOf(values, size * 2);
+        }
+        values[size++] = floatValue(parser, type, element);
+        type = parser.next();
+        if (type != Token.Type.COMMA) {
+          break;
+        }
+        type = parser.next();
+      }
+      parser.consume(type, "list", Token.Type.END_LIST);
+      return size == values.length ? values : Arrays.copyOf(values, size);
+    }
+
+    private Object readObjects(Parser parser) {
+      List<Object> values = new ArrayList<>();
+      Token.Type type = parser.next();
+      while (type != Token.Type.END_LIST && type != Token.Type.EOF) {
+        Object value = elements.read(parser, type);
+        if (value == null && componentType.isPrimitive()) {
+          throw parser.parseError(element, componentType == char.class ? "string" : "boolean",
+              type);
+        }
+        values.add(value);
+        type = parser.next();
+        if (type != Token.Type.COMMA) {
+          break;
+        }
+        type = parser.next();
+      }
+      parser.consume(type, "list", Token.Type.END_LIST);
+      Object array = Array.newInstance(componentType, values.size());
+      for (int i = 0; i < values.size(); i++) {
+        Array.set(array, i, values.get(i));
+      }
+      return array;
+    }
+  }
+
+  private static final class MapBinder extends Binder {
+
+    private final MethodHandle constructor;
+    private final Binder values;
+
+    MapBinder(Class<?> type, Binder values) {
+      this.constructor = constructor(type.isAssignableFrom(HashMap.class) ? HashMap.class
+          : type.isAssignableFrom(LinkedHashMap.class) ? LinkedHashMap.class : type);
+      this.values = values;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    Object read(Parser parser, Token.Type type) {
+      if (type == Token.Type.NULL) {
+        return null;
+      }
+      parser.consume(type, "map", Token.Type.START_MAP);
+      parser.enterRecursive();
+      Map<String, Object> result = (Map<String, Object>) newInstance(constructor);
+      type = parser.next();
+      while (type != Token.Type.END_MAP && type != Token.Type.EOF) {
+        parser.consume(type, "map", Token.Type.STRING);
+        String key = parser.key();
+        parser.consume(parser.next(), "map", Token.Type.COLON);
+        result.put(key, values.read(parser, parser.next()));
+        type = parser.next();
+        if (type != Token.Type.COMMA) {
+          break;
+        }
+        type = parser.next();
+      }
+      parser.consume(type, "map", Token.Type.END_MAP);
+      parser.exit();
+      return result;
+    }
+  }
+
+  /**
+   * Binds objects to the fields of a class. Fields are looked up by the chars of each key, in
+   * an open addressing table keyed by the same hash as {@code String.hashCode()}, so no String
+   * is created for keys.
+   */
+  private static final class ObjectBinder extends Binder {
+
+    private final MethodHandle constructor;
+    private final String element;
+    private final FieldBinder[] table;
+    private final int mask;
+
+    ObjectBinder(Class<?> type) {
+      this.constructor = constructor(type);
+      this.element = type.getSimpleName();
+      List<FieldBinder> fields = new ArrayList<>();
+      Set<String> names = new LinkedHashSet<>();
+      for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+        for (Field field : c.getDeclaredFields()) {
+          int modifiers = field.getModifiers();
+          if (Modifier.isStatic(modifiers) || Modifier.isTransient(modifiers)
+              || field.isSynthetic() || !names.add(field.getName())) {
+            // Fields hidden by a subclass are not bound either.
+            continue;
+          }
+          fields.add(new FieldBinder(field, element + "." + field.getName()));
+        }
+      }
+      int size = Integer.highestOneBit(Math.max(1, fields.size()) * 2 - 1) * 2;
+      this.table = new FieldBinder[size];
+      this.mask = size - 1;
+      for (FieldBinder field : fields) {
+        int slot = field.name.hashCode() & mask;
+        while (table[slot] != null) {
+          slot = (slot + 1) & mask;
+        }
+        table[slot] = field;
+      }
+    }
+
+    @Override
+    Object read(Parser parser, Token.Type type) {
+      if (type == Token.Type.NULL) {
+        return null;
+      }
+      parser.consume(type, element, Token.Type.START_MAP);
+      parser.enterRecursive();
+      Object instance = newInstance(constructor);
+      Tokenizer tokenizer = parser.tokenizer();
+      type = parser.next();
+      while (type != Token.Type.END_MAP && type != Token.Type.EOF) {
+        parser.consume(type, element, Token.Type.STRING);
+        FieldBinder field = field(tokenizer.textChars(), tokenizer.textStart(),
+            tokenizer.textLength());
+        parser.consume(parser.next(), element, Token.Type.COLON);
+        if (field != null) {
+          field.read(parser, parser.next(), instance);
+        } else {
+          parser.skipValue(parser.next());
+        }
+        type = parser.next();
+        if (type != Token.Type.COMMA) {
+          break;
+        }
+        type = parser.next();
+      }
+      parser.consume(type, element, Token.Type.END_MAP);
+      parser.exit();
+      return instance;
+    }
+
+    private FieldBinder field(char[] chars, int start, int length) {
+      int hash = 0;
+      for (int i = start; i < start + length; i++) {
+        hash = 31 * hash + chars[i];
+      }
+      for (int slot = hash & mask; table[slot] != null; slot = (slot + 1) & mask) {
+        FieldBinder field = table[slot];
+        if (field.hash == hash && field.matches(chars, start, length)) {
+          return field;
+        }
+      }
+      return null;
+    }
+  }
+
+  /**
+   * Binds objects to records by the names of their components, which are passed to the canonical
+   * constructor once the object has been read. Components without a key get the default value of
+   * their type, as fields do. Components are found reflectively, records cannot be named from
+   * code compiled for Java 11.
+   */
+  private static final class RecordBinder extends Binder {
+
+    private final MethodHandle constructor;
+    private final String element;
+    private final String[] names;
+    private final String[] elements;
+    private final Type[] types;
+    private final Object[] defaults;
+    // Resolved on first use, so that a record can have components of its own type.
+    private final Binder[] binders;
+    // Open addressing table of component indexes plus one, keyed like ObjectBinder's.
+    private final int[] table;
+    private final int mask;
+
+    RecordBinder(Class<?> type) {
+      this.element = type.getSimpleName();
+      Class<?>[] rawTypes;
+      try {
+        Object[] components = (Object[]) Class.class.getMethod("getRecordComponents")
+            .invoke(type);
+        Class<?> componentClass = components.getClass().getComponentType();
+        Method getName = componentClass.getMethod("getName");
+        Method getType = componentClass.getMethod("getType");
+        Method getGenericType = componentClass.getMethod("getGenericType");
+        int count = components.length;
+        this.names = new String[count];
+        this.types = new Type[count];
+        rawTypes = new Class<?>[count];
+        for (int i = 0; i < count; i++) {
+          names[i] = (String) getName.invoke(components[i]);
+          rawTypes[i] = (Class<?>) getType.invoke(components[i]);
+          types[i] = (Type) getGenericType.invoke(components[i]);
+        }
+        Constructor<?> canonical = type.getDeclaredConstructor(rawTypes);
+        canonical.setAccessible(true);
+        this.constructor = MethodHandles.lookup().unreflectConstructor(canonical)
+            .asSpreader(Object[].class, count)
+            .asType(MethodType.methodType(Object.class, Object[].class));
+      } catch (ReflectiveOperationException | RuntimeException e) {
+        throw new IllegalArgumentException("Cannot bind " + type.getName(), e);
+      }
+      int count = names.length;
+      this.elements = new String[count];
+      this.defaults = new Object[count];
+      this.binders = new Binder[count];
+      for (int i = 0; i < count; i++) {
+        elements[i] = element + "." + names[i];
+        if (rawTypes[i].isPrimitive()) {
+          // The zero of the primitive type, boxed.
+          defaults[i] = Array.get(Array.newInstance(rawTypes[i], 1), 0);
+          binders[i] = new ScalarBinder(Kind.of(rawTypes[i]), elements[i]);
+        }
+      }
+      int size = Integer.highestOneBit(Math.max(1, count) * 2 - 1) * 2;
+      this.table = new int[size];
+      this.mask = size - 1;
+      for (int i = 0; i < count; i++) {
+        int slot = names[i].hashCode() & mask;
+        while (table[slot] != 0) {
+          slot = (slot + 1) & mask;
+        }
+        table[slot] = i + 1;
+      }
+    }
+
+    @Override
+    Object read(Parser parser, Token.Type type) {
+      if (type == Token.Type.NULL) {
+        return null;
+      }
+      parser.consume(type, element, Token.Type.START_MAP);
+      parser.enterRecursive();
+      Object[] arguments = defaults.clone();
+      Tokenizer tokenizer = parser.tokenizer();
+      type = parser.next();
+      while (type != Token.Type.END_MAP && type != Token.Type.EOF) {
+        parser.consume(type, element, Token.Type.STRING);
+        int index = component(tokenizer.textChars(), tokenizer.textStart(),
+            tokenizer.textLength());
+        parser.consume(parser.next(), element, Token.Type.COLON);
+        if (index >= 0) {
+          arguments[index] = readComponent(parser, parser.next(), index);
+        } else {
+          parser.skipValue(parser.next());
+        }
+        type = parser.next();
+        if (type != Token.Type.COMMA) {
+          break;
+        }
+        type = parser.next();
+      }
+      parser.consume(type, element, Token.Type.END_MAP);
+      parser.exit();
+      try {
+        return (Object) constructor.invokeExact(arguments);
+      } catch (RuntimeException | Error e) {
+        throw e;
+      } catch (Throwable e) {
+        throw new IllegalStateException(e);
+      }
+    }
+
+    private Object readComponent(Parser parser, Token.Type type, int index) {
+      Binder binder = binders[index];
+      if (binder == null) {
+        // Racing threads resolve the same binder, which is safely published by its final fields.
+        binder = of(types[index]);
+        binders[index] = binder;
+      }
+      if (type == Token.Type.NULL && defaults[index] != null) {
+        throw parser.parseError(elements[index], types[index].getTypeName(), type);
+      }
+      return binder.read(parser, type);
+    }
+
+    private int component(char[] chars, int start, int length) {
+      int hash = 0;
+      for (int i = start; i < start + length; i++) {
+        hash = 31 * hash + chars[i];
+      }
+      for (int slot = hash & mask; table[slot] != 0; slot = (slot + 1) & mask) {
+        int index = table[slot] - 1;
+        if (matches(names[index], chars, start, length)) {
+          return index;
+        }
+      }
+      return -1;
+    }
+  }
+
+  /**
+   * Sets a field from the value starting with a given token. Primitive fields are set through a
+   * handle of the exact primitive type, other fields through the binder of their type.
+   */
+  private static final class FieldBinder {
+
+    private final String name;
+    private final int hash;
+    private final String element;
+    private final Kind kind;
+    private final MethodHandle setter;
+    private final Type genericType;
+    // Resolved on first use, so that a class can have fields of its own type, e.g., a tree.
+    private Binder binder;
+
+    FieldBinder(Field field, String element) {
+      this.name = field.getName();
+      this.hash = name.hashCode();
+      this.element = element;
+      Class<?> type = field.getType();
+      this.kind = type.isPrimitive() ? Kind.of(type) : null;
+      try {
+        field.setAccessible(true);
+        MethodHandle handle = MethodHandles.lookup().unreflectSetter(field);
+        this.setter = handle.asType(MethodType.methodType(void.class, Object.class,
+            type.isPrimitive() ? type : Object.class));
+      } catch (IllegalAccessException | RuntimeException e) {
+        throw new IllegalArgumentException("Cannot bind " + element, e);
+      }
+      this.genericType = field.getGenericType();
+    }
+
+    private Binder binder() {
+      Binder binder = this.binder;
+      if (binder == null) {
+        // Racing threads resolve the same binder, which is safely published by its final fields.
+        binder = of(genericType);
+        this.binder = binder;
+      }
+      return binder;
+    }
+
+    boolean matches(char[] chars, int start, int length) {
+      return Binder.matches(name, chars, start, length);
+    }
+
+    void read(Parser parser, Token.Type type, Object instance) {
+      try {
+        if (kind == null) {
+          setter.invokeExact(instance, binder().read(parser, type));
+          return;
+        }
+        switch (kind) {
+          case BOOLEAN:
+            setter.invokeExact(instance, booleanValue(parser, type, element));
+            break;
+          case CHAR:
+            setter.invokeExact(instance, charValue(parser, type, element));
+            break;
+          case BYTE:
+            setter.invokeExact(instance,
+                (byte) longValue(parser, type, element, Byte.MIN_VALUE, Byte.MAX_VALUE));
+            break;
+          case SHORT:
+            setter.invokeExact(instance,
+                (short) longValue(parser, type, element, Short.MIN_VALUE, Short.MAX_VALUE));
+            break;
+          case INT:
+            setter.invokeExact(instance,
+                (int) longValue(parser, type, element, Integer.MIN_VALUE, Integer.MAX_VALUE));
+            break;
+          case LONG:
+            setter.invokeExact(instance, longValue(parser, type, element));
+            break;
+          case FLOAT:
+            setter.invokeExact(instance, floatValue(parser, type, element));
+            break;
+          default:
+            setter.invokeExact(instance, doubleValue(parser, type, element));
+        }
+      } catch (RuntimeException | Error e) {
+        throw e;
+      } catch (Throwable e) {
+        throw new IllegalStateException(e);
+      }
+    }
+  }
+
+  private static boolean matches(String name, char[] chars, int start, int length) {
+    if (name.length() != length) {
+      return false;
+    }
+    for (int i = 0; i < length; i++) {
+      if (name.charAt(i) != chars[start + i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static MethodHandle constructor(Class<?> type) {
+    try {
+      Constructor<?> constructor = type.getDeclaredConstructor();
+      constructor.setAccessible(true);
+      return MethodHandles.lookup().unreflectConstructor(constructor)
+          .asType(MethodType.methodType(Object.class));
+    } catch (NoSuchMethodException e) {
+      throw new IllegalArgumentException("Cannot bind " + type.getName()
+          + ", it has no no-arg constructor", e);
+    } catch (IllegalAccessException | RuntimeException e) {
+      throw new IllegalArgumentException("Cannot bind " + type.getName(), e);
+    }
+  }
+
+  private static Object newInstance(MethodHandle constructor) {
+    try {
+      return (Object) constructor.invokeExact();
+    } catch (RuntimeException | Error e) {
+      throw e;
+    } catch (Throwable e) {
+      throw new IllegalStateException(e);
+    }
+  }
+}
@@ -0,0 +1,52 @@
+package mx.sugus.json;
+
+/**
+ * A {@link CharSequence} view over a range of a char array, no chars are copied until
+ * {@link #toString()} is called.
+ */
+final class CharSlice implements CharSequence {
+
+  private char[] chars;
+  private int start;
+  private int length;
+
+  CharSlice() {
+  }
+
+  CharSlice(char[] chars, int start, int length) {
+    set(chars, start, length);
+  }
+
+  CharSlice set(char[] chars, int start, int length) {
+    this.chars = chars;
+    this.start = start;
+    this.length = length;
+    return this;
+  }
+
+  @Override
+  public int length() {
+    return length;
+  }
+
+  @Override
+  public char charAt(int index) {
+    if (index < 0 || index >= length) {
+      throw new IndexOutOfBoundsException("index: " + index + ", length: " + length);
+    }
+    return chars[start + index];
+  }
+
+  @Override
+  public CharSequence subSequence(int from, int to) {
+    if (from < 0 || to > length || from > to) {
+      throw new IndexOutOfBoundsException("from: " + from + ", to: " + to + ", length: " + length);
+    }
+    return new CharSlice(chars, start + from, to - from);
+  }
+
+  @Override
+  public String toString() {
+    return new String(chars, start, length);
+  }
+}
@@ -0,0 +1,154 @@
+package mx.sugus.json;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import mx.sugus.json.JsonReader.Event;
+
+/**
+ * Helpers for the code generated for {@link GenerateCodec} classes, each one reads the value at
+ * the current event of a reader or fails with a {@link ParseException} naming the element, e.g.,
+ * {@code "Order.total"}. Integer types take integral numbers within their range only.
+ */
+public final class Codecs {
+
+  private Codecs() {
+  }
+
+  /**
+   * Checks that the current event is the given one.
+   */
+  public static void expect(JsonReader reader, Event event, String element) {
+    if (reader.currentEvent() != event) {
+      throw unexpected(reader, element, event.toString());
+    }
+  }
+
+  /**
+   * Advances to the next key of the current object and returns it canonicalized through the
+   * cache, or returns null at the end of the object. The reader is left at the key, the caller
+   * advances to its value.
+   */
+  public static String nextKey(JsonReader reader, KeyCache cache) {
+    if (reader.nextEvent() == Event.END_OBJECT) {
+      return null;
+    }
+    return reader.getString(cache);
+  }
+
+  /**
+   * Advances to the next element of the current array, returns false at its end.
+   */
+  public static boolean nextElement(JsonReader reader) {
+    return reader.nextEvent() != Event.END_ARRAY;
+  }
+
+  public static boolean isNull(JsonReader reader) {
+    return reader.currentEvent() == Event.VALUE_NULL;
+  }
+
+  public static boolean readBoolean(JsonReader reader, String element) {
+    Event event = reader.currentEvent();
+    if (event != Event.VALUE_TRUE && event != Event.VALUE_FALSE) {
+      throw unexpected(reader, element, "boolean");
+    }
+    return event == Event.VALUE_TRUE;
+  }
+
+  public static char readChar(JsonReader reader, String element) {
+    if (reader.currentEvent() == Event.VALUE_STRING) {
+      CharSequence text = reader.getCharSequence();
+      if (text.length() == 1) {
+        return text.charAt(0);
+      }
+    }
+    throw unexpected(reader, element, "single character string");
+  }
+
+  public static byte readByte(JsonReader reader, String element) {
+    return (byte) readLong(reader, element, Byte.MIN_VALUE, Byte.MAX_VALUE);
+  }
+
+  public static short readShort(JsonReader reader, String element) {
+    return (short) readLong(reader, element, Short.MIN_VALUE, Short.MAX_VALUE);
+  }
+
+  public static int readInt(JsonReader reader, String element) {
+    return (int) readLong(reader, element, Integer.MIN_VALUE, Integer.MAX_VALUE);
+  }
+
+  public static long readLong(JsonReader reader, String element) {
+    return readLong(reader, element, Long.MIN_VALUE, Long.MAX_VALUE);
+  }
+
+  private static long readLong(JsonReader reader, String element, long min, long max) {
+    checkNumber(reader, element);
+    long value;
+    if (reader.isIntegralNumber() && reader.getCharSequence().length() <= 18) {
+      // Anything up to 18 chars fits a long.
+      value = reader.getLong();
+    } else {
+      // Larger integers, or fractions and exponents that might still be integral.
+      try {
+        value = reader.getBigDecimal().longValueExact();
+      } catch (ArithmeticException e) {
+        throw unexpected(reader, element, "integer in range");
+      }
+    }
+    if (value >= min && value <= max) {
+      return value;
+    }
+    throw unexpected(reader, element, "integer in range");
+  }
+
+  public static float readFloat(JsonReader reader, String element) {
+    checkNumber(reader, element);
+    return reader.getFloat();
+  }
+
+  public static double readDouble(JsonReader reader, String element) {
+    checkNumber(reader, element);
+    return reader.getDouble();
+  }
+
+  public static BigInteger readBigInteger(JsonReader reader, String element) {
+    if (isNull(reader)) {
+      return null;
+    }
+    checkNumber(reader, element);
+    try {
+      return reader.getBigIntegerExact();
+    } catch (ArithmeticException e) {
+      throw unexpected(reader, element, "integer");
+    }
+  }
+
+  public static BigDecimal readBigDecimal(JsonReader reader, String element) {
+    if (isNull(reader)) {
+      return null;
+    }
+    checkNumber(reader, element);
+    return reader.getBigDecimal();
+  }
+
+  /**
+   * Reads a string, or null.
+   */
+  public static String readString(JsonReader reader, String element) {
+    if (isNull(reader)) {
+      return null;
+    }
+    expect(reader, Event.VALUE_STRING, element);
+    return reader.getString();
+  }
+
+  private static void checkNumber(JsonReader reader, String element) {
+    expect(reader, Event.VALUE_NUMBER, element);
+  }
+
+  public static ParseException unexpected(JsonReader reader, String element, String expected) {
+    Event event = reader.currentEvent();
+    String got = event == Event.VALUE_STRING || event == Event.VALUE_NUMBER
+        ? reader.getCharSequence().toString() : String.valueOf(event);
+    return new ParseException(element, expected, got);
+  }
+}
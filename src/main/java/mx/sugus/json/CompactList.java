@@ -0,0 +1,44 @@
+package mx.sugus.json;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+
+/**
+ * Immutable list backed by an array of exactly its size.
+ */
+final class CompactList extends AbstractList<Object> implements RandomAccess {
+
+  static final CompactList EMPTY = new CompactList(new Object[0]);
+
+  private final Object[] elements;
+
+  private CompactList(Object[] elements) {
+    this.elements = elements;
+  }
+
+  /**
+   * Returns a list with a copy of values[from, to).
+   */
+  static CompactList of(Object[] values, int from, int to) {
+    if (from == to) {
+      return EMPTY;
+    }
+    return new CompactList(Arrays.copyOfRange(values, from, to));
+  }
+
+  @Override
+  public Object get(int index) {
+    return elements[index];
+  }
+
+  @Override
+  public int size() {
+    return elements.length;
+  }
+
+  @Override
+  public Object[] toArray() {
+    return elements.clone();
+  }
+}
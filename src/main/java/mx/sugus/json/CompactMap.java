@@ -0,0 +1,203 @@
+package mx.sugus.json;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Immutable map of string keys with no per entry objects. Keys and values are stored next to each
+ * other in a single array, for small maps in insertion order and looked up with a linear scan, for
+ * larger maps in an open addressing table with linear probing. Keys that crowd the table, such as
+ * many keys sharing a hash code, get an unmodifiable {@link HashMap} instead, which keeps lookups
+ * logarithmic when its buckets overflow.
+ */
+final class CompactMap extends AbstractMap<String, Object> {
+
+  static final CompactMap EMPTY = new CompactMap(new Object[0], 0, false);
+
+  /**
+   * Maps with up to this many entries are scanned linearly.
+   */
+  static final int MAX_LINEAR_SIZE = 8;
+
+  /**
+   * Probes longer than this make {@link #of} fall back to a {@link HashMap}. At a load factor of
+   * at most 1/2 well spread keys almost never get near it.
+   */
+  static final int MAX_PROBE_LENGTH = 64;
+
+  // Alternating keys and values, for hashed maps a table with null keys in the free slots.
+  private final Object[] table;
+  private final int size;
+  private final boolean hashed;
+  private Set<Entry<String, Object>> entrySet;
+
+  private CompactMap(Object[] table, int size, boolean hashed) {
+    this.table = table;
+    this.size = size;
+    this.hashed = hashed;
+  }
+
+  /**
+   * Returns a map with the alternating keys and values in pairs[from, to). Like with
+   * {@link Map#put}, a repeated key keeps the last value.
+   */
+  static Map<String, Object> of(Object[] pairs, int from, int to) {
+    int count = (to - from) / 2;
+    if (count == 0) {
+      return EMPTY;
+    }
+    if (count <= MAX_LINEAR_SIZE) {
+      Object[] table = new Object[count * 2];
+      int size = 0;
+      for (int i = from; i < to; i += 2) {
+        int index = indexOfLinear(table, size, pairs[i]);
+        if (index < 0) {
+          table[size * 2] = pairs[i];
+          table[size * 2 + 1] = pairs[i + 1];
+          size++;
+        } else {
+          table[index + 1] = pairs[i + 1];
+        }
+      }
+      if (size < count) {
+        table = Arrays.copyOf(table, size * 2);
+      }
+      return new CompactMap(table, size, false);
+    }
+    // Keep the load factor at or below 1/2.
+    int capacity = Integer.highestOneBit(count * 2 - 1) << 1;
+    Object[] table = new Object[capacity * 2];
+    int size = 0;
+    for (int i = from; i < to; i += 2) {
+      int index = probe(table, pairs[i], MAX_PROBE_LENGTH);
+      if (index < 0) {
+        return hashMap(pairs, from, to);
+      }
+      if (table[index] == null) {
+        table[index] = pairs[i];
+        size++;
+      }
+      table[index + 1] = pairs[i + 1];
+    }
+    return new CompactMap(table, size, true);
+  }
+
+  private static Map<String, Object> hashMap(Object[] pairs, int from, int to) {
+    Map<String, Object> map = new HashMap<>((to - from) / 2 * 4 / 3 + 1);
+    for (int i = from; i < to; i += 2) {
+      map.put((String) pairs[i], pairs[i + 1]);
+    }
+    return Collections.unmodifiableMap(map);
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override
+  public boolean containsKey(Object key) {
+    return indexOf(key) >= 0;
+  }
+
+  @Override
+  public Object get(Object key) {
+    int index = indexOf(key);
+    return index >= 0 ? table[index + 1] : null;
+  }
+
+  @Override
+  public Set<Entry<String, Object>> entrySet() {
+    Set<Entry<String, Object>> result = entrySet;
+    if (result == null) {
+      result = new AbstractSet<Entry<String, Object>>() {
+        @Override
+        public Iterator<Entry<String, Object>> iterator() {
+          return new EntryIterator();
+        }
+
+        @Override
+        public int size() {
+          return size;
+        }
+      };
+      entrySet = result;
+    }
+    return result;
+  }
+
+  private int indexOf(Object key) {
+    if (key == null) {
+      return -1;
+    }
+    if (!hashed) {
+      return indexOfLinear(table, size, key);
+    }
+    int index = probe(table, key, Integer.MAX_VALUE);
+    return table[index] != null ? index : -1;
+  }
+
+  private static int indexOfLinear(Object[] table, int size, Object key) {
+    int end = size * 2;
+    for (int i = 0; i < end; i += 2) {
+      Object candidate = table[i];
+      if (candidate == key || candidate.equals(key)) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Returns the index of the key in the table or of the free slot where it belongs, -1 if neither
+   * is found within the first maxLength slots probed.
+   */
+  private static int probe(Object[] table, Object key, int maxLength) {
+    int hash = key.hashCode();
+    int mask = (table.length >> 1) - 1;
+    int slot = (hash ^ (hash >>> 16)) & mask;
+    for (int length = 0; length < maxLength; length++) {
+      Object candidate = table[slot * 2];
+      if (candidate == null || candidate == key || candidate.equals(key)) {
+        return slot * 2;
+      }
+      slot = (slot + 1) & mask;
+    }
+    return -1;
+  }
+
+  private final class EntryIterator implements Iterator<Entry<String, Object>> {
+
+    private int next = advance(0);
+
+    private int advance(int index) {
+      while (index < table.length && table[index] == null) {
+        index += 2;
+      }
+      return index;
+    }
+
+    @Override
+    public boolean hasNext() {
+      return next < table.length;
+    }
+
+    @Override
+    public Entry<String, Object> next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      Entry<String, Object> entry =
+          new SimpleImmutableEntry<>((String) table[next], table[next + 1]);
+      next = advance(next + 2);
+      return entry;
+    }
+  }
+}
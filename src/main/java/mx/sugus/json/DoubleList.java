@@ -0,0 +1,59 @@
+package mx.sugus.json;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+
+/**
+ * Immutable list of doubles backed by a {@code double[]} of exactly its size, what
+ * {@link Parser} returns for arrays of numbers with a fraction or exponent with
+ * {@link ParseOptions#withPrimitiveArrays(boolean)}. Use {@link #getDouble(int)} or
+ * {@link #toDoubleArray()} to read the values without boxing them.
+ */
+public final class DoubleList extends AbstractList<Double> implements RandomAccess {
+
+  private final double[] elements;
+
+  DoubleList(double[] elements) {
+    this.elements = elements;
+  }
+
+  public double getDouble(int index) {
+    return elements[index];
+  }
+
+  /**
+   * Returns a copy of the values.
+   */
+  public double[] toDoubleArray() {
+    return elements.clone();
+  }
+
+  @Override
+  public Double get(int index) {
+    return elements[index];
+  }
+
+  @Override
+  public int size() {
+    return elements.length;
+  }
+
+  @Override
+  public int hashCode() {
+    // Same as List.hashCode(), without boxing.
+    int hash = 1;
+    for (double element : elements) {
+      hash = 31 * hash + Double.hashCode(element);
+    }
+    return hash;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (o instanceof DoubleList) {
+      return Arrays.equals(elements, ((DoubleList) o).elements);
+    }
+    return super.equals(o);
+  }
+}
@@ -0,0 +1,353 @@
+package mx.sugus.json;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * Non-blocking parser for UTF-8 encoded JSON that arrives in chunks, e.g., from asynchronous
+ * I/O. Chunks are handed over with {@link #feed(ByteBuffer)} as they arrive, which never blocks:
+ * each value is parsed as soon as its last byte is fed and is then available from
+ * {@link #next()}, until then the parser simply needs more input. The input may hold a single
+ * document or a sequence of concatenated values, as with {@link Parser#parseNext()}.
+ *
+ * <p>Chunks may end anywhere, within a string, an escape, a number or a multi-byte character.
+ * The bytes of the value being received are kept, and scanned as they arrive to find where it
+ * ends, once complete the value is parsed from them with a reused {@link Parser}. Only the
+ * current value is ever buffered, values larger than the maximum document size fail as soon as
+ * they reach it, so the memory held per connection is bounded.
+ *
+ * <p>A parser from {@link #arrayElements(ParseOptions, int)} instead returns the elements of
+ * top level arrays one by one, so that a huge array is parsed with only one element buffered.
+ *
+ * <p>A top level number or literal is only known to be complete once something follows it, or
+ * on {@link #end()}. Invalid input throws a {@link ParseException} from the call that completes
+ * the value, after which the parser must not be used. Not thread safe.
+ */
+public class FeedParser {
+
+  public static final int DEFAULT_MAX_DOCUMENT_SIZE = 64 * 1024 * 1024;
+  private static final int INITIAL_SIZE = 1024;
+
+  private final Parser parser;
+  private final int maxDocumentSize;
+  private final boolean elements;
+  private final ArrayDeque<Object> values = new ArrayDeque<>();
+  // Bytes of the value being received, buffer[start, limit), scanned up to pos.
+  private byte[] buffer = new byte[INITIAL_SIZE];
+  private int start;
+  private int limit;
+  private int pos;
+  // Scanner state: nesting depth, whether within a string and right after a backslash in it,
+  // and whether within a top level number or literal, and whether a value has started.
+  // Returning array elements, whether within a top level array and after one of its elements.
+  private int depth;
+  private boolean inString;
+  private boolean escaped;
+  private boolean inScalar;
+  private boolean started;
+  private boolean inArray;
+  private boolean afterElement;
+  private boolean ended;
+
+  public FeedParser() {
+    this(ParseOptions.DEFAULT);
+  }
+
+  public FeedParser(ParseOptions options) {
+    this(options, DEFAULT_MAX_DOCUMENT_SIZE);
+  }
+
+  /**
+   * Creates a parser whose values may be at most maxDocumentSize bytes each.
+   */
+  public FeedParser(ParseOptions options, int maxDocumentSize) {
+    this(options, maxDocumentSize, false);
+  }
+
+  private FeedParser(ParseOptions options, int maxDocumentSize, boolean elements) {
+    if (maxDocumentSize <= 0) {
+      throw new IllegalArgumentException("Invalid maximum document size: " + maxDocumentSize);
+    }
+    this.parser = new Parser("", options);
+    this.maxDocumentSize = maxDocumentSize;
+    this.elements = elements;
+  }
+
+  /**
+   * Creates a parser for input made of top level arrays that returns their elements instead of
+   * the arrays, each element may be at most maxDocumentSize bytes.
+   */
+  public static FeedParser arrayElements(ParseOptions options, int maxDocumentSize) {
+    return new FeedParser(options, maxDocumentSize, true);
+  }
+
+  /**
+   * Consumes the bytes from the chunk's position to its limit, parsing every value they
+   * complete. The position of the chunk is moved to its limit.
+   *
+   * @throws ParseException if a value completed by the chunk is not valid JSON, or a value
+   *     grows beyond the maximum document size.
+   */
+  public void feed(ByteBuffer chunk) {
+    checkNotEnded();
+    while (chunk.hasRemaining()) {
+      int count = reserve(chunk.remaining());
+      chunk.get(buffer, limit, count);
+      limit += count;
+      scan();
+    }
+  }
+
+  /**
+   * Consumes bytes[offset, offset + length), see {@link #feed(ByteBuffer)}.
+   */
+  public void feed(byte[] bytes, int offset, int length) {
+    feed(ByteBuffer.wrap(bytes, offset, length));
+  }
+
+  /**
+   * Signals the end of the input, completing a top level number or literal.
+   *
+   * @throws ParseException if the input ends within a value.
+   */
+  public void end() {
+    if (ended) {
+      return;
+    }
+    ended = true;
+    if (inScalar && !inArray) {
+      complete(limit);
+    } else if (started || inArray) {
+      throw new ParseException("json value", inString ? "\"" : "end of object or array");
+    }
+  }
+
+  /**
+   * Returns true if a parsed value is available from {@link #next()}.
+   */
+  public boolean hasNext() {
+    return !values.isEmpty();
+  }
+
+  /**
+   * Returns true if no value is available and more input is expected, i.e., the caller should
+   * wait for the next chunk.
+   */
+  public boolean needsInput() {
+    return values.isEmpty() && !ended;
+  }
+
+  /**
+   * Returns the next parsed value, in the order of the input.
+   *
+   * @throws NoSuchElementException if no value is available.
+   */
+  public Object next() {
+    if (values.isEmpty()) {
+      throw new NoSuchElementException();
+    }
+    Object value = values.poll();
+    return value == NULL ? null : value;
+  }
+
+  // Stands for null in values, which does not take nulls.
+  private static final Object NULL = new Object();
+
+  /**
+   * Scans buffer[pos, limit) for the ends of values, parsing each one found.
+   */
+  private void scan() {
+    byte[] buffer = this.buffer;
+    int i = pos;
+    while (i < limit) {
+      byte b = buffer[i];
+      if (inString) {
+        if (escaped) {
+          escaped = false;
+        } else if (b == '\\') {
+          escaped = true;
+        } else if (b == '"') {
+          inString = false;
+          if (depth == (inArray ? 1 : 0)) {
+            complete(i + 1);
+          }
+        }
+        i++;
+        continue;
+      }
+      if (inScalar) {
+        if (isDelimiter(b)) {
+          // The scalar ends before the delimiter, which is scanned again afterwards.
+          complete(i);
+          continue;
+        }
+        i++;
+        continue;
+      }
+      if (elements && !inArray) {
+        openArray(b);
+        start = i + 1;
+        i++;
+        continue;
+      }
+      // Depth of the values returned, 1 for the elements of a top level array.
+      int base = inArray ? 1 : 0;
+      switch (b) {
+        case ' ':
+        case '\t':
+        case '\r':
+        case '\n':
+          if (!started) {
+            // Nothing to keep between values.
+            start = i + 1;
+          }
+          break;
+        case '"':
+          startValue(b, depth == base);
+          inString = true;
+          break;
+        case '[':
+        case '{':
+          startValue(b, depth == base);
+          depth++;
+          break;
+        case ']':
+        case '}':
+          if (depth == base) {
+            if (!inArray || b != ']') {
+              throw new ParseException("json value", "value", b);
+            }
+            inArray = false;
+            depth = 0;
+            start = i + 1;
+            break;
+          }
+          depth--;
+          if (depth == base) {
+            complete(i + 1);
+          }
+          break;
+        case ',':
+        case ':':
+          if (depth == base) {
+            if (b == ':' || !afterElement) {
+              throw new ParseException("json value", "value", b);
+            }
+            afterElement = false;
+            start = i + 1;
+          }
+          break;
+        default:
+          if (depth == base) {
+            startValue(b, true);
+            inScalar = true;
+          }
+      }
+      i++;
+    }
+    pos = i;
+    if (limit - start > maxDocumentSize) {
+      throw new ParseException("json value", "at most " + maxDocumentSize + " bytes",
+          (limit - start) + " bytes");
+    }
+    if (start > 0) {
+      // Move what is left of the input to the start of the buffer.
+      System.arraycopy(buffer, start, buffer, 0, limit - start);
+      limit -= start;
+      pos -= start;
+      start = 0;
+    }
+  }
+
+  /**
+   * Checks the byte that starts the next array when returning array elements.
+   */
+  private void openArray(byte b) {
+    switch (b) {
+      case ' ':
+      case '\t':
+      case '\r':
+      case '\n':
+        break;
+      case '[':
+        inArray = true;
+        afterElement = false;
+        depth = 1;
+        break;
+      default:
+        throw new ParseException("json array", "[", b);
+    }
+  }
+
+  /**
+   * Records the start of a value if at the depth of the values returned, where elements of an
+   * array must be separated with commas.
+   */
+  private void startValue(byte b, boolean returned) {
+    if (returned) {
+      if (afterElement) {
+        throw new ParseException("json array", ", or ]", b);
+      }
+      started = true;
+    }
+  }
+
+  private static boolean isDelimiter(byte b) {
+    switch (b) {
+      case ' ':
+      case '\t':
+      case '\r':
+      case '\n':
+      case '"':
+      case '[':
+      case '{':
+      case ']':
+      case '}':
+      case ',':
+      case ':':
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  /**
+   * Parses the value in buffer[start, end), the input continues after it.
+   */
+  private void complete(int end) {
+    Object value;
+    try {
+      value = parser.reset(buffer, start, end - start).parse();
+    } finally {
+      parser.clear();
+    }
+    values.add(value == null ? NULL : value);
+    started = false;
+    inScalar = false;
+    afterElement = inArray;
+    start = end;
+  }
+
+  /**
+   * Makes room for up to count more bytes, returns how many fit.
+   */
+  private int reserve(int count) {
+    if (buffer.length - limit < count) {
+      // Grow up to what a document may take, the rest is fed once this is scanned.
+      int wanted = (int) Math.min((long) limit + count, (long) maxDocumentSize + 1);
+      if (wanted > buffer.length) {
+        buffer = Arrays.copyOf(buffer, Math.max(wanted, Math.min(buffer.length * 2,
+            maxDocumentSize + 1)));
+      }
+    }
+    return Math.min(count, buffer.length - limit);
+  }
+
+  private void checkNotEnded() {
+    if (ended) {
+      throw new IllegalStateException("end() was already called");
+    }
+  }
+}
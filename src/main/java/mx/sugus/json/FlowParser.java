@@ -0,0 +1,228 @@
+package mx.sugus.json;
+
+import java.nio.ByteBuffer;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link Flow.Processor} that parses a stream of UTF-8 encoded chunks into JSON values, e.g.,
+ * to plug a parser into a pipeline of reactive streams using only the JDK. Values are produced
+ * by a {@link FeedParser}, either top level values or, with
+ * {@link FeedParser#arrayElements(ParseOptions, int)}, the elements of top level arrays.
+ *
+ * <p>Demand is honored end to end: a chunk is requested from upstream only once the values
+ * parsed so far have been delivered and the subscriber asks for more, so a slow subscriber slows
+ * down the reads instead of values piling up. At most the values completed by one chunk are held
+ * at a time. Chunks must not be modified by the publisher after they are handed over.
+ *
+ * <p>Invalid input cancels the upstream subscription and is signaled downstream as a
+ * {@link ParseException}. Supports a single subscriber.
+ */
+public class FlowParser implements Flow.Processor<ByteBuffer, Object> {
+
+  private final FeedParser parser;
+  private final ConcurrentLinkedQueue<ByteBuffer> chunks = new ConcurrentLinkedQueue<>();
+  private final AtomicLong requested = new AtomicLong();
+  // Serializes drain() across the upstream and downstream threads, counts missed calls.
+  private final AtomicInteger pending = new AtomicInteger();
+  private volatile Flow.Subscription upstream;
+  private volatile Flow.Subscriber<? super Object> downstream;
+  private boolean subscribed;
+  // Set by upstream on completion or failure, error is also set on invalid input.
+  private volatile boolean done;
+  private volatile Throwable error;
+  private volatile boolean cancelled;
+  // Set by drain() once a terminal signal was delivered.
+  private volatile boolean terminated;
+  // Accessed only from drain().
+  private boolean awaitingChunk;
+
+  public FlowParser() {
+    this(new FeedParser());
+  }
+
+  public FlowParser(ParseOptions options) {
+    this(new FeedParser(options));
+  }
+
+  /**
+   * Creates a processor emitting the values of the given parser, which must not be used by
+   * anything else.
+   */
+  public FlowParser(FeedParser parser) {
+    this.parser = Objects.requireNonNull(parser);
+  }
+
+  @Override
+  public void subscribe(Flow.Subscriber<? super Object> subscriber) {
+    Objects.requireNonNull(subscriber);
+    boolean first;
+    synchronized (this) {
+      first = !subscribed;
+      subscribed = true;
+    }
+    if (first) {
+      subscriber.onSubscribe(new Subscription());
+      // Nothing is signaled before onSubscribe() returns.
+      downstream = subscriber;
+      drain();
+      return;
+    }
+    subscriber.onSubscribe(new Flow.Subscription() {
+      @Override
+      public void request(long n) {
+      }
+
+      @Override
+      public void cancel() {
+      }
+    });
+    subscriber.onError(new IllegalStateException("FlowParser supports a single subscriber"));
+  }
+
+  @Override
+  public void onSubscribe(Flow.Subscription subscription) {
+    Objects.requireNonNull(subscription);
+    if (upstream != null || cancelled) {
+      subscription.cancel();
+      return;
+    }
+    upstream = subscription;
+    drain();
+  }
+
+  @Override
+  public void onNext(ByteBuffer chunk) {
+    Objects.requireNonNull(chunk);
+    if (cancelled || terminated) {
+      // Chunks sent after cancellation are dropped, nothing would ever read them.
+      return;
+    }
+    chunks.add(chunk);
+    drain();
+  }
+
+  @Override
+  public void onError(Throwable throwable) {
+    Objects.requireNonNull(throwable);
+    error = throwable;
+    done = true;
+    drain();
+  }
+
+  @Override
+  public void onComplete() {
+    done = true;
+    drain();
+  }
+
+  /**
+   * Delivers parsed values while there is demand, feeding queued chunks to the parser and
+   * requesting the next one once it needs input. Runs on one thread at a time.
+   */
+  private void drain() {
+    if (pending.getAndIncrement() != 0) {
+      return;
+    }
+    int missed = 1;
+    do {
+      Flow.Subscriber<? super Object> subscriber = downstream;
+      if (terminated) {
+        // Drops a chunk queued while terminating.
+        chunks.clear();
+      } else if (subscriber != null) {
+        drain(subscriber);
+      }
+      missed = pending.addAndGet(-missed);
+    } while (missed != 0);
+  }
+
+  private void drain(Flow.Subscriber<? super Object> subscriber) {
+    while (true) {
+      if (cancelled) {
+        chunks.clear();
+        return;
+      }
+      Throwable failure = error;
+      if (failure != null) {
+        terminate();
+        subscriber.onError(failure);
+        return;
+      }
+      try {
+        if (parser.hasNext()) {
+          if (requested.get() == 0) {
+            return;
+          }
+          Object value = parser.next();
+          if (requested.get() != Long.MAX_VALUE) {
+            requested.decrementAndGet();
+          }
+          subscriber.onNext(value);
+          continue;
+        }
+        ByteBuffer chunk = chunks.poll();
+        if (chunk != null) {
+          awaitingChunk = false;
+          parser.feed(chunk);
+          continue;
+        }
+        if (done) {
+          parser.end();
+          if (!parser.hasNext()) {
+            terminate();
+            subscriber.onComplete();
+            return;
+          }
+          continue;
+        }
+      } catch (ParseException e) {
+        error = e;
+        continue;
+      }
+      Flow.Subscription subscription = upstream;
+      if (subscription == null || awaitingChunk || requested.get() == 0) {
+        return;
+      }
+      awaitingChunk = true;
+      // May deliver the chunk right away, which is picked up by the next pass of drain().
+      subscription.request(1);
+      return;
+    }
+  }
+
+  private void terminate() {
+    terminated = true;
+    chunks.clear();
+    Flow.Subscription subscription = upstream;
+    if (subscription != null && !done) {
+      subscription.cancel();
+    }
+  }
+
+  private class Subscription implements Flow.Subscription {
+
+    @Override
+    public void request(long n) {
+      if (n <= 0) {
+        error = new IllegalArgumentException("Non-positive request: " + n);
+      } else {
+        requested.getAndUpdate(r -> r + n < 0 ? Long.MAX_VALUE : r + n);
+      }
+      drain();
+    }
+
+    @Override
+    public void cancel() {
+      cancelled = true;
+      Flow.Subscription subscription = upstream;
+      if (subscription != null) {
+        subscription.cancel();
+      }
+      drain();
+    }
+  }
+}
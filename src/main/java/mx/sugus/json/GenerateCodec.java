@@ -0,0 +1,22 @@
+package mx.sugus.json;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a class for the annotation processor of the {@code json-codegen} module, which
+ * generates a {@link JsonCodec} for it at build time: {@code FooCodec} for {@code Foo}, in the
+ * same package, or {@code Outer_FooCodec} for a class nested in {@code Outer}. The generated
+ * codec reads and writes the non-static, non-transient fields of the class without reflection,
+ * so fields must not be private and the class needs a non-private no-arg constructor.
+ *
+ * <p>Kept in class files so that the codecs of classes in other modules are found too.
+ */
+@Documented
+@Retention(RetentionPolicy.CLASS)
+@Target(ElementType.TYPE)
+public @interface GenerateCodec {
+}
@@ -0,0 +1,53 @@
+package mx.sugus.json;
+
+/**
+ * Reads and writes instances of a class, usually generated at build time for classes annotated
+ * with {@link GenerateCodec}. Codecs are stateless and can be shared between threads.
+ */
+public interface JsonCodec<T> {
+
+  /**
+   * Reads the value starting at the current event of the reader, i.e., after the
+   * {@link JsonReader#nextEvent()} that returned its first event. Returns with the reader at the
+   * last event of the value.
+   *
+   * @throws ParseException if the input is not valid JSON or does not match the class.
+   */
+  T read(JsonReader reader);
+
+  /**
+   * Writes the value, or null, at the current position of the writer.
+   */
+  void write(JsonWriter writer, T value);
+
+  /**
+   * Reads a document holding a single value.
+   */
+  default T read(String json) {
+    JsonReader reader = new JsonReader(json);
+    reader.nextEvent();
+    T value = read(reader);
+    reader.nextEvent();
+    return value;
+  }
+
+  /**
+   * Reads a UTF-8 encoded document holding a single value.
+   */
+  default T read(byte[] json) {
+    JsonReader reader = new JsonReader(json);
+    reader.nextEvent();
+    T value = read(reader);
+    reader.nextEvent();
+    return value;
+  }
+
+  /**
+   * Returns the compact JSON text of the value.
+   */
+  default String toJson(T value) {
+    JsonWriter writer = new JsonWriter();
+    write(writer, value);
+    return writer.toString();
+  }
+}
@@ -0,0 +1,86 @@
+package mx.sugus.json;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+
+/**
+ * Receives the contents of a JSON document as it is parsed by {@link Parser#parse(JsonHandler)}.
+ * Each callback returns an {@link Action} telling the parser how to go on. All the callbacks
+ * default to {@link Action#CONTINUE}, implementations override just the ones they need.
+ */
+public interface JsonHandler {
+
+  /**
+   * What the parser does after a callback returns.
+   */
+  enum Action {
+    /**
+     * Keep parsing.
+     */
+    CONTINUE,
+    /**
+     * Skip the value that was just started without reporting its contents, i.e., the contents
+     * of an object or array, including its end, or the value of a key. For any other callback
+     * same as {@link #CONTINUE}.
+     */
+    SKIP,
+    /**
+     * Stop parsing right away, the rest of the input is not read.
+     */
+    STOP
+  }
+
+  default Action startObject() {
+    return Action.CONTINUE;
+  }
+
+  default Action key(String key) {
+    return Action.CONTINUE;
+  }
+
+  default Action endObject() {
+    return Action.CONTINUE;
+  }
+
+  default Action startArray() {
+    return Action.CONTINUE;
+  }
+
+  default Action endArray() {
+    return Action.CONTINUE;
+  }
+
+  default Action stringValue(String value) {
+    return Action.CONTINUE;
+  }
+
+  default Action longValue(long value) {
+    return Action.CONTINUE;
+  }
+
+  default Action doubleValue(double value) {
+    return Action.CONTINUE;
+  }
+
+  /**
+   * Called for integers that do not fit in a long.
+   */
+  default Action bigIntegerValue(BigInteger value) {
+    return Action.CONTINUE;
+  }
+
+  /**
+   * Called for numbers too large for a double.
+   */
+  default Action bigDecimalValue(BigDecimal value) {
+    return Action.CONTINUE;
+  }
+
+  default Action booleanValue(boolean value) {
+    return Action.CONTINUE;
+  }
+
+  default Action nullValue() {
+    return Action.CONTINUE;
+  }
+}
@@ -0,0 +1,524 @@
+package mx.sugus.json;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Reads newline delimited JSON, also known as JSON Lines, i.e., one JSON value per line. Blank
+ * lines are skipped. Values are returned in order, either one by one from the iterator or from
+ * {@link #stream()}.
+ *
+ * <p>Given a {@link ForkJoinPool} the input is read in large blocks of complete lines which are
+ * parsed as a batch on the pool, while the next blocks are read and parsed in parallel. Values
+ * are still returned in order. Without a pool each line is parsed as soon as it has been read,
+ * which suits streams where lines arrive over time. In both modes an invalid line throws its
+ * {@link ParseException} from {@link #next()} in place of its value, reading can go on with the
+ * lines after it.
+ *
+ * <p>Lines are parsed in place, UTF-8 input is decoded by the parser of each line, so in
+ * parallel mode decoding is spread over the pool too. {@link ParseOptions#maxInputLength()}
+ * applies to each line, a line longer than that fails reading with a {@link ParseException} from
+ * {@link #hasNext()} before it is buffered whole. See http://jsonlines.org
+ */
+public class JsonLinesReader implements Iterator<Object>, Closeable {
+
+  static final int BUFFER_SIZE = 64 * 1024;
+  static final int BATCH_SIZE = 1024 * 1024;
+  // Batches parsed ahead per thread of the pool.
+  private static final int BATCHES_PER_THREAD = 2;
+  // Values are kept in next as themselves, NULL for null, a Failure for invalid lines and END
+  // once there are no more lines.
+  private static final Object NULL = new Object();
+  private static final Object END = new Object();
+
+  private final Lines lines;
+  private final ParseOptions options;
+  private final ForkJoinPool pool;
+  private final ArrayDeque<ForkJoinTask<List<Object>>> batches = new ArrayDeque<>();
+  private Iterator<Object> batch;
+  // End of the complete lines in the buffer of lines.
+  private int linesEnd;
+  private Object next;
+
+  public JsonLinesReader(Reader reader) {
+    this(reader, ParseOptions.DEFAULT);
+  }
+
+  /**
+   * Reads UTF-8 encoded JSON lines.
+   */
+  public JsonLinesReader(InputStream in) {
+    this(in, ParseOptions.DEFAULT);
+  }
+
+  public JsonLinesReader(Reader reader, ParseOptions options) {
+    this(reader, options, null);
+  }
+
+  public JsonLinesReader(InputStream in, ParseOptions options) {
+    this(in, options, null);
+  }
+
+  /**
+   * Reads lines in blocks which are parsed in parallel on the pool, if not null.
+   */
+  public JsonLinesReader(Reader reader, ParseOptions options, ForkJoinPool pool) {
+    this(new CharLines(reader, pool == null ? BUFFER_SIZE : BATCH_SIZE), options, pool);
+  }
+
+  public JsonLinesReader(InputStream in, ParseOptions options, ForkJoinPool pool) {
+    this(new ByteLines(in, pool == null ? BUFFER_SIZE : BATCH_SIZE), options, pool);
+  }
+
+  JsonLinesReader(Lines lines, ParseOptions options, ForkJoinPool pool) {
+    lines.maxLineLength = options.maxInputLength();
+    this.lines = lines;
+    this.options = options;
+    this.pool = pool;
+  }
+
+  /**
+   * Reads a UTF-8 encoded file of JSON lines, closing the reader closes the file.
+   */
+  public static JsonLinesReader open(Path path) throws IOException {
+    return open(path, ParseOptions.DEFAULT, null);
+  }
+
+  public static JsonLinesReader open(Path path, ParseOptions options) throws IOException {
+    return open(path, options, null);
+  }
+
+  public static JsonLinesReader open(Path path, ParseOptions options, ForkJoinPool pool)
+      throws IOException {
+    return new JsonLinesReader(Files.newInputStream(path), options, pool);
+  }
+
+  @Override
+  public boolean hasNext() {
+    if (next == null) {
+      next = pool == null ? readLine() : readBatched();
+    }
+    return next != END;
+  }
+
+  /**
+   * Returns the value of the next line.
+   *
+   * @throws ParseException if the line is not valid JSON.
+   */
+  @Override
+  public Object next() {
+    if (!hasNext()) {
+      throw new NoSuchElementException();
+    }
+    Object value = next;
+    next = null;
+    if (value instanceof Failure) {
+      throw ((Failure) value).exception;
+    }
+    return value == NULL ? null : value;
+  }
+
+  /**
+   * Returns the values of the remaining lines as an ordered sequential stream, closing the stream
+   * closes this reader.
+   */
+  public Stream<Object> stream() {
+    return StreamSupport.stream(Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED),
+        false).onClose(this::closeUnchecked);
+  }
+
+  @Override
+  public void close() throws IOException {
+    for (ForkJoinTask<List<Object>> task : batches) {
+      task.cancel(false);
+    }
+    batches.clear();
+    lines.close();
+  }
+
+  private void closeUnchecked() {
+    try {
+      close();
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  private Object readLine() {
+    while (true) {
+      if (lines.pos == linesEnd) {
+        if (lines.eof && lines.pos == lines.limit) {
+          return END;
+        }
+        linesEnd = lines.fill(false);
+        continue;
+      }
+      int start = lines.pos;
+      int newline = lines.indexOfNewline(start, linesEnd);
+      int end = newline < 0 ? linesEnd : newline;
+      lines.pos = newline < 0 ? linesEnd : newline + 1;
+      if (!lines.isBlank(start, end)) {
+        try {
+          Object value = lines.parser(start, end, options).parse();
+          return value == null ? NULL : value;
+        } catch (ParseException e) {
+          return new Failure(e);
+        }
+      }
+    }
+  }
+
+  private Object readBatched() {
+    while (batch == null || !batch.hasNext()) {
+      int inFlight = pool.getParallelism() * BATCHES_PER_THREAD;
+      while (batches.size() < inFlight && !(lines.eof && lines.pos == lines.limit)) {
+        int end = lines.fill(true);
+        Lines block = lines.copy(lines.pos, end);
+        lines.pos = end;
+        batches.add(pool.submit(() -> block.parseAll(options)));
+      }
+      if (batches.isEmpty()) {
+        return END;
+      }
+      batch = batches.poll().join().iterator();
+    }
+    Object value = batch.next();
+    return value == null ? NULL : value;
+  }
+
+  /**
+   * Takes the place of the value of an invalid line.
+   */
+  private static final class Failure {
+
+    private final ParseException exception;
+
+    Failure(ParseException exception) {
+      this.exception = exception;
+    }
+  }
+
+  /**
+   * A buffer of lines read from the input, either chars or UTF-8 bytes. Lines are delimited by
+   * '\n', any '\r' before it is whitespace to the parser.
+   */
+  abstract static class Lines implements Closeable {
+
+    // Largest array the VM is sure to allocate.
+    private static final int MAX_CAPACITY = Integer.MAX_VALUE - 8;
+
+    int pos;
+    int limit;
+    boolean eof;
+    // Input before this was searched for a newline by fill() without finding one after pos, so
+    // that each block read is searched once however long the line.
+    private int scanned;
+    long maxLineLength = Long.MAX_VALUE;
+
+    /**
+     * Reads more input, until the buffer holds at least a complete line, or is full if full is
+     * set, or the input ends. Unread input is moved to the start of the buffer first. Returns
+     * the end of the complete lines from pos, which is limit once the input ended. Fails once a
+     * line grows longer than maxLineLength.
+     */
+    int fill(boolean full) {
+      try {
+        while (true) {
+          if (eof) {
+            return limit;
+          }
+          if (!full || limit == capacity()) {
+            int newline = lastIndexOfNewline(Math.max(pos, scanned), limit);
+            if (newline >= 0) {
+              return newline + 1;
+            }
+            scanned = limit;
+          }
+          if (limit == capacity()) {
+            if (pos > 0) {
+              scanned = Math.max(scanned - pos, 0);
+              shift();
+            } else {
+              grow(grownCapacity());
+            }
+          }
+          int count = read(limit, capacity() - limit);
+          if (count < 0) {
+            eof = true;
+          } else {
+            limit += count;
+          }
+        }
+      } catch (IOException e) {
+        throw new RuntimeException(e);
+      }
+    }
+
+    /**
+     * Returns the capacity for a full buffer holding part of a single line, failing if the line
+     * is already longer than allowed. The buffer grows to at most one past the maximum length,
+     * room for the newline ending the longest line allowed.
+     */
+    private int grownCapacity() {
+      long max = Math.min(maxLineLength, MAX_CAPACITY - 1);
+      if (limit - pos > max) {
+        throw new ParseException("json value", "at most " + max + unit() + " of input per line",
+            "more");
+      }
+      return (int) Math.min(capacity() * 2L, max + 1);
+    }
+
+    /**
+     * Parses all of the non blank lines in the buffer, invalid lines are returned as a
+     * {@link Failure}.
+     */
+    List<Object> parseAll(ParseOptions options) {
+      List<Object> values = new ArrayList<>();
+      while (pos < limit) {
+        int start = pos;
+        int newline = indexOfNewline(start, limit);
+        int end = newline < 0 ? limit : newline;
+        pos = newline < 0 ? limit : newline + 1;
+        if (!isBlank(start, end)) {
+          try {
+            values.add(parser(start, end, options).parse());
+          } catch (ParseException e) {
+            values.add(new Failure(e));
+          }
+        }
+      }
+      return values;
+    }
+
+    abstract int capacity();
+
+    /**
+     * Moves buffer[pos, limit) to the start of the buffer.
+     */
+    abstract void shift();
+
+    abstract void grow(int capacity);
+
+    abstract String unit();
+
+    abstract int read(int offset, int length) throws IOException;
+
+    abstract int indexOfNewline(int start, int end);
+
+    abstract int lastIndexOfNewline(int start, int end);
+
+    abstract boolean isBlank(int start, int end);
+
+    abstract Parser parser(int start, int end, ParseOptions options);
+
+    /**
+     * Returns a complete copy of buffer[start, end), without input.
+     */
+    abstract Lines copy(int start, int end);
+
+    static boolean isWhitespace(int ch) {
+      return ch == ' ' || ch == '\t' || ch == '\r' || ch == '\n';
+    }
+  }
+
+  static final class CharLines extends Lines {
+
+    private final Reader reader;
+    private char[] buffer;
+
+    CharLines(Reader reader, int bufferSize) {
+      this.reader = reader;
+      this.buffer = new char[bufferSize];
+    }
+
+    private CharLines(char[] buffer) {
+      this.reader = null;
+      this.buffer = buffer;
+      this.limit = buffer.length;
+      this.eof = true;
+    }
+
+    @Override
+    int capacity() {
+      return buffer.length;
+    }
+
+    @Override
+    void shift() {
+      System.arraycopy(buffer, pos, buffer, 0, limit - pos);
+      limit -= pos;
+      pos = 0;
+    }
+
+    @Override
+    void grow(int capacity) {
+      buffer = Arrays.copyOf(buffer, capacity);
+    }
+
+    @Override
+    String unit() {
+      return " chars";
+    }
+
+    @Override
+    int read(int offset, int length) throws IOException {
+      return reader.read(buffer, offset, length);
+    }
+
+    @Override
+    int indexOfNewline(int start, int end) {
+      for (int i = start; i < end; i++) {
+        if (buffer[i] == '\n') {
+          return i;
+        }
+      }
+      return -1;
+    }
+
+    @Override
+    int lastIndexOfNewline(int start, int end) {
+      for (int i = end - 1; i >= start; i--) {
+        if (buffer[i] == '\n') {
+          return i;
+        }
+      }
+      return -1;
+    }
+
+    @Override
+    boolean isBlank(int start, int end) {
+      for (int i = start; i < end; i++) {
+        if (!isWhitespace(buffer[i])) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    @Override
+    Parser parser(int start, int end, ParseOptions options) {
+      return new Parser(new Tokenizer(buffer, start, end), options);
+    }
+
+    @Override
+    Lines copy(int start, int end) {
+      return new CharLines(Arrays.copyOfRange(buffer, start, end));
+    }
+
+    @Override
+    public void close() throws IOException {
+      if (reader != null) {
+        reader.close();
+      }
+    }
+  }
+
+  static final class ByteLines extends Lines {
+
+    private final InputStream in;
+    private byte[] buffer;
+
+    ByteLines(InputStream in, int bufferSize) {
+      this.in = in;
+      this.buffer = new byte[bufferSize];
+    }
+
+    private ByteLines(byte[] buffer) {
+      this.in = null;
+      this.buffer = buffer;
+      this.limit = buffer.length;
+      this.eof = true;
+    }
+
+    @Override
+    int capacity() {
+      return buffer.length;
+    }
+
+    @Override
+    void shift() {
+      System.arraycopy(buffer, pos, buffer, 0, limit - pos);
+      limit -= pos;
+      pos = 0;
+    }
+
+    @Override
+    void grow(int capacity) {
+      buffer = Arrays.copyOf(buffer, capacity);
+    }
+
+    @Override
+    String unit() {
+      return " bytes";
+    }
+
+    @Override
+    int read(int offset, int length) throws IOException {
+      return in.read(buffer, offset, length);
+    }
+
+    @Override
+    int indexOfNewline(int start, int end) {
+      for (int i = start; i < end; i++) {
+        if (buffer[i] == '\n') {
+          return i;
+        }
+      }
+      return -1;
+    }
+
+    @Override
+    int lastIndexOfNewline(int start, int end) {
+      for (int i = end - 1; i >= start; i--) {
+        if (buffer[i] == '\n') {
+          return i;
+        }
+      }
+      return -1;
+    }
+
+    @Override
+    boolean isBlank(int start, int end) {
+      for (int i = start; i < end; i++) {
+        if (!isWhitespace(buffer[i])) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    @Override
+    Parser parser(int start, int end, ParseOptions options) {
+      return new Parser(new Tokenizer(new Utf8Reader(buffer, start, end - start)), options);
+    }
+
+    @Override
+    Lines copy(int start, int end) {
+      return new ByteLines(Arrays.copyOfRange(buffer, start, end));
+    }
+
+    @Override
+    public void close() throws IOException {
+      if (in != null) {
+        in.close();
+      }
+    }
+  }
+}
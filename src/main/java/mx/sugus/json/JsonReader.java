@@ -0,0 +1,369 @@
+package mx.sugus.json;
+
+import java.io.InputStream;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import mx.sugus.json.Token.Type;
+
+/**
+ * Pull parser that reports a JSON document as a sequence of events without building a tree.
+ * Values are read from the reader after the event that reports them, e.g., {@link #getString()}
+ * after {@link Event#VALUE_STRING}, and are only valid until the next event. Besides a small
+ * stack for the nesting of containers no memory is retained, and apart from the values
+ * explicitly requested, e.g., with {@link #getString()}, nothing is allocated per event.
+ */
+public class JsonReader {
+
+  /**
+   * The events reported by {@link #nextEvent()}.
+   */
+  public enum Event {
+    START_OBJECT,
+    END_OBJECT,
+    START_ARRAY,
+    END_ARRAY,
+    KEY_NAME,
+    VALUE_STRING,
+    VALUE_NUMBER,
+    VALUE_TRUE,
+    VALUE_FALSE,
+    VALUE_NULL,
+    END_DOCUMENT
+  }
+
+  // Exclusive bounds of the numbers that fit a long once any fraction is discarded.
+  private static final BigDecimal BELOW_LONG =
+      BigDecimal.valueOf(Long.MIN_VALUE).subtract(BigDecimal.ONE);
+  private static final BigDecimal ABOVE_LONG =
+      BigDecimal.valueOf(Long.MAX_VALUE).add(BigDecimal.ONE);
+
+  private static final int DOCUMENT_START = 0;
+  private static final int FIRST_IN_ARRAY = 1;
+  private static final int FIRST_IN_OBJECT = 2;
+  private static final int AFTER_VALUE = 3;
+  private static final int AFTER_KEY = 4;
+  private static final int DOCUMENT_END = 5;
+
+  private final Tokenizer tokenizer;
+  private final CharSlice slice = new CharSlice();
+  // Containers currently open, true for objects.
+  private boolean[] objects = new boolean[16];
+  private int depth;
+  private int state = DOCUMENT_START;
+  private Event event;
+  private Type type;
+
+  public JsonReader(String json) {
+    this(new Tokenizer(json));
+  }
+
+  public JsonReader(Reader reader) {
+    this(new Tokenizer(reader));
+  }
+
+  /**
+   * Reads UTF-8 encoded JSON.
+   */
+  public JsonReader(byte[] json) {
+    this(new Tokenizer(json));
+  }
+
+  /**
+   * Reads UTF-8 encoded JSON from the buffer's position to its limit.
+   */
+  public JsonReader(ByteBuffer json) {
+    this(new Tokenizer(json));
+  }
+
+  /**
+   * Reads UTF-8 encoded JSON from the stream, the stream is not closed.
+   */
+  public JsonReader(InputStream json) {
+    this(new Tokenizer(json));
+  }
+
+  JsonReader(Tokenizer tokenizer) {
+    this.tokenizer = tokenizer;
+  }
+
+  /**
+   * Advances to the next event. Once the document is complete returns
+   * {@link Event#END_DOCUMENT}, also on every subsequent call.
+   *
+   * @throws ParseException if the input is not valid JSON.
+   */
+  public Event nextEvent() {
+    switch (state) {
+      case DOCUMENT_START:
+        return value(next(), "json value");
+      case FIRST_IN_ARRAY:
+        type = next();
+        if (type == Type.END_LIST) {
+          return end(Event.END_ARRAY);
+        }
+        return value(type, "list");
+      case FIRST_IN_OBJECT:
+        type = next();
+        if (type == Type.END_MAP) {
+          return end(Event.END_OBJECT);
+        }
+        return key(type);
+      case AFTER_KEY:
+        consume(next(), "map", Type.COLON);
+        return value(next(), "map");
+      case AFTER_VALUE:
+        type = next();
+        if (depth == 0) {
+          consume(type, "json value", Type.EOF);
+          state = DOCUMENT_END;
+          return event = Event.END_DOCUMENT;
+        }
+        if (objects[depth - 1]) {
+          if (type == Type.COMMA) {
+            return key(next());
+          }
+          consume(type, "map", Type.END_MAP);
+          return end(Event.END_OBJECT);
+        }
+        if (type == Type.COMMA) {
+          return value(next(), "list");
+        }
+        consume(type, "list", Type.END_LIST);
+        return end(Event.END_ARRAY);
+      default:
+        return event = Event.END_DOCUMENT;
+    }
+  }
+
+  /**
+   * Returns the last event reported by {@link #nextEvent()}, null before the first one.
+   */
+  public Event currentEvent() {
+    return event;
+  }
+
+  /**
+   * Returns the number of containers enclosing the current position, e.g., 1 right after the
+   * {@link Event#START_OBJECT} of the top level object and 0 after its {@link Event#END_OBJECT}.
+   */
+  public int depth() {
+    return depth;
+  }
+
+  /**
+   * Skips the value starting at the current event. After a {@link Event#START_OBJECT} or
+   * {@link Event#START_ARRAY} skips up to and including the matching end event, after a
+   * {@link Event#KEY_NAME} skips the value of the key. Does nothing for other events. Skipped
+   * strings and numbers are validated but not materialized.
+   */
+  public void skipValue() {
+    if (event == Event.KEY_NAME) {
+      nextEvent();
+    }
+    if (event == Event.START_OBJECT || event == Event.START_ARRAY) {
+      int target = depth - 1;
+      while (depth > target) {
+        nextEvent();
+      }
+    }
+  }
+
+  /**
+   * Returns the text of the current {@link Event#KEY_NAME} or {@link Event#VALUE_STRING}.
+   */
+  public String getString() {
+    checkText();
+    return tokenizer.stringValue();
+  }
+
+  /**
+   * Returns the text of the current {@link Event#KEY_NAME} or {@link Event#VALUE_STRING}
+   * canonicalized through the cache, a key found in it is not allocated at all.
+   */
+  public String getString(KeyCache cache) {
+    checkText();
+    return tokenizer.keyValue(cache);
+  }
+
+  /**
+   * Returns the text of the current {@link Event#KEY_NAME}, {@link Event#VALUE_STRING} or
+   * {@link Event#VALUE_NUMBER} without copying it. The returned sequence is only valid until the
+   * next event, use {@code toString()} to keep it.
+   */
+  public CharSequence getCharSequence() {
+    if (event != Event.VALUE_NUMBER) {
+      checkText();
+    }
+    return slice.set(tokenizer.textChars(), tokenizer.textStart(), tokenizer.textLength());
+  }
+
+  /**
+   * Returns true if the current {@link Event#VALUE_NUMBER} has no fraction or exponent.
+   */
+  public boolean isIntegralNumber() {
+    checkNumber();
+    return type == Type.LONG;
+  }
+
+  /**
+   * Returns the current {@link Event#VALUE_NUMBER} as a long, any fraction is discarded.
+   *
+   * @throws ParseException if the number is out of the range of a long.
+   */
+  public long getLong() {
+    checkNumber();
+    if (tokenizer.isLong()) {
+      return tokenizer.longValue();
+    }
+    BigDecimal value = tokenizer.bigDecimalValue();
+    if (value.compareTo(BELOW_LONG) <= 0 || value.compareTo(ABOVE_LONG) >= 0) {
+      throw parseError("long", "number in range", type);
+    }
+    return value.longValue();
+  }
+
+  /**
+   * Returns the current {@link Event#VALUE_NUMBER} as an int, any fraction is discarded.
+   *
+   * @throws ParseException if the number is out of the range of an int.
+   */
+  public int getInt() {
+    long value = getLong();
+    if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+      throw parseError("int", "number in range", type);
+    }
+    return (int) value;
+  }
+
+  /**
+   * Returns the current {@link Event#VALUE_NUMBER} as the closest float, which is not always the
+   * closest double rounded to a float.
+   */
+  public float getFloat() {
+    checkNumber();
+    return tokenizer.floatValue();
+  }
+
+  /**
+   * Returns the current {@link Event#VALUE_NUMBER} as the closest double.
+   */
+  public double getDouble() {
+    checkNumber();
+    return tokenizer.doubleValue();
+  }
+
+  public BigDecimal getBigDecimal() {
+    checkNumber();
+    return tokenizer.bigDecimalValue();
+  }
+
+  /**
+   * Returns the current {@link Event#VALUE_NUMBER} as a BigInteger, any fraction is discarded.
+   *
+   * @throws ParseException if the integer part has more than 10,000 digits, e.g., 1e1000000000.
+   */
+  public BigInteger getBigInteger() {
+    checkNumber();
+    return tokenizer.bigIntegerValue(false);
+  }
+
+  /**
+   * Returns the current {@link Event#VALUE_NUMBER} as a BigInteger, see {@link #getBigInteger()}.
+   *
+   * @throws ArithmeticException if the number has a fraction.
+   */
+  BigInteger getBigIntegerExact() {
+    checkNumber();
+    return tokenizer.bigIntegerValue(true);
+  }
+
+  /**
+   * Returns the current {@link Event#VALUE_NUMBER} as {@link Parser} does, i.e., a Long or
+   * Double promoted to BigInteger or BigDecimal if the value does not fit.
+   */
+  public Number getNumber() {
+    checkNumber();
+    return tokenizer.numberValue(type);
+  }
+
+  private Event value(Type type, String element) {
+    this.type = type;
+    switch (type) {
+      case START_LIST:
+        push(false);
+        state = FIRST_IN_ARRAY;
+        return event = Event.START_ARRAY;
+      case START_MAP:
+        push(true);
+        state = FIRST_IN_OBJECT;
+        return event = Event.START_OBJECT;
+      case STRING:
+        state = AFTER_VALUE;
+        return event = Event.VALUE_STRING;
+      case LONG:
+      case DOUBLE:
+        state = AFTER_VALUE;
+        return event = Event.VALUE_NUMBER;
+      case TRUE:
+        state = AFTER_VALUE;
+        return event = Event.VALUE_TRUE;
+      case FALSE:
+        state = AFTER_VALUE;
+        return event = Event.VALUE_FALSE;
+      case NULL:
+        state = AFTER_VALUE;
+        return event = Event.VALUE_NULL;
+      default:
+        throw parseError(element, "value", type);
+    }
+  }
+
+  private Event key(Type type) {
+    this.type = type;
+    consume(type, "map", Type.STRING);
+    state = AFTER_KEY;
+    return event = Event.KEY_NAME;
+  }
+
+  private Event end(Event end) {
+    depth--;
+    state = AFTER_VALUE;
+    return event = end;
+  }
+
+  private void push(boolean object) {
+    if (depth == objects.length) {
+      objects = Arrays.copyOf(objects, depth * 2);
+    }
+    objects[depth++] = object;
+  }
+
+  private void checkText() {
+    if (event != Event.KEY_NAME && event != Event.VALUE_STRING) {
+      throw new IllegalStateException("Current event is not a key or string: " + event);
+    }
+  }
+
+  private void checkNumber() {
+    if (event != Event.VALUE_NUMBER) {
+      throw new IllegalStateException("Current event is not a number: " + event);
+    }
+  }
+
+  private void consume(Type got, String element, Type expected) {
+    if (got != expected) {
+      throw parseError(element, expected.toString(), got);
+    }
+  }
+
+  private Type next() {
+    return tokenizer.nextToken();
+  }
+
+  private ParseException parseError(String element, String expected, Type got) {
+    return new ParseException(element, expected, tokenizer.currentToken(got));
+  }
+}
@@ -0,0 +1,638 @@
+package mx.sugus.json;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes the structures produced by {@link Parser}, i.e., {@code Map}, {@code List}, String,
+ * Number, Boolean and null, as JSON. Any {@code Collection} is written as an array and any
+ * {@code CharSequence} as a string, map keys are written with {@code String.valueOf}.
+ *
+ * <p>Output is built in a char buffer which is reused across values: a writer without a
+ * destination keeps everything written since the last {@link #reset()}, see
+ * {@link #toString()} and {@link #toByteArray()}, one with a destination writes the buffer out
+ * whenever it fills up and on {@link #flush()}. Strings without characters to escape are copied
+ * in a single block, numbers are formatted straight into the buffer. Nesting is tracked with an
+ * explicit stack rather than the call stack, so values of any depth can be written, but a
+ * container that contains itself is written until memory runs out.
+ *
+ * <p>Doubles and floats are written with the fewest digits that read back as the same value,
+ * laid out as {@code Double.toString} and {@code Float.toString} do, see {@link NumberFormatter}.
+ * See https://tools.ietf.org/html/rfc7159.html
+ */
+public class JsonWriter {
+
+  private static final int BUFFER_SIZE = 8192;
+  private static final char[] HEX = "0123456789abcdef".toCharArray();
+  // Tens and ones digit of every number below 100.
+  private static final char[] TENS = new char[100];
+  private static final char[] ONES = new char[100];
+
+  static {
+    for (int i = 0; i < 100; i++) {
+      TENS[i] = (char) ('0' + i / 10);
+      ONES[i] = (char) ('0' + i % 10);
+    }
+  }
+
+  private final Writer writer;
+  private final int indent;
+  private char[] buffer;
+  private int count;
+  private int depth;
+  // Whether nothing was written yet within the innermost container opened by beginObject() or
+  // beginArray(), and whether the last call was name().
+  private boolean first;
+  private boolean afterName;
+  // Whether a top level value was written since the last reset.
+  private boolean written;
+  // Stack of the maps and collections being written by write(), the iterator over the entries
+  // or elements of each, whether it is a map and whether nothing was written in it yet.
+  private Iterator<?>[] iterators;
+  private boolean[] maps;
+  private boolean[] empty;
+  private int frames;
+
+  /**
+   * Creates a writer that keeps its output in memory.
+   */
+  public JsonWriter() {
+    this(WriteOptions.DEFAULT);
+  }
+
+  public JsonWriter(WriteOptions options) {
+    this((Writer) null, options);
+  }
+
+  public JsonWriter(Writer writer) {
+    this(writer, WriteOptions.DEFAULT);
+  }
+
+  /**
+   * Writes UTF-8 encoded JSON to the stream.
+   */
+  public JsonWriter(OutputStream out) {
+    this(out, WriteOptions.DEFAULT);
+  }
+
+  public JsonWriter(Writer writer, WriteOptions options) {
+    this.writer = writer;
+    this.indent = options.indent();
+    this.buffer = new char[BUFFER_SIZE];
+  }
+
+  public JsonWriter(OutputStream out, WriteOptions options) {
+    this(new Utf8Writer(out), options);
+  }
+
+  /**
+   * Returns the compact JSON text of the value.
+   */
+  public static String toJson(Object value) {
+    return new JsonWriter().write(value).toString();
+  }
+
+  /**
+   * Writes the value, top level values written one after the other are separated by a newline,
+   * so that compact values make up JSON Lines, see {@link JsonLinesReader}. Within a container
+   * opened by {@link #beginArray()} writes the next element, after {@link #name(String)} the
+   * value of the key.
+   *
+   * @throws IllegalArgumentException if the value, or a value within it, cannot be written as
+   *     JSON, e.g., a NaN or a type other than the ones listed above.
+   */
+  public JsonWriter write(Object value) {
+    beforeValue();
+    writeValue(value);
+    return this;
+  }
+
+  /**
+   * Opens an object, its members are then written with {@link #name(String)} followed by a
+   * value each, and closed with {@link #endObject()}. Together with the other streaming methods
+   * below this writes JSON without building maps and lists first, calls must be balanced and
+   * names only used within objects, neither is checked.
+   */
+  public JsonWriter beginObject() {
+    return begin('{');
+  }
+
+  public JsonWriter endObject() {
+    return end('}');
+  }
+
+  public JsonWriter beginArray() {
+    return begin('[');
+  }
+
+  public JsonWriter endArray() {
+    return end(']');
+  }
+
+  /**
+   * Writes the key of the next member of the current object.
+   */
+  public JsonWriter name(String name) {
+    if (!first) {
+      writeChar(',');
+    }
+    first = false;
+    newLine();
+    writeString(name);
+    writeChar(':');
+    if (indent > 0) {
+      writeChar(' ');
+    }
+    afterName = true;
+    return this;
+  }
+
+  public JsonWriter value(long value) {
+    beforeValue();
+    writeLong(value);
+    return this;
+  }
+
+  /**
+   * @throws IllegalArgumentException if the value is NaN or infinite.
+   */
+  public JsonWriter value(double value) {
+    checkFinite(value);
+    beforeValue();
+    writeDouble(value);
+    return this;
+  }
+
+  /**
+   * @throws IllegalArgumentException if the value is NaN or infinite.
+   */
+  public JsonWriter value(float value) {
+    checkFinite(value);
+    beforeValue();
+    writeFloat(value);
+    return this;
+  }
+
+  public JsonWriter value(boolean value) {
+    beforeValue();
+    writeAscii(value ? "true" : "false");
+    return this;
+  }
+
+  /**
+   * Writes the string, or null.
+   */
+  public JsonWriter value(String value) {
+    beforeValue();
+    if (value == null) {
+      writeAscii("null");
+    } else {
+      writeString(value);
+    }
+    return this;
+  }
+
+  public JsonWriter nullValue() {
+    beforeValue();
+    writeAscii("null");
+    return this;
+  }
+
+  private JsonWriter begin(char ch) {
+    beforeValue();
+    writeChar(ch);
+    depth++;
+    first = true;
+    return this;
+  }
+
+  private JsonWriter end(char ch) {
+    depth--;
+    if (!first) {
+      newLine();
+    }
+    writeChar(ch);
+    first = false;
+    return this;
+  }
+
+  /**
+   * Writes the separator before a value written by the streaming methods, if any.
+   */
+  private void beforeValue() {
+    if (afterName) {
+      afterName = false;
+    } else if (depth > 0) {
+      if (!first) {
+        writeChar(',');
+      }
+      newLine();
+    } else if (written) {
+      writeChar('\n');
+    } else {
+      written = true;
+    }
+    first = false;
+  }
+
+  /**
+   * Writes out the buffered output and flushes the destination.
+   */
+  public void flush() {
+    if (writer == null) {
+      return;
+    }
+    try {
+      writeOut();
+      writer.flush();
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  /**
+   * Discards the output of a writer without a destination, keeping its buffer for reuse.
+   */
+  public void reset() {
+    count = 0;
+    depth = 0;
+    first = false;
+    afterName = false;
+    written = false;
+  }
+
+  /**
+   * Returns the JSON written since the last reset by a writer without a destination.
+   */
+  @Override
+  public String toString() {
+    checkInMemory();
+    return new String(buffer, 0, count);
+  }
+
+  /**
+   * Returns the UTF-8 encoded JSON written since the last reset by a writer without a
+   * destination.
+   */
+  public byte[] toByteArray() {
+    checkInMemory();
+    return Utf8Writer.encode(buffer, 0, count);
+  }
+
+  /**
+   * Writes the value, opening a frame for each non-empty map or collection within it and
+   * writing their entries and elements in a loop, instead of a call per level of nesting.
+   */
+  private void writeValue(Object value) {
+    try {
+      while (true) {
+        if (value instanceof Map && !((Map<?, ?>) value).isEmpty()) {
+          writeChar('{');
+          openFrame(((Map<?, ?>) value).entrySet().iterator(), true);
+        } else if (value instanceof Collection && !((Collection<?>) value).isEmpty()
+            && !(value instanceof LongList || value instanceof DoubleList)) {
+          writeChar('[');
+          openFrame(((Collection<?>) value).iterator(), false);
+        } else {
+          writeScalar(value);
+        }
+        // Close the frames whose contents were all written, up to one with more to write.
+        while (true) {
+          if (frames == 0) {
+            return;
+          }
+          int frame = frames - 1;
+          Iterator<?> iterator = iterators[frame];
+          if (iterator.hasNext()) {
+            if (!empty[frame]) {
+              writeChar(',');
+            }
+            empty[frame] = false;
+            newLine();
+            if (maps[frame]) {
+              Map.Entry<?, ?> entry = (Map.Entry<?, ?>) iterator.next();
+              writeString(String.valueOf(entry.getKey()));
+              writeChar(':');
+              if (indent > 0) {
+                writeChar(' ');
+              }
+              value = entry.getValue();
+            } else {
+              value = iterator.next();
+            }
+            break;
+          }
+          iterators[frame] = null;
+          frames--;
+          depth--;
+          newLine();
+          writeChar(maps[frame] ? '}' : ']');
+        }
+      }
+    } finally {
+      if (frames > 0) {
+        // Failed within a container, drop the rest of it.
+        Arrays.fill(iterators, 0, frames, null);
+        depth -= frames;
+        frames = 0;
+      }
+    }
+  }
+
+  private void openFrame(Iterator<?> iterator, boolean map) {
+    if (iterators == null) {
+      iterators = new Iterator<?>[8];
+      maps = new boolean[8];
+      empty = new boolean[8];
+    } else if (frames == iterators.length) {
+      iterators = Arrays.copyOf(iterators, frames * 2);
+      maps = Arrays.copyOf(maps, frames * 2);
+      empty = Arrays.copyOf(empty, frames * 2);
+    }
+    iterators[frames] = iterator;
+    maps[frames] = map;
+    empty[frames] = true;
+    frames++;
+    depth++;
+  }
+
+  /**
+   * Writes a value other than a non-empty map or collection.
+   */
+  private void writeScalar(Object value) {
+    if (value == null) {
+      writeAscii("null");
+    } else if (value instanceof String) {
+      writeString((String) value);
+    } else if (value instanceof Map) {
+      writeAscii("{}");
+    } else if (value instanceof LongList || value instanceof DoubleList) {
+      writeNumbers((List<?>) value);
+    } else if (value instanceof Collection) {
+      writeAscii("[]");
+    } else if (value instanceof Number) {
+      writeNumber((Number) value);
+    } else if (value instanceof Boolean) {
+      writeAscii((Boolean) value ? "true" : "false");
+    } else if (value instanceof CharSequence) {
+      writeString(value.toString());
+    } else {
+      throw new IllegalArgumentException("Cannot write a " + value.getClass().getName()
+          + " as JSON");
+    }
+  }
+
+  /**
+   * Writes a LongList or DoubleList without boxing its elements.
+   */
+  private void writeNumbers(List<?> list) {
+    int size = list.size();
+    if (size == 0) {
+      writeAscii("[]");
+      return;
+    }
+    writeChar('[');
+    depth++;
+    for (int i = 0; i < size; i++) {
+      if (i > 0) {
+        writeChar(',');
+      }
+      newLine();
+      if (list instanceof LongList) {
+        writeLong(((LongList) list).getLong(i));
+      } else {
+        double value = ((DoubleList) list).getDouble(i);
+        checkFinite(value);
+        writeDouble(value);
+      }
+    }
+    depth--;
+    newLine();
+    writeChar(']');
+  }
+
+  private void newLine() {
+    if (indent == 0) {
+      return;
+    }
+    int spaces = depth * indent;
+    require(spaces + 1);
+    buffer[count++] = '\n';
+    Arrays.fill(buffer, count, count + spaces, ' ');
+    count += spaces;
+  }
+
+  private void writeNumber(Number number) {
+    if (number instanceof Long || number instanceof Integer || number instanceof Short
+        || number instanceof Byte) {
+      writeLong(number.longValue());
+    } else if (number instanceof Double) {
+      double value = number.doubleValue();
+      checkFinite(value);
+      writeDouble(value);
+    } else if (number instanceof Float) {
+      float value = number.floatValue();
+      checkFinite(value);
+      writeFloat(value);
+    } else if (number instanceof BigDecimal || number instanceof LazyNumber) {
+      writeAscii(number.toString());
+    } else if (number instanceof BigInteger) {
+      writeAscii(number.toString());
+    } else {
+      // Any other Number, e.g., AtomicLong, as the closest of the types above.
+      double value = number.doubleValue();
+      if (value == Math.rint(value) && Math.abs(value) < 0x1p63) {
+        writeLong(number.longValue());
+      } else {
+        checkFinite(value);
+        writeDouble(value);
+      }
+    }
+  }
+
+  private void writeDouble(double value) {
+    require(NumberFormatter.MAX_LENGTH);
+    count = NumberFormatter.format(value, buffer, count);
+  }
+
+  private void writeFloat(float value) {
+    require(NumberFormatter.MAX_LENGTH);
+    count = NumberFormatter.format(value, buffer, count);
+  }
+
+  private static void checkFinite(double value) {
+    if (Double.isNaN(value) || Double.isInfinite(value)) {
+      throw new IllegalArgumentException("JSON has no representation for " + value);
+    }
+  }
+
+  /**
+   * Formats the value straight into the buffer, two digits at a time.
+   */
+  private void writeLong(long value) {
+    if (value == Long.MIN_VALUE) {
+      writeAscii("-9223372036854775808");
+      return;
+    }
+    require(20);
+    if (value < 0) {
+      buffer[count++] = '-';
+      value = -value;
+    }
+    int end = count + digits(value);
+    int p = end;
+    while (value >= 100) {
+      int pair = (int) (value % 100);
+      value /= 100;
+      buffer[--p] = ONES[pair];
+      buffer[--p] = TENS[pair];
+    }
+    int last = (int) value;
+    buffer[--p] = ONES[last];
+    if (last >= 10) {
+      buffer[--p] = TENS[last];
+    }
+    count = end;
+  }
+
+  /**
+   * Returns the number of decimal digits of a non-negative value.
+   */
+  private static int digits(long value) {
+    long limit = 10;
+    for (int digits = 1; digits < 19; digits++) {
+      if (value < limit) {
+        return digits;
+      }
+      limit *= 10;
+    }
+    return 19;
+  }
+
+  private void writeString(String value) {
+    int length = value.length();
+    require(2);
+    buffer[count++] = '"';
+    int start = 0;
+    for (int i = 0; i < length; i++) {
+      char ch = value.charAt(i);
+      if (ch < 0x20 || ch == '"' || ch == '\\' || Character.isSurrogate(ch)) {
+        if (Character.isHighSurrogate(ch) && i + 1 < length
+            && Character.isLowSurrogate(value.charAt(i + 1))) {
+          i++;
+          continue;
+        }
+        writeChars(value, start, i);
+        writeEscape(ch);
+        start = i + 1;
+      }
+    }
+    writeChars(value, start, length);
+    writeChar('"');
+  }
+
+  /**
+   * Writes an escaped character, unpaired surrogates are escaped too so that the output can
+   * always be encoded.
+   */
+  private void writeEscape(char ch) {
+    require(6);
+    buffer[count++] = '\\';
+    switch (ch) {
+      case '"':
+        buffer[count++] = '"';
+        break;
+      case '\\':
+        buffer[count++] = '\\';
+        break;
+      case '\b':
+        buffer[count++] = 'b';
+        break;
+      case '\f':
+        buffer[count++] = 'f';
+        break;
+      case '\n':
+        buffer[count++] = 'n';
+        break;
+      case '\r':
+        buffer[count++] = 'r';
+        break;
+      case '\t':
+        buffer[count++] = 't';
+        break;
+      default:
+        buffer[count++] = 'u';
+        buffer[count++] = HEX[ch >> 12];
+        buffer[count++] = HEX[(ch >> 8) & 0xF];
+        buffer[count++] = HEX[(ch >> 4) & 0xF];
+        buffer[count++] = HEX[ch & 0xF];
+    }
+  }
+
+  /**
+   * Copies value[start, end), which needs no escaping, into the buffer.
+   */
+  private void writeChars(String value, int start, int end) {
+    while (start < end) {
+      int length = Math.min(end - start, space());
+      value.getChars(start, start + length, buffer, count);
+      count += length;
+      start += length;
+    }
+  }
+
+  private void writeAscii(String value) {
+    writeChars(value, 0, value.length());
+  }
+
+  private void writeChar(char ch) {
+    require(1);
+    buffer[count++] = ch;
+  }
+
+  /**
+   * Returns the free space of the buffer, making room for at least one char.
+   */
+  private int space() {
+    require(1);
+    return buffer.length - count;
+  }
+
+  /**
+   * Makes room for length chars, writing out the buffer or growing it.
+   */
+  private void require(int length) {
+    if (buffer.length - count >= length) {
+      return;
+    }
+    if (writer != null) {
+      try {
+        writeOut();
+      } catch (IOException e) {
+        throw new RuntimeException(e);
+      }
+    }
+    if (buffer.length - count < length) {
+      buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, count + length));
+    }
+  }
+
+  private void writeOut() throws IOException {
+    writer.write(buffer, 0, count);
+    count = 0;
+  }
+
+  private void checkInMemory() {
+    if (writer != null) {
+      throw new IllegalStateException("Output is written to its destination");
+    }
+  }
+}
@@ -0,0 +1,73 @@
+package mx.sugus.json;
+
+/**
+ * Canonicalizes object keys so that documents with many records sharing the same keys hold a
+ * single String instance per key instead of one per occurrence. Keys are looked up straight from
+ * the tokenizer's buffer, a key found in the cache is not allocated at all.
+ *
+ * <p>The cache is a fixed size table where a new key evicts the one in its slot, and keys longer
+ * than {@link #MAX_KEY_LENGTH} are never cached, so its memory is bounded whatever the input.
+ * Entries are immutable strings, the cache can be shared between parsers in different threads
+ * without synchronization, at worst a racing lookup misses.
+ */
+public final class KeyCache {
+
+  public static final int DEFAULT_SIZE = 1024;
+  public static final int MAX_KEY_LENGTH = 64;
+
+  private final String[] table;
+  private final int mask;
+
+  public KeyCache() {
+    this(DEFAULT_SIZE);
+  }
+
+  /**
+   * Creates a cache holding up to size keys, rounded up to a power of two.
+   */
+  public KeyCache(int size) {
+    if (size <= 0 || size > (1 << 30)) {
+      throw new IllegalArgumentException("Invalid size: " + size);
+    }
+    int capacity = Integer.highestOneBit(size);
+    if (capacity < size) {
+      capacity <<= 1;
+    }
+    this.table = new String[capacity];
+    this.mask = capacity - 1;
+  }
+
+  /**
+   * Returns a string equal to chars[start, start + length), the cached instance if there is one.
+   */
+  String intern(char[] chars, int start, int length) {
+    if (length > MAX_KEY_LENGTH) {
+      return new String(chars, start, length);
+    }
+    int hash = 0;
+    int end = start + length;
+    for (int i = start; i < end; i++) {
+      hash = 31 * hash + chars[i];
+    }
+    int index = (hash ^ (hash >>> 16)) & mask;
+    String cached = table[index];
+    if (cached != null && cached.hashCode() == hash && equals(cached, chars, start, length)) {
+      return cached;
+    }
+    String key = new String(chars, start, length);
+    table[index] = key;
+    return key;
+  }
+
+  private static boolean equals(String cached, char[] chars, int start, int length) {
+    if (cached.length() != length) {
+      return false;
+    }
+    for (int i = 0; i < length; i++) {
+      if (cached.charAt(i) != chars[start + i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
@@ -0,0 +1,180 @@
+package mx.sugus.json;
+
+import java.util.Arrays;
+import mx.sugus.json.Token.Type;
+
+/**
+ * A document validated for structure, but whose values are decoded only when accessed. The
+ * {@link StructuralIndex} is turned into a tape with one entry per value and per key, in document
+ * order. Each entry holds the position of the value in the input and the tape index right after
+ * it, so that the children of a container are the entries from its own index plus one up to its
+ * next, and siblings are reached by following next.
+ */
+final class LazyDocument {
+
+  private static final int VALUE = 0;
+  private static final int FIRST_IN_ARRAY = 1;
+  private static final int FIRST_IN_OBJECT = 2;
+  private static final int KEY = 3;
+  private static final int COLON = 4;
+  private static final int AFTER_VALUE = 5;
+
+  private final Tokenizer tokenizer;
+  private final int[] offsets;
+  private final int[] next;
+  private final int size;
+
+  LazyDocument(Tokenizer tokenizer, StructuralIndex index) {
+    this.tokenizer = tokenizer;
+    int count = index.size();
+    int[] offsets = new int[count];
+    int[] next = new int[count];
+    int[] containers = new int[16];
+    boolean[] objects = new boolean[16];
+    int depth = 0;
+    int state = VALUE;
+    int size = 0;
+    for (int i = 0; i < count; i++) {
+      char ch = index.kind(i);
+      switch (state) {
+        case FIRST_IN_ARRAY:
+          if (ch == ']') {
+            next[containers[--depth]] = size;
+            state = AFTER_VALUE;
+            break;
+          }
+          // Fall through
+        case VALUE:
+          if (ch == '}' || ch == ']' || ch == ',' || ch == ':') {
+            throw new ParseException("json value", "value", ch);
+          }
+          offsets[size] = index.position(i);
+          if (ch == '{' || ch == '[') {
+            if (depth == containers.length) {
+              containers = Arrays.copyOf(containers, depth * 2);
+              objects = Arrays.copyOf(objects, depth * 2);
+            }
+            containers[depth] = size;
+            objects[depth++] = ch == '{';
+            state = ch == '{' ? FIRST_IN_OBJECT : FIRST_IN_ARRAY;
+          } else {
+            next[size] = size + 1;
+            state = AFTER_VALUE;
+          }
+          size++;
+          break;
+        case FIRST_IN_OBJECT:
+          if (ch == '}') {
+            next[containers[--depth]] = size;
+            state = AFTER_VALUE;
+            break;
+          }
+          // Fall through
+        case KEY:
+          if (ch != '"') {
+            throw new ParseException("map", Type.STRING.toString(), ch);
+          }
+          offsets[size] = index.position(i);
+          next[size] = size + 1;
+          size++;
+          state = COLON;
+          break;
+        case COLON:
+          if (ch != ':') {
+            throw new ParseException("map", Type.COLON.toString(), ch);
+          }
+          state = VALUE;
+          break;
+        default:
+          if (depth == 0) {
+            throw new ParseException("json value", Type.EOF.toString(), ch);
+          }
+          boolean object = objects[depth - 1];
+          if (ch == ',') {
+            state = object ? KEY : VALUE;
+          } else if (ch == (object ? '}' : ']')) {
+            next[containers[--depth]] = size;
+            state = AFTER_VALUE;
+          } else {
+            throw new ParseException(object ? "map" : "list",
+                (object ? Type.END_MAP : Type.END_LIST).toString(), ch);
+          }
+      }
+    }
+    if (state != AFTER_VALUE) {
+      throw new ParseException("json value", "value");
+    }
+    if (depth != 0) {
+      throw objects[depth - 1]
+          ? new ParseException("map", Type.END_MAP.toString())
+          : new ParseException("list", Type.END_LIST.toString());
+    }
+    this.offsets = offsets;
+    this.next = next;
+    this.size = size;
+  }
+
+  /**
+   * Returns the top level value.
+   */
+  Object root() {
+    return value(0);
+  }
+
+  /**
+   * Returns the tape index following the value at index, for containers this skips all of its
+   * contents.
+   */
+  int next(int index) {
+    return next[index];
+  }
+
+  /**
+   * Decodes the value at the tape index, containers are returned as lazy views.
+   */
+  Object value(int index) {
+    tokenizer.seek(offsets[index]);
+    Type type = tokenizer.nextToken();
+    Object value;
+    switch (type) {
+      case START_MAP:
+        return new LazyMap(this, index);
+      case START_LIST:
+        return new LazyList(this, index);
+      case DOUBLE:
+      case LONG:
+        value = tokenizer.numberValue(type);
+        break;
+      case STRING:
+        value = tokenizer.stringValue();
+        break;
+      case NULL:
+        value = null;
+        break;
+      case TRUE:
+        value = true;
+        break;
+      case FALSE:
+        value = false;
+        break;
+      default:
+        throw new IllegalStateException("not reached");
+    }
+    // The index only knows where the value starts, make sure nothing else follows it.
+    Type following = tokenizer.nextToken();
+    if (following != Type.COMMA && following != Type.END_MAP && following != Type.END_LIST
+        && following != Type.EOF) {
+      throw new ParseException("json value", "value", tokenizer.currentToken(following));
+    }
+    return value;
+  }
+
+  /**
+   * Decodes the key at the tape index.
+   */
+  String key(int index) {
+    tokenizer.seek(offsets[index]);
+    tokenizer.nextToken();
+    return tokenizer.stringValue();
+  }
+}
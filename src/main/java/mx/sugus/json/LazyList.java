@@ -0,0 +1,48 @@
+package mx.sugus.json;
+
+import java.util.AbstractList;
+import java.util.RandomAccess;
+
+/**
+ * Immutable list view over an array of a {@link LazyDocument}, elements are decoded on first
+ * access and cached.
+ */
+final class LazyList extends AbstractList<Object> implements RandomAccess {
+
+  private static final Object UNDECODED = new Object();
+
+  private final LazyDocument document;
+  private final int[] elements;
+  private final Object[] values;
+
+  LazyList(LazyDocument document, int index) {
+    this.document = document;
+    int end = document.next(index);
+    int count = 0;
+    for (int i = index + 1; i < end; i = document.next(i)) {
+      count++;
+    }
+    this.elements = new int[count];
+    this.values = new Object[count];
+    count = 0;
+    for (int i = index + 1; i < end; i = document.next(i)) {
+      elements[count] = i;
+      values[count++] = UNDECODED;
+    }
+  }
+
+  @Override
+  public Object get(int index) {
+    Object value = values[index];
+    if (value == UNDECODED) {
+      value = document.value(elements[index]);
+      values[index] = value;
+    }
+    return value;
+  }
+
+  @Override
+  public int size() {
+    return elements.length;
+  }
+}
@@ -0,0 +1,193 @@
+package mx.sugus.json;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Immutable map view over an object of a {@link LazyDocument}. Keys are decoded when the view is
+ * created, values on first access and cached. Like {@link Parser} a repeated key keeps the last
+ * value. As with {@link CompactMap}, keys that crowd the open addressing table are indexed with a
+ * {@link HashMap} instead.
+ */
+final class LazyMap extends AbstractMap<String, Object> {
+
+  private static final Object UNDECODED = new Object();
+
+  private final LazyDocument document;
+  private final String[] keys;
+  private final int[] valueIndexes;
+  private final Object[] values;
+  // Open addressing table of key positions plus one, null for small objects scanned linearly.
+  private final int[] table;
+  // Positions of the keys when they collide too often for the table, otherwise null.
+  private final Map<String, Integer> hashIndex;
+  private Set<Entry<String, Object>> entrySet;
+
+  LazyMap(LazyDocument document, int index) {
+    this.document = document;
+    int end = document.next(index);
+    int count = 0;
+    for (int i = index + 1; i < end; i = document.next(i + 1)) {
+      count++;
+    }
+    String[] keys = new String[count];
+    int[] valueIndexes = new int[count];
+    int[] table = count > CompactMap.MAX_LINEAR_SIZE
+        ? new int[Integer.highestOneBit(count * 2 - 1) << 1]
+        : null;
+    Map<String, Integer> hashIndex = null;
+    int size = 0;
+    for (int i = index + 1; i < end; i = document.next(i + 1)) {
+      String key = document.key(i);
+      int slot = 0;
+      int existing;
+      if (table != null) {
+        slot = probe(table, keys, key, CompactMap.MAX_PROBE_LENGTH);
+        if (slot < 0) {
+          hashIndex = hashIndex(keys, size, count);
+          table = null;
+        }
+      }
+      if (hashIndex != null) {
+        Integer position = hashIndex.putIfAbsent(key, size);
+        existing = position != null ? position : -1;
+      } else if (table == null) {
+        existing = indexOfLinear(keys, size, key);
+      } else {
+        existing = table[slot] - 1;
+      }
+      if (existing >= 0) {
+        valueIndexes[existing] = i + 1;
+        continue;
+      }
+      if (table != null) {
+        table[slot] = size + 1;
+      }
+      keys[size] = key;
+      valueIndexes[size] = i + 1;
+      size++;
+    }
+    this.keys = size < count ? Arrays.copyOf(keys, size) : keys;
+    this.valueIndexes = size < count ? Arrays.copyOf(valueIndexes, size) : valueIndexes;
+    this.values = new Object[size];
+    Arrays.fill(values, UNDECODED);
+    this.table = table;
+    this.hashIndex = hashIndex;
+  }
+
+  private static Map<String, Integer> hashIndex(String[] keys, int size, int count) {
+    Map<String, Integer> index = new HashMap<>(count * 4 / 3 + 1);
+    for (int i = 0; i < size; i++) {
+      index.put(keys[i], i);
+    }
+    return index;
+  }
+
+  @Override
+  public int size() {
+    return keys.length;
+  }
+
+  @Override
+  public boolean containsKey(Object key) {
+    return indexOf(key) >= 0;
+  }
+
+  @Override
+  public Object get(Object key) {
+    int index = indexOf(key);
+    return index >= 0 ? value(index) : null;
+  }
+
+  @Override
+  public Set<Entry<String, Object>> entrySet() {
+    Set<Entry<String, Object>> result = entrySet;
+    if (result == null) {
+      result = new AbstractSet<Entry<String, Object>>() {
+        @Override
+        public Iterator<Entry<String, Object>> iterator() {
+          return new Iterator<Entry<String, Object>>() {
+            private int next;
+
+            @Override
+            public boolean hasNext() {
+              return next < keys.length;
+            }
+
+            @Override
+            public Entry<String, Object> next() {
+              if (!hasNext()) {
+                throw new NoSuchElementException();
+              }
+              int index = next++;
+              return new SimpleImmutableEntry<>(keys[index], value(index));
+            }
+          };
+        }
+
+        @Override
+        public int size() {
+          return keys.length;
+        }
+      };
+      entrySet = result;
+    }
+    return result;
+  }
+
+  private Object value(int index) {
+    Object value = values[index];
+    if (value == UNDECODED) {
+      value = document.value(valueIndexes[index]);
+      values[index] = value;
+    }
+    return value;
+  }
+
+  private int indexOf(Object key) {
+    if (!(key instanceof String)) {
+      return -1;
+    }
+    if (hashIndex != null) {
+      Integer position = hashIndex.get(key);
+      return position != null ? position : -1;
+    }
+    if (table == null) {
+      return indexOfLinear(keys, keys.length, key);
+    }
+    int slot = probe(table, keys, key, Integer.MAX_VALUE);
+    return table[slot] - 1;
+  }
+
+  private static int indexOfLinear(String[] keys, int size, Object key) {
+    for (int i = 0; i < size; i++) {
+      if (keys[i].equals(key)) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Returns the slot of the table holding the key or the free slot where it belongs, -1 if
+   * neither is found within the first maxLength slots probed.
+   */
+  private static int probe(int[] table, String[] keys, Object key, int maxLength) {
+    int hash = key.hashCode();
+    int mask = table.length - 1;
+    int slot = (hash ^ (hash >>> 16)) & mask;
+    for (int length = 0; length < maxLength; length++) {
+      if (table[slot] == 0 || keys[table[slot] - 1].equals(key)) {
+        return slot;
+      }
+      slot = (slot + 1) & mask;
+    }
+    return -1;
+  }
+}
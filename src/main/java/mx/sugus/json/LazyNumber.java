@@ -0,0 +1,133 @@
+package mx.sugus.json;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+
+/**
+ * A number as written in the input, what {@link Parser} returns for numbers with
+ * {@link ParseOptions#withLazyNumbers(boolean)}. Holds the decimal digits and exponent found by
+ * the tokenizer, or the text of numbers with more significant digits than a long holds, and
+ * converts them only when a value is requested: {@link #doubleValue()} without going through
+ * text, {@link #longValue()} straight from the digits of integers. Values are exact, so
+ * {@link #bigDecimalValue()} and {@link #toString()} preserve the full precision of the input,
+ * e.g., for numbers that are only passed through.
+ *
+ * <p>Two instances are equal if their values are, whatever their scale, i.e., {@code 1.0} equals
+ * {@code 1}. Instances are immutable.
+ */
+public final class LazyNumber extends Number {
+
+  private static final long serialVersionUID = 1L;
+
+  // Exponent of numbers held as text, the tokenizer saturates exponents well before it.
+  private static final int TEXT = Integer.MIN_VALUE;
+
+  // Either negative, unsigned mantissa * 10^exponent or, if there were too many digits,
+  // only the text. The text of the others is kept once toString() builds it. Instances are
+  // 32 bytes, twice a boxed Long or Double.
+  private final boolean negative;
+  private final long mantissa;
+  private final int exponent;
+  private String text;
+
+  LazyNumber(boolean negative, long mantissa, int exponent) {
+    this.negative = negative;
+    this.mantissa = mantissa;
+    this.exponent = exponent;
+  }
+
+  LazyNumber(String text) {
+    this.negative = false;
+    this.mantissa = 0;
+    this.exponent = TEXT;
+    this.text = text;
+  }
+
+  @Override
+  public int intValue() {
+    return (int) longValue();
+  }
+
+  /**
+   * Returns the value as a long, as {@link BigDecimal#longValue()} would, i.e., any fraction is
+   * discarded.
+   */
+  @Override
+  public long longValue() {
+    if (exponent == 0 && mantissa >= 0) {
+      return negative ? -mantissa : mantissa;
+    }
+    return bigDecimalValue().longValue();
+  }
+
+  @Override
+  public float floatValue() {
+    // Through the text to round once, rounding the closest double might not be the closest float.
+    return Float.parseFloat(toString());
+  }
+
+  @Override
+  public double doubleValue() {
+    if (exponent != TEXT) {
+      double value = NumberParser.toDouble(negative, mantissa, exponent);
+      if (!Double.isNaN(value)) {
+        return value;
+      }
+    }
+    return Double.parseDouble(toString());
+  }
+
+  public BigDecimal bigDecimalValue() {
+    if (exponent == TEXT) {
+      return new BigDecimal(text);
+    }
+    BigInteger unscaled = mantissa >= 0 ? BigInteger.valueOf(mantissa)
+        : new BigInteger(Long.toUnsignedString(mantissa));
+    return new BigDecimal(negative ? unscaled.negate() : unscaled, -exponent);
+  }
+
+  /**
+   * Returns the value as a BigInteger, any fraction is discarded.
+   *
+   * @throws ParseException if the integer part has more than 10,000 digits, e.g., 1e1000000000.
+   */
+  public BigInteger bigIntegerValue() {
+    return Tokenizer.toBigInteger(bigDecimalValue(), Tokenizer.MAX_INTEGER_DIGITS, false);
+  }
+
+  /**
+   * Returns the number as JSON text. Numbers with up to 19 significant digits are written back
+   * in their shortest exact form, e.g., {@code 1.50} as is but {@code 1e2} as {@code 1E+2},
+   * longer ones exactly as they were in the input.
+   */
+  @Override
+  public String toString() {
+    if (text == null) {
+      if (exponent == 0 && mantissa >= 0) {
+        text = negative ? "-" + mantissa : Long.toString(mantissa);
+      } else {
+        String value = bigDecimalValue().toString();
+        // BigDecimal has no negative zero.
+        text = negative && mantissa == 0 ? "-" + value : value;
+      }
+    }
+    return text;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof LazyNumber)) {
+      return false;
+    }
+    return bigDecimalValue().compareTo(((LazyNumber) o).bigDecimalValue()) == 0;
+  }
+
+  @Override
+  public int hashCode() {
+    BigDecimal value = bigDecimalValue();
+    return value.signum() == 0 ? 0 : value.stripTrailingZeros().hashCode();
+  }
+}
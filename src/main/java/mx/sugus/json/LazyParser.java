@@ -0,0 +1,59 @@
+package mx.sugus.json;
+
+/**
+ * Parses a JSON document into lazy views that decode values only when they are accessed. A
+ * first pass records where each value starts and validates the structure of the document, the
+ * returned {@code Map} and {@code List} views then decode each string, number or nested container
+ * on first access and cache it. Well suited for reading a few values out of large documents.
+ *
+ * <p>Objects and arrays are parsed to immutable {@code Map} and {@code List} views, the rest of
+ * the values as with {@link Parser}. Errors within strings and numbers are only found, and
+ * thrown as {@link ParseException}, when the value is accessed. The views keep the whole input
+ * in memory and are not thread safe.
+ */
+public class LazyParser {
+
+  // Values are decoded a few at a time, a small window is enough to seek to each of them.
+  private static final int WINDOW_SIZE = 128;
+
+  // Either chars or the UTF-8 encoded bytes of the document.
+  private final char[] json;
+  private final byte[] utf8;
+  private final int start;
+  private final int end;
+
+  public LazyParser(String json) {
+    this(json.toCharArray());
+  }
+
+  public LazyParser(char[] json) {
+    this(json, 0, json.length);
+  }
+
+  /**
+   * Parses UTF-8 encoded JSON.
+   */
+  public LazyParser(byte[] json) {
+    this.json = null;
+    this.utf8 = json;
+    this.start = 0;
+    this.end = json.length;
+  }
+
+  private LazyParser(char[] json, int start, int end) {
+    this.json = json;
+    this.utf8 = null;
+    this.start = start;
+    this.end = end;
+  }
+
+  public Object parse() {
+    if (utf8 != null) {
+      StructuralIndex index = StructuralIndex.of(utf8, start, end);
+      Utf8Reader reader = new Utf8Reader(utf8, start, end - start);
+      return new LazyDocument(new Tokenizer(reader, WINDOW_SIZE), index).root();
+    }
+    StructuralIndex index = StructuralIndex.of(json, start, end);
+    return new LazyDocument(new Tokenizer(json, start, end), index).root();
+  }
+}
@@ -0,0 +1,58 @@
+package mx.sugus.json;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+
+/**
+ * Immutable list of longs backed by a {@code long[]} of exactly its size, what {@link Parser}
+ * returns for arrays of integers with {@link ParseOptions#withPrimitiveArrays(boolean)}. Use
+ * {@link #getLong(int)} or {@link #toLongArray()} to read the values without boxing them.
+ */
+public final class LongList extends AbstractList<Long> implements RandomAccess {
+
+  private final long[] elements;
+
+  LongList(long[] elements) {
+    this.elements = elements;
+  }
+
+  public long getLong(int index) {
+    return elements[index];
+  }
+
+  /**
+   * Returns a copy of the values.
+   */
+  public long[] toLongArray() {
+    return elements.clone();
+  }
+
+  @Override
+  public Long get(int index) {
+    return elements[index];
+  }
+
+  @Override
+  public int size() {
+    return elements.length;
+  }
+
+  @Override
+  public int hashCode() {
+    // Same as List.hashCode(), without boxing.
+    int hash = 1;
+    for (long element : elements) {
+      hash = 31 * hash + Long.hashCode(element);
+    }
+    return hash;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (o instanceof LongList) {
+      return Arrays.equals(elements, ((LongList) o).elements);
+    }
+    return super.equals(o);
+  }
+}
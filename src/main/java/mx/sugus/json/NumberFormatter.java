@@ -0,0 +1,267 @@
+package mx.sugus.json;
+
+import java.math.BigInteger;
+
+/**
+ * Formats doubles and floats with the fewest significant digits that read back as the same
+ * value, the closest to it if there are several, using the Schubfach algorithm from Raffaello
+ * Giulietti's "The Schubfach way to render doubles". The decimal is laid out as
+ * {@code Double.toString} lays it out, which gives the same output on JDK 19 and later, where it
+ * uses the same algorithm, and fewer digits for some values on earlier JDKs, e.g., {@code 2.0E23}
+ * rather than {@code 1.9999999999999998E23}.
+ */
+final class NumberFormatter {
+
+  /**
+   * Chars that formatting a double or float may take.
+   */
+  static final int MAX_LENGTH = 24;
+
+  // Smallest exponent and normalized significand, and the significands below which subnormals
+  // are scaled by ten for the algorithm to find two digits, of doubles and floats.
+  private static final int DOUBLE_Q_MIN = -1074;
+  private static final long DOUBLE_C_MIN = 1L << 52;
+  private static final int DOUBLE_C_TINY = 3;
+  private static final int FLOAT_Q_MIN = -149;
+  private static final long FLOAT_C_MIN = 1L << 23;
+  private static final int FLOAT_C_TINY = 8;
+
+  private static final int K_MIN = -324;
+  private static final int K_MAX = 292;
+
+  // For k in [K_MIN, K_MAX], 10^-k = b * 2^r with 2^125 <= b < 2^126, g = floor(b) + 1 split in
+  // its high and low 63 bits.
+  private static final long[] G = new long[(K_MAX - K_MIN + 1) * 2];
+
+  static {
+    for (int k = K_MIN; k <= K_MAX; k++) {
+      BigInteger g;
+      if (k <= 0) {
+        BigInteger value = BigInteger.TEN.pow(-k);
+        int shift = value.bitLength() - 126;
+        g = shift > 0 ? value.shiftRight(shift) : value.shiftLeft(-shift);
+      } else {
+        BigInteger divisor = BigInteger.TEN.pow(k);
+        int shift = divisor.bitLength() + 125;
+        g = BigInteger.ONE.shiftLeft(shift).divide(divisor);
+        if (g.bitLength() < 126) {
+          g = BigInteger.ONE.shiftLeft(shift + 1).divide(divisor);
+        }
+      }
+      g = g.add(BigInteger.ONE);
+      G[(k - K_MIN) * 2] = g.shiftRight(63).longValue();
+      G[(k - K_MIN) * 2 + 1] = g.longValue() & Long.MAX_VALUE;
+    }
+  }
+
+  private NumberFormatter() {
+  }
+
+  /**
+   * Writes the finite value into buffer at index, returns the index after it. The buffer must
+   * have room for {@link #MAX_LENGTH} chars.
+   */
+  static int format(double value, char[] buffer, int index) {
+    long bits = Double.doubleToRawLongBits(value);
+    if (bits < 0) {
+      buffer[index++] = '-';
+    }
+    int bq = (int) (bits >>> 52) & 0x7FF;
+    long t = bits & (DOUBLE_C_MIN - 1);
+    if (bq != 0) {
+      int q = bq - 1075;
+      long c = DOUBLE_C_MIN | t;
+      if (q < 0 && q > -53 && (c >> -q) << -q == c) {
+        // An integer below 2^53, no shorter decimal is within half an ulp of it.
+        return write(c >> -q, 0, buffer, index);
+      }
+      return toDecimal(q, c, 0, DOUBLE_C_MIN, DOUBLE_Q_MIN, buffer, index);
+    }
+    if (t == 0) {
+      return write(0, 0, buffer, index);
+    }
+    return t < DOUBLE_C_TINY
+        ? toDecimal(DOUBLE_Q_MIN, 10 * t, -1, DOUBLE_C_MIN, DOUBLE_Q_MIN, buffer, index)
+        : toDecimal(DOUBLE_Q_MIN, t, 0, DOUBLE_C_MIN, DOUBLE_Q_MIN, buffer, index);
+  }
+
+  /**
+   * Writes the finite value into buffer at index as {@code Float.toString} lays it out, see
+   * {@link #format(double, char[], int)}.
+   */
+  static int format(float value, char[] buffer, int index) {
+    int bits = Float.floatToRawIntBits(value);
+    if (bits < 0) {
+      buffer[index++] = '-';
+    }
+    int bq = (bits >>> 23) & 0xFF;
+    long t = bits & (FLOAT_C_MIN - 1);
+    if (bq != 0) {
+      int q = bq - 150;
+      long c = FLOAT_C_MIN | t;
+      if (q < 0 && q > -24 && (c >> -q) << -q == c) {
+        return write(c >> -q, 0, buffer, index);
+      }
+      return toDecimal(q, c, 0, FLOAT_C_MIN, FLOAT_Q_MIN, buffer, index);
+    }
+    if (t == 0) {
+      return write(0, 0, buffer, index);
+    }
+    return t < FLOAT_C_TINY
+        ? toDecimal(FLOAT_Q_MIN, 10 * t, -1, FLOAT_C_MIN, FLOAT_Q_MIN, buffer, index)
+        : toDecimal(FLOAT_Q_MIN, t, 0, FLOAT_C_MIN, FLOAT_Q_MIN, buffer, index);
+  }
+
+  /**
+   * Finds the shortest decimal in the rounding interval of c * 2^q and writes it. The value is
+   * scaled by 10^-k, for k such that the interval holds at least one integer and at most one
+   * multiple of ten, so that the candidates are s, s + 1 and the multiples of ten around s.
+   */
+  private static int toDecimal(int q, long c, int dk, long cMin, int qMin, char[] buffer,
+      int index) {
+    // Interval bounds are included when c is even.
+    int out = (int) c & 1;
+    long cb = c << 2;
+    long cbr = cb + 2;
+    long cbl;
+    int k;
+    if (c != cMin || q == qMin) {
+      cbl = cb - 2;
+      k = floorLog10Pow2(q);
+    } else {
+      // At a power of two the interval is narrower below the value than above it.
+      cbl = cb - 1;
+      k = floorLog10ThreeQuartersPow2(q);
+    }
+    int h = q + floorLog2Pow10(-k) + 2;
+    long g1 = G[(k - K_MIN) * 2];
+    long g0 = G[(k - K_MIN) * 2 + 1];
+    // The value and the bounds of its interval times 4 * 10^-k, rounded to odd.
+    long vb = roundToOdd(g1, g0, cb << h);
+    long vbl = roundToOdd(g1, g0, cbl << h);
+    long vbr = roundToOdd(g1, g0, cbr << h);
+    long s = vb >> 2;
+    if (s >= 100) {
+      // A multiple of ten in the interval has one digit less.
+      long sp10 = 10 * Math.multiplyHigh(s, 115_292_150_460_684_698L << 4);
+      long tp10 = sp10 + 10;
+      boolean upin = vbl + out <= sp10 << 2;
+      boolean wpin = (tp10 << 2) + out <= vbr;
+      if (upin != wpin) {
+        return write(upin ? sp10 : tp10, k, buffer, index);
+      }
+    }
+    long t = s + 1;
+    boolean uin = vbl + out <= s << 2;
+    boolean win = (t << 2) + out <= vbr;
+    if (uin != win) {
+      return write(uin ? s : t, k + dk, buffer, index);
+    }
+    // Both are in the interval, the closest wins, the even one on a tie.
+    long cmp = vb - (s + t << 1);
+    return write(cmp < 0 || cmp == 0 && (s & 1) == 0 ? s : t, k + dk, buffer, index);
+  }
+
+  /**
+   * Returns g * cp / 2^127 rounded down, with the lowest bit set if that is inexact.
+   */
+  private static long roundToOdd(long g1, long g0, long cp) {
+    long x1 = Math.multiplyHigh(g0, cp);
+    long y0 = g1 * cp;
+    long y1 = Math.multiplyHigh(g1, cp);
+    long z = (y0 >>> 1) + x1;
+    long vbp = y1 + (z >>> 63);
+    return vbp | ((z & Long.MAX_VALUE) + Long.MAX_VALUE) >>> 63;
+  }
+
+  private static int floorLog10Pow2(int e) {
+    return (int) (e * 661_971_961_083L >> 41);
+  }
+
+  private static int floorLog10ThreeQuartersPow2(int e) {
+    return (int) (e * 661_971_961_083L - 274_743_187_321L >> 41);
+  }
+
+  private static int floorLog2Pow10(int e) {
+    return (int) (e * 913_124_641_741L >> 38);
+  }
+
+  /**
+   * Writes f * 10^e like {@code Double.toString}: plain for values in [10^-3, 10^7), in
+   * computerized scientific notation otherwise, with at least one digit after the point.
+   */
+  private static int write(long f, int e, char[] buffer, int index) {
+    if (f == 0) {
+      buffer[index++] = '0';
+      buffer[index++] = '.';
+      buffer[index++] = '0';
+      return index;
+    }
+    while (f % 10 == 0) {
+      f /= 10;
+      e++;
+    }
+    int digits = 1;
+    for (long limit = 10; digits < 19 && f >= limit; limit *= 10) {
+      digits++;
+    }
+    // The value is 0.d1d2...dn * 10^point.
+    int point = e + digits;
+    if (point > 0 && point <= 7) {
+      if (digits <= point) {
+        index = writeDigits(f, digits, buffer, index);
+        for (int i = digits; i < point; i++) {
+          buffer[index++] = '0';
+        }
+        buffer[index++] = '.';
+        buffer[index++] = '0';
+        return index;
+      }
+      writeDigits(f, digits, buffer, index + 1);
+      System.arraycopy(buffer, index + 1, buffer, index, point);
+      buffer[index + point] = '.';
+      return index + digits + 1;
+    }
+    if (point <= 0 && point > -3) {
+      buffer[index++] = '0';
+      buffer[index++] = '.';
+      for (int i = point; i < 0; i++) {
+        buffer[index++] = '0';
+      }
+      return writeDigits(f, digits, buffer, index);
+    }
+    writeDigits(f, digits, buffer, index + 1);
+    buffer[index] = buffer[index + 1];
+    buffer[index + 1] = '.';
+    index += digits + 1;
+    if (digits == 1) {
+      buffer[index++] = '0';
+    }
+    buffer[index++] = 'E';
+    int exponent = point - 1;
+    if (exponent < 0) {
+      buffer[index++] = '-';
+      exponent = -exponent;
+    }
+    if (exponent >= 100) {
+      buffer[index++] = (char) ('0' + exponent / 100);
+    }
+    if (exponent >= 10) {
+      buffer[index++] = (char) ('0' + exponent / 10 % 10);
+    }
+    buffer[index++] = (char) ('0' + exponent % 10);
+    return index;
+  }
+
+  /**
+   * Writes the given number of digits of f at index, returns the index after them.
+   */
+  private static int writeDigits(long f, int digits, char[] buffer, int index) {
+    int end = index + digits;
+    for (int i = end - 1; i >= index; i--) {
+      buffer[i] = (char) ('0' + f % 10);
+      f /= 10;
+    }
+    return end;
+  }
+}
@@ -0,0 +1,141 @@
+package mx.sugus.json;
+
+import java.math.BigInteger;
+
+/**
+ * Converts decimal numbers, given as mantissa and exponent, to the closest double without going
+ * through their text. Uses the exact fast path when both the mantissa and the power of ten fit in
+ * a double and the Eisel-Lemire algorithm otherwise, see https://arxiv.org/abs/2101.11408. For
+ * the rare inputs where neither can decide the result is NaN and the caller must fall back to
+ * {@link Double#parseDouble(String)}.
+ */
+final class NumberParser {
+
+  /**
+   * Significant digits that always fit in an unsigned long mantissa.
+   */
+  static final int MAX_DIGITS = 19;
+
+  private static final double[] POWERS_OF_TEN = {
+      1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+      1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+  };
+
+  private static final int MIN_EXPONENT = -348;
+  private static final int MAX_EXPONENT = 347;
+
+  // 128-bit approximations, rounded down, of the significand of 10^e for e in
+  // [MIN_EXPONENT, MAX_EXPONENT], normalized so that the top bit is set.
+  private static final long[] POWERS_HIGH = new long[MAX_EXPONENT - MIN_EXPONENT + 1];
+  private static final long[] POWERS_LOW = new long[MAX_EXPONENT - MIN_EXPONENT + 1];
+
+  static {
+    for (int e = MIN_EXPONENT; e <= MAX_EXPONENT; e++) {
+      BigInteger value;
+      if (e >= 0) {
+        value = BigInteger.TEN.pow(e);
+        int shift = value.bitLength() - 128;
+        value = shift > 0 ? value.shiftRight(shift) : value.shiftLeft(-shift);
+      } else {
+        BigInteger divisor = BigInteger.TEN.pow(-e);
+        int shift = divisor.bitLength() + 127;
+        value = BigInteger.ONE.shiftLeft(shift).divide(divisor);
+        if (value.bitLength() < 128) {
+          value = BigInteger.ONE.shiftLeft(shift + 1).divide(divisor);
+        }
+      }
+      POWERS_HIGH[e - MIN_EXPONENT] = value.shiftRight(64).longValue();
+      POWERS_LOW[e - MIN_EXPONENT] = value.longValue();
+    }
+  }
+
+  private NumberParser() {
+  }
+
+  /**
+   * Returns the double closest to mantissa * 10^exponent, negated if negative, where mantissa
+   * is unsigned. Returns NaN if the value cannot be computed exactly.
+   */
+  static double toDouble(boolean negative, long mantissa, int exponent) {
+    if (mantissa == 0) {
+      return negative ? -0.0 : 0.0;
+    }
+    if (mantissa > 0 && mantissa <= (1L << 53) && exponent >= -22 && exponent <= 22) {
+      // Both operands are exact, so is the correctly rounded operation.
+      double value = (double) mantissa;
+      value = exponent < 0 ? value / POWERS_OF_TEN[-exponent] : value * POWERS_OF_TEN[exponent];
+      return negative ? -value : value;
+    }
+    return eiselLemire(negative, mantissa, exponent);
+  }
+
+  private static double eiselLemire(boolean negative, long mantissa, int exponent) {
+    if (exponent < MIN_EXPONENT || exponent > MAX_EXPONENT) {
+      return Double.NaN;
+    }
+    int index = exponent - MIN_EXPONENT;
+    int leadingZeros = Long.numberOfLeadingZeros(mantissa);
+    long normalized = mantissa << leadingZeros;
+    long exponent2 = ((217706L * exponent) >> 16) + 64 + 1023 - leadingZeros;
+
+    long high = multiplyHigh(normalized, POWERS_HIGH[index]);
+    long low = normalized * POWERS_HIGH[index];
+    if ((high & 0x1FF) == 0x1FF && Long.compareUnsigned(low + normalized, normalized) < 0) {
+      // The truncated product might be off, widen it with the low half of the power.
+      long extraHigh = multiplyHigh(normalized, POWERS_LOW[index]);
+      long extraLow = normalized * POWERS_LOW[index];
+      long mergedHigh = high;
+      long mergedLow = low + extraHigh;
+      if (Long.compareUnsigned(mergedLow, low) < 0) {
+        mergedHigh++;
+      }
+      if ((mergedHigh & 0x1FF) == 0x1FF && mergedLow == -1
+          && Long.compareUnsigned(extraLow + normalized, normalized) < 0) {
+        return Double.NaN;
+      }
+      high = mergedHigh;
+      low = mergedLow;
+    }
+
+    long msb = high >>> 63;
+    long significand = high >>> (msb + 9);
+    exponent2 -= 1 ^ msb;
+
+    if (low == 0 && (high & 0x1FF) == 0 && (significand & 3) == 1) {
+      // Exactly halfway between two doubles, needs the full digits to break the tie.
+      return Double.NaN;
+    }
+
+    significand += significand & 1;
+    significand >>>= 1;
+    if ((significand >>> 53) > 0) {
+      significand >>>= 1;
+      exponent2++;
+    }
+    if (exponent2 <= 0 || exponent2 >= 0x7FF) {
+      // Subnormal or infinite.
+      return Double.NaN;
+    }
+    long bits = (exponent2 << 52) | (significand & 0x000FFFFFFFFFFFFFL);
+    if (negative) {
+      bits |= 0x8000000000000000L;
+    }
+    return Double.longBitsToDouble(bits);
+  }
+
+  /**
+   * Returns the high 64 bits of the unsigned 128-bit product of x and y.
+   */
+  static long multiplyHigh(long x, long y) {
+    long x0 = x & 0xFFFFFFFFL;
+    long x1 = x >>> 32;
+    long y0 = y & 0xFFFFFFFFL;
+    long y1 = y >>> 32;
+    long p00 = x0 * y0;
+    long p01 = x0 * y1;
+    long p10 = x1 * y0;
+    long p11 = x1 * y1;
+    long middle = p10 + (p00 >>> 32) + (p01 & 0xFFFFFFFFL);
+    return p11 + (middle >>> 32) + (p01 >>> 32);
+  }
+}
@@ -0,0 +1,362 @@
+package mx.sugus.json;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Parses large documents whose top level value is an array using several threads. A quick
+ * pass finds the commas between the elements of the array and splits them into chunks, which
+ * are parsed concurrently on a {@link ForkJoinPool} and joined back in order.
+ *
+ * <p>The result is the same as with {@link Parser} and given the same options. Documents that
+ * are not an array, or that are too small to be worth splitting, and pools with a single thread
+ * parse sequentially. If the
+ * document is not valid JSON it is parsed again sequentially, so that the same
+ * {@link ParseException} is thrown as with {@link Parser}.
+ */
+public class ParallelParser {
+
+  /**
+   * Chunks are at least this many chars, or bytes for UTF-8 input.
+   */
+  static final int MIN_CHUNK_SIZE = 64 * 1024;
+  // Chunks per thread of the pool, more than one evens out chunks that take longer.
+  private static final int CHUNKS_PER_THREAD = 4;
+
+  // Either chars or the UTF-8 encoded bytes of the document.
+  private final char[] chars;
+  private final byte[] utf8;
+  private final int length;
+  private final ParseOptions options;
+  private final ForkJoinPool pool;
+  private final int minChunkSize;
+
+  public ParallelParser(String json) {
+    this(json, ParseOptions.DEFAULT);
+  }
+
+  /**
+   * Parses UTF-8 encoded JSON.
+   */
+  public ParallelParser(byte[] json) {
+    this(json, ParseOptions.DEFAULT);
+  }
+
+  public ParallelParser(String json, ParseOptions options) {
+    this(json, options, ForkJoinPool.commonPool());
+  }
+
+  public ParallelParser(byte[] json, ParseOptions options) {
+    this(json, options, ForkJoinPool.commonPool());
+  }
+
+  public ParallelParser(String json, ParseOptions options, ForkJoinPool pool) {
+    this(json.toCharArray(), null, json.length(), options, pool, MIN_CHUNK_SIZE);
+  }
+
+  public ParallelParser(byte[] json, ParseOptions options, ForkJoinPool pool) {
+    this(null, json, json.length, options, pool, MIN_CHUNK_SIZE);
+  }
+
+  ParallelParser(char[] chars, byte[] utf8, int length, ParseOptions options, ForkJoinPool pool,
+      int minChunkSize) {
+    this.chars = chars;
+    this.utf8 = utf8;
+    this.length = length;
+    this.options = options;
+    this.pool = pool;
+    this.minChunkSize = minChunkSize;
+  }
+
+  public Object parse() {
+    if (length > options.maxInputLength()) {
+      throw new ParseException("json value", "at most " + options.maxInputLength()
+          + (chars != null ? " chars" : " bytes") + " of input", "more");
+    }
+    if (pool.getParallelism() < 2) {
+      // Nothing to gain from finding the chunks.
+      return parser(0, length).parse();
+    }
+    long start = System.nanoTime();
+    int chunkSize = Math.max(minChunkSize, length / (pool.getParallelism() * CHUNKS_PER_THREAD));
+    int[] cuts = chars != null ? split(chars, length, chunkSize) : split(utf8, length, chunkSize);
+    if (cuts == null || cuts.length < 3) {
+      return parser(0, length).parse();
+    }
+    List<ForkJoinTask<List<?>>> tasks = new ArrayList<>(cuts.length - 1);
+    List<Parser> parsers = new ArrayList<>(cuts.length - 1);
+    for (int i = 1; i < cuts.length; i++) {
+      Parser parser = parser(cuts[i - 1] + 1, cuts[i]);
+      boolean last = i == cuts.length - 1;
+      parsers.add(parser);
+      tasks.add(pool.submit(() -> parser.parseElements(last)));
+    }
+    List<List<?>> chunks = new ArrayList<>(tasks.size());
+    try {
+      for (ForkJoinTask<List<?>> task : tasks) {
+        chunks.add(task.join());
+      }
+    } catch (ParseException e) {
+      for (ForkJoinTask<List<?>> task : tasks) {
+        task.cancel(false);
+      }
+      // Let the sequential parser find the first error.
+      return parser(0, length).parse();
+    }
+    List<?> result = join(chunks, cuts);
+    if (options.listener() != null) {
+      report(parsers, cuts, start);
+    }
+    return result;
+  }
+
+  /**
+   * Reports the stats of the chunk parsers as those of a single parse, adding the brackets and
+   * commas at the cuts.
+   */
+  private void report(List<Parser> parsers, int[] cuts, long start) {
+    ParseStats stats = new ParseStats();
+    for (Parser parser : parsers) {
+      stats.add(parser.stats());
+      stats.inputBytes += parser.tokenizer().consumedBytes();
+    }
+    // Each chunk ends at its own EOF.
+    stats.tokens[Token.Type.EOF.ordinal()] = 1;
+    stats.tokens[Token.Type.START_LIST.ordinal()]++;
+    stats.tokens[Token.Type.END_LIST.ordinal()]++;
+    stats.tokens[Token.Type.COMMA.ordinal()] += cuts.length - 2;
+    stats.inputBytes += cuts.length;
+    stats.maxDepth = Math.max(stats.maxDepth, 1);
+    stats.nanos = System.nanoTime() - start;
+    options.listener().parsed(stats);
+  }
+
+  private Parser parser(int start, int end) {
+    return parser(start, end, options);
+  }
+
+  private Parser parser(int start, int end, ParseOptions options) {
+    if (chars != null) {
+      return new Parser(new Tokenizer(chars, start, end), options);
+    }
+    return new Parser(new Tokenizer(new Utf8Reader(utf8, start, end - start)), options);
+  }
+
+  private List<?> join(List<List<?>> chunks, int[] cuts) {
+    int size = 0;
+    for (List<?> chunk : chunks) {
+      size += chunk.size();
+    }
+    // As with Parser, only lists starting with a number can be primitive.
+    List<?> first = chunks.get(0);
+    if (first instanceof LongList || first instanceof DoubleList) {
+      List<?> numbers = joinNumbers(chunks, size);
+      if (numbers != null) {
+        return numbers;
+      }
+    }
+    // Chunks of doubles no longer know which of their elements were integers, Parser would have
+    // boxed those as longs.
+    ParseOptions boxed = null;
+    for (int i = 0; i < chunks.size(); i++) {
+      if (chunks.get(i) instanceof DoubleList) {
+        if (boxed == null) {
+          boxed = options.withPrimitiveArrays(false);
+        }
+        chunks.set(i, parser(cuts[i] + 1, cuts[i + 1], boxed)
+            .parseElements(i == chunks.size() - 1));
+      }
+    }
+    if (options.compactContainers()) {
+      Object[] values = new Object[size];
+      int count = 0;
+      for (List<?> chunk : chunks) {
+        for (Object value : chunk) {
+          values[count++] = value;
+        }
+      }
+      return CompactList.of(values, 0, size);
+    }
+    List<Object> result = new ArrayList<>(size);
+    for (List<?> chunk : chunks) {
+      result.addAll(chunk);
+    }
+    return result;
+  }
+
+  /**
+   * Joins chunks of numbers into a LongList, or into a DoubleList if some chunks have doubles
+   * and the integers in the others are exact doubles, as Parser would have promoted them.
+   * Returns null if some chunk is not all numbers or its integers cannot be promoted.
+   */
+  private static List<?> joinNumbers(List<List<?>> chunks, int size) {
+    boolean doubles = false;
+    for (List<?> chunk : chunks) {
+      if (chunk instanceof DoubleList) {
+        doubles = true;
+      } else if (!(chunk instanceof LongList)) {
+        return null;
+      }
+    }
+    if (!doubles) {
+      long[] values = new long[size];
+      int count = 0;
+      for (List<?> chunk : chunks) {
+        LongList longs = (LongList) chunk;
+        for (int i = 0; i < longs.size(); i++) {
+          values[count++] = longs.getLong(i);
+        }
+      }
+      return new LongList(values);
+    }
+    double[] values = new double[size];
+    int count = 0;
+    for (List<?> chunk : chunks) {
+      if (chunk instanceof DoubleList) {
+        DoubleList chunkDoubles = (DoubleList) chunk;
+        for (int i = 0; i < chunkDoubles.size(); i++) {
+          values[count++] = chunkDoubles.getDouble(i);
+        }
+        continue;
+      }
+      LongList longs = (LongList) chunk;
+      for (int i = 0; i < longs.size(); i++) {
+        long value = longs.getLong(i);
+        if (!Parser.isExactDouble(value)) {
+          return null;
+        }
+        values[count++] = value;
+      }
+    }
+    return new DoubleList(values);
+  }
+
+  /**
+   * Returns the position of the opening bracket of the top level array, of the commas that
+   * split its elements into chunks of about chunkSize and of its closing bracket. Returns null
+   * if the document is not a single array, the sequential parser takes care of those. Only the
+   * strings and the nesting are tracked, the chunks are validated when they are parsed.
+   */
+  static int[] split(char[] chars, int length, int chunkSize) {
+    int i = skipWhitespace(chars, 0, length);
+    if (i == length || chars[i] != '[') {
+      return null;
+    }
+    int[] cuts = {i};
+    int count = 1;
+    int next = i + chunkSize;
+    int depth = 0;
+    for (; i < length; i++) {
+      char ch = chars[i];
+      if (ch == '"') {
+        i = endOfString(chars, i + 1, length);
+      } else if (ch == '[' || ch == '{') {
+        depth++;
+      } else if (ch == ']' || ch == '}') {
+        if (--depth == 0) {
+          break;
+        }
+      } else if (ch == ',' && depth == 1 && i >= next) {
+        cuts = add(cuts, count++, i);
+        next = i + chunkSize;
+      }
+    }
+    if (i >= length || chars[i] != ']' || skipWhitespace(chars, i + 1, length) != length) {
+      return null;
+    }
+    cuts = add(cuts, count++, i);
+    return Arrays.copyOf(cuts, count);
+  }
+
+  static int[] split(byte[] utf8, int length, int chunkSize) {
+    int i = skipWhitespace(utf8, 0, length);
+    if (i == length || utf8[i] != '[') {
+      return null;
+    }
+    int[] cuts = {i};
+    int count = 1;
+    int next = i + chunkSize;
+    int depth = 0;
+    for (; i < length; i++) {
+      byte b = utf8[i];
+      if (b == '"') {
+        i = endOfString(utf8, i + 1, length);
+      } else if (b == '[' || b == '{') {
+        depth++;
+      } else if (b == ']' || b == '}') {
+        if (--depth == 0) {
+          break;
+        }
+      } else if (b == ',' && depth == 1 && i >= next) {
+        cuts = add(cuts, count++, i);
+        next = i + chunkSize;
+      }
+    }
+    if (i >= length || utf8[i] != ']' || skipWhitespace(utf8, i + 1, length) != length) {
+      return null;
+    }
+    cuts = add(cuts, count++, i);
+    return Arrays.copyOf(cuts, count);
+  }
+
+  private static int[] add(int[] cuts, int count, int position) {
+    if (count == cuts.length) {
+      cuts = Arrays.copyOf(cuts, Math.max(8, count * 2));
+    }
+    cuts[count] = position;
+    return cuts;
+  }
+
+  /**
+   * Returns the position of the quote closing the string whose contents start at start, or
+   * end if there is none.
+   */
+  private static int endOfString(char[] chars, int start, int end) {
+    for (int i = start; i < end; i++) {
+      char ch = chars[i];
+      if (ch == '"') {
+        return i;
+      }
+      if (ch == '\\') {
+        i++;
+      }
+    }
+    return end;
+  }
+
+  private static int endOfString(byte[] utf8, int start, int end) {
+    for (int i = start; i < end; i++) {
+      byte b = utf8[i];
+      if (b == '"') {
+        return i;
+      }
+      if (b == '\\') {
+        i++;
+      }
+    }
+    return end;
+  }
+
+  private static int skipWhitespace(char[] chars, int start, int end) {
+    int i = start;
+    while (i < end && isWhitespace(chars[i])) {
+      i++;
+    }
+    return i;
+  }
+
+  private static int skipWhitespace(byte[] utf8, int start, int end) {
+    int i = start;
+    while (i < end && isWhitespace(utf8[i])) {
+      i++;
+    }
+    return i;
+  }
+
+  private static boolean isWhitespace(int ch) {
+    return ch == ' ' || ch == '\t' || ch == '\n' || ch == '\r';
+  }
+}
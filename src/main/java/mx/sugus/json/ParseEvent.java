@@ -0,0 +1,61 @@
+package mx.sugus.json;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * JDK Flight Recorder event for a parse, see {@link ParseListener#flightRecorder()}. Disabled
+ * unless a recording enables it, e.g., {@code recording.enable("mx.sugus.json.Parse")}.
+ */
+@Name("mx.sugus.json.Parse")
+@Label("JSON Parse")
+@Category("JSON")
+@Description("A value parsed by mx.sugus.json.Parser")
+@StackTrace(false)
+class ParseEvent extends jdk.jfr.Event {
+
+  static final ParseListener LISTENER = stats -> {
+    ParseEvent event = new ParseEvent();
+    if (event.shouldCommit()) {
+      event.inputBytes = stats.inputBytes();
+      event.tokens = stats.tokens();
+      event.maxDepth = stats.maxDepth();
+      event.strings = stats.strings();
+      event.numbers = stats.numbers();
+      event.parseTime = stats.nanos();
+      event.failed = stats.failed();
+      event.commit();
+    }
+  };
+
+  @Label("Input Bytes")
+  @Description("Bytes of input parsed, strings and readers counting as UTF-8 encoded")
+  @DataAmount(DataAmount.BYTES)
+  long inputBytes;
+
+  @Label("Tokens")
+  long tokens;
+
+  @Label("Max Depth")
+  int maxDepth;
+
+  @Label("Strings")
+  @Description("Strings and keys materialized")
+  long strings;
+
+  @Label("Numbers")
+  @Description("Numbers converted from their text")
+  long numbers;
+
+  @Label("Parse Time")
+  @Timespan(Timespan.NANOSECONDS)
+  long parseTime;
+
+  @Label("Failed")
+  boolean failed;
+}
@@ -0,0 +1,34 @@
+package mx.sugus.json;
+
+import java.util.Objects;
+
+/**
+ * Receives the {@link ParseStats} of each parse, see
+ * {@link ParseOptions#withListener(ParseListener)}. Called on the parsing thread as soon as a
+ * value is parsed, or fails to, so listeners shared by parsers must be thread safe and quick.
+ * {@link ParseMetrics} aggregates the stats for JMX and {@link #flightRecorder()} turns them
+ * into JDK Flight Recorder events.
+ */
+public interface ParseListener {
+
+  void parsed(ParseStats stats);
+
+  /**
+   * Returns a listener that calls this one and then the other one.
+   */
+  default ParseListener andThen(ParseListener other) {
+    Objects.requireNonNull(other);
+    return stats -> {
+      parsed(stats);
+      other.parsed(stats);
+    };
+  }
+
+  /**
+   * Returns a listener that commits an {@code mx.sugus.json.Parse} event to the JDK Flight
+   * Recorder for each parse, while a recording with the event enabled is running.
+   */
+  static ParseListener flightRecorder() {
+    return ParseEvent.LISTENER;
+  }
+}
@@ -0,0 +1,140 @@
+package mx.sugus.json;
+
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Listener that adds up the stats of every parse it receives, from any number of parsers and
+ * threads, and exposes the totals as an MXBean:
+ *
+ * <pre>{@code
+ * ParseMetrics metrics = new ParseMetrics();
+ * metrics.register("api");
+ * ParseOptions options = ParseOptions.DEFAULT.withListener(metrics);
+ * }</pre>
+ */
+public class ParseMetrics implements ParseListener, ParseMetricsMXBean {
+
+  private static final Token.Type[] TYPES = Token.Type.values();
+
+  private final LongAdder parses = new LongAdder();
+  private final LongAdder failures = new LongAdder();
+  private final LongAdder inputBytes = new LongAdder();
+  private final LongAdder[] tokens = new LongAdder[TYPES.length];
+  private final LongAccumulator maxDepth = new LongAccumulator(Math::max, 0);
+  private final LongAdder strings = new LongAdder();
+  private final LongAdder numbers = new LongAdder();
+  private final LongAdder nanos = new LongAdder();
+
+  public ParseMetrics() {
+    for (int i = 0; i < tokens.length; i++) {
+      tokens[i] = new LongAdder();
+    }
+  }
+
+  @Override
+  public void parsed(ParseStats stats) {
+    parses.increment();
+    if (stats.failed()) {
+      failures.increment();
+    }
+    inputBytes.add(stats.inputBytes());
+    for (Token.Type type : TYPES) {
+      long count = stats.tokens(type);
+      if (count != 0) {
+        tokens[type.ordinal()].add(count);
+      }
+    }
+    maxDepth.accumulate(stats.maxDepth());
+    strings.add(stats.strings());
+    numbers.add(stats.numbers());
+    nanos.add(stats.nanos());
+  }
+
+  /**
+   * Registers this with the platform MBean server as
+   * {@code mx.sugus.json:type=ParseMetrics,name=<name>} and returns its name.
+   */
+  public ObjectName register(String name) {
+    try {
+      ObjectName objectName = new ObjectName("mx.sugus.json:type=ParseMetrics,name="
+          + ObjectName.quote(name));
+      ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+      return objectName;
+    } catch (JMException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  @Override
+  public long getParses() {
+    return parses.sum();
+  }
+
+  @Override
+  public long getFailures() {
+    return failures.sum();
+  }
+
+  @Override
+  public long getInputBytes() {
+    return inputBytes.sum();
+  }
+
+  @Override
+  public long getTokens() {
+    long total = 0;
+    for (LongAdder count : tokens) {
+      total += count.sum();
+    }
+    return total;
+  }
+
+  @Override
+  public Map<String, Long> getTokensByType() {
+    Map<String, Long> result = new LinkedHashMap<>();
+    for (Token.Type type : TYPES) {
+      result.put(type.name(), tokens[type.ordinal()].sum());
+    }
+    return result;
+  }
+
+  @Override
+  public int getMaxDepth() {
+    return (int) maxDepth.get();
+  }
+
+  @Override
+  public long getStrings() {
+    return strings.sum();
+  }
+
+  @Override
+  public long getNumbers() {
+    return numbers.sum();
+  }
+
+  @Override
+  public long getTotalTimeNanos() {
+    return nanos.sum();
+  }
+
+  @Override
+  public void reset() {
+    parses.reset();
+    failures.reset();
+    inputBytes.reset();
+    for (LongAdder count : tokens) {
+      count.reset();
+    }
+    maxDepth.reset();
+    strings.reset();
+    numbers.reset();
+    nanos.reset();
+  }
+}
@@ -0,0 +1,35 @@
+package mx.sugus.json;
+
+import java.util.Map;
+
+/**
+ * Totals of the parses reported to a {@link ParseMetrics}, as exposed through JMX.
+ */
+public interface ParseMetricsMXBean {
+
+  long getParses();
+
+  long getFailures();
+
+  long getInputBytes();
+
+  long getTokens();
+
+  /**
+   * Returns the number of tokens read by type, e.g., {@code STRING} or {@code START_MAP}.
+   */
+  Map<String, Long> getTokensByType();
+
+  int getMaxDepth();
+
+  long getStrings();
+
+  long getNumbers();
+
+  long getTotalTimeNanos();
+
+  /**
+   * Sets all totals back to zero.
+   */
+  void reset();
+}
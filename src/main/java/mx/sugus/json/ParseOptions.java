@@ -0,0 +1,239 @@
+package mx.sugus.json;
+
+/**
+ * Options for {@link Parser}. Instances are immutable, each {@code with} method returns a copy
+ * with the option changed, so options can be shared between parsers and threads.
+ */
+public final class ParseOptions {
+
+  /**
+   * The default options, used by the constructors of {@link Parser} that do not take options.
+   */
+  public static final ParseOptions DEFAULT = new ParseOptions();
+
+  // Default limit of the depth when nesting takes a call per level.
+  static final int MAX_RECURSIVE_DEPTH = 1000;
+
+  private KeyCache keyCache;
+  private boolean compactContainers;
+  private boolean primitiveArrays;
+  private boolean lazyNumbers;
+  private int maxDepth = Integer.MAX_VALUE;
+  private int maxStringLength = Integer.MAX_VALUE;
+  private int maxNumberLength = Integer.MAX_VALUE;
+  private int maxObjectEntries = Integer.MAX_VALUE;
+  private long maxInputLength = Long.MAX_VALUE;
+  private ParseListener listener;
+
+  private ParseOptions() {
+  }
+
+  private ParseOptions(ParseOptions other) {
+    this.keyCache = other.keyCache;
+    this.compactContainers = other.compactContainers;
+    this.primitiveArrays = other.primitiveArrays;
+    this.lazyNumbers = other.lazyNumbers;
+    this.maxDepth = other.maxDepth;
+    this.maxStringLength = other.maxStringLength;
+    this.maxNumberLength = other.maxNumberLength;
+    this.maxObjectEntries = other.maxObjectEntries;
+    this.maxInputLength = other.maxInputLength;
+    this.listener = other.listener;
+  }
+
+  /**
+   * Returns the cache used to canonicalize object keys, null if keys are not cached.
+   */
+  public KeyCache keyCache() {
+    return keyCache;
+  }
+
+  /**
+   * Canonicalizes object keys through the given cache, null to disable. The same cache can be
+   * used by many parsers, use a new one for each parser to keep the cache per parser.
+   */
+  public ParseOptions withKeyCache(KeyCache keyCache) {
+    ParseOptions options = new ParseOptions(this);
+    options.keyCache = keyCache;
+    return options;
+  }
+
+  /**
+   * Returns true if objects and arrays are parsed into compact immutable containers.
+   */
+  public boolean compactContainers() {
+    return compactContainers;
+  }
+
+  /**
+   * Parses objects and arrays into compact immutable implementations of {@code Map} and
+   * {@code List} instead of {@code HashMap} and {@code ArrayList}. Lists are backed by an array of
+   * their exact size, objects by a single array of alternating keys and values, scanned linearly
+   * for small objects and used as an open addressing table for larger ones. Objects whose keys
+   * collide too often for the table are parsed into an unmodifiable {@code HashMap}.
+   */
+  public ParseOptions withCompactContainers(boolean compactContainers) {
+    ParseOptions options = new ParseOptions(this);
+    options.compactContainers = compactContainers;
+    return options;
+  }
+
+  /**
+   * Returns true if arrays of numbers are parsed into lists backed by primitive arrays.
+   */
+  public boolean primitiveArrays() {
+    return primitiveArrays;
+  }
+
+  /**
+   * Parses arrays made only of numbers into a {@link LongList}, if all of them are integers that
+   * fit a long, or a {@link DoubleList}, holding each element in a single slot of a primitive
+   * array instead of a boxed Long or Double. Integers are promoted to double as soon as an
+   * element with a fraction or exponent is found, arrays with anything else, including integers
+   * a double cannot hold exactly, are parsed as usual.
+   */
+  public ParseOptions withPrimitiveArrays(boolean primitiveArrays) {
+    ParseOptions options = new ParseOptions(this);
+    options.primitiveArrays = primitiveArrays;
+    return options;
+  }
+
+  /**
+   * Returns true if numbers are parsed into {@link LazyNumber} instances.
+   */
+  public boolean lazyNumbers() {
+    return lazyNumbers;
+  }
+
+  /**
+   * Parses every number into a {@link LazyNumber}, which converts its digits only when a value
+   * is requested, instead of a Long, Double, BigInteger or BigDecimal. Saves the conversion of
+   * numbers that are never read and keeps the exact value of the ones passed through. Takes
+   * precedence over {@link #withPrimitiveArrays(boolean)}.
+   */
+  public ParseOptions withLazyNumbers(boolean lazyNumbers) {
+    ParseOptions options = new ParseOptions(this);
+    options.lazyNumbers = lazyNumbers;
+    return options;
+  }
+
+  /**
+   * Returns the maximum nesting depth of objects and arrays.
+   */
+  public int maxDepth() {
+    return maxDepth;
+  }
+
+  /**
+   * Fails with a {@link ParseException} as soon as objects and arrays are nested deeper than
+   * maxDepth, the top level value being at depth 1. Parsing into maps and lists or to a
+   * {@link JsonHandler} needs no call stack for nesting and is unlimited by default. Parsing
+   * into classes and with a {@link PathSelector} makes a call per level, by default these fail
+   * beyond 1000 levels so that the call stack cannot overflow, a limit set here replaces that
+   * one.
+   */
+  public ParseOptions withMaxDepth(int maxDepth) {
+    ParseOptions options = new ParseOptions(this);
+    options.maxDepth = checkLimit(maxDepth);
+    return options;
+  }
+
+  /**
+   * Returns the maximum length of strings, keys included, in chars.
+   */
+  public int maxStringLength() {
+    return maxStringLength;
+  }
+
+  /**
+   * Fails as soon as a string or key is longer than maxStringLength chars, once unescaped,
+   * without buffering the rest of it. Unlimited by default.
+   */
+  public ParseOptions withMaxStringLength(int maxStringLength) {
+    ParseOptions options = new ParseOptions(this);
+    options.maxStringLength = checkLimit(maxStringLength);
+    return options;
+  }
+
+  /**
+   * Returns the maximum length of the text of numbers.
+   */
+  public int maxNumberLength() {
+    return maxNumberLength;
+  }
+
+  /**
+   * Fails as soon as the text of a number is longer than maxNumberLength chars, which bounds
+   * the cost of parsing it into a BigDecimal. Numbers bound to a BigInteger, whose exponent is
+   * expanded into digits, may also have at most maxNumberLength integer digits, or 10,000 while
+   * unlimited, as it is by default.
+   */
+  public ParseOptions withMaxNumberLength(int maxNumberLength) {
+    ParseOptions options = new ParseOptions(this);
+    options.maxNumberLength = checkLimit(maxNumberLength);
+    return options;
+  }
+
+  /**
+   * Returns the maximum number of entries of an object.
+   */
+  public int maxObjectEntries() {
+    return maxObjectEntries;
+  }
+
+  /**
+   * Fails as soon as an object has more than maxObjectEntries entries, when parsing into maps
+   * and lists. Unlimited by default.
+   */
+  public ParseOptions withMaxObjectEntries(int maxObjectEntries) {
+    ParseOptions options = new ParseOptions(this);
+    options.maxObjectEntries = checkLimit(maxObjectEntries);
+    return options;
+  }
+
+  /**
+   * Returns the maximum length of the input, in bytes for UTF-8 input, in chars otherwise.
+   */
+  public long maxInputLength() {
+    return maxInputLength;
+  }
+
+  /**
+   * Fails as soon as more than maxInputLength bytes of UTF-8 input, i.e., bytes, buffers,
+   * streams and files, or chars of a string or reader are read. Input is read in blocks, so
+   * this counts up to a block of what follows the value. Unlimited by default.
+   */
+  public ParseOptions withMaxInputLength(long maxInputLength) {
+    if (maxInputLength <= 0) {
+      throw new IllegalArgumentException("Invalid limit: " + maxInputLength);
+    }
+    ParseOptions options = new ParseOptions(this);
+    options.maxInputLength = maxInputLength;
+    return options;
+  }
+
+  /**
+   * Returns the listener notified of each parse, null if parses are not instrumented.
+   */
+  public ParseListener listener() {
+    return listener;
+  }
+
+  /**
+   * Instruments parsers, which count what they read and report it to the listener after each
+   * parse, see {@link ParseStats}. Null, the default, disables the instrumentation, which then
+   * costs nothing but a null check per token.
+   */
+  public ParseOptions withListener(ParseListener listener) {
+    ParseOptions options = new ParseOptions(this);
+    options.listener = listener;
+    return options;
+  }
+
+  private static int checkLimit(int limit) {
+    if (limit <= 0) {
+      throw new IllegalArgumentException("Invalid limit: " + limit);
+    }
+    return limit;
+  }
+}
@@ -0,0 +1,122 @@
+package mx.sugus.json;
+
+/**
+ * What a parse went through, reported to a {@link ParseListener} once it completes or fails.
+ * A parser reuses the same instance for each parse, so it is only valid during the callback,
+ * listeners copy what they need to keep.
+ */
+public final class ParseStats {
+
+  private static final Token.Type[] TYPES = Token.Type.values();
+
+  final long[] tokens = new long[TYPES.length];
+  long inputBytes;
+  int maxDepth;
+  long strings;
+  long numbers;
+  long nanos;
+  boolean failed;
+
+  ParseStats() {
+  }
+
+  /**
+   * Returns the number of bytes of input parsed, up to the end of the value, strings and readers
+   * counting as UTF-8 encoded. What was read ahead counts towards the next parse, if any.
+   */
+  public long inputBytes() {
+    return inputBytes;
+  }
+
+  /**
+   * Returns the number of tokens of the given type read.
+   */
+  public long tokens(Token.Type type) {
+    return tokens[type.ordinal()];
+  }
+
+  /**
+   * Returns the number of tokens read.
+   */
+  public long tokens() {
+    long total = 0;
+    for (long count : tokens) {
+      total += count;
+    }
+    return total;
+  }
+
+  /**
+   * Returns the deepest nesting of objects and arrays reached, 0 for a top level scalar.
+   */
+  public int maxDepth() {
+    return maxDepth;
+  }
+
+  /**
+   * Returns the number of strings, values and keys, materialized. Containers skipped without
+   * tokenizing them, e.g., by a {@link PathSelector}, are not counted.
+   */
+  public long strings() {
+    return strings;
+  }
+
+  /**
+   * Returns the number of numbers converted from their text.
+   */
+  public long numbers() {
+    return numbers;
+  }
+
+  /**
+   * Returns the wall clock time of the parse in nanoseconds.
+   */
+  public long nanos() {
+    return nanos;
+  }
+
+  /**
+   * Returns true if the parse failed with an exception, the counts are up to the failure.
+   */
+  public boolean failed() {
+    return failed;
+  }
+
+  void add(ParseStats other) {
+    for (int i = 0; i < tokens.length; i++) {
+      tokens[i] += other.tokens[i];
+    }
+    inputBytes += other.inputBytes;
+    maxDepth = Math.max(maxDepth, other.maxDepth);
+    strings += other.strings;
+    numbers += other.numbers;
+  }
+
+  void clear() {
+    for (int i = 0; i < tokens.length; i++) {
+      tokens[i] = 0;
+    }
+    inputBytes = 0;
+    maxDepth = 0;
+    strings = 0;
+    numbers = 0;
+    nanos = 0;
+    failed = false;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder builder = new StringBuilder("ParseStats{inputBytes=").append(inputBytes)
+        .append(", tokens={");
+    String separator = "";
+    for (Token.Type type : TYPES) {
+      if (tokens[type.ordinal()] != 0) {
+        builder.append(separator).append(type).append('=').append(tokens[type.ordinal()]);
+        separator = ", ";
+      }
+    }
+    return builder.append("}, maxDepth=").append(maxDepth).append(", strings=").append(strings)
+        .append(", numbers=").append(numbers).append(", nanos=").append(nanos)
+        .append(", failed=").append(failed).append('}').toString();
+  }
+}
@@ -1,12 +1,19 @@
 package mx.sugus.json;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.io.Reader;
-import java.math.BigDecimal;
-import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Supplier;
+import mx.sugus.json.JsonHandler.Action;
 import mx.sugus.json.Token.Type;
 
 /**
@@ -15,30 +22,362 @@ import mx.sugus.json.Token.Type;
 public class Parser {
 
   private final Tokenizer tokenizer;
+  private final KeyCache keyCache;
+  private final boolean compact;
+  private final boolean primitiveArrays;
+  private final boolean lazyNumbers;
+  private final int maxDepth;
+  // Maximum depth of the ways of parsing that recurse once per level.
+  private final int maxRecursiveDepth;
+  private final int maxObjectEntries;
+  // Frames of the objects and arrays being parsed, innermost last: whether each one is an
+  // object, its map or list, null for compact containers, where compact containers start on
+  // the stack below and the key whose value is being parsed.
+  private boolean[] objects;
+  private Object[] containers;
+  private int[] bases;
+  private String[] keys;
+  private int frames;
+  // Nesting depth of the current value, for all ways of parsing.
+  private int depth;
+  // Instrumentation, both null unless a listener is set, and the bytes of input reported so far.
+  private final ParseListener listener;
+  private final ParseStats stats;
+  private long measured;
+  // Elements and key value pairs of the compact containers being parsed, each
+  // container uses the slots from the top at the time it started.
+  private Object[] stack;
+  private int top;
+  // Values of the array of numbers being parsed, longs, or the raw bits of doubles once
+  // promoted, and which of the ones after the promotion were integers. Such arrays hold no
+  // containers, so one buffer serves all of them.
+  private long[] numbers;
+  private boolean[] integers;
+  // First token of the next value, read ahead by hasNext().
+  private Token.Type peeked;
+  // Whether each container being skipped by skipValue() is an object, outermost first.
+  private boolean[] skipped;
 
   public Parser(Reader reader) {
-    this.tokenizer = new Tokenizer(reader);
+    this(reader, ParseOptions.DEFAULT);
   }
 
   public Parser(String json) {
-    this.tokenizer = new Tokenizer(json);
+    this(json, ParseOptions.DEFAULT);
+  }
+
+  /**
+   * Parses UTF-8 encoded JSON.
+   */
+  public Parser(byte[] json) {
+    this(json, ParseOptions.DEFAULT);
+  }
+
+  /**
+   * Parses UTF-8 encoded JSON from the buffer's position to its limit.
+   */
+  public Parser(ByteBuffer json) {
+    this(json, ParseOptions.DEFAULT);
+  }
+
+  /**
+   * Parses UTF-8 encoded JSON read from the stream, the stream is not closed.
+   */
+  public Parser(InputStream json) {
+    this(json, ParseOptions.DEFAULT);
+  }
+
+  public Parser(Reader reader, ParseOptions options) {
+    this(new Tokenizer(reader), options);
+  }
+
+  public Parser(String json, ParseOptions options) {
+    this(new Tokenizer(json), options);
+  }
+
+  public Parser(byte[] json, ParseOptions options) {
+    this(new Tokenizer(json), options);
+  }
+
+  public Parser(ByteBuffer json, ParseOptions options) {
+    this(new Tokenizer(json), options);
+  }
+
+  public Parser(InputStream json, ParseOptions options) {
+    this(new Tokenizer(json), options);
+  }
+
+  Parser(Tokenizer tokenizer, ParseOptions options) {
+    this.tokenizer = tokenizer;
+    this.keyCache = options.keyCache();
+    this.compact = options.compactContainers();
+    this.lazyNumbers = options.lazyNumbers();
+    this.primitiveArrays = options.primitiveArrays() && !lazyNumbers;
+    this.maxDepth = options.maxDepth();
+    this.maxRecursiveDepth = maxDepth == Integer.MAX_VALUE
+        ? ParseOptions.MAX_RECURSIVE_DEPTH : maxDepth;
+    this.maxObjectEntries = options.maxObjectEntries();
+    tokenizer.limit(options);
+    this.listener = options.listener();
+    this.stats = listener != null ? new ParseStats() : null;
+    tokenizer.instrument(stats);
+  }
+
+  /**
+   * Parses a UTF-8 encoded JSON file. The file is memory mapped and tokenized from the mapped
+   * region, files larger than 2 GB are read through consecutive mappings.
+   */
+  public static Object parse(Path path) throws IOException {
+    return parse(path, ParseOptions.DEFAULT);
+  }
+
+  public static Object parse(Path path, ParseOptions options) throws IOException {
+    return parse(path, options, Utf8Reader.MAPPING_SIZE);
+  }
+
+  static Object parse(Path path, ParseOptions options, long mappingSize) throws IOException {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      return new Parser(new Tokenizer(new Utf8Reader(channel, mappingSize)), options).parse();
+    }
   }
 
   public Object parse() {
-    Object value = parseOneValue(next());
+    if (listener != null) {
+      return measure(this::parseDocument);
+    }
+    return parseDocument();
+  }
+
+  private Object parseDocument() {
+    Object value = nextValue();
+    consume("json value", Type.EOF);
+    return value;
+  }
+
+  /**
+   * Starts over with new input, keeping the options, the tokenizer and the buffers of this
+   * parser. Parsing many small documents with a parser reset for each one, e.g., from a
+   * {@link ParserPool}, allocates little more than the parsed values.
+   */
+  public Parser reset(String json) {
+    clear();
+    tokenizer.reset(json);
+    return this;
+  }
+
+  /**
+   * Starts over with new UTF-8 encoded input, see {@link #reset(String)}.
+   */
+  public Parser reset(byte[] json) {
+    return reset(json, 0, json.length);
+  }
+
+  Parser reset(byte[] json, int offset, int length) {
+    clear();
+    tokenizer.reset(json, offset, length);
+    return this;
+  }
+
+  /**
+   * Drops the input and any state left by a failed parse.
+   */
+  void clear() {
+    peeked = null;
+    if (top > 0) {
+      pop(0);
+    }
+    if (frames > 0) {
+      Arrays.fill(containers, 0, frames, null);
+      Arrays.fill(keys, 0, frames, null);
+      frames = 0;
+    }
+    depth = 0;
+    measured = 0;
+    tokenizer.clear();
+  }
+
+  /**
+   * Returns true if there is another value in the input, for reading a sequence of concatenated
+   * values, e.g., {@code {"a": 1}{"a": 2} [3]}, with {@link #parseNext()}. Reads input up to the
+   * start of the next value.
+   */
+  public boolean hasNext() {
+    if (peeked == null) {
+      peeked = next();
+    }
+    return peeked != Type.EOF;
+  }
+
+  /**
+   * Parses the next of a sequence of concatenated values. Unlike {@link #parse()} the input may
+   * continue after the value, the value is returned as soon as it is complete without reading
+   * any further, so it can be used to read values as they arrive on a stream. The tokenizer and
+   * its buffers are reused for all of the values.
+   */
+  public Object parseNext() {
+    if (listener != null) {
+      return measure(this::nextValue);
+    }
+    return nextValue();
+  }
+
+  private Object nextValue() {
+    Token.Type type = peeked != null ? peeked : next();
+    peeked = null;
+    return parseOneValue(type);
+  }
+
+  /**
+   * Parses comma separated values up to the end of the input, i.e., a slice of the elements of
+   * a list, see {@link ParallelParser}. With primitive arrays a slice starting with a number is
+   * parsed as a list would be, into a LongList or DoubleList if all of its elements fit. Only
+   * the last slice can be empty or end with a comma, as a list can before its closing bracket,
+   * anywhere else that is a missing element.
+   */
+  List<?> parseElements(boolean last) {
+    // The elements are within the top level array, collected in a frame of their own.
+    depth = 1;
+    Token.Type type = next();
+    if (type == Type.EOF && !last) {
+      throw parseError("json value", "value", type);
+    }
+    if (primitiveArrays && (type == Type.LONG || type == Type.DOUBLE)) {
+      type = parseNumberList(type, Type.EOF, last);
+    } else {
+      openFrame(false, new ArrayList<>());
+    }
+    int frame = frames - 1;
+    while (type != Type.EOF) {
+      add(frame, parseOneValue(type));
+      type = next();
+      if (type != Type.COMMA) {
+        break;
+      }
+      type = next();
+      if (type == Type.EOF && !last) {
+        throw parseError("json value", "value", type);
+      }
+    }
+    consume(type, "list", Type.EOF);
+    return (List<?>) close();
+  }
+
+  /**
+   * Parses the input straight into an instance of the given class, without building maps and
+   * lists for it first. Objects are bound to classes with a no-arg constructor, any visibility,
+   * by the names of their non-static, non-transient fields, including inherited ones, and to
+   * records through their canonical constructor, by the names of their components. Keys without
+   * a field or component are skipped, fields and components without a key keep their default
+   * value. Fields and components can be primitives and their wrappers, String, BigInteger,
+   * BigDecimal, enums, other such classes or records, arrays, {@code List}, {@code Set} or
+   * {@code Collection} and {@code Map} with String keys of those, or Object for whatever
+   * {@link #parse()} returns. Numbers are converted straight to the type of the field, integer
+   * types take numbers that fit them exactly, so 1.0 binds to an int but 1.5 does not. Null
+   * binds to anything but primitives.
+   *
+   * @throws IllegalArgumentException if the class, or the class of a field, cannot be bound.
+   */
+  public <T> T parse(Class<T> type) {
+    if (listener != null) {
+      return measure(() -> bind(type));
+    }
+    return bind(type);
+  }
+
+  @SuppressWarnings("unchecked")
+  private <T> T bind(Class<T> type) {
+    // Not Class.cast, which fails for primitive classes.
+    T value = (T) Binder.of(type).read(this, next());
     consume("json value", Type.EOF);
     return value;
   }
 
-  private Object parseOneValue(Token token) {
+  Tokenizer tokenizer() {
+    return tokenizer;
+  }
+
+  /**
+   * Parses the input reporting its contents to the handler instead of building a tree. Only
+   * the nesting of the document is kept in memory, so it can be used for documents of any size.
+   * Returns once the document is complete or the handler returns {@link Action#STOP}.
+   */
+  public void parse(JsonHandler handler) {
+    if (listener != null) {
+      measure(() -> push(handler));
+    } else {
+      push(handler);
+    }
+  }
+
+  private Void push(JsonHandler handler) {
+    if (pushOneValue(handler, next())) {
+      consume("json value", Type.EOF);
+    }
+    return null;
+  }
+
+  /**
+   * Parses the input returning only the values selected by the given paths, for each path the
+   * values found in the order they were parsed. Values that no path can reach are skipped,
+   * containers at the character level without validating their contents, and nothing is
+   * allocated for them.
+   */
+  public Map<String, List<Object>> parse(PathSelector selector) {
+    if (listener != null) {
+      return measure(() -> select(selector));
+    }
+    return select(selector);
+  }
+
+  private Map<String, List<Object>> select(PathSelector selector) {
+    List<List<Object>> found = selector.newResults();
+    selectOneValue(selector.root(), next(), found);
+    consume("json value", Type.EOF);
+    return selector.results(found);
+  }
+
+  /**
+   * Runs the parse reporting its stats to the listener, whether it completes or fails. Stats
+   * are cleared after each report, so the token read ahead by {@link #hasNext()}, and its bytes,
+   * count towards the next parse.
+   */
+  private <T> T measure(Supplier<T> parse) {
+    long start = System.nanoTime();
+    boolean failed = true;
+    try {
+      T value = parse.get();
+      failed = false;
+      return value;
+    } finally {
+      stats.nanos = System.nanoTime() - start;
+      long consumed = tokenizer.consumedBytes();
+      stats.inputBytes = consumed - measured;
+      measured = consumed;
+      stats.failed = failed;
+      try {
+        listener.parsed(stats);
+      } finally {
+        stats.clear();
+      }
+    }
+  }
+
+  /**
+   * Returns the stats counted so far, null unless instrumented.
+   */
+  ParseStats stats() {
+    return stats;
+  }
+
+  Object parseOneValue(Token.Type type) {
     Object value;
-    switch (token.getType()) {
+    switch (type) {
       case DOUBLE:
       case LONG:
-        value = toValue(token);
+        value = lazyNumbers ? tokenizer.lazyNumberValue() : tokenizer.numberValue(type);
         break;
       case STRING:
-        value = token.getValue();
+        value = tokenizer.stringValue();
         break;
       case NULL:
         value = null;
@@ -50,94 +389,724 @@ public class Parser {
         value = false;
         break;
       case START_LIST:
-        value = parseList();
-        break;
       case START_MAP:
-        value = parseMap();
+        value = parseContainer(type);
         break;
       default:
-        throw parseError("json value", "value", token);
+        throw parseError("json value", "value", type);
     }
     return value;
   }
 
-  private Object toValue(Token token) {
-    String value = token.getValue();
-    if (token.getType() == Type.LONG) {
-      try {
-        return Long.parseLong(value);
-      } catch (NumberFormatException e) {
-        return new BigInteger(value);
+  /**
+   * Parses the object or array starting with type. Nesting is tracked with an explicit stack
+   * of frames, one per open container, instead of the call stack, so that the depth of the
+   * input is only bound by {@link ParseOptions#maxDepth()}.
+   */
+  private Object parseContainer(Token.Type type) {
+    int bottom = frames;
+    type = open(type);
+    while (true) {
+      // Here type is the token where the next element or entry of the top frame starts.
+      int frame = frames - 1;
+      Object value;
+      if (!objects[frame]) {
+        if (type == Type.END_LIST || type == Type.EOF) {
+          consume(type, "list", Type.END_LIST);
+          value = close();
+          if (frames == bottom) {
+            return value;
+          }
+        } else if (type == Type.START_LIST || type == Type.START_MAP) {
+          type = open(type);
+          continue;
+        } else {
+          value = parseOneValue(type);
+        }
+      } else {
+        if (type == Type.END_MAP || type == Type.EOF) {
+          consume(type, "map", Type.END_MAP);
+          value = close();
+          if (frames == bottom) {
+            return value;
+          }
+        } else {
+          consume(type, "map", Type.STRING);
+          addKey(frame, key());
+          consume(next(), "map", Type.COLON);
+          type = next();
+          if (type == Type.START_LIST || type == Type.START_MAP) {
+            type = open(type);
+            continue;
+          }
+          value = parseOneValue(type);
+        }
+      }
+      frame = frames - 1;
+      add(frame, value);
+      type = next();
+      if (type == Type.COMMA) {
+        type = next();
+      } else if (objects[frame]) {
+        consume(type, "map", Type.END_MAP);
+      } else {
+        consume(type, "list", Type.END_LIST);
       }
     }
-    if (token.getType() == Type.DOUBLE) {
-      Double result = Double.parseDouble(token.getValue());
-      if (!Double.isInfinite(result)) {
-        return result;
+  }
+
+  /**
+   * Opens a frame for the object or array starting with type, returns the token where its
+   * first element or entry starts.
+   */
+  private Token.Type open(Token.Type type) {
+    enter();
+    if (type == Type.START_MAP) {
+      openFrame(true, compact ? null : new HashMap<String, Object>());
+      return next();
+    }
+    type = next();
+    if (primitiveArrays && (type == Type.LONG || type == Type.DOUBLE)) {
+      return parseNumberList(type, Type.END_LIST, true);
+    }
+    openFrame(false, compact ? null : new ArrayList<>());
+    return type;
+  }
+
+  /**
+   * Pushes a frame for a container, either a list or map, or null to collect its contents on
+   * the stack of compact containers.
+   */
+  private void openFrame(boolean object, Object container) {
+    if (objects == null) {
+      objects = new boolean[8];
+      containers = new Object[8];
+      keys = new String[8];
+      bases = new int[8];
+    } else if (frames == objects.length) {
+      objects = Arrays.copyOf(objects, frames * 2);
+      containers = Arrays.copyOf(containers, frames * 2);
+      keys = Arrays.copyOf(keys, frames * 2);
+      bases = Arrays.copyOf(bases, frames * 2);
+    }
+    objects[frames] = object;
+    containers[frames] = container;
+    bases[frames] = top;
+    frames++;
+  }
+
+  /**
+   * Pops the top frame, returns its container.
+   */
+  private Object close() {
+    int frame = --frames;
+    Object value = containers[frame];
+    if (value == null) {
+      int base = bases[frame];
+      value = objects[frame] ? CompactMap.of(stack, base, top) : CompactList.of(stack, base, top);
+      if (top > base) {
+        pop(base);
       }
-      return new BigDecimal(value);
+    } else {
+      containers[frame] = null;
+    }
+    depth--;
+    return value;
+  }
+
+  private void addKey(int frame, String key) {
+    Object container = containers[frame];
+    int entries = container == null ? (top - bases[frame]) >> 1 : ((Map<?, ?>) container).size();
+    if (entries >= maxObjectEntries) {
+      throw new ParseException("map", "at most " + maxObjectEntries + " entries", "more");
+    }
+    if (container == null) {
+      push(key);
+    } else {
+      keys[frame] = key;
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private void add(int frame, Object value) {
+    Object container = containers[frame];
+    if (container == null) {
+      push(value);
+    } else if (objects[frame]) {
+      ((Map<String, Object>) container).put(keys[frame], value);
+      keys[frame] = null;
+    } else {
+      ((List<Object>) container).add(value);
     }
-    throw new IllegalStateException("not reached");
   }
 
-  private List<?> parseList() {
-    Token token = next();
-    List<Object> result = new ArrayList<>();
-    Token.Type type;
-    while ((type = token.getType()) != Type.END_LIST && type != Type.EOF) {
-      result.add(parseOneValue(token));
-      token = next();
-      if (token.getType() != Type.COMMA) {
+  /**
+   * Parses a list starting with a number into a LongList or DoubleList, or as any other list as
+   * soon as an element does not fit, see {@link ParseOptions#withPrimitiveArrays(boolean)}.
+   * Opens a frame for the list and returns where the parsing continues, end if the list was
+   * parsed whole, where end is the token closing the list, which a comma can precede only if
+   * trailingComma is set.
+   */
+  private Token.Type parseNumberList(Token.Type type, Token.Type end, boolean trailingComma) {
+    if (numbers == null) {
+      numbers = new long[32];
+      integers = new boolean[32];
+    }
+    long[] numbers = this.numbers;
+    int size = 0;
+    // Elements before promoted were integers when the list was promoted to doubles.
+    int promoted = -1;
+    while (type != Type.END_LIST && type != Type.EOF) {
+      if (size == numbers.length) {
+        numbers = this.numbers = Arrays.copyOf(numbers, size * 2);
+        integers = Arrays.copyOf(integers, size * 2);
+      }
+      long value;
+      boolean integer = type == Type.LONG;
+      if (integer && tokenizer.isLong()) {
+        value = tokenizer.longValue();
+        if (promoted >= 0) {
+          if (!isExactDouble(value)) {
+            return parseRemainingList(type, size, promoted);
+          }
+          value = Double.doubleToRawLongBits(value);
+        }
+      } else if (type == Type.DOUBLE) {
+        double d = tokenizer.doubleValue();
+        if (Double.isInfinite(d)) {
+          return parseRemainingList(type, size, promoted);
+        }
+        if (promoted < 0) {
+          for (int i = 0; i < size; i++) {
+            if (!isExactDouble(numbers[i])) {
+              return parseRemainingList(type, size, promoted);
+            }
+          }
+          for (int i = 0; i < size; i++) {
+            numbers[i] = Double.doubleToRawLongBits(numbers[i]);
+          }
+          promoted = size;
+        }
+        value = Double.doubleToRawLongBits(d);
+      } else {
+        return parseRemainingList(type, size, promoted);
+      }
+      integers[size] = integer;
+      numbers[size++] = value;
+      type = next();
+      if (type != Type.COMMA) {
         break;
       }
-      token = next();
+      type = next();
+      if (type == end && !trailingComma) {
+        throw parseError("json value", "value", type);
+      }
+    }
+    consume(type, "list", end);
+    if (promoted < 0) {
+      openFrame(false, new LongList(Arrays.copyOf(numbers, size)));
+    } else {
+      double[] doubles = new double[size];
+      for (int i = 0; i < size; i++) {
+        doubles[i] = Double.longBitsToDouble(numbers[i]);
+      }
+      openFrame(false, new DoubleList(doubles));
+    }
+    // Already consumed, the frame is closed right away.
+    return end;
+  }
+
+  static boolean isExactDouble(long value) {
+    return value >= -(1L << 53) && value <= (1L << 53);
+  }
+
+  /**
+   * Opens a frame for a list whose first numbers did fit a LongList or DoubleList but the one
+   * starting with type does not, holding those numbers, and returns type to parse the rest of
+   * the list as any other list.
+   */
+  private Token.Type parseRemainingList(Token.Type type, int size, int promoted) {
+    openFrame(false, compact ? null : new ArrayList<>(size + 8));
+    int frame = frames - 1;
+    // Box the numbers as parseOneValue() would have, numbers are only promoted
+    // if the integers among them are exact doubles.
+    for (int i = 0; i < size; i++) {
+      Object value;
+      if (promoted < 0) {
+        value = numbers[i];
+      } else {
+        double d = Double.longBitsToDouble(numbers[i]);
+        value = i < promoted || integers[i] ? (Object) (long) d : (Object) d;
+      }
+      add(frame, value);
     }
-    consume(token,"list", Type.END_LIST);
-    return result;
+    return type;
   }
 
-  private Map<String, ?> parseMap() {
-    Token token = next();
-    Map<String, Object> result = new HashMap<>();
-    Token.Type type;
-    while ((type = token.getType()) != Type.END_MAP && type != Type.EOF) {
-      Token key = consume(token, "map", Type.STRING);
+  private void push(Object value) {
+    if (stack == null) {
+      stack = new Object[32];
+    } else if (top == stack.length) {
+      stack = Arrays.copyOf(stack, top * 2);
+    }
+    stack[top++] = value;
+  }
+
+  private void pop(int base) {
+    // Clear the slots so that the stack does not retain parsed values.
+    Arrays.fill(stack, base, top, null);
+    top = base;
+  }
+
+  /**
+   * Counts the start of an object or array, failing if it is nested too deep.
+   */
+  void enter() {
+    if (++depth > maxDepth) {
+      throw new ParseException("json value", "at most " + maxDepth + " levels of nesting",
+          "more");
+    }
+    if (stats != null && depth > stats.maxDepth) {
+      stats.maxDepth = depth;
+    }
+  }
+
+  /**
+   * Counts the start of an object or array parsed by a call per level, e.g., when binding
+   * classes, failing if it is nested too deep for the call stack, see
+   * {@link ParseOptions#withMaxDepth(int)}.
+   */
+  void enterRecursive() {
+    enter();
+    if (depth > maxRecursiveDepth) {
+      throw new ParseException("json value",
+          "at most " + maxRecursiveDepth + " levels of nesting", "more");
+    }
+  }
+
+  /**
+   * Counts the end of an object or array.
+   */
+  void exit() {
+    depth--;
+  }
+
+  // Returns false if the handler stopped the parsing.
+  private boolean pushOneValue(JsonHandler handler, Token.Type type) {
+    Action action;
+    switch (type) {
+      case DOUBLE:
+      case LONG:
+        action = pushNumber(handler, type);
+        break;
+      case STRING:
+        action = handler.stringValue(tokenizer.stringValue());
+        break;
+      case NULL:
+        action = handler.nullValue();
+        break;
+      case TRUE:
+        action = handler.booleanValue(true);
+        break;
+      case FALSE:
+        action = handler.booleanValue(false);
+        break;
+      case START_LIST:
+      case START_MAP:
+        action = type == Type.START_MAP ? handler.startObject() : handler.startArray();
+        if (action == Action.STOP) {
+          return false;
+        }
+        return pushContainer(action == Action.SKIP ? null : handler, type);
+      default:
+        throw parseError("json value", "value", type);
+    }
+    return action != Action.STOP;
+  }
+
+  private Action pushNumber(JsonHandler handler, Token.Type type) {
+    if (type == Type.LONG) {
+      if (tokenizer.isLong()) {
+        return handler.longValue(tokenizer.longValue());
+      }
+      return handler.bigIntegerValue(tokenizer.bigIntegerValue());
+    }
+    double value = tokenizer.doubleValue();
+    if (!Double.isInfinite(value)) {
+      return handler.doubleValue(value);
+    }
+    return handler.bigDecimalValue(tokenizer.bigDecimalValue());
+  }
+
+  /**
+   * Reports the contents of the object or array starting with type to the handler, its start
+   * being already reported, or with a null handler validates and discards them. Nesting is
+   * tracked with frames as in {@link #parseContainer(Token.Type)}, the call stack is not used.
+   * Returns false if the handler stopped the parsing.
+   */
+  private boolean pushContainer(JsonHandler handler, Token.Type type) {
+    int bottom = frames;
+    // Frames from silent on are skipped, nothing within them is reported.
+    int silent = handler == null ? bottom : Integer.MAX_VALUE;
+    type = openSkeleton(type);
+    while (true) {
+      // Here type is the token where the next element or entry of the top frame starts.
+      int frame = frames - 1;
+      boolean object = objects[frame];
+      boolean report = frame < silent;
+      Action action = Action.CONTINUE;
+      if (type == (object ? Type.END_MAP : Type.END_LIST) || type == Type.EOF) {
+        consume(type, object ? "map" : "list", object ? Type.END_MAP : Type.END_LIST);
+        frames--;
+        exit();
+        if (frame == silent) {
+          silent = Integer.MAX_VALUE;
+        } else if (report) {
+          action = object ? handler.endObject() : handler.endArray();
+        }
+        if (action == Action.STOP) {
+          return stop(bottom);
+        }
+        if (frames == bottom) {
+          return true;
+        }
+      } else {
+        if (object) {
+          consume(type, "map", Type.STRING);
+          if (report) {
+            action = handler.key(key());
+            if (action == Action.STOP) {
+              return stop(bottom);
+            }
+            report = action != Action.SKIP;
+          }
+          consume(next(), "map", Type.COLON);
+          type = next();
+        }
+        if (type == Type.START_LIST || type == Type.START_MAP) {
+          if (report) {
+            action = type == Type.START_MAP ? handler.startObject() : handler.startArray();
+            if (action == Action.STOP) {
+              return stop(bottom);
+            }
+            report = action != Action.SKIP;
+          }
+          if (!report && silent == Integer.MAX_VALUE) {
+            silent = frames;
+          }
+          type = openSkeleton(type);
+          continue;
+        }
+        if (!report) {
+          skipOneValue(type);
+        } else if (!pushOneValue(handler, type)) {
+          return stop(bottom);
+        }
+      }
+      frame = frames - 1;
+      type = next();
+      if (type == Type.COMMA) {
+        type = next();
+      } else if (objects[frame]) {
+        consume(type, "map", Type.END_MAP);
+      } else {
+        consume(type, "list", Type.END_LIST);
+      }
+    }
+  }
+
+  /**
+   * Opens a frame without a container for the object or array starting with type, returns the
+   * token where its first element or entry starts.
+   */
+  private Token.Type openSkeleton(Token.Type type) {
+    enter();
+    openFrame(type == Type.START_MAP, null);
+    return next();
+  }
+
+  /**
+   * Drops the frames opened since bottom, once the handler stopped the parsing.
+   */
+  private boolean stop(int bottom) {
+    depth -= frames - bottom;
+    frames = bottom;
+    return false;
+  }
+
+  private void selectOneValue(PathSelector.Node node, Token.Type type,
+      List<List<Object>> found) {
+    if (node.isTarget()) {
+      parseSelected(node, type, found);
+      return;
+    }
+    switch (type) {
+      case START_LIST:
+        selectList(node, found);
+        break;
+      case START_MAP:
+        selectMap(node, found);
+        break;
+      default:
+        skipOneValue(type);
+    }
+  }
+
+  private void selectList(PathSelector.Node node, List<List<Object>> found) {
+    enterRecursive();
+    Token.Type type = next();
+    int index = 0;
+    while (type != Type.END_LIST && type != Type.EOF) {
+      PathSelector.Node child = node.child(index++);
+      if (child != null) {
+        selectOneValue(child, type, found);
+      } else {
+        skipUnselected(type);
+      }
+      type = next();
+      if (type != Type.COMMA) {
+        break;
+      }
+      type = next();
+    }
+    consume(type, "list", Type.END_LIST);
+    exit();
+  }
+
+  private void selectMap(PathSelector.Node node, List<List<Object>> found) {
+    enterRecursive();
+    Token.Type type = next();
+    while (type != Type.END_MAP && type != Type.EOF) {
+      consume(type, "map", Type.STRING);
+      PathSelector.Node child = node.child(tokenizer.textChars(), tokenizer.textStart(),
+          tokenizer.textLength());
+      consume(next(), "map", Type.COLON);
+      if (child != null) {
+        selectOneValue(child, next(), found);
+      } else {
+        skipUnselected(next());
+      }
+      type = next();
+      if (type != Type.COMMA) {
+        break;
+      }
+      type = next();
+    }
+    consume(type, "map", Type.END_MAP);
+    exit();
+  }
+
+  /**
+   * Parses the value starting with type and adds it to the paths ending at node. Values within
+   * it selected by paths that continue are added as they are parsed, in document order, rather
+   * than looked up in the parsed value, which for objects may be in any order and keeps only the
+   * last value of a repeated key.
+   */
+  private Object parseSelected(PathSelector.Node node, Token.Type type,
+      List<List<Object>> found) {
+    Object value;
+    if (!node.hasChildren() || (type != Type.START_LIST && type != Type.START_MAP)) {
+      value = parseOneValue(type);
+    } else if (type == Type.START_LIST) {
+      value = parseSelectedList(node, found);
+    } else {
+      value = parseSelectedMap(node, found);
+    }
+    node.add(value, found);
+    return value;
+  }
+
+  private Object parseSelectedList(PathSelector.Node node, List<List<Object>> found) {
+    enterRecursive();
+    openFrame(false, compact ? null : new ArrayList<>());
+    int frame = frames - 1;
+    Token.Type type = next();
+    int index = 0;
+    while (type != Type.END_LIST && type != Type.EOF) {
+      PathSelector.Node child = node.child(index++);
+      add(frame, child != null ? parseSelected(child, type, found) : parseOneValue(type));
+      type = next();
+      if (type != Type.COMMA) {
+        break;
+      }
+      type = next();
+    }
+    consume(type, "list", Type.END_LIST);
+    Object list = close();
+    return primitiveArrays ? primitiveList((List<?>) list) : list;
+  }
+
+  private Object parseSelectedMap(PathSelector.Node node, List<List<Object>> found) {
+    enterRecursive();
+    openFrame(true, compact ? null : new HashMap<String, Object>());
+    int frame = frames - 1;
+    Token.Type type = next();
+    while (type != Type.END_MAP && type != Type.EOF) {
+      consume(type, "map", Type.STRING);
+      PathSelector.Node child = node.child(tokenizer.textChars(), tokenizer.textStart(),
+          tokenizer.textLength());
+      addKey(frame, key());
       consume(next(), "map", Type.COLON);
-      result.put(key.getValue(), parseOneValue(next()));
-      token = next();
-      if (token.getType() != Type.COMMA) {
+      type = next();
+      add(frame, child != null ? parseSelected(child, type, found) : parseOneValue(type));
+      type = next();
+      if (type != Type.COMMA) {
         break;
       }
-      token = next();
+      type = next();
+    }
+    consume(type, "map", Type.END_MAP);
+    return close();
+  }
+
+  /**
+   * Returns a LongList or DoubleList for the list if {@link #parseNumberList} would have parsed
+   * it into one, the list itself otherwise.
+   */
+  private static Object primitiveList(List<?> list) {
+    int size = list.size();
+    if (size == 0 || !(list.get(0) instanceof Long || list.get(0) instanceof Double)) {
+      return list;
+    }
+    boolean doubles = false;
+    for (Object element : list) {
+      if (element instanceof Double) {
+        doubles = true;
+      } else if (!(element instanceof Long)) {
+        return list;
+      }
+    }
+    if (!doubles) {
+      long[] values = new long[size];
+      for (int i = 0; i < size; i++) {
+        values[i] = (Long) list.get(i);
+      }
+      return new LongList(values);
+    }
+    double[] values = new double[size];
+    for (int i = 0; i < size; i++) {
+      Object element = list.get(i);
+      if (element instanceof Long && !isExactDouble((Long) element)) {
+        return list;
+      }
+      values[i] = ((Number) element).doubleValue();
+    }
+    return new DoubleList(values);
+  }
+
+  /**
+   * Discards a value no path goes through, containers are skipped without tokenizing them.
+   */
+  void skipUnselected(Token.Type type) {
+    if (type == Type.START_LIST || type == Type.START_MAP) {
+      tokenizer.skipContainer(type == Type.START_MAP);
+    } else {
+      skipOneValue(type);
+    }
+  }
+
+  /**
+   * Validates and discards the value starting with type, e.g., of a key with no field to bind.
+   * Unlike {@link #skipUnselected} the contents of containers are tokenized and checked as
+   * {@link #parse()} would, nesting is tracked without recursion.
+   */
+  void skipValue(Token.Type type) {
+    if (type != Type.START_LIST && type != Type.START_MAP) {
+      skipOneValue(type);
+      return;
+    }
+    int base = depth;
+    type = openSkipped(type, base);
+    while (true) {
+      // Here type is the token where the next element or entry of the innermost container starts.
+      boolean object = skipped[depth - base - 1];
+      if (type == (object ? Type.END_MAP : Type.END_LIST) || type == Type.EOF) {
+        consume(type, object ? "map" : "list", object ? Type.END_MAP : Type.END_LIST);
+        exit();
+        if (depth == base) {
+          return;
+        }
+      } else {
+        if (object) {
+          consume(type, "map", Type.STRING);
+          consume(next(), "map", Type.COLON);
+          type = next();
+        }
+        if (type == Type.START_LIST || type == Type.START_MAP) {
+          type = openSkipped(type, base);
+          continue;
+        }
+        skipOneValue(type);
+      }
+      object = skipped[depth - base - 1];
+      type = next();
+      if (type == Type.COMMA) {
+        type = next();
+      } else {
+        consume(type, object ? "map" : "list", object ? Type.END_MAP : Type.END_LIST);
+      }
     }
-    consume(token, "map", Type.END_MAP);
-    return result;
   }
 
-  private Token consume(String element, Token.Type type) {
-    Token token = next();
-    if (token.getType() != type) {
-      throw parseError(element, type, token);
+  private Token.Type openSkipped(Token.Type type, int base) {
+    enter();
+    int level = depth - base - 1;
+    if (skipped == null) {
+      skipped = new boolean[8];
+    } else if (level == skipped.length) {
+      skipped = Arrays.copyOf(skipped, level * 2);
+    }
+    skipped[level] = type == Type.START_MAP;
+    return next();
+  }
+
+  /**
+   * Validates and discards a value, strings and numbers are not materialized.
+   */
+  private void skipOneValue(Token.Type type) {
+    switch (type) {
+      case DOUBLE:
+      case LONG:
+      case STRING:
+      case NULL:
+      case TRUE:
+      case FALSE:
+        break;
+      case START_LIST:
+      case START_MAP:
+        pushContainer(null, type);
+        break;
+      default:
+        throw parseError("json value", "value", type);
     }
-    return token;
   }
 
-  private Token consume(Token token, String element, Token.Type type) {
-    if (token.getType() != type) {
-      throw parseError(element, type, token);
+  String key() {
+    if (keyCache == null) {
+      return tokenizer.stringValue();
     }
-    return token;
+    return tokenizer.keyValue(keyCache);
   }
 
-  private Token next() {
-    return tokenizer.next();
+  private void consume(String element, Token.Type type) {
+    consume(next(), element, type);
   }
 
-  private ParseException parseError(String element, Token.Type expected, Token got) {
-    return new ParseException(element, expected.toString(), got);
+  void consume(Token.Type got, String element, Token.Type type) {
+    if (got != type) {
+      throw parseError(element, type.toString(), got);
+    }
+  }
+
+  Token.Type next() {
+    Token.Type type = tokenizer.nextToken();
+    if (stats != null) {
+      stats.tokens[type.ordinal()]++;
+    }
+    return type;
   }
 
-  private ParseException parseError(String element, String expected, Token got) {
-    return new ParseException(element, expected, got);
+  ParseException parseError(String element, String expected, Token.Type got) {
+    return new ParseException(element, expected, tokenizer.currentToken(got));
   }
 }
@@ -0,0 +1,169 @@
+package mx.sugus.json;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A bounded pool of {@link Parser} instances sharing the same options, for parsing many small
+ * documents without allocating a parser, a tokenizer and their buffers for each one. Each parse
+ * takes a parser from the pool, {@link Parser#reset(String) resets} it onto the input and
+ * returns it once done, so steady state parsing allocates little more than the parsed values.
+ *
+ * <p>{@link #threadLocal(ParseOptions)} keeps a parser per thread, the cheapest way for a
+ * fixed set of platform threads. With virtual threads, usually one per task, a parser per thread
+ * would never be reused, {@link #shared(int, ParseOptions)} keeps up to a given number of parsers
+ * in a lock-free array any thread can take them from, without ever blocking: when the pool is
+ * empty a new parser is created, when it is full a returned parser is dropped.
+ *
+ * <p>Pools are thread safe. Parsers are cleared of their input, and of whatever a failed parse
+ * left, when returned, and buffers that grew too large are not kept, so the memory held by a
+ * pool is bounded.
+ */
+public abstract class ParserPool {
+
+  private final ParseOptions options;
+
+  ParserPool(ParseOptions options) {
+    this.options = options;
+  }
+
+  /**
+   * Returns a pool keeping a parser per thread.
+   */
+  public static ParserPool threadLocal(ParseOptions options) {
+    return new ThreadLocalPool(options);
+  }
+
+  /**
+   * Returns a pool of up to capacity parsers shared by all threads, suited to virtual threads.
+   */
+  public static ParserPool shared(int capacity, ParseOptions options) {
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("Invalid capacity: " + capacity);
+    }
+    return new SharedPool(capacity, options);
+  }
+
+  public Object parse(String json) {
+    Parser parser = acquire();
+    try {
+      return parser.reset(json).parse();
+    } finally {
+      release(parser);
+    }
+  }
+
+  /**
+   * Parses UTF-8 encoded JSON.
+   */
+  public Object parse(byte[] json) {
+    Parser parser = acquire();
+    try {
+      return parser.reset(json).parse();
+    } finally {
+      release(parser);
+    }
+  }
+
+  /**
+   * Parses the input straight into an instance of the given class, see
+   * {@link Parser#parse(Class)}.
+   */
+  public <T> T parse(String json, Class<T> type) {
+    Parser parser = acquire();
+    try {
+      return parser.reset(json).parse(type);
+    } finally {
+      release(parser);
+    }
+  }
+
+  Parser newParser() {
+    return new Parser("", options);
+  }
+
+  /**
+   * Returns a parser taken from the pool, or a new one.
+   */
+  abstract Parser acquire();
+
+  /**
+   * Returns the parser to the pool, or drops it.
+   */
+  void release(Parser parser) {
+    // Do not hold on to the input until the next parse.
+    parser.clear();
+    put(parser);
+  }
+
+  abstract void put(Parser parser);
+
+  private static final class ThreadLocalPool extends ParserPool {
+
+    // Empty while the thread's parser is in use, a nested parse on the same thread, e.g.,
+    // from a constructor called by Parser.parse(Class), gets a parser of its own.
+    private final ThreadLocal<Parser> parsers = new ThreadLocal<>();
+
+    ThreadLocalPool(ParseOptions options) {
+      super(options);
+    }
+
+    @Override
+    Parser acquire() {
+      Parser parser = parsers.get();
+      if (parser == null) {
+        return newParser();
+      }
+      parsers.set(null);
+      return parser;
+    }
+
+    @Override
+    void put(Parser parser) {
+      parsers.set(parser);
+    }
+  }
+
+  private static final class SharedPool extends ParserPool {
+
+    private final AtomicReferenceArray<Parser> slots;
+
+    SharedPool(int capacity, ParseOptions options) {
+      super(options);
+      this.slots = new AtomicReferenceArray<>(capacity);
+    }
+
+    @Override
+    Parser acquire() {
+      // Start at a slot picked by the thread so that threads do not all contend on the first.
+      int length = slots.length();
+      int start = start(length);
+      for (int i = 0; i < length; i++) {
+        int index = (start + i) % length;
+        if (slots.get(index) != null) {
+          Parser parser = slots.getAndSet(index, null);
+          if (parser != null) {
+            return parser;
+          }
+        }
+      }
+      return newParser();
+    }
+
+    @Override
+    void put(Parser parser) {
+      int length = slots.length();
+      int start = start(length);
+      for (int i = 0; i < length; i++) {
+        int index = (start + i) % length;
+        if (slots.get(index) == null && slots.compareAndSet(index, null, parser)) {
+          return;
+        }
+      }
+    }
+
+    private static int start(int length) {
+      long id = Thread.currentThread().getId();
+      return (int) ((id ^ (id >>> 32)) & Integer.MAX_VALUE) % length;
+    }
+  }
+}
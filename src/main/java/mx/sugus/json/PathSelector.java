@@ -0,0 +1,235 @@
+package mx.sugus.json;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A set of JSON Pointers, see https://tools.ietf.org/html/rfc6901, selecting the values to
+ * extract from a document with {@link Parser#parse(PathSelector)}. A {@code *} segment matches
+ * any key of an object and any element of an array, e.g., <code>/items/&#42;/price</code>.
+ * Array elements are matched by their index, e.g., {@code /items/0}. Instances are immutable
+ * and can be shared between parsers and threads.
+ *
+ * <p>Objects and arrays no pointer goes into are skipped without tokenizing them, only their
+ * strings and the matching of their brackets are checked, so other errors within them, e.g., a
+ * missing comma, are not reported.
+ */
+public final class PathSelector {
+
+  private static final String WILDCARD = "*";
+
+  private final String[] paths;
+  private final Node root;
+
+  private PathSelector(String[] paths, Node root) {
+    this.paths = paths;
+    this.root = root;
+  }
+
+  /**
+   * Compiles the given JSON Pointers, repeated pointers are selected once.
+   *
+   * @throws IllegalArgumentException if a pointer is not valid.
+   */
+  public static PathSelector of(String... paths) {
+    String[] distinct = Arrays.stream(paths).distinct().toArray(String[]::new);
+    String[][] segments = new String[distinct.length][];
+    int[] ids = new int[distinct.length];
+    for (int i = 0; i < distinct.length; i++) {
+      segments[i] = segments(distinct[i]);
+      ids[i] = i;
+    }
+    return new PathSelector(distinct, Node.build(segments, ids, 0));
+  }
+
+  private static String[] segments(String path) {
+    if (path.isEmpty()) {
+      return new String[0];
+    }
+    if (path.charAt(0) != '/') {
+      throw new IllegalArgumentException("JSON Pointer must start with '/': " + path);
+    }
+    String[] segments = path.substring(1).split("/", -1);
+    for (int i = 0; i < segments.length; i++) {
+      String segment = segments[i];
+      for (int j = segment.indexOf('~'); j >= 0; j = segment.indexOf('~', j + 1)) {
+        if (j + 1 == segment.length()
+            || (segment.charAt(j + 1) != '0' && segment.charAt(j + 1) != '1')) {
+          throw new IllegalArgumentException("Invalid escape in JSON Pointer: " + path);
+        }
+      }
+      segments[i] = segment.replace("~1", "/").replace("~0", "~");
+    }
+    return segments;
+  }
+
+  Node root() {
+    return root;
+  }
+
+  List<List<Object>> newResults() {
+    List<List<Object>> found = new ArrayList<>(paths.length);
+    for (int i = 0; i < paths.length; i++) {
+      found.add(new ArrayList<>());
+    }
+    return found;
+  }
+
+  /**
+   * Returns the values found for each path, in the order the paths were given.
+   */
+  Map<String, List<Object>> results(List<List<Object>> found) {
+    Map<String, List<Object>> results = new LinkedHashMap<>();
+    for (int i = 0; i < paths.length; i++) {
+      results.put(paths[i], found.get(i));
+    }
+    return results;
+  }
+
+  /**
+   * A position within the selected paths. Unlike a plain trie the wildcard is merged into each
+   * of the named children, so that every key or index leads to at most one node.
+   */
+  static final class Node {
+
+    private static final int[] NO_TARGETS = {};
+
+    // Paths ending at this node.
+    private final int[] targets;
+    private final String[] keys;
+    private final Node[] children;
+    // Keys that are also array indexes, with their child.
+    private final int[] indexes;
+    private final Node[] indexChildren;
+    // Node for any other key or index, null if there is none.
+    private final Node other;
+
+    private Node(int[] targets, String[] keys, Node[] children, int[] indexes,
+        Node[] indexChildren, Node other) {
+      this.targets = targets;
+      this.keys = keys;
+      this.children = children;
+      this.indexes = indexes;
+      this.indexChildren = indexChildren;
+      this.other = other;
+    }
+
+    /**
+     * Builds the node for the given paths, all of them matching up to depth.
+     */
+    static Node build(String[][] segments, int[] ids, int depth) {
+      int[] targets = NO_TARGETS;
+      int[] wildcards = new int[0];
+      Map<String, int[]> named = new LinkedHashMap<>();
+      for (int id : ids) {
+        String[] path = segments[id];
+        if (path.length == depth) {
+          targets = append(targets, id);
+        } else if (path[depth].equals(WILDCARD)) {
+          wildcards = append(wildcards, id);
+        } else {
+          named.merge(path[depth], new int[] {id}, PathSelector::concat);
+        }
+      }
+      String[] keys = named.keySet().toArray(new String[0]);
+      Node[] children = new Node[keys.length];
+      int[] indexes = new int[0];
+      Node[] indexChildren = new Node[0];
+      for (int i = 0; i < keys.length; i++) {
+        children[i] = build(segments, concat(named.get(keys[i]), wildcards), depth + 1);
+        if (isIndex(keys[i])) {
+          indexes = append(indexes, Integer.parseInt(keys[i]));
+          indexChildren = Arrays.copyOf(indexChildren, indexes.length);
+          indexChildren[indexes.length - 1] = children[i];
+        }
+      }
+      Node other = wildcards.length == 0 ? null : build(segments, wildcards, depth + 1);
+      return new Node(targets, keys, children, indexes, indexChildren, other);
+    }
+
+    private static boolean isIndex(String key) {
+      if (key.isEmpty() || key.length() > 9 || (key.charAt(0) == '0' && key.length() > 1)) {
+        return false;
+      }
+      for (int i = 0; i < key.length(); i++) {
+        if (key.charAt(i) < '0' || key.charAt(i) > '9') {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    /**
+     * Returns true if a path ends at this node, its values have to be materialized.
+     */
+    boolean isTarget() {
+      return targets.length > 0;
+    }
+
+    /**
+     * Returns true if some path continues past this node.
+     */
+    boolean hasChildren() {
+      return keys.length > 0 || other != null;
+    }
+
+    /**
+     * Returns the node for the key held in chars[start, start + length), null if no path
+     * continues through it.
+     */
+    Node child(char[] chars, int start, int length) {
+      for (int i = 0; i < keys.length; i++) {
+        String key = keys[i];
+        if (key.length() == length && matches(key, chars, start)) {
+          return children[i];
+        }
+      }
+      return other;
+    }
+
+    /**
+     * Returns the node for the array element at index, null if no path continues through it.
+     */
+    Node child(int index) {
+      for (int i = 0; i < indexes.length; i++) {
+        if (indexes[i] == index) {
+          return indexChildren[i];
+        }
+      }
+      return other;
+    }
+
+    private static boolean matches(String key, char[] chars, int start) {
+      for (int i = 0; i < key.length(); i++) {
+        if (key.charAt(i) != chars[start + i]) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    /**
+     * Adds value to the paths ending at this node.
+     */
+    void add(Object value, List<List<Object>> found) {
+      for (int target : targets) {
+        found.get(target).add(value);
+      }
+    }
+  }
+
+  private static int[] append(int[] values, int value) {
+    int[] result = Arrays.copyOf(values, values.length + 1);
+    result[values.length] = value;
+    return result;
+  }
+
+  private static int[] concat(int[] first, int[] second) {
+    int[] result = Arrays.copyOf(first, first.length + second.length);
+    System.arraycopy(second, 0, result, first.length, second.length);
+    return result;
+  }
+}
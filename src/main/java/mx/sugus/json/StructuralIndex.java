@@ -0,0 +1,201 @@
+package mx.sugus.json;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * Positions of the structural characters of a document: brackets, braces, commas and colons
+ * outside strings, the opening quote of each string and the first character of each number or
+ * literal. Built in a single pass that does not look into values beyond finding where strings
+ * end, see {@link LazyDocument} for how it is used.
+ *
+ * <p>UTF-8 input is indexed eight bytes at a time, see {@link Swar}: each word is classified
+ * with a handful of masks, the bytes within strings are found by a prefix xor of the quote mask,
+ * and only the positions that are actually recorded are visited one by one. Words with a
+ * backslash, rare outside of escaped strings, take a byte by byte path to find the quotes that
+ * are escaped.
+ */
+final class StructuralIndex {
+
+  private static final long SPACES = Swar.ONES * ' ';
+
+  private int[] positions;
+  // The character at each position, all of them are ASCII.
+  private byte[] kinds;
+  private int size;
+
+  StructuralIndex(int capacity) {
+    this.positions = new int[Math.max(16, capacity)];
+    this.kinds = new byte[positions.length];
+  }
+
+  /**
+   * Indexes chars[start, end).
+   */
+  static StructuralIndex of(char[] chars, int start, int end) {
+    StructuralIndex index = new StructuralIndex((end - start) / 4);
+    boolean inScalar = false;
+    for (int i = start; i < end; i++) {
+      char ch = chars[i];
+      switch (ch) {
+        case '{':
+        case '}':
+        case '[':
+        case ']':
+        case ',':
+        case ':':
+          index.add(i, ch);
+          inScalar = false;
+          break;
+        case '"':
+          index.add(i, ch);
+          i = endOfString(chars, i + 1, end);
+          inScalar = false;
+          break;
+        case ' ':
+        case '\t':
+        case '\r':
+        case '\n':
+          inScalar = false;
+          break;
+        default:
+          if (!inScalar) {
+            // Anything else is validated when the value is decoded, non-ASCII chars outside of
+            // strings are invalid JSON anyway.
+            index.add(i, ch < 0x80 ? ch : '?');
+            inScalar = true;
+          }
+      }
+    }
+    return index;
+  }
+
+  /**
+   * Indexes the UTF-8 encoded bytes[start, end), positions are byte offsets.
+   */
+  static StructuralIndex of(byte[] bytes, int start, int end) {
+    StructuralIndex index = new StructuralIndex((end - start) / 4);
+    ByteBuffer words = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+    // State carried from one word to the next: HIGH_BITS if the last word ended within a
+    // string, whether its last byte was a backslash escaping the next one and 0x80 if its last
+    // byte was part of a number or literal.
+    long inString = 0;
+    boolean escaped = false;
+    long inScalar = 0;
+    for (int i = start; i < end; i += 8) {
+      long word = end - i >= 8 ? words.getLong(i) : tail(bytes, i, end);
+      long quotes = Swar.equal(word, '"');
+      long backslashes = Swar.equal(word, '\\');
+      if ((quotes | backslashes) == 0 && !escaped) {
+        // Nothing to record within a string, nor in indentation.
+        if (inString != 0) {
+          continue;
+        }
+        if (word == SPACES) {
+          inScalar = 0;
+          continue;
+        }
+      } else if (backslashes != 0 || escaped) {
+        // Walk the quotes and backslashes in order, a backslash within a string escapes the
+        // next byte, which might be in the next word.
+        long unescaped = 0;
+        boolean within = inString != 0;
+        long special = quotes | backslashes;
+        if (escaped) {
+          special &= ~0x80L;
+          escaped = false;
+        }
+        while (special != 0) {
+          long bit = special & -special;
+          special &= ~bit;
+          if ((quotes & bit) != 0) {
+            unescaped |= bit;
+            within = !within;
+          } else if (within) {
+            long next = bit << 8;
+            escaped = next == 0;
+            special &= ~next;
+          }
+        }
+        quotes = unescaped;
+      }
+      long strings = Swar.prefixXor(quotes) ^ inString;
+      inString = strings < 0 ? Swar.HIGH_BITS : 0;
+      // Closing quotes are neither within strings nor outside of them.
+      long outside = ~(strings | quotes) & Swar.HIGH_BITS;
+      long folded = word | (Swar.ONES * 0x20);
+      long structural = (Swar.equal(folded, '{') | Swar.equal(folded, '}')
+          | Swar.equal(word, ',') | Swar.equal(word, ':')) & outside;
+      long whitespace = Swar.equal(word, ' ');
+      long controls = Swar.lessThan(word, ' ') & outside;
+      if (controls != 0) {
+        whitespace |= controls
+            & (Swar.equal(word, '\t') | Swar.equal(word, '\r') | Swar.equal(word, '\n'));
+      }
+      long scalars = outside & ~(structural | whitespace);
+      long starts = scalars & ~((scalars << 8) | inScalar);
+      inScalar = scalars >>> 56;
+      long marks = structural | (quotes & strings) | starts;
+      while (marks != 0) {
+        int position = i + Swar.firstByte(marks);
+        byte kind = bytes[position];
+        index.add(position, kind >= 0 ? kind : '?');
+        marks &= marks - 1;
+      }
+    }
+    if (inString != 0) {
+      throw new ParseException("string", "\"");
+    }
+    return index;
+  }
+
+  /**
+   * Returns the last, incomplete, word of the input padded with whitespace.
+   */
+  private static long tail(byte[] bytes, int start, int end) {
+    long word = SPACES;
+    for (int i = end - 1; i >= start; i--) {
+      word = (word << 8) | (bytes[i] & 0xFF);
+    }
+    return word;
+  }
+
+  /**
+   * Returns the position of the quote closing the string whose contents start at start.
+   */
+  private static int endOfString(char[] chars, int start, int end) {
+    for (int i = start; i < end; i++) {
+      char ch = chars[i];
+      if (ch == '"') {
+        return i;
+      }
+      if (ch == '\\') {
+        i++;
+      }
+    }
+    throw new ParseException("string", "\"");
+  }
+
+  void add(int position, int kind) {
+    if (size == positions.length) {
+      positions = Arrays.copyOf(positions, size * 2);
+      kinds = Arrays.copyOf(kinds, size * 2);
+    }
+    positions[size] = position;
+    kinds[size] = (byte) kind;
+    size++;
+  }
+
+  int size() {
+    return size;
+  }
+
+  int position(int index) {
+    return positions[index];
+  }
+
+  char kind(int index) {
+    return (char) kinds[index];
+  }
+}
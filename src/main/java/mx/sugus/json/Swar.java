@@ -0,0 +1,58 @@
+package mx.sugus.json;
+
+/**
+ * SIMD within a register: byte wise operations on eight bytes packed in a long, little endian,
+ * i.e., the first byte in the low bits. Masks returned have the high bit, 0x80, set on each
+ * matching byte and every other bit clear.
+ */
+final class Swar {
+
+  static final long ONES = 0x0101010101010101L;
+  static final long HIGH_BITS = 0x8080808080808080L;
+  private static final long LOW_BITS = 0x7F7F7F7F7F7F7F7FL;
+
+  private Swar() {
+  }
+
+  /**
+   * Returns the mask of the bytes of word equal to value.
+   */
+  static long equal(long word, int value) {
+    return zeroBytes(word ^ (ONES * value));
+  }
+
+  /**
+   * Returns the mask of the bytes of word less than value, which must be at most 0x80.
+   */
+  static long lessThan(long word, int value) {
+    long sum = (word & LOW_BITS) + ONES * (0x80 - value);
+    return ~(sum | word) & HIGH_BITS;
+  }
+
+  /**
+   * Returns the mask of the zero bytes of word. Unlike the classic {@code (x - ONES) & ~x}
+   * trick this one is exact, carries never cross into the next byte.
+   */
+  static long zeroBytes(long word) {
+    long sum = (word & LOW_BITS) + LOW_BITS;
+    return ~(sum | word | LOW_BITS);
+  }
+
+  /**
+   * Returns a mask where each byte is set if an odd number of bytes up to and including it are
+   * set in mask, i.e., the bytes between an opening and a closing marker.
+   */
+  static long prefixXor(long mask) {
+    mask ^= mask << 8;
+    mask ^= mask << 16;
+    mask ^= mask << 32;
+    return mask;
+  }
+
+  /**
+   * Returns the index of the first byte set in a non-zero mask.
+   */
+  static int firstByte(long mask) {
+    return Long.numberOfTrailingZeros(mask) >>> 3;
+  }
+}
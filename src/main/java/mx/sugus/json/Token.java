@@ -5,7 +5,7 @@ package mx.sugus.json;
  */
 public class Token {
 
-  enum Type {
+  public enum Type {
     EOF,
     START_LIST,
     END_LIST,
@@ -1,8 +1,12 @@
 package mx.sugus.json;
 
-import java.io.Reader;
-import java.io.StringReader;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
 
 /**
  * Tokenizes a JSON string.
@@ -10,36 +14,293 @@ import java.io.IOException;
  */
 public class Tokenizer {
 
-  private final Reader reader;
-  private int lookahead = -2;
+  private static final int BUFFER_SIZE = 8192;
+  // Buffers grown beyond this, by a long token, are not kept across resets.
+  private static final int MAX_RETAINED_SIZE = 64 * 1024;
+  // Numbers converted to a BigInteger may have at most this many integer digits, unless limited
+  // by maxNumberLength, since a short text like 1e1000000000 would take seconds to expand.
+  static final int MAX_INTEGER_DIGITS = 10_000;
+
+  // Input is read in blocks into buffer, either from the reader or, when
+  // tokenizing a string, straight from the source without an intermediate reader.
+  // While mark is set fill() keeps buffer[mark, limit), growing the buffer if
+  // needed, so that a token being scanned stays contiguous.
+  private Reader reader;
+  private String source;
+  private int sourceOffset;
+  private char[] buffer;
+  // Whether buffer is the caller's array, which must not be reused for other input.
+  private boolean borrowed;
+  // Reader over UTF-8 bytes kept for reuse by reset(byte[]).
+  private Utf8Reader utf8;
+  private int pos;
+  private int limit;
+  private int mark = -1;
+  // Limits of ParseOptions, whether the token kept by mark is a string or a number, and the
+  // length of the input read so far.
+  private int maxStringLength = Integer.MAX_VALUE;
+  private int maxNumberLength = Integer.MAX_VALUE;
+  private long maxInputLength = Long.MAX_VALUE;
+  private boolean markString;
+  private long consumed;
+  // Counts of the values materialized, null unless instrumented, and the UTF-8 encoded length
+  // of the chars read, counted only when instrumented and the input is not UTF-8 already.
+  private ParseStats stats;
+  private long encoded;
+
+  // Text of the last string or number token, either a slice of buffer or, for
+  // strings with escapes, of scratch. Valid until the next token is read.
+  private char[] text;
+  private int textStart;
+  private int textLength;
+  private char[] scratch;
+  // Containers open while skipping, true for objects, allocated on first use.
+  private boolean[] skipped;
+
+  // The last number token as negative, mantissa * 10^exponent. The mantissa is
+  // unsigned and holds up to MAX_DIGITS significant digits, truncated is set if
+  // non-zero digits had to be dropped.
+  private boolean negative;
+  private long mantissa;
+  private int digits;
+  private int exponent;
+  private boolean truncated;
 
   public Tokenizer(Reader reader) {
-    this.reader = reader;
+    this(reader, BUFFER_SIZE);
   }
 
   public Tokenizer(String json) {
-    this(new StringReader(json));
+    this.reader = null;
+    this.source = json;
+    this.buffer = new char[Math.max(1, Math.min(json.length(), BUFFER_SIZE))];
+  }
+
+  /**
+   * Tokenizes UTF-8 encoded JSON.
+   */
+  public Tokenizer(byte[] json) {
+    this(new Utf8Reader(json, 0, json.length));
+  }
+
+  /**
+   * Tokenizes UTF-8 encoded JSON from the buffer's position to its limit. The position of the
+   * buffer is not changed.
+   */
+  public Tokenizer(ByteBuffer json) {
+    this(new Utf8Reader(json));
+  }
+
+  /**
+   * Tokenizes UTF-8 encoded JSON read from the stream, the stream is not closed.
+   */
+  public Tokenizer(InputStream json) {
+    this(new Utf8Reader(json));
+  }
+
+  Tokenizer(Utf8Reader reader) {
+    this(reader, Math.max(1, Math.min(reader.available(), BUFFER_SIZE)));
+  }
+
+  /**
+   * Tokenizes chars[start, end) in place, see {@link #seek(int)}.
+   */
+  Tokenizer(char[] chars, int start, int end) {
+    this.reader = null;
+    this.source = null;
+    this.buffer = chars;
+    this.borrowed = true;
+    this.pos = start;
+    this.limit = end;
+    this.consumed = end - start;
+  }
+
+  Tokenizer(Reader reader, int bufferSize) {
+    this.reader = reader;
+    this.source = null;
+    this.buffer = new char[bufferSize];
+  }
+
+  /**
+   * Applies the limits of the options, see {@link ParseOptions#withMaxStringLength(int)}.
+   */
+  void limit(ParseOptions options) {
+    this.maxStringLength = options.maxStringLength();
+    this.maxNumberLength = options.maxNumberLength();
+    this.maxInputLength = options.maxInputLength();
+  }
+
+  /**
+   * Counts the strings and numbers materialized into the stats.
+   */
+  void instrument(ParseStats stats) {
+    this.stats = stats;
+    if (stats != null && reader == null && source == null) {
+      // Over a char array, all of the input is in the buffer already.
+      encoded = utf8Length(buffer, pos, limit);
+    }
+  }
+
+  /**
+   * Returns the length of the input read so far, in bytes for UTF-8 input, in chars otherwise.
+   */
+  long consumed() {
+    return consumed;
+  }
+
+  /**
+   * Returns the number of bytes of input tokenized so far, up to the end of the last token,
+   * i.e., not counting what was read ahead. Input other than UTF-8 counts as UTF-8 encoded,
+   * only for instrumented tokenizers, see {@link #instrument(ParseStats)}.
+   */
+  long consumedBytes() {
+    long read = reader instanceof Utf8Reader ? ((Utf8Reader) reader).bytesRead() : encoded;
+    return read - utf8Length(buffer, pos, limit);
+  }
+
+  /**
+   * Returns the length of chars[start, end) once encoded as UTF-8.
+   */
+  private static int utf8Length(char[] chars, int start, int end) {
+    int length = end - start;
+    for (int i = start; i < end; i++) {
+      char ch = chars[i];
+      if (ch >= 0x80) {
+        // A surrogate pair takes four bytes, counted with its high surrogate.
+        length += ch < 0x800 ? 1 : Character.isHighSurrogate(ch) ? 3
+            : Character.isLowSurrogate(ch) ? -1 : 2;
+      }
+    }
+    return length;
+  }
+
+  /**
+   * Starts over with new input, keeping the buffers of this tokenizer, so that tokenizing many
+   * small documents one after the other allocates nothing but the tokens' values.
+   */
+  public void reset(String json) {
+    clear();
+    this.source = json;
+    this.buffer = buffer(json.length());
+  }
+
+  /**
+   * Starts over with new UTF-8 encoded input, see {@link #reset(String)}.
+   */
+  public void reset(byte[] json) {
+    reset(json, 0, json.length);
+  }
+
+  /**
+   * Starts over with the UTF-8 encoded json[offset, offset + length).
+   */
+  void reset(byte[] json, int offset, int length) {
+    clear();
+    if (utf8 == null) {
+      utf8 = new Utf8Reader(json, offset, length);
+    } else {
+      utf8.reset(json, offset, length);
+    }
+    this.reader = utf8;
+    this.buffer = buffer(length);
+  }
+
+  /**
+   * Drops the input, and the references to it, and clears the state of the last token.
+   */
+  void clear() {
+    reader = null;
+    source = null;
+    sourceOffset = 0;
+    pos = limit = 0;
+    mark = -1;
+    consumed = 0;
+    encoded = 0;
+    text = null;
+    textStart = textLength = 0;
+    if (scratch != null && scratch.length > MAX_RETAINED_SIZE) {
+      scratch = null;
+    }
+  }
+
+  /**
+   * Returns a buffer for input of the given length, the current one if it can be reused.
+   */
+  private char[] buffer(int length) {
+    int size = Math.max(1, Math.min(length, BUFFER_SIZE));
+    if (borrowed || buffer.length < size || buffer.length > MAX_RETAINED_SIZE) {
+      borrowed = false;
+      return new char[size];
+    }
+    return buffer;
+  }
+
+  /**
+   * Moves to the given position of the input, only for tokenizers over a char array or over
+   * UTF-8 bytes in memory, where the position is a byte offset.
+   */
+  void seek(int position) {
+    if (reader != null) {
+      ((Utf8Reader) reader).seek(position);
+      pos = limit = 0;
+    } else {
+      pos = position;
+    }
   }
 
   public Token next() {
+    Token.Type type = nextToken();
+    switch (type) {
+      case EOF:
+        return Token.EOF;
+      case START_LIST:
+        return Token.START_LIST;
+      case END_LIST:
+        return Token.END_LIST;
+      case START_MAP:
+        return Token.START_MAP;
+      case END_MAP:
+        return Token.END_MAP;
+      case COMMA:
+        return Token.COMMA;
+      case COLON:
+        return Token.COLON;
+      case FALSE:
+        return Token.FALSE;
+      case TRUE:
+        return Token.TRUE;
+      case NULL:
+        return Token.NULL;
+      default:
+        return currentToken(type);
+    }
+  }
+
+  /**
+   * Reads the next token and returns its type, the value of string and number tokens is kept
+   * by the tokenizer until the next call, see {@link #stringValue()} and {@link #longValue()}.
+   * Unlike {@link #next()} this does not allocate tokens.
+   */
+  Token.Type nextToken() {
     int ch = skipWhitespace();
     switch (ch) {
       case -1:
-        return Token.EOF;
+        return Token.Type.EOF;
       case '[':
-        return Token.START_LIST;
+        return Token.Type.START_LIST;
       case ']':
-        return Token.END_LIST;
+        return Token.Type.END_LIST;
       case '{':
-        return Token.START_MAP;
+        return Token.Type.START_MAP;
       case '}':
-        return Token.END_MAP;
+        return Token.Type.END_MAP;
       case ',':
-        return Token.COMMA;
+        return Token.Type.COMMA;
       case ':':
-        return Token.COLON;
+        return Token.Type.COLON;
       case '"':
-        return readString();
+        readString();
+        return Token.Type.STRING;
       case '-':
       case '0':
       case '1':
@@ -63,12 +324,270 @@ public class Tokenizer {
     }
   }
 
-  private int skipWhitespace() {
-    int ch = read();
-    while (isWhitespace(ch)) {
-      ch = read();
+  /**
+   * Skips the rest of the object or array whose opening bracket was the last token, up to and
+   * including its closing bracket, without tokenizing or allocating anything for its contents.
+   * Only strings and the nesting of brackets are tracked, brackets must match but the rest of
+   * the contents is not validated.
+   */
+  void skipContainer(boolean object) {
+    boolean[] objects = skipped;
+    if (objects == null) {
+      objects = skipped = new boolean[16];
+    }
+    objects[0] = object;
+    int depth = 1;
+    do {
+      while (pos < limit) {
+        char ch = buffer[pos++];
+        switch (ch) {
+          case '"':
+            skipString();
+            break;
+          case '[':
+          case '{':
+            if (depth == objects.length) {
+              objects = skipped = Arrays.copyOf(objects, depth * 2);
+            }
+            objects[depth++] = ch == '{';
+            break;
+          case ']':
+          case '}':
+            if (objects[--depth] != (ch == '}')) {
+              throw parseError(objects[depth] ? "map" : "list", objects[depth] ? "}" : "]", ch);
+            }
+            if (depth == 0) {
+              return;
+            }
+            break;
+          default:
+            break;
+        }
+      }
+    } while (fill());
+    throw parseError("json value", "end of object or array", -1);
+  }
+
+  private void skipString() {
+    do {
+      while (pos < limit) {
+        char ch = buffer[pos++];
+        if (ch == '"') {
+          return;
+        }
+        if (ch == '\\') {
+          if (pos == limit && !fill()) {
+            break;
+          }
+          pos++;
+        }
+      }
+    } while (fill());
+    throw parseError("string", "\"", -1);
+  }
+
+  /**
+   * Returns the token last read by {@link #nextToken()} of the given type.
+   */
+  Token currentToken(Token.Type type) {
+    switch (type) {
+      case STRING:
+        return newToken(type, stringValue());
+      case LONG:
+      case DOUBLE:
+        // Exponent markers are always reported in lower case.
+        return newToken(type, textValue().replace('E', 'e'));
+      default:
+        return new Token(type);
+    }
+  }
+
+  /**
+   * Returns the value of the last string token.
+   */
+  String stringValue() {
+    if (stats != null) {
+      stats.strings++;
+    }
+    return textValue();
+  }
+
+  /**
+   * Returns the value of the last string token canonicalized through the cache.
+   */
+  String keyValue(KeyCache cache) {
+    if (stats != null) {
+      stats.strings++;
+    }
+    return cache.intern(text, textStart, textLength);
+  }
+
+  /**
+   * Returns the value of the last number token of the given type as a Long or Double, promoted
+   * to BigInteger or BigDecimal if the value does not fit.
+   */
+  Number numberValue(Token.Type type) {
+    if (type == Token.Type.LONG) {
+      if (isLong()) {
+        return longValue();
+      }
+      return bigIntegerValue();
+    }
+    if (type == Token.Type.DOUBLE) {
+      double result = doubleValue();
+      if (!Double.isInfinite(result)) {
+        return result;
+      }
+      return bigDecimalValue();
+    }
+    throw new IllegalStateException("not reached");
+  }
+
+  /**
+   * Returns true if the last number token is an integer that fits in a long.
+   */
+  boolean isLong() {
+    if (exponent != 0 || truncated) {
+      return false;
+    }
+    if (mantissa >= 0) {
+      return true;
+    }
+    return negative && mantissa == Long.MIN_VALUE;
+  }
+
+  /**
+   * Returns the last number token as a LazyNumber, keeping its text only if it has more
+   * significant digits than the mantissa holds.
+   */
+  LazyNumber lazyNumberValue() {
+    if (stats != null) {
+      stats.numbers++;
+    }
+    if (truncated) {
+      return new LazyNumber(textValue());
+    }
+    return new LazyNumber(negative, mantissa, exponent);
+  }
+
+  /**
+   * Returns the value of the last number token as a long, see {@link #isLong()}.
+   */
+  long longValue() {
+    if (stats != null) {
+      stats.numbers++;
+    }
+    return negative ? -mantissa : mantissa;
+  }
+
+  BigInteger bigIntegerValue() {
+    if (stats != null) {
+      stats.numbers++;
+    }
+    return new BigInteger(textValue());
+  }
+
+  /**
+   * Returns the value of the last number token as a BigInteger, any fraction is discarded unless
+   * exact. Fails if the integer part has more than maxNumberLength digits, 10,000 if unlimited.
+   *
+   * @throws ArithmeticException if exact and the value has a fraction.
+   */
+  BigInteger bigIntegerValue(boolean exact) {
+    int maxDigits = maxNumberLength == Integer.MAX_VALUE ? MAX_INTEGER_DIGITS : maxNumberLength;
+    return toBigInteger(bigDecimalValue(), maxDigits, exact);
+  }
+
+  /**
+   * Returns the value as a BigInteger, any fraction is discarded unless exact. Fails if the
+   * integer part has more than maxDigits digits.
+   *
+   * @throws ArithmeticException if exact and the value has a fraction.
+   */
+  static BigInteger toBigInteger(BigDecimal value, int maxDigits, boolean exact) {
+    long digits = (long) value.precision() - value.scale();
+    if (digits > maxDigits) {
+      throw limitExceeded("number", maxDigits, "integer digits");
+    }
+    if (digits <= 0 && value.signum() != 0) {
+      // Expanding 1e-1000000000 just to find no integer part would take as long.
+      if (exact) {
+        throw new ArithmeticException("Rounding necessary");
+      }
+      return BigInteger.ZERO;
+    }
+    return exact ? value.toBigIntegerExact() : value.toBigInteger();
+  }
+
+  /**
+   * Returns the value of the last number token as the closest double.
+   */
+  double doubleValue() {
+    if (stats != null) {
+      stats.numbers++;
+    }
+    if (!truncated) {
+      double value = NumberParser.toDouble(negative, mantissa, exponent);
+      if (!Double.isNaN(value)) {
+        return value;
+      }
     }
-    return ch;
+    return Double.parseDouble(textValue());
+  }
+
+  /**
+   * Returns the value of the last number token as the closest float. Rounding the closest double
+   * again might not give the closest float, so only integers, which convert with a single
+   * rounding, skip parsing the text.
+   */
+  float floatValue() {
+    if (stats != null) {
+      stats.numbers++;
+    }
+    if (!truncated && exponent == 0 && mantissa >= 0) {
+      float value = mantissa;
+      return negative ? -value : value;
+    }
+    return Float.parseFloat(textValue());
+  }
+
+  BigDecimal bigDecimalValue() {
+    if (stats != null) {
+      stats.numbers++;
+    }
+    return new BigDecimal(text, textStart, textLength);
+  }
+
+  /**
+   * Returns the chars holding the text of the last string or number token, the text starts at
+   * {@link #textStart()} and is {@link #textLength()} chars long.
+   */
+  char[] textChars() {
+    return text;
+  }
+
+  int textStart() {
+    return textStart;
+  }
+
+  int textLength() {
+    return textLength;
+  }
+
+  private String textValue() {
+    return new String(text, textStart, textLength);
+  }
+
+  private int skipWhitespace() {
+    do {
+      while (pos < limit) {
+        char ch = buffer[pos++];
+        if (!isWhitespace(ch)) {
+          return ch;
+        }
+      }
+    } while (fill());
+    return -1;
   }
 
   private boolean isWhitespace(int ch) {
@@ -83,65 +602,131 @@ public class Tokenizer {
     }
   }
 
-  private Token readString() {
-    StringBuilder buf = new StringBuilder();
-    int ch;
-    do {
-      ch = read();
-      if (ch == -1) {
-        throw parseError("string", "\"", ch);
+  private void readString() {
+    mark = pos;
+    markString = true;
+    int end = pos;
+    while (true) {
+      while (end < limit) {
+        char ch = buffer[end];
+        if (ch == '"' || ch == '\\' || ch <= '\u001F') {
+          break;
+        }
+        end++;
       }
-      if (ch == '\\') {
-        consumeEscape(buf);
-        continue;
+      if (end < limit) {
+        break;
       }
-      if (ch != '"') {
-        if (ch >= '\u0000' && ch <= '\u001F') {
-          throw parseError("string", "non-control character", ch);
+      pos = end;
+      if (!fill()) {
+        mark = -1;
+        throw parseError("string", "\"", -1);
+      }
+      end = pos;
+    }
+    int start = mark;
+    mark = -1;
+    char ch = buffer[end];
+    pos = end + 1;
+    if (end - start > maxStringLength) {
+      throw limitExceeded("string", maxStringLength);
+    }
+    if (ch == '"') {
+      setText(buffer, start, end - start);
+      return;
+    }
+    if (ch != '\\') {
+      throw parseError("string", "non-control character", ch);
+    }
+    readEscapedString(start, end);
+  }
+
+  /**
+   * Reads the rest of a string that contains escapes into scratch, buffer[start, end) holds the
+   * chars before the first escape.
+   */
+  private void readEscapedString(int start, int end) {
+    int length = end - start;
+    char[] out = scratch(length + 16);
+    System.arraycopy(buffer, start, out, 0, length);
+    length = consumeEscape(length);
+    while (true) {
+      int run = pos;
+      while (run < limit) {
+        char ch = buffer[run];
+        if (ch == '"' || ch == '\\' || ch <= '\u001F') {
+          break;
         }
-        buf.append((char) ch);
+        run++;
       }
-    } while (ch != '"');
-    return newToken(Token.Type.STRING, buf.toString());
+      int count = run - pos;
+      out = scratch(length + count + 1);
+      System.arraycopy(buffer, pos, out, length, count);
+      length += count;
+      pos = run;
+      if (length > maxStringLength) {
+        throw limitExceeded("string", maxStringLength);
+      }
+      if (run == limit) {
+        if (!fill()) {
+          throw parseError("string", "\"", -1);
+        }
+        continue;
+      }
+      char ch = buffer[pos++];
+      if (ch == '"') {
+        setText(out, 0, length);
+        return;
+      }
+      if (ch != '\\') {
+        throw parseError("string", "non-control character", ch);
+      }
+      length = consumeEscape(length);
+    }
   }
 
-  private void consumeEscape(StringBuilder buf) {
+  /**
+   * Decodes the escape after a backslash into scratch[length], returns the new length.
+   */
+  private int consumeEscape(int length) {
+    char[] out = scratch(length + 1);
     int ch = read();
     switch (ch) {
       case '"':
-        buf.append('"');
+        out[length] = '"';
         break;
       case '\\':
-        buf.append('\\');
+        out[length] = '\\';
         break;
       case '/':
-        buf.append('/');
+        out[length] = '/';
         break;
       case 'b':
-        buf.append('\b');
+        out[length] = '\b';
         break;
       case 'f':
-        buf.append('\f');
+        out[length] = '\f';
         break;
       case 'n':
-        buf.append('\n');
+        out[length] = '\n';
         break;
       case 'r':
-        buf.append('\r');
+        out[length] = '\r';
         break;
       case 't':
-        buf.append('\t');
+        out[length] = '\t';
         break;
       case 'u':
         int value = hexDigitValue();
         value = (value << 4) + hexDigitValue();
         value = (value << 4) + hexDigitValue();
         value = (value << 4) + hexDigitValue();
-        buf.append((char) value);
+        out[length] = (char) value;
         break;
       default:
         throw parseError("string escape", "\"\\/bfnrt or unicode escape", ch);
     }
+    return length + 1;
   }
 
   private int hexDigitValue() {
@@ -158,100 +743,129 @@ public class Tokenizer {
     throw parseError("Unicode escape", "0-9 or A-Z", ch);
   }
 
-  private Token readNumber(int ch) {
-    StringBuilder buf = new StringBuilder();
-    if (ch == '-') {
-      buf.append((char) ch);
-    } else if (ch == '0') {
-      buf.append((char) ch);
-      return consumeNumberStartsWithZero(buf);
-    } else {
-      unread(ch);
-    }
-    if (!consumeDigits(buf)) {
-      ch = read();
-      throw parseError("number", "[0-9]", ch);
-    }
-    boolean isFloat = false;
-    if (match('.')) {
-      isFloat = true;
-      buf.append('.');
-      if (!consumeDigits(buf)) {
-        throw parseError("number", "[0-9] after dot", -1);
-      }
+  private char[] scratch(int capacity) {
+    if (scratch == null) {
+      scratch = new char[Math.max(64, capacity)];
+    } else if (scratch.length < capacity) {
+      scratch = Arrays.copyOf(scratch, Math.max(scratch.length * 2, capacity));
     }
-    if (consumeExponent(buf) || isFloat) {
-      return newToken(Token.Type.DOUBLE, buf.toString());
-    }
-    return newToken(Token.Type.LONG, buf.toString());
+    return scratch;
+  }
+
+  private void setText(char[] chars, int start, int length) {
+    text = chars;
+    textStart = start;
+    textLength = length;
   }
 
-  private Token consumeNumberStartsWithZero(StringBuilder buf) {
-    if (match('.')) {
-      buf.append('.');
-      if (!consumeDigits(buf)) {
-        throw parseError("number", "[0-9] after dot", read());
+  /**
+   * Scans a number accumulating its digits and exponent as it goes, the text is kept in the
+   * buffer only for the uncommon values that need it, e.g., big integers.
+   */
+  private Token.Type readNumber(int ch) {
+    mark = pos - 1;
+    markString = false;
+    negative = false;
+    mantissa = 0;
+    digits = 0;
+    exponent = 0;
+    truncated = false;
+    try {
+      if (ch == '-') {
+        negative = true;
+        ch = read();
+        if (ch < '0' || ch > '9') {
+          throw parseError("number", "[0-9]", ch);
+        }
+      }
+      if (ch != '0') {
+        addDigit(ch - '0', false);
+        while ((ch = peek()) >= '0' && ch <= '9') {
+          pos++;
+          addDigit(ch - '0', false);
+        }
       }
-      consumeExponent(buf);
-      return newToken(Token.Type.DOUBLE, buf.toString());
-    } else if (consumeExponent(buf)) {
-      return newToken(Token.Type.DOUBLE, buf.toString());
+      boolean isFloat = false;
+      if (peek() == '.') {
+        pos++;
+        isFloat = true;
+        ch = peek();
+        if (ch < '0' || ch > '9') {
+          throw parseError("number", "[0-9] after dot", ch);
+        }
+        do {
+          pos++;
+          addDigit(ch - '0', true);
+        } while ((ch = peek()) >= '0' && ch <= '9');
+      }
+      ch = peek();
+      if (ch == 'e' || ch == 'E') {
+        pos++;
+        isFloat = true;
+        consumeExponent();
+      }
+      if (pos - mark > maxNumberLength) {
+        throw limitExceeded("number", maxNumberLength);
+      }
+      setText(buffer, mark, pos - mark);
+      return isFloat ? Token.Type.DOUBLE : Token.Type.LONG;
+    } finally {
+      mark = -1;
     }
-    return newToken(Token.Type.LONG, buf.toString());
   }
 
-  private boolean consumeExponent(StringBuilder buf) {
-    if (!match('e') && !match('E')) {
-      return false;
-    }
-    buf.append('e');
-    if (match('-')) {
-      buf.append('-');
-    } else if (match('+')) {
-      buf.append('+');
-    }
-    if (!consumeDigits(buf)) {
-      throw parseError("number", "[0-9] after exponent start", -1);
+  private void addDigit(int digit, boolean fraction) {
+    if (digits < NumberParser.MAX_DIGITS) {
+      mantissa = mantissa * 10 + digit;
+      if (mantissa != 0) {
+        digits++;
+      }
+      if (fraction) {
+        exponent--;
+      }
+    } else {
+      truncated |= digit != 0;
+      if (!fraction) {
+        exponent++;
+      }
     }
-    return true;
   }
 
-  private boolean consumeDigits(StringBuilder buf) {
-    int ch = read();
-    boolean success = false;
-    if (ch >= '0' && ch <= '9') {
-      success = true;
-      do {
-        buf.append((char) ch);
-        ch = directRead();
-      } while (ch >= '0' && ch <= '9');
+  private void consumeExponent() {
+    boolean negativeExponent = false;
+    int ch = peek();
+    if (ch == '-' || ch == '+') {
+      pos++;
+      negativeExponent = ch == '-';
+      ch = peek();
     }
-    unread(ch);
-    return success;
+    if (ch < '0' || ch > '9') {
+      throw parseError("number", "[0-9] after exponent start", ch);
+    }
+    int value = 0;
+    do {
+      pos++;
+      // Saturate, anything this large is zero or infinity anyway.
+      if (value < 100_000_000) {
+        value = value * 10 + (ch - '0');
+      }
+    } while ((ch = peek()) >= '0' && ch <= '9');
+    exponent += negativeExponent ? -value : value;
   }
 
-  private Token readFalse() {
+  private Token.Type readFalse() {
     consume("false literal", 'a', 'l', 's', 'e');
-    return Token.FALSE;
+    return Token.Type.FALSE;
   }
 
-  private Token readTrue() {
+  private Token.Type readTrue() {
     consume("true literal", 'r', 'u', 'e');
-    return Token.TRUE;
+    return Token.Type.TRUE;
   }
 
-  private Token readNull() {
+  private Token.Type readNull() {
     consume("null literal", 'u', 'l', 'l');
-    return Token.NULL;
-  }
-
-  private boolean match(int expected) {
-    int ch = read();
-    if (ch == expected) {
-      return true;
-    }
-    unread(ch);
-    return false;
+    return Token.Type.NULL;
   }
 
   private void consume(String parsing, int... chars) {
@@ -263,26 +877,81 @@ public class Tokenizer {
     }
   }
 
-  private void unread(int ch) {
-    lookahead = ch;
+  private int peek() {
+    if (pos < limit || fill()) {
+      return buffer[pos];
+    }
+    return -1;
   }
 
-  private int directRead() {
-    try {
-      return reader.read();
-    } catch (IOException e) {
-      throw new RuntimeException(e);
+  private int read() {
+    if (pos < limit || fill()) {
+      return buffer[pos++];
     }
+    return -1;
   }
 
-  private int read() {
-    try {
-      if (lookahead != -2) {
-        int tmp = lookahead;
-        lookahead = -2;
-        return tmp;
+  /**
+   * Reads the next block of input into the buffer, returns false if there is no more input.
+   * Called only once the buffer has been consumed, i.e., pos == limit.
+   */
+  private boolean fill() {
+    if (reader == null && source == null) {
+      // All of the input is already in the buffer.
+      return false;
+    }
+    int keep = 0;
+    if (mark >= 0) {
+      keep = limit - mark;
+      if (keep > (markString ? maxStringLength : maxNumberLength)) {
+        // Fail before buffering any more of a token that is too long.
+        throw markString ? limitExceeded("string", maxStringLength)
+            : limitExceeded("number", maxNumberLength);
+      }
+      if (keep == buffer.length) {
+        buffer = Arrays.copyOf(buffer, buffer.length * 2);
+      } else if (mark > 0) {
+        System.arraycopy(buffer, mark, buffer, 0, keep);
+      }
+      mark = 0;
+    }
+    int count = readInput(keep);
+    if (count > 0) {
+      boolean utf8 = reader instanceof Utf8Reader;
+      // UTF-8 input is counted in bytes, see ParseOptions.withMaxInputLength().
+      consumed = utf8 ? ((Utf8Reader) reader).bytesRead() : consumed + count;
+      if (stats != null && !utf8) {
+        encoded += utf8Length(buffer, keep, keep + count);
       }
-      return reader.read();
+      if (consumed > maxInputLength) {
+        throw new ParseException("json value", "at most " + maxInputLength
+            + (utf8 ? " bytes" : " chars") + " of input", "more");
+      }
+    }
+    pos = keep;
+    limit = keep + Math.max(count, 0);
+    return count > 0;
+  }
+
+  private int readInput(int offset) {
+    if (source != null) {
+      int count = Math.min(buffer.length - offset, source.length() - sourceOffset);
+      if (count == 0) {
+        return -1;
+      }
+      source.getChars(sourceOffset, sourceOffset + count, buffer, offset);
+      sourceOffset += count;
+      return count;
+    }
+    if (reader == null) {
+      return -1;
+    }
+    try {
+      int count;
+      do {
+        count = reader.read(buffer, offset, buffer.length - offset);
+      } while (count == 0);
+      return count;
     } catch (IOException e) {
       throw new RuntimeException(e);
     }
@@ -292,6 +961,14 @@ public class Tokenizer {
     return new Token(type, value);
   }
 
+  private static ParseException limitExceeded(String element, int limit) {
+    return limitExceeded(element, limit, "chars");
+  }
+
+  private static ParseException limitExceeded(String element, int limit, String unit) {
+    return new ParseException(element, "at most " + limit + " " + unit, "more");
+  }
+
   private ParseException parseError(String expected, String got, int ch) {
     if (ch == -1) {
       return new ParseException(expected, got);
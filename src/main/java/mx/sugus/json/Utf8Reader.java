@@ -0,0 +1,315 @@
+package mx.sugus.json;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.Arrays;
+
+/**
+ * Decodes UTF-8 input straight into the caller's buffer. ASCII, which covers all of JSON's
+ * structure, is copied as is, only multi-byte sequences are actually decoded and those are
+ * validated as they are found. Malformed input throws a {@link ParseException}.
+ * See https://tools.ietf.org/html/rfc3629
+ */
+class Utf8Reader extends Reader {
+
+  private static final int BLOCK_SIZE = 8192;
+  static final long MAPPING_SIZE = 256L * 1024 * 1024;
+
+  // Bytes are decoded from bytes[pos, limit). When reading from a stream or a
+  // direct buffer bytes is a scratch block refilled from it, otherwise it is
+  // the caller's array and there is nothing to refill. Files are read through
+  // a sequence of mappings of at most mappingSize bytes each, which lifts the
+  // 2 GB limit of a single mapping.
+  private final InputStream in;
+  private ByteBuffer direct;
+  private final FileChannel channel;
+  private final long mappingSize;
+  private long mapped;
+  private byte[] bytes;
+  private int pos;
+  private int limit;
+  // Bytes of input before bytes[0], less the offset of the caller's array, so that base + pos
+  // is the number of bytes decoded.
+  private long base;
+  private boolean eof;
+  // Low surrogate of a supplementary character that did not fit in the last read.
+  private char pending;
+
+  Utf8Reader(byte[] bytes, int offset, int length) {
+    this.in = null;
+    this.direct = null;
+    this.channel = null;
+    this.mappingSize = 0;
+    this.bytes = bytes;
+    this.pos = offset;
+    this.limit = offset + length;
+    this.base = -offset;
+    this.eof = true;
+  }
+
+  Utf8Reader(ByteBuffer buffer) {
+    this.in = null;
+    this.channel = null;
+    this.mappingSize = 0;
+    if (buffer.hasArray()) {
+      this.direct = null;
+      this.bytes = buffer.array();
+      this.pos = buffer.arrayOffset() + buffer.position();
+      this.limit = buffer.arrayOffset() + buffer.limit();
+      this.base = -pos;
+      this.eof = true;
+    } else {
+      this.direct = buffer.duplicate();
+      this.bytes = new byte[Math.min(BLOCK_SIZE, Math.max(4, buffer.remaining()))];
+    }
+  }
+
+  Utf8Reader(InputStream in) {
+    this.in = in;
+    this.direct = null;
+    this.channel = null;
+    this.mappingSize = 0;
+    this.bytes = new byte[BLOCK_SIZE];
+  }
+
+  /**
+   * Reads the whole file through read-only mappings of at most {@code mappingSize} bytes. The
+   * channel is not closed.
+   */
+  Utf8Reader(FileChannel channel, long mappingSize) throws IOException {
+    this.in = null;
+    this.channel = channel;
+    this.mappingSize = mappingSize;
+    this.direct = map();
+    this.bytes = new byte[(int) Math.min(BLOCK_SIZE, Math.max(4, channel.size()))];
+  }
+
+  /**
+   * Decodes bytes[offset, offset + length) into an array of exactly the decoded length.
+   */
+  static char[] decode(byte[] bytes, int offset, int length) {
+    // UTF-8 never needs more chars than bytes.
+    char[] chars = new char[length];
+    int count = 0;
+    try {
+      Utf8Reader reader = new Utf8Reader(bytes, offset, length);
+      int read;
+      while (count < chars.length && (read = reader.read(chars, count, chars.length - count)) > 0) {
+        count += read;
+      }
+    } catch (IOException e) {
+      throw new IllegalStateException("not reached", e);
+    }
+    return count < chars.length ? Arrays.copyOf(chars, count) : chars;
+  }
+
+  /**
+   * Starts over with bytes[offset, offset + length), only for readers over a byte array.
+   */
+  void reset(byte[] bytes, int offset, int length) {
+    this.bytes = bytes;
+    this.pos = offset;
+    this.limit = offset + length;
+    this.base = -offset;
+    this.pending = 0;
+  }
+
+  /**
+   * Moves to the given offset of the caller's array, only for readers over a byte array.
+   */
+  void seek(int offset) {
+    pos = offset;
+    pending = 0;
+  }
+
+  /**
+   * Returns the number of input bytes decoded so far.
+   */
+  long bytesRead() {
+    return base + pos;
+  }
+
+  /**
+   * Returns the number of input bytes available without refilling, a hint for sizing buffers.
+   */
+  int available() {
+    if (channel != null) {
+      return BLOCK_SIZE;
+    }
+    if (direct != null) {
+      return limit - pos + direct.remaining();
+    }
+    return limit - pos;
+  }
+
+  @Override
+  public int read(char[] cbuf, int off, int len) throws IOException {
+    if (len == 0) {
+      return 0;
+    }
+    int count = off;
+    int end = off + len;
+    if (pending != 0) {
+      cbuf[count++] = pending;
+      pending = 0;
+    }
+    byte[] bytes = this.bytes;
+    while (count < end) {
+      if (pos == limit && !refill()) {
+        break;
+      }
+      int p = pos;
+      int stop = Math.min(limit, p + (end - count));
+      // Checking runs of ASCII a word at a time, see Swar, measured no faster than this loop:
+      // the chars are stored one by one either way.
+      while (p < stop && bytes[p] >= 0) {
+        cbuf[count++] = (char) bytes[p++];
+      }
+      pos = p;
+      if (p < stop) {
+        int cp = decode();
+        if (cp < 0) {
+          // Incomplete sequence at the end of the block, refill() keeps the leftover.
+          if (!refill()) {
+            throw malformed(bytes[pos]);
+          }
+          continue;
+        }
+        if (cp < Character.MIN_SUPPLEMENTARY_CODE_POINT) {
+          cbuf[count++] = (char) cp;
+        } else {
+          cbuf[count++] = Character.highSurrogate(cp);
+          if (count < end) {
+            cbuf[count++] = Character.lowSurrogate(cp);
+          } else {
+            pending = Character.lowSurrogate(cp);
+          }
+        }
+      }
+    }
+    if (count == off) {
+      return -1;
+    }
+    return count - off;
+  }
+
+  /**
+   * Decodes the multi-byte sequence at pos, returns -1 if the sequence is not completely within
+   * the current block.
+   */
+  private int decode() {
+    int b0 = bytes[pos] & 0xFF;
+    int available = limit - pos;
+    int cp;
+    int length;
+    int min = 0x80;
+    int max = 0xBF;
+    if (b0 >= 0xC2 && b0 <= 0xDF) {
+      length = 2;
+      cp = b0 & 0x1F;
+    } else if (b0 >= 0xE0 && b0 <= 0xEF) {
+      length = 3;
+      cp = b0 & 0x0F;
+      if (b0 == 0xE0) {
+        min = 0xA0;
+      } else if (b0 == 0xED) {
+        max = 0x9F;
+      }
+    } else if (b0 >= 0xF0 && b0 <= 0xF4) {
+      length = 4;
+      cp = b0 & 0x07;
+      if (b0 == 0xF0) {
+        min = 0x90;
+      } else if (b0 == 0xF4) {
+        max = 0x8F;
+      }
+    } else {
+      throw malformed(b0);
+    }
+    if (available < length) {
+      // Validate what we have so far, errors must not wait for more input.
+      if (available > 1) {
+        checkContinuation(bytes[pos + 1] & 0xFF, min, max);
+      }
+      return -1;
+    }
+    int b1 = bytes[pos + 1] & 0xFF;
+    checkContinuation(b1, min, max);
+    cp = (cp << 6) | (b1 & 0x3F);
+    for (int i = 2; i < length; i++) {
+      int b = bytes[pos + i] & 0xFF;
+      checkContinuation(b, 0x80, 0xBF);
+      cp = (cp << 6) | (b & 0x3F);
+    }
+    pos += length;
+    return cp;
+  }
+
+  private void checkContinuation(int b, int min, int max) {
+    if (b < min || b > max) {
+      throw malformed(b);
+    }
+  }
+
+  /**
+   * Moves any unread bytes to the start of the block and reads more input after them. Returns
+   * false if there is no more input.
+   */
+  private boolean refill() throws IOException {
+    if (eof) {
+      return false;
+    }
+    int leftover = limit - pos;
+    System.arraycopy(bytes, pos, bytes, 0, leftover);
+    base += pos;
+    pos = 0;
+    limit = leftover;
+    int count;
+    if (direct != null) {
+      if (!direct.hasRemaining() && channel != null) {
+        direct = map();
+      }
+      count = Math.min(bytes.length - leftover, direct.remaining());
+      direct.get(bytes, leftover, count);
+      if (!direct.hasRemaining() && (channel == null || mapped == channel.size())) {
+        eof = true;
+      }
+    } else {
+      do {
+        count = in.read(bytes, leftover, bytes.length - leftover);
+      } while (count == 0);
+      if (count == -1) {
+        eof = true;
+        count = 0;
+      }
+    }
+    limit += count;
+    return count > 0;
+  }
+
+  /**
+   * Maps the next region of the file.
+   */
+  private ByteBuffer map() throws IOException {
+    long size = Math.min(mappingSize, channel.size() - mapped);
+    ByteBuffer buffer = channel.map(MapMode.READ_ONLY, mapped, size);
+    mapped += size;
+    return buffer;
+  }
+
+  private static ParseException malformed(int b) {
+    return new ParseException("UTF-8", "valid byte sequence",
+        String.format("0x%02X", b & 0xFF));
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (in != null) {
+      in.close();
+    }
+  }
+}
@@ -0,0 +1,145 @@
+package mx.sugus.json;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.util.Arrays;
+
+/**
+ * Encodes chars as UTF-8 into a block that is written to the stream when full. ASCII is copied
+ * as is. Unpaired surrogates, which have no UTF-8 encoding, are written as '?'.
+ * See https://tools.ietf.org/html/rfc3629
+ */
+class Utf8Writer extends Writer {
+
+  private static final int BLOCK_SIZE = 8192;
+
+  private final OutputStream out;
+  private final byte[] bytes = new byte[BLOCK_SIZE];
+  private int count;
+  // High surrogate at the end of the last write, waiting for its low surrogate.
+  private char pending;
+
+  Utf8Writer(OutputStream out) {
+    this.out = out;
+  }
+
+  /**
+   * Encodes chars[offset, offset + length) into an array of exactly the encoded length.
+   */
+  static byte[] encode(char[] chars, int offset, int length) {
+    int end = offset + length;
+    int i = offset;
+    while (i < end && chars[i] < 0x80) {
+      i++;
+    }
+    if (i == end) {
+      byte[] ascii = new byte[length];
+      for (int j = 0; j < length; j++) {
+        ascii[j] = (byte) chars[offset + j];
+      }
+      return ascii;
+    }
+    // At most three bytes per char, supplementary characters take four for two chars.
+    byte[] bytes = new byte[(i - offset) + (end - i) * 3];
+    int count = 0;
+    for (int j = offset; j < i; j++) {
+      bytes[count++] = (byte) chars[j];
+    }
+    while (i < end) {
+      char ch = chars[i++];
+      if (ch < 0x80) {
+        bytes[count++] = (byte) ch;
+      } else if (ch < 0x800) {
+        bytes[count++] = (byte) (0xC0 | (ch >> 6));
+        bytes[count++] = (byte) (0x80 | (ch & 0x3F));
+      } else if (Character.isHighSurrogate(ch) && i < end
+          && Character.isLowSurrogate(chars[i])) {
+        count = encodeSupplementary(Character.toCodePoint(ch, chars[i++]), bytes, count);
+      } else if (Character.isSurrogate(ch)) {
+        bytes[count++] = '?';
+      } else {
+        bytes[count++] = (byte) (0xE0 | (ch >> 12));
+        bytes[count++] = (byte) (0x80 | ((ch >> 6) & 0x3F));
+        bytes[count++] = (byte) (0x80 | (ch & 0x3F));
+      }
+    }
+    return Arrays.copyOf(bytes, count);
+  }
+
+  private static int encodeSupplementary(int cp, byte[] bytes, int count) {
+    bytes[count++] = (byte) (0xF0 | (cp >> 18));
+    bytes[count++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+    bytes[count++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+    bytes[count++] = (byte) (0x80 | (cp & 0x3F));
+    return count;
+  }
+
+  @Override
+  public void write(char[] cbuf, int off, int len) throws IOException {
+    int end = off + len;
+    int i = off;
+    while (i < end) {
+      if (count > bytes.length - 4) {
+        flushBlock();
+      }
+      // Copy ASCII while there is room for it.
+      int stop = Math.min(end, i + bytes.length - count);
+      char ch;
+      while (i < stop && (ch = cbuf[i]) < 0x80 && pending == 0) {
+        bytes[count++] = (byte) ch;
+        i++;
+      }
+      if (i == stop) {
+        continue;
+      }
+      ch = cbuf[i++];
+      if (pending != 0) {
+        if (Character.isLowSurrogate(ch)) {
+          count = encodeSupplementary(Character.toCodePoint(pending, ch), bytes, count);
+          pending = 0;
+          continue;
+        }
+        pending = 0;
+        bytes[count++] = '?';
+        i--;
+      } else if (ch < 0x800) {
+        bytes[count++] = (byte) (0xC0 | (ch >> 6));
+        bytes[count++] = (byte) (0x80 | (ch & 0x3F));
+      } else if (Character.isHighSurrogate(ch)) {
+        pending = ch;
+      } else if (Character.isLowSurrogate(ch)) {
+        bytes[count++] = '?';
+      } else {
+        bytes[count++] = (byte) (0xE0 | (ch >> 12));
+        bytes[count++] = (byte) (0x80 | ((ch >> 6) & 0x3F));
+        bytes[count++] = (byte) (0x80 | (ch & 0x3F));
+      }
+    }
+  }
+
+  private void flushBlock() throws IOException {
+    out.write(bytes, 0, count);
+    count = 0;
+  }
+
+  /**
+   * Writes the encoded bytes to the stream and flushes it. A high surrogate at the end of the
+   * input so far is kept until the next write.
+   */
+  @Override
+  public void flush() throws IOException {
+    flushBlock();
+    out.flush();
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (pending != 0) {
+      pending = 0;
+      bytes[count++] = '?';
+    }
+    flushBlock();
+    out.close();
+  }
+}
@@ -0,0 +1,42 @@
+package mx.sugus.json;
+
+/**
+ * Options for {@link JsonWriter}. Instances are immutable, each {@code with} method returns a
+ * copy with the option changed, so options can be shared between writers and threads.
+ */
+public final class WriteOptions {
+
+  /**
+   * The default options, compact output without any whitespace.
+   */
+  public static final WriteOptions DEFAULT = new WriteOptions();
+
+  private int indent;
+
+  private WriteOptions() {
+  }
+
+  private WriteOptions(WriteOptions other) {
+    this.indent = other.indent;
+  }
+
+  /**
+   * Returns the number of spaces each nesting level is indented by, 0 for compact output.
+   */
+  public int indent() {
+    return indent;
+  }
+
+  /**
+   * Pretty prints the output, each element and key value pair on its own line indented by the
+   * given number of spaces per nesting level. 0 writes compact output.
+   */
+  public WriteOptions withIndent(int indent) {
+    if (indent < 0) {
+      throw new IllegalArgumentException("indent must not be negative: " + indent);
+    }
+    WriteOptions options = new WriteOptions(this);
+    options.indent = indent;
+    return options;
+  }
+}
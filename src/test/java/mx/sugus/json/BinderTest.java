@@ -0,0 +1,447 @@
+package mx.sugus.json;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.tools.ToolProvider;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class BinderTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  enum Color {
+    RED, GREEN
+  }
+
+  static class Base {
+    long id;
+    String name = "base";
+  }
+
+  static class Point {
+    int x;
+    int y;
+  }
+
+  static class Item extends Base {
+    boolean active;
+    byte b;
+    short s;
+    char c;
+    float f;
+    double d;
+    Integer boxed;
+    BigDecimal price;
+    Color color;
+    Point point;
+    List<Point> points;
+    Set<String> tags;
+    Map<String, List<Integer>> groups;
+    int[] numbers;
+    Point[] grid;
+    Object any;
+    transient int skipped;
+  }
+
+  static class Node {
+    String name;
+    Node next;
+  }
+
+  static class Tree {
+    List<Tree> children;
+  }
+
+  private static class NoDefaultConstructor {
+    final int x;
+
+    NoDefaultConstructor(int x) {
+      this.x = x;
+    }
+  }
+
+  @Test
+  public void testBindObject() {
+    // Arrange
+    Parser parser = new Parser("{\"id\": 12345678901, \"active\": true, \"b\": -8, \"s\": 300,"
+        + " \"c\": \"z\", \"f\": 1.5, \"d\": 2e3, \"boxed\": 7, \"price\": 9.99, \"color\": \"GREEN\","
+        + " \"point\": {\"x\": 1, \"y\": 2}, \"points\": [{\"x\": 3}, null],"
+        + " \"tags\": [\"a\", \"b\", \"a\"], \"groups\": {\"g\": [1, 2]}, \"numbers\": [4, 5, 6],"
+        + " \"grid\": [{\"y\": 9}], \"any\": {\"k\": [1]}, \"skipped\": 1}");
+
+    // Act
+    Item item = parser.parse(Item.class);
+
+    // Assert
+    assertEquals(12345678901L, item.id);
+    assertEquals("base", item.name);
+    assertTrue(item.active);
+    assertEquals(-8, item.b);
+    assertEquals(300, item.s);
+    assertEquals('z', item.c);
+    assertEquals(1.5f, item.f, 0);
+    assertEquals(2000, item.d, 0);
+    assertEquals(Integer.valueOf(7), item.boxed);
+    assertEquals(new BigDecimal("9.99"), item.price);
+    assertEquals(Color.GREEN, item.color);
+    assertEquals(2, item.point.y);
+    assertEquals(3, item.points.get(0).x);
+    assertNull(item.points.get(1));
+    assertEquals(new LinkedHashSet<>(Arrays.asList("a", "b")), item.tags);
+    assertEquals(Arrays.asList(1, 2), item.groups.get("g"));
+    assertArrayEquals(new int[]{4, 5, 6}, item.numbers);
+    assertEquals(9, item.grid[0].y);
+    assertEquals(Collections.singletonMap("k", Arrays.asList(1L)), item.any);
+    assertEquals(0, item.skipped);
+  }
+
+  @Test
+  public void testSkipUnknownKeys() {
+    // Arrange
+    Parser parser = new Parser("{\"z\": {\"x\": [1, {\"y\": 2}]}, \"x\": 4, \"xx\": 5}");
+
+    // Act
+    Point point = parser.parse(Point.class);
+
+    // Assert
+    assertEquals(4, point.x);
+    assertEquals(0, point.y);
+  }
+
+  @Test
+  public void testSkipValidatesUnknownKeys() {
+    // Arrange
+    String[] documents = {"{\"z\": [tru], \"x\": 1}", "{\"z\": {1: 2 3}, \"x\": 1}",
+        "{\"z\": [1 2], \"x\": 1}", "{\"z\": {\"a\" 1}, \"x\": 1}",
+        "{\"z\": [1, {\"a\": [}]], \"x\": 1}", "{\"z\": [1,, 2], \"x\": 1}",
+        "{\"z\": 12abc, \"x\": 1}", "{\"z\": [[[1]], \"x\": 1}"};
+
+    for (String json : documents) {
+      // Act
+      try {
+        new Parser(json).parse(Point.class);
+        assertTrue(json, false);
+      } catch (ParseException expected) {
+        // Assert
+        try {
+          new Parser(json).parse();
+          assertTrue(json, false);
+        } catch (ParseException alsoExpected) {
+          // Rejected by both.
+        }
+      }
+    }
+    Point point = new Parser("{\"z\": [{}, [], {\"a\": [1, null]},], \"x\": 1}")
+        .parse(Point.class);
+    assertEquals(1, point.x);
+  }
+
+  @Test
+  public void testBindTopLevelValues() {
+    // Act & Assert
+    assertEquals(Integer.valueOf(42), new Parser("42").parse(int.class));
+    assertEquals(Long.valueOf(42), new Parser("42.0").parse(Long.class));
+    assertEquals("s", new Parser("\"s\"").parse(String.class));
+    assertNull(new Parser("null").parse(Point.class));
+    assertEquals(Color.RED, new Parser("\"RED\"").parse(Color.class));
+    assertEquals(2, new Parser("[{}, {}]").parse(Point[].class).length);
+  }
+
+  @Test
+  public void testBindLinkedNodes() {
+    // Arrange
+    Parser parser = new Parser("{\"name\": \"a\", \"next\": {\"name\": \"b\", \"next\": null}}");
+
+    // Act
+    Node node = parser.parse(Node.class);
+
+    // Assert
+    assertEquals("a", node.name);
+    assertEquals("b", node.next.name);
+    assertNull(node.next.next);
+  }
+
+  @Test
+  public void testBindTree() {
+    // Arrange
+    Parser parser = new Parser("{\"children\": [{\"children\": [{}]}, {\"children\": []}]}");
+
+    // Act
+    Tree tree = parser.parse(Tree.class);
+
+    // Assert
+    assertEquals(2, tree.children.size());
+    assertEquals(1, tree.children.get(0).children.size());
+    assertNull(tree.children.get(0).children.get(0).children);
+    assertTrue(tree.children.get(1).children.isEmpty());
+  }
+
+  @Test
+  public void testDeepRecursiveType() {
+    // Arrange
+    String shallow = String.join("", Collections.nCopies(999, "{\"next\": ")) + "null"
+        + String.join("", Collections.nCopies(999, "}"));
+    String deep = String.join("", Collections.nCopies(200_000, "{\"next\": ")) + "null"
+        + String.join("", Collections.nCopies(200_000, "}"));
+
+    // Act
+    Node node = new Parser(shallow).parse(Node.class);
+
+    // Assert
+    int depth = 0;
+    for (; node != null; node = node.next) {
+      depth++;
+    }
+    assertEquals(999, depth);
+    try {
+      // Act
+      new Parser(deep).parse(Node.class);
+      assertTrue(false);
+    } catch (ParseException expected) {
+      // Assert
+      assertTrue(expected.getMessage(), expected.getMessage().contains("at most 1000 levels"));
+    }
+  }
+
+  @Test
+  public void testBindFloatsRoundedOnce() {
+    // Arrange, the closest double is 1.0000001788139343, halfway between two floats.
+    String number = "1.00000017881393432617187499";
+
+    // Act
+    Item item = new Parser("{\"f\": " + number + "}").parse(Item.class);
+    float[] floats = new Parser("[" + number + ", -16777217, 3]").parse(float[].class);
+    Float boxed = new Parser(number).parse(Float.class);
+
+    // Assert
+    assertEquals(Float.parseFloat(number), item.f, 0);
+    assertArrayEquals(new float[] {Float.parseFloat(number), -16777216f, 3f}, floats, 0);
+    assertEquals(Float.parseFloat(number), boxed, 0);
+    assertTrue(Float.parseFloat(number) != (float) Double.parseDouble(number));
+  }
+
+  @Test
+  public void testBindPrimitiveArrays() {
+    // Act & Assert
+    assertArrayEquals(new long[] {1, -2, 9007199254740993L},
+        new Parser("[1, -2, 9007199254740993]").parse(long[].class));
+    assertArrayEquals(new double[] {1.5, -2, 1e300},
+        new Parser("[1.5, -2, 1e300]").parse(double[].class), 0);
+    assertArrayEquals(new float[] {0.5f}, new Parser("[0.5]").parse(float[].class), 0);
+    assertArrayEquals(new short[] {-300}, new Parser("[-300]").parse(short[].class));
+    assertArrayEquals(new byte[0], new Parser("[]").parse(byte[].class));
+    assertArrayEquals(new boolean[] {true, false},
+        new Parser("[true, false]").parse(boolean[].class));
+    int[] ints = new Parser(Arrays.toString(new int[20]).replace(" ", "")).parse(int[].class);
+    assertEquals(20, ints.length);
+  }
+
+  @Test(expected = ParseException.class)
+  public void testPrimitiveArrayOverflow() {
+    // Arrange
+    Parser parser = new Parser("[1, 128]");
+
+    // Act
+    parser.parse(byte[].class);
+
+    // Assert
+    assertTrue(false);
+  }
+
+  @Test(expected = ParseException.class)
+  public void testIntOverflow() {
+    // Arrange
+    Parser parser = new Parser("{\"x\": 2147483648}");
+
+    // Act
+    parser.parse(Point.class);
+
+    // Assert
+    assertTrue(false);
+  }
+
+  @Test(expected = ParseException.class)
+  public void testFraction() {
+    // Arrange
+    Parser parser = new Parser("{\"x\": 1.5}");
+
+    // Act
+    parser.parse(Point.class);
+
+    // Assert
+    assertTrue(false);
+  }
+
+  @Test
+  public void testBigInteger() {
+    // Arrange
+    String json = "[1.5e3, 0e-1000000000, 12345678901234567890]";
+
+    // Act
+    BigInteger[] values = new Parser(json).parse(BigInteger[].class);
+
+    // Assert
+    assertArrayEquals(new BigInteger[] {BigInteger.valueOf(1500), BigInteger.ZERO,
+        new BigInteger("12345678901234567890")}, values);
+  }
+
+  @Test
+  public void testBigIntegerDigits() {
+    // Arrange
+    ParseOptions options = ParseOptions.DEFAULT.withMaxNumberLength(20);
+    String[] documents = {"1e1000000000", "1e-1000000000", "1e10000", "1e20"};
+    String[] messages = {"at most 10000 integer digits", "integer", "at most 10000", "at most 20"};
+
+    for (int i = 0; i < documents.length; i++) {
+      Parser parser = new Parser(documents[i], i < 3 ? ParseOptions.DEFAULT : options);
+      try {
+        // Act
+        parser.parse(BigInteger.class);
+        assertTrue(documents[i], false);
+      } catch (ParseException expected) {
+        // Assert
+        assertTrue(expected.getMessage(), expected.getMessage().contains(messages[i]));
+      }
+    }
+    assertEquals(BigInteger.TEN.pow(9999), new Parser("1e9999").parse(BigInteger.class));
+    assertEquals(BigInteger.TEN.pow(19), new Parser("1e19", options).parse(BigInteger.class));
+  }
+
+  @Test(expected = ParseException.class)
+  public void testNullPrimitive() {
+    // Arrange
+    Parser parser = new Parser("{\"x\": null}");
+
+    // Act
+    parser.parse(Point.class);
+
+    // Assert
+    assertTrue(false);
+  }
+
+  @Test(expected = ParseException.class)
+  public void testWrongType() {
+    // Arrange
+    Parser parser = new Parser("{\"x\": \"1\"}");
+
+    // Act
+    parser.parse(Point.class);
+
+    // Assert
+    assertTrue(false);
+  }
+
+  @Test(expected = ParseException.class)
+  public void testUnknownEnumConstant() {
+    // Arrange
+    Parser parser = new Parser("\"BLUE\"");
+
+    // Act
+    parser.parse(Color.class);
+
+    // Assert
+    assertTrue(false);
+  }
+
+  @Test(expected = ParseException.class)
+  public void testTrailingValue() {
+    // Arrange
+    Parser parser = new Parser("{} {}");
+
+    // Act
+    parser.parse(Point.class);
+
+    // Assert
+    assertTrue(false);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNoDefaultConstructor() {
+    // Arrange
+    Parser parser = new Parser("{\"x\": 1}");
+
+    // Act
+    parser.parse(NoDefaultConstructor.class);
+
+    // Assert
+    assertTrue(false);
+  }
+
+  @Test
+  public void testBindRecords() throws Exception {
+    // Arrange, records cannot be written in the Java 11 sources of the tests.
+    assumeTrue(Runtime.version().feature() >= 16);
+    Path directory = folder.getRoot().toPath();
+    Path source = directory.resolve("Records.java");
+    Files.write(source, ("public class Records {\n"
+        + "  public record Line(String name, int x, double y, boolean on, java.util.List<Line> next)"
+        + " {}\n"
+        + "  record Range(int low, int high) {\n"
+        + "    Range {\n"
+        + "      if (low > high) throw new IllegalArgumentException(\"low > high\");\n"
+        + "    }\n"
+        + "  }\n"
+        + "}\n").getBytes(StandardCharsets.UTF_8));
+    assertEquals(0, ToolProvider.getSystemJavaCompiler().run(null, null, null, "-d",
+        directory.toString(), source.toString()));
+    try (URLClassLoader loader = new URLClassLoader(new URL[] {directory.toUri().toURL()})) {
+      Class<?> line = loader.loadClass("Records$Line");
+      Class<?> range = loader.loadClass("Records$Range");
+
+      // Act
+      Object value = new Parser("{\"name\": \"a\", \"x\": 1, \"y\": 2.5, \"on\": true,"
+          + " \"next\": [{\"name\": \"b\", \"skipped\": [1, {}]}], \"x\": 3}").parse(line);
+
+      // Assert
+      assertEquals("Line[name=a, x=3, y=2.5, on=true,"
+          + " next=[Line[name=b, x=0, y=0.0, on=false, next=null]]]", value.toString());
+      assertEquals("Range[low=1, high=2]",
+          new Parser("{\"high\": 2, \"low\": 1}").parse(range).toString());
+      try {
+        new Parser("{\"low\": 3, \"high\": 2}").parse(range);
+        assertTrue(false);
+      } catch (IllegalArgumentException expected) {
+        // Thrown by the compact constructor.
+        assertEquals("low > high", expected.getMessage());
+      }
+      try {
+        new Parser("{\"x\": null}").parse(line);
+        assertTrue(false);
+      } catch (ParseException expected) {
+        // Null does not bind to primitives.
+      }
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testAbstractClass() {
+    // Arrange
+    Parser parser = new Parser("1");
+
+    // Act
+    parser.parse(Runnable.class);
+
+    // Assert
+    assertTrue(false);
+  }
+}
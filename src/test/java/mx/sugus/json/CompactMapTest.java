@@ -0,0 +1,117 @@
+package mx.sugus.json;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.Test;
+
+public class CompactMapTest {
+
+  @Test
+  public void testSmallMap() {
+    // Arrange
+    Object[] pairs = {"a", 1L, "b", null, "c", "x"};
+
+    // Act
+    Map<String, Object> map = CompactMap.of(pairs, 0, pairs.length);
+
+    // Assert
+    assertEquals(3, map.size());
+    assertEquals(1L, map.get("a"));
+    assertNull(map.get("b"));
+    assertTrue(map.containsKey("b"));
+    assertFalse(map.containsKey("d"));
+    assertEquals(expected(pairs), map);
+    assertEquals(expected(pairs).hashCode(), map.hashCode());
+  }
+
+  @Test
+  public void testLargeMap() {
+    // Arrange
+    Object[] pairs = new Object[200];
+    for (int i = 0; i < pairs.length; i += 2) {
+      pairs[i] = "key" + i;
+      pairs[i + 1] = (long) i;
+    }
+
+    // Act
+    Map<String, Object> map = CompactMap.of(pairs, 0, pairs.length);
+
+    // Assert
+    assertTrue(map instanceof CompactMap);
+    assertEquals(100, map.size());
+    assertEquals(42L, map.get("key42"));
+    assertNull(map.get("key43"));
+    assertEquals(expected(pairs), map);
+  }
+
+  @Test
+  public void testRepeatedKeysKeepLastValue() {
+    // Arrange
+    Object[] small = {"a", 1L, "b", 2L, "a", 3L};
+    Object[] large = new Object[40];
+    for (int i = 0; i < large.length; i += 2) {
+      large[i] = "key" + (i % 10);
+      large[i + 1] = (long) i;
+    }
+
+    // Act
+    Map<String, Object> smallMap = CompactMap.of(small, 0, small.length);
+    Map<String, Object> largeMap = CompactMap.of(large, 0, large.length);
+
+    // Assert
+    assertEquals(expected(small), smallMap);
+    assertEquals(expected(large), largeMap);
+    assertEquals(5, largeMap.size());
+  }
+
+  @Test
+  public void testCollidingKeys() {
+    // Arrange, "Aa" and "BB" share a hash code, and so do all keys made of 16 of them.
+    Object[] pairs = new Object[1 << 17];
+    for (int i = 0; i < pairs.length; i += 2) {
+      StringBuilder key = new StringBuilder();
+      for (int bit = 0; bit < 16; bit++) {
+        key.append((i >> (bit + 1) & 1) == 0 ? "Aa" : "BB");
+      }
+      pairs[i] = key.toString();
+      pairs[i + 1] = (long) i;
+    }
+
+    // Act
+    Map<String, Object> map = CompactMap.of(pairs, 0, pairs.length);
+
+    // Assert
+    assertFalse(map instanceof CompactMap);
+    assertEquals(pairs[0].hashCode(), pairs[pairs.length - 2].hashCode());
+    assertEquals(1 << 16, map.size());
+    assertEquals(42L, map.get(pairs[42]));
+    assertNull(map.get("AaAa"));
+    assertEquals(expected(pairs), map);
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void testImmutable() {
+    // Arrange
+    Object[] pairs = {"a", 1L};
+    Map<String, Object> map = CompactMap.of(pairs, 0, pairs.length);
+
+    // Act
+    map.put("b", 2L);
+
+    // Assert
+    assertTrue(false);
+  }
+
+  private static Map<String, Object> expected(Object[] pairs) {
+    Map<String, Object> result = new HashMap<>();
+    for (int i = 0; i < pairs.length; i += 2) {
+      result.put((String) pairs[i], pairs[i + 1]);
+    }
+    return result;
+  }
+}
@@ -0,0 +1,234 @@
+package mx.sugus.json;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Test;
+
+public class FeedParserTest {
+
+  private static final String DOCUMENTS =
+      "{\"a\": [1, 2.5, -3e2, \"x\\n\\\"]\"], \"b\": {\"c\": null}}\n"
+          + "[\"café 😀\", \"\\u00e9\\\\\", {}, [[]]]"
+          + "\"}{\" 123 true\tnull false \"\" -0.5";
+
+  @Test
+  public void testFeedByteAtATime() {
+    // Arrange
+    byte[] bytes = DOCUMENTS.getBytes(StandardCharsets.UTF_8);
+    FeedParser parser = new FeedParser();
+    List<Object> values = new ArrayList<>();
+
+    // Act
+    for (int i = 0; i < bytes.length; i++) {
+      parser.feed(bytes, i, 1);
+      while (parser.hasNext()) {
+        values.add(parser.next());
+      }
+    }
+    parser.end();
+    while (parser.hasNext()) {
+      values.add(parser.next());
+    }
+
+    // Assert
+    assertEquals(expected(DOCUMENTS), values);
+    assertFalse(parser.needsInput());
+  }
+
+  @Test
+  public void testFeedChunks() {
+    // Arrange
+    byte[] bytes = DOCUMENTS.getBytes(StandardCharsets.UTF_8);
+    List<Object> expected = expected(DOCUMENTS);
+
+    for (int size : new int[] {2, 3, 7, 64, bytes.length}) {
+      FeedParser parser = new FeedParser(ParseOptions.DEFAULT, 64);
+      List<Object> values = new ArrayList<>();
+
+      // Act
+      for (int i = 0; i < bytes.length; i += size) {
+        parser.feed(ByteBuffer.wrap(bytes, i, Math.min(size, bytes.length - i)));
+        while (parser.hasNext()) {
+          values.add(parser.next());
+        }
+      }
+      parser.end();
+      while (parser.hasNext()) {
+        values.add(parser.next());
+      }
+
+      // Assert
+      assertEquals("chunks of " + size, expected, values);
+    }
+  }
+
+  @Test
+  public void testNeedsInput() {
+    // Arrange
+    FeedParser parser = new FeedParser();
+
+    // Act
+    parser.feed(bytes("{\"a\": [1, 2"));
+
+    // Assert
+    assertTrue(parser.needsInput());
+    assertFalse(parser.hasNext());
+
+    // Act
+    parser.feed(bytes("]} 12"));
+
+    // Assert
+    assertFalse(parser.needsInput());
+    assertEquals(Collections.singletonMap("a", Arrays.asList(1L, 2L)), parser.next());
+    assertTrue(parser.needsInput());
+
+    // Act
+    parser.end();
+
+    // Assert
+    assertEquals(12L, parser.next());
+    assertFalse(parser.hasNext());
+    assertFalse(parser.needsInput());
+  }
+
+  @Test
+  public void testNull() {
+    // Arrange
+    FeedParser parser = new FeedParser();
+
+    // Act
+    parser.feed(bytes("null "));
+
+    // Assert
+    assertTrue(parser.hasNext());
+    assertNull(parser.next());
+  }
+
+  @Test(expected = ParseException.class)
+  public void testEndWithinValue() {
+    // Arrange
+    FeedParser parser = new FeedParser();
+    parser.feed(bytes("[1, \"a"));
+
+    // Act
+    parser.end();
+
+    // Assert
+    assertTrue(false);
+  }
+
+  @Test(expected = ParseException.class)
+  public void testUnexpectedClose() {
+    // Arrange
+    FeedParser parser = new FeedParser();
+
+    // Act
+    parser.feed(bytes("[1] ]"));
+
+    // Assert
+    assertTrue(false);
+  }
+
+  @Test(expected = ParseException.class)
+  public void testInvalidValue() {
+    // Arrange
+    FeedParser parser = new FeedParser();
+
+    // Act
+    parser.feed(bytes("{\"a\" 1}"));
+
+    // Assert
+    assertTrue(false);
+  }
+
+  @Test
+  public void testMaxDocumentSize() {
+    // Arrange
+    FeedParser parser = new FeedParser(ParseOptions.DEFAULT, 16);
+    parser.feed(bytes("[1, 2, 3, 4, 5]\n[6, 7, 8, 9, 10]\n"));
+    assertEquals(Arrays.asList(1L, 2L, 3L, 4L, 5L), parser.next());
+    assertEquals(Arrays.asList(6L, 7L, 8L, 9L, 10L), parser.next());
+
+    try {
+      // Act
+      parser.feed(bytes("[\"" + String.join("", Collections.nCopies(20, "x"))));
+      assertTrue(false);
+    } catch (ParseException expected) {
+      // Assert
+      assertTrue(expected.getMessage(), expected.getMessage().contains("at most 16 bytes"));
+    }
+  }
+
+  @Test
+  public void testArrayElements() {
+    // Arrange
+    String json = " [1, \"a,]\", {\"b\": [2, 3]}, [], null, -1.5e3,]\n[true] ";
+    byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+    FeedParser parser = FeedParser.arrayElements(ParseOptions.DEFAULT, 16);
+    List<Object> values = new ArrayList<>();
+
+    // Act
+    for (int i = 0; i < bytes.length; i++) {
+      parser.feed(bytes, i, 1);
+      while (parser.hasNext()) {
+        values.add(parser.next());
+      }
+    }
+    parser.end();
+
+    // Assert
+    assertEquals(Arrays.asList(1L, "a,]", Collections.singletonMap("b", Arrays.asList(2L, 3L)),
+        Collections.emptyList(), null, -1.5e3, true), values);
+  }
+
+  @Test
+  public void testInvalidArrayElements() {
+    for (String json : new String[] {"{}", "1", "[1 2]", "[,1]", "[1,,2]", "[1}", "[1:2]", "[1"}) {
+      // Arrange
+      FeedParser parser = FeedParser.arrayElements(ParseOptions.DEFAULT, 16);
+      try {
+        // Act
+        parser.feed(bytes(json));
+        parser.end();
+        assertTrue(json, false);
+      } catch (ParseException expected) {
+        // Assert
+      }
+    }
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testFeedAfterEnd() {
+    // Arrange
+    FeedParser parser = new FeedParser();
+    parser.end();
+
+    // Act
+    parser.feed(bytes("1"));
+
+    // Assert
+    assertTrue(false);
+  }
+
+  private static List<Object> expected(String json) {
+    Parser parser = new Parser(json);
+    List<Object> values = new ArrayList<>();
+    while (parser.hasNext()) {
+      values.add(parser.parseNext());
+    }
+    return values;
+  }
+
+  private static ByteBuffer bytes(String json) {
+    return ByteBuffer.wrap(json.getBytes(StandardCharsets.UTF_8));
+  }
+}
@@ -0,0 +1,234 @@
+package mx.sugus.json;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+public class FlowParserTest {
+
+  @Test
+  public void testValues() {
+    // Arrange
+    ChunkPublisher publisher = new ChunkPublisher("{\"a\": [1,", " 2]} \"x", "\" 3", " null");
+    FlowParser processor = new FlowParser();
+    RecordingSubscriber subscriber = new RecordingSubscriber();
+    publisher.subscribe(processor);
+    processor.subscribe(subscriber);
+
+    // Act
+    subscriber.subscription.request(Long.MAX_VALUE);
+
+    // Assert
+    assertEquals(Arrays.asList(Collections.singletonMap("a", Arrays.asList(1L, 2L)), "x", 3L,
+        null), subscriber.values);
+    assertTrue(subscriber.completed);
+    assertNull(subscriber.error);
+  }
+
+  @Test
+  public void testBackpressure() {
+    // Arrange
+    ChunkPublisher publisher = new ChunkPublisher("[1, 2", ", 3]", "[4]");
+    FlowParser processor = new FlowParser(FeedParser.arrayElements(ParseOptions.DEFAULT, 1024));
+    RecordingSubscriber subscriber = new RecordingSubscriber();
+    publisher.subscribe(processor);
+    processor.subscribe(subscriber);
+
+    // Act
+    subscriber.subscription.request(1);
+
+    // Assert
+    assertEquals(Arrays.asList(1L), subscriber.values);
+    assertEquals(1, publisher.requested);
+
+    // Act
+    subscriber.subscription.request(1);
+
+    // Assert
+    assertEquals(Arrays.asList(1L, 2L), subscriber.values);
+    assertEquals(2, publisher.requested);
+
+    // Act
+    subscriber.subscription.request(2);
+
+    // Assert
+    assertEquals(Arrays.asList(1L, 2L, 3L, 4L), subscriber.values);
+    assertFalse(subscriber.completed);
+
+    // Act
+    subscriber.subscription.request(1);
+
+    // Assert
+    assertTrue(subscriber.completed);
+  }
+
+  @Test
+  public void testInvalidInput() {
+    // Arrange
+    ChunkPublisher publisher = new ChunkPublisher("[1] ", "]", "[2]");
+    FlowParser processor = new FlowParser();
+    RecordingSubscriber subscriber = new RecordingSubscriber();
+    publisher.subscribe(processor);
+    processor.subscribe(subscriber);
+
+    // Act
+    subscriber.subscription.request(10);
+
+    // Assert
+    assertEquals(Arrays.asList(Arrays.asList(1L)), subscriber.values);
+    assertTrue(subscriber.error instanceof ParseException);
+    assertTrue(publisher.cancelled);
+    assertFalse(subscriber.completed);
+  }
+
+  @Test
+  public void testCancel() {
+    // Arrange
+    ChunkPublisher publisher = new ChunkPublisher("1 2 3 4 ");
+    FlowParser processor = new FlowParser();
+    RecordingSubscriber subscriber = new RecordingSubscriber();
+    publisher.subscribe(processor);
+    processor.subscribe(subscriber);
+    subscriber.subscription.request(1);
+
+    // Act
+    subscriber.subscription.cancel();
+    subscriber.subscription.request(1);
+
+    // Assert
+    assertEquals(Arrays.asList(1L), subscriber.values);
+    assertTrue(publisher.cancelled);
+    assertFalse(subscriber.completed);
+  }
+
+  @Test
+  public void testSubmissionPublisher() throws Exception {
+    // Arrange
+    StringBuilder json = new StringBuilder("[");
+    List<Object> expected = new ArrayList<>();
+    for (int i = 0; i < 1000; i++) {
+      json.append("{\"id\": ").append(i).append("},");
+      expected.add(Collections.singletonMap("id", (long) i));
+    }
+    json.append("]");
+    byte[] bytes = json.toString().getBytes(StandardCharsets.UTF_8);
+    FlowParser processor = new FlowParser(FeedParser.arrayElements(ParseOptions.DEFAULT, 64));
+    List<Object> values = Collections.synchronizedList(new ArrayList<>());
+
+    // Act
+    CompletableFuture<Void> consumed;
+    try (SubmissionPublisher<ByteBuffer> publisher = new SubmissionPublisher<>()) {
+      publisher.subscribe(processor);
+      CompletableFuture<Void> future = new CompletableFuture<>();
+      processor.subscribe(new Flow.Subscriber<Object>() {
+        private Flow.Subscription subscription;
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+          this.subscription = subscription;
+          subscription.request(1);
+        }
+
+        @Override
+        public void onNext(Object item) {
+          values.add(item);
+          subscription.request(1);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+          future.completeExceptionally(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+          future.complete(null);
+        }
+      });
+      consumed = future;
+      for (int i = 0; i < bytes.length; i += 5) {
+        publisher.submit(ByteBuffer.wrap(bytes, i, Math.min(5, bytes.length - i)));
+      }
+    }
+    consumed.get(10, TimeUnit.SECONDS);
+
+    // Assert
+    assertEquals(expected, values);
+  }
+
+  private static class ChunkPublisher implements Flow.Publisher<ByteBuffer> {
+
+    private final List<String> chunks;
+    private int next;
+    private int requested;
+    private boolean cancelled;
+
+    ChunkPublisher(String... chunks) {
+      this.chunks = Arrays.asList(chunks);
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super ByteBuffer> subscriber) {
+      subscriber.onSubscribe(new Flow.Subscription() {
+        @Override
+        public void request(long n) {
+          for (long i = 0; i < n && !cancelled; i++) {
+            requested++;
+            if (next == chunks.size()) {
+              subscriber.onComplete();
+              return;
+            }
+            subscriber.onNext(ByteBuffer.wrap(
+                chunks.get(next++).getBytes(StandardCharsets.UTF_8)));
+          }
+        }
+
+        @Override
+        public void cancel() {
+          cancelled = true;
+        }
+      });
+    }
+  }
+
+  private static class RecordingSubscriber implements Flow.Subscriber<Object> {
+
+    private final List<Object> values = new ArrayList<>();
+    private Flow.Subscription subscription;
+    private boolean completed;
+    private Throwable error;
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+      this.subscription = subscription;
+    }
+
+    @Override
+    public void onNext(Object item) {
+      values.add(item);
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+      error = throwable;
+    }
+
+    @Override
+    public void onComplete() {
+      completed = true;
+    }
+  }
+}
@@ -0,0 +1,222 @@
+package mx.sugus.json;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Test;
+
+public class JsonHandlerTest {
+
+  @Test
+  public void testCallbacks() {
+    // Arrange
+    RecordingHandler handler = new RecordingHandler();
+    Parser parser = new Parser("{\"a\": [1, 2.5, \"x\", true, null], \"b\": 99999999999999999999,"
+        + " \"c\": 1e400}");
+
+    // Act
+    parser.parse(handler);
+
+    // Assert
+    assertEquals(Arrays.asList("{", "key:a", "[", "long:1", "double:2.5", "string:x", "true",
+        "null", "]", "key:b", "big:99999999999999999999", "key:c", "decimal:1E+400", "}"),
+        handler.events);
+  }
+
+  @Test
+  public void testSkipKey() {
+    // Arrange
+    RecordingHandler handler = new RecordingHandler() {
+      @Override
+      public Action key(String key) {
+        super.key(key);
+        return key.equals("skip") ? Action.SKIP : Action.CONTINUE;
+      }
+    };
+    Parser parser = new Parser("{\"skip\": {\"x\": [1, 2]}, \"keep\": 3}");
+
+    // Act
+    parser.parse(handler);
+
+    // Assert
+    assertEquals(Arrays.asList("{", "key:skip", "key:keep", "long:3", "}"), handler.events);
+  }
+
+  @Test
+  public void testSkipContainer() {
+    // Arrange
+    RecordingHandler handler = new RecordingHandler() {
+      @Override
+      public Action startObject() {
+        super.startObject();
+        return Action.SKIP;
+      }
+    };
+    Parser parser = new Parser("[{\"x\": [1, 2]}, 3]");
+
+    // Act
+    parser.parse(handler);
+
+    // Assert
+    assertEquals(Arrays.asList("[", "{", "long:3", "]"), handler.events);
+  }
+
+  @Test
+  public void testStop() {
+    // Arrange
+    RecordingHandler handler = new RecordingHandler() {
+      @Override
+      public Action longValue(long value) {
+        super.longValue(value);
+        return value == 2 ? Action.STOP : Action.CONTINUE;
+      }
+    };
+    // Input after the stop is never read, even if invalid.
+    Parser parser = new Parser("[1, 2, 3, this is not json");
+
+    // Act
+    parser.parse(handler);
+
+    // Assert
+    assertEquals(Arrays.asList("[", "long:1", "long:2"), handler.events);
+  }
+
+  @Test
+  public void testDeepNesting() {
+    // Arrange
+    int depth = 200_000;
+    String lists = String.join("", Collections.nCopies(depth, "["))
+        + String.join("", Collections.nCopies(depth, "]"));
+    int[] events = new int[2];
+    JsonHandler counter = new JsonHandler() {
+      @Override
+      public Action startArray() {
+        events[0]++;
+        return Action.CONTINUE;
+      }
+
+      @Override
+      public Action endArray() {
+        events[1]++;
+        return Action.CONTINUE;
+      }
+    };
+    RecordingHandler skipper = new RecordingHandler() {
+      @Override
+      public Action key(String key) {
+        super.key(key);
+        return key.equals("skip") ? Action.SKIP : Action.CONTINUE;
+      }
+    };
+
+    // Act
+    new Parser(lists).parse(counter);
+    new Parser("{\"skip\": " + lists + ", \"a\": 1}").parse(skipper);
+
+    // Assert
+    assertEquals(depth, events[0]);
+    assertEquals(depth, events[1]);
+    assertEquals(Arrays.asList("{", "key:skip", "key:a", "long:1", "}"), skipper.events);
+  }
+
+  @Test(expected = ParseException.class)
+  public void testInvalidSkippedValue() {
+    // Arrange
+    RecordingHandler handler = new RecordingHandler() {
+      @Override
+      public Action startArray() {
+        return Action.SKIP;
+      }
+    };
+    Parser parser = new Parser("[1, 2 3]");
+
+    // Act
+    parser.parse(handler);
+
+    // Assert
+    assertTrue(false);
+  }
+
+  static class RecordingHandler implements JsonHandler {
+
+    final List<String> events = new ArrayList<>();
+
+    @Override
+    public Action startObject() {
+      events.add("{");
+      return Action.CONTINUE;
+    }
+
+    @Override
+    public Action key(String key) {
+      events.add("key:" + key);
+      return Action.CONTINUE;
+    }
+
+    @Override
+    public Action endObject() {
+      events.add("}");
+      return Action.CONTINUE;
+    }
+
+    @Override
+    public Action startArray() {
+      events.add("[");
+      return Action.CONTINUE;
+    }
+
+    @Override
+    public Action endArray() {
+      events.add("]");
+      return Action.CONTINUE;
+    }
+
+    @Override
+    public Action stringValue(String value) {
+      events.add("string:" + value);
+      return Action.CONTINUE;
+    }
+
+    @Override
+    public Action longValue(long value) {
+      events.add("long:" + value);
+      return Action.CONTINUE;
+    }
+
+    @Override
+    public Action doubleValue(double value) {
+      events.add("double:" + value);
+      return Action.CONTINUE;
+    }
+
+    @Override
+    public Action bigIntegerValue(BigInteger value) {
+      events.add("big:" + value);
+      return Action.CONTINUE;
+    }
+
+    @Override
+    public Action bigDecimalValue(BigDecimal value) {
+      events.add("decimal:" + value);
+      return Action.CONTINUE;
+    }
+
+    @Override
+    public Action booleanValue(boolean value) {
+      events.add(String.valueOf(value));
+      return Action.CONTINUE;
+    }
+
+    @Override
+    public Action nullValue() {
+      events.add("null");
+      return Action.CONTINUE;
+    }
+  }
+}
@@ -0,0 +1,199 @@
+package mx.sugus.json;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import mx.sugus.json.JsonLinesReader.ByteLines;
+import mx.sugus.json.JsonLinesReader.CharLines;
+import org.junit.AfterClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class JsonLinesReaderTest {
+
+  private static final ForkJoinPool POOL = new ForkJoinPool(4);
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @AfterClass
+  public static void shutdown() {
+    POOL.shutdown();
+  }
+
+  @Test
+  public void testReadsLines() {
+    // Arrange
+    String lines = "{\"a\": 1}\n[1, 2]\r\n\n  \n\"café\"\nnull\n42";
+
+    // Act
+    List<Object> values = new ArrayList<>();
+    new JsonLinesReader(new StringReader(lines)).forEachRemaining(values::add);
+
+    // Assert
+    assertEquals(5, values.size());
+    assertEquals(1L, ((Map<?, ?>) values.get(0)).get("a"));
+    assertEquals(Arrays.asList(1L, 2L), values.get(1));
+    assertEquals("café", values.get(2));
+    assertNull(values.get(3));
+    assertEquals(42L, values.get(4));
+  }
+
+  @Test
+  public void testAllModesSameValues() {
+    // Arrange
+    StringBuilder builder = new StringBuilder();
+    for (int i = 0; i < 2000; i++) {
+      builder.append("{\"id\": ").append(i).append(", \"name\": \"ñ").append(i).append("\"}\n");
+      if (i % 100 == 0) {
+        builder.append('\n');
+      }
+    }
+    String lines = builder.toString();
+    byte[] utf8 = lines.getBytes(StandardCharsets.UTF_8);
+    List<Object> expected = new JsonLinesReader(new StringReader(lines)).stream()
+        .collect(Collectors.toList());
+
+    // Act
+    // Small buffers so that lines span reads and buffers have to grow.
+    List<Object> bytes = new JsonLinesReader(
+        new ByteLines(new ByteArrayInputStream(utf8), 16), ParseOptions.DEFAULT, null).stream()
+        .collect(Collectors.toList());
+    List<Object> parallelChars = new JsonLinesReader(
+        new CharLines(new StringReader(lines), 1000), ParseOptions.DEFAULT, POOL).stream()
+        .collect(Collectors.toList());
+    List<Object> parallelBytes = new JsonLinesReader(
+        new ByteLines(new ByteArrayInputStream(utf8), 1000), ParseOptions.DEFAULT, POOL).stream()
+        .collect(Collectors.toList());
+
+    // Assert
+    assertEquals(2000, expected.size());
+    assertEquals(expected, bytes);
+    assertEquals(expected, parallelChars);
+    assertEquals(expected, parallelBytes);
+  }
+
+  @Test
+  public void testInvalidLine() {
+    for (ForkJoinPool pool : new ForkJoinPool[] {null, POOL}) {
+      // Arrange
+      JsonLinesReader reader = new JsonLinesReader(new StringReader("1\n[2,\n3"),
+          ParseOptions.DEFAULT, pool);
+
+      // Act
+      Object first = reader.next();
+      boolean hasInvalid = reader.hasNext();
+      try {
+        reader.next();
+        assertTrue(false);
+      } catch (ParseException e) {
+        // Expected, the next line is still read.
+      }
+      Object last = reader.next();
+
+      // Assert
+      assertEquals(1L, first);
+      assertTrue(hasInvalid);
+      assertEquals(3L, last);
+      assertFalse(reader.hasNext());
+    }
+  }
+
+  @Test(timeout = 10_000)
+  public void testLongLineInSmallReads() {
+    // Arrange, a 16 MB line read 4 KB at a time, which once took seconds to search for newlines.
+    char[] text = new char[16 * 1024 * 1024];
+    Arrays.fill(text, 'x');
+    byte[] utf8 = ("\"" + new String(text) + "\"\n[1]\n").getBytes(StandardCharsets.UTF_8);
+    InputStream in = new FilterInputStream(new ByteArrayInputStream(utf8)) {
+      @Override
+      public int read(byte[] b, int off, int len) throws IOException {
+        return super.read(b, off, Math.min(len, 4096));
+      }
+    };
+    JsonLinesReader reader = new JsonLinesReader(in);
+
+    // Act
+    Object first = reader.next();
+    Object second = reader.next();
+
+    // Assert
+    assertEquals(text.length, ((String) first).length());
+    assertEquals(Arrays.asList(1L), second);
+    assertFalse(reader.hasNext());
+  }
+
+  @Test
+  public void testLineLongerThanMaxInputLength() {
+    // Arrange, a line that never ends.
+    InputStream endless = new InputStream() {
+      @Override
+      public int read() {
+        return 'x';
+      }
+
+      @Override
+      public int read(byte[] b, int off, int len) {
+        Arrays.fill(b, off, off + len, (byte) 'x');
+        return len;
+      }
+    };
+    ParseOptions options = ParseOptions.DEFAULT.withMaxInputLength(100_000);
+    JsonLinesReader[] readers = {new JsonLinesReader(endless, options),
+        new JsonLinesReader(endless, options, POOL),
+        new JsonLinesReader(new ByteLines(endless, 16), options, null)};
+
+    for (JsonLinesReader reader : readers) {
+      // Act
+      try {
+        reader.hasNext();
+        assertTrue(false);
+      } catch (ParseException expected) {
+        // Assert
+        assertTrue(expected.getMessage(), expected.getMessage().contains("at most 100000 bytes"));
+      }
+    }
+  }
+
+  @Test
+  public void testPath() throws IOException {
+    // Arrange
+    Path path = folder.newFile("lines.jsonl").toPath();
+    Files.write(path, "[1]\n[2]\n".getBytes(StandardCharsets.UTF_8));
+
+    // Act
+    List<Object> values;
+    try (JsonLinesReader reader = JsonLinesReader.open(path, ParseOptions.DEFAULT, POOL)) {
+      values = reader.stream().collect(Collectors.toList());
+    }
+
+    // Assert
+    assertEquals(Arrays.asList(Arrays.asList(1L), Arrays.asList(2L)), values);
+  }
+
+  @Test
+  public void testEmpty() {
+    // Act
+    JsonLinesReader reader = new JsonLinesReader(new StringReader("\n\n"));
+
+    // Assert
+    assertFalse(reader.hasNext());
+  }
+}
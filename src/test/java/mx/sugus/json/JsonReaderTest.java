@@ -0,0 +1,202 @@
+package mx.sugus.json;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import mx.sugus.json.JsonReader.Event;
+import org.junit.Test;
+
+public class JsonReaderTest {
+
+  @Test
+  public void testEvents() {
+    // Arrange
+    JsonReader reader = new JsonReader("{\"a\": [1, 2.5, \"x\"], \"b\": {\"c\": true, \"d\": null},"
+        + " \"e\": false}");
+
+    // Act
+    List<Event> events = new ArrayList<>();
+    Event event;
+    do {
+      event = reader.nextEvent();
+      events.add(event);
+    } while (event != Event.END_DOCUMENT);
+
+    // Assert
+    assertEquals(Arrays.asList(Event.START_OBJECT, Event.KEY_NAME, Event.START_ARRAY,
+        Event.VALUE_NUMBER, Event.VALUE_NUMBER, Event.VALUE_STRING, Event.END_ARRAY,
+        Event.KEY_NAME, Event.START_OBJECT, Event.KEY_NAME, Event.VALUE_TRUE, Event.KEY_NAME,
+        Event.VALUE_NULL, Event.END_OBJECT, Event.KEY_NAME, Event.VALUE_FALSE, Event.END_OBJECT,
+        Event.END_DOCUMENT), events);
+    assertEquals(Event.END_DOCUMENT, reader.nextEvent());
+  }
+
+  @Test
+  public void testValuesAndDepth() {
+    // Arrange
+    JsonReader reader = new JsonReader("[{\"key\": \"va\\\\lue\"}, 12, -3.5e2, 123456789012345678901]");
+
+    // Act & Assert
+    assertEquals(Event.START_ARRAY, reader.nextEvent());
+    assertEquals(1, reader.depth());
+    assertEquals(Event.START_OBJECT, reader.nextEvent());
+    assertEquals(2, reader.depth());
+    assertEquals(Event.KEY_NAME, reader.nextEvent());
+    assertEquals("key", reader.getCharSequence().toString());
+    assertEquals(Event.VALUE_STRING, reader.nextEvent());
+    assertEquals("va\\lue", reader.getString());
+    assertEquals(Event.END_OBJECT, reader.nextEvent());
+    assertEquals(1, reader.depth());
+    assertEquals(Event.VALUE_NUMBER, reader.nextEvent());
+    assertTrue(reader.isIntegralNumber());
+    assertEquals(12L, reader.getLong());
+    assertEquals(12L, reader.getNumber());
+    assertEquals(Event.VALUE_NUMBER, reader.nextEvent());
+    assertFalse(reader.isIntegralNumber());
+    assertEquals(-350.0, reader.getDouble(), 0.0);
+    assertEquals(-350L, reader.getLong());
+    assertEquals("-3.5e2", reader.getCharSequence().toString());
+    assertEquals(Event.VALUE_NUMBER, reader.nextEvent());
+    assertEquals(new BigInteger("123456789012345678901"), reader.getNumber());
+    assertEquals(Event.END_ARRAY, reader.nextEvent());
+    assertEquals(0, reader.depth());
+    assertEquals(Event.END_DOCUMENT, reader.nextEvent());
+  }
+
+  @Test
+  public void testSkipValue() {
+    // Arrange
+    JsonReader reader = new JsonReader("{\"skip\": {\"a\": [1, {\"b\": []}]}, \"keep\": 1}");
+
+    // Act
+    reader.nextEvent();
+    reader.nextEvent();
+    reader.skipValue();
+    Event key = reader.nextEvent();
+
+    // Assert
+    assertEquals(Event.KEY_NAME, key);
+    assertEquals("keep", reader.getString());
+    assertEquals(1, reader.depth());
+  }
+
+  @Test
+  public void testSkipContainer() {
+    // Arrange
+    JsonReader reader = new JsonReader("[[1, [2, 3]], 4]");
+
+    // Act
+    reader.nextEvent();
+    reader.nextEvent();
+    reader.skipValue();
+    Event event = reader.nextEvent();
+
+    // Assert
+    assertEquals(Event.VALUE_NUMBER, event);
+    assertEquals(4, reader.getInt());
+  }
+
+  @Test(expected = ParseException.class)
+  public void testMissingComma() {
+    readAll("[1 2]");
+  }
+
+  @Test(expected = ParseException.class)
+  public void testTrailingComma() {
+    readAll("[1, 2,]");
+  }
+
+  @Test(expected = ParseException.class)
+  public void testMissingColon() {
+    readAll("{\"a\" 1}");
+  }
+
+  @Test(expected = ParseException.class)
+  public void testNonStringKey() {
+    readAll("{1: 1}");
+  }
+
+  @Test(expected = ParseException.class)
+  public void testMismatchedEnd() {
+    readAll("[1}");
+  }
+
+  @Test(expected = ParseException.class)
+  public void testTwoValues() {
+    readAll("1 2");
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testGetStringOnNumber() {
+    // Arrange
+    JsonReader reader = new JsonReader("1");
+
+    // Act
+    reader.nextEvent();
+    reader.getString();
+
+    // Assert
+    assertTrue(false);
+  }
+
+  @Test
+  public void testNumberOutOfRange() {
+    // Arrange
+    JsonReader reader =
+        new JsonReader("[1e30, 9223372036854775808, 2147483648, -9223372036854775808.5]");
+    reader.nextEvent();
+
+    for (String type : new String[] {"long", "long", "int"}) {
+      reader.nextEvent();
+      try {
+        // Act
+        if (type.equals("long")) {
+          reader.getLong();
+        } else {
+          reader.getInt();
+        }
+        assertTrue(type, false);
+      } catch (ParseException expected) {
+        // Assert
+        assertTrue(expected.getMessage(), expected.getMessage().contains("'" + type + "'"));
+      }
+    }
+    reader.nextEvent();
+    assertEquals(Long.MIN_VALUE, reader.getLong());
+  }
+
+  @Test
+  public void testBigIntegerDigits() {
+    // Arrange
+    JsonReader reader = new JsonReader("[1.5e3, -1e-1000000000, 1e1000000000]");
+    reader.nextEvent();
+
+    // Act
+    reader.nextEvent();
+    BigInteger thousands = reader.getBigInteger();
+    reader.nextEvent();
+    BigInteger fraction = reader.getBigInteger();
+    reader.nextEvent();
+    try {
+      reader.getBigInteger();
+      assertTrue(false);
+    } catch (ParseException expected) {
+      // Assert
+      assertTrue(expected.getMessage(), expected.getMessage().contains("integer digits"));
+    }
+    assertEquals(BigInteger.valueOf(1500), thousands);
+    assertEquals(BigInteger.ZERO, fraction);
+  }
+
+  private static void readAll(String json) {
+    JsonReader reader = new JsonReader(json);
+    while (reader.nextEvent() != Event.END_DOCUMENT) {
+      // Keep reading
+    }
+  }
+}
@@ -0,0 +1,246 @@
+package mx.sugus.json;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.Test;
+
+public class JsonWriterTest {
+
+  private static final String[] DOCUMENTS = {
+      "{\"a\": [1, -2, 3.5, -0.0, 1.0E300, 4.9E-324], \"b\": {\"c\": null, \"d\": true},"
+          + " \"e\": false, \"f\": \"\"}",
+      "[\"quote \\\" backslash \\\\ controls \\n\\t\\u0001\\u001f / café 😀\"]",
+      "[9223372036854775807, -9223372036854775808, 0, 99, 100, 123456789012345678901234567890]",
+      "[1e400, 0.1, 0.30000000000000004, [], {}, [[{}]]]",
+      "\"plain\"",
+  };
+
+  @Test
+  public void testRoundTrip() {
+    for (String json : DOCUMENTS) {
+      // Arrange
+      Object value = new Parser(json).parse();
+
+      // Act
+      String written = JsonWriter.toJson(value);
+      String pretty = new JsonWriter(WriteOptions.DEFAULT.withIndent(2)).write(value).toString();
+
+      // Assert
+      assertEquals(json, value, new Parser(written).parse());
+      assertEquals(json, value, new Parser(pretty).parse());
+    }
+  }
+
+  @Test
+  public void testCompact() {
+    // Arrange
+    Map<String, Object> map = new LinkedHashMap<>();
+    map.put("id", 42L);
+    map.put("tags", Arrays.asList("a", "b"));
+    map.put("score", 1.5);
+    map.put("empty", Arrays.asList());
+
+    // Act
+    String json = JsonWriter.toJson(map);
+
+    // Assert
+    assertEquals("{\"id\":42,\"tags\":[\"a\",\"b\"],\"score\":1.5,\"empty\":[]}", json);
+  }
+
+  @Test
+  public void testPrettyPrint() {
+    // Arrange
+    Map<String, Object> map = new LinkedHashMap<>();
+    map.put("a", Arrays.asList(1, 2));
+    map.put("b", new LinkedHashMap<>());
+
+    // Act
+    String json = new JsonWriter(WriteOptions.DEFAULT.withIndent(2)).write(map).toString();
+
+    // Assert
+    assertEquals("{\n  \"a\": [\n    1,\n    2\n  ],\n  \"b\": {}\n}", json);
+  }
+
+  @Test
+  public void testStreaming() {
+    // Arrange
+    WriteOptions pretty = WriteOptions.DEFAULT.withIndent(2);
+
+    // Act
+    String[] json = new String[2];
+    for (int i = 0; i < json.length; i++) {
+      JsonWriter writer = new JsonWriter(i == 0 ? WriteOptions.DEFAULT : pretty);
+      writer.beginObject()
+          .name("a").beginArray().value(1).value(2.5).value(0.1f).endArray()
+          .name("b").beginObject().endObject()
+          .name("c").value((String) null)
+          .name("d").write(Arrays.asList(true)).name("e").value(false)
+          .name("f").nullValue()
+          .endObject();
+      json[i] = writer.toString();
+    }
+
+    // Assert
+    assertEquals("{\"a\":[1,2.5,0.1],\"b\":{},\"c\":null,\"d\":[true],\"e\":false,\"f\":null}",
+        json[0]);
+    assertEquals("{\n  \"a\": [\n    1,\n    2.5,\n    0.1\n  ],\n  \"b\": {},\n  \"c\": null,\n"
+        + "  \"d\": [\n    true\n  ],\n  \"e\": false,\n  \"f\": null\n}", json[1]);
+  }
+
+  @Test
+  public void testNumbers() {
+    // Act
+    String json = JsonWriter.toJson(Arrays.asList(7, (short) -3, (byte) 9, 2.5f,
+        new BigDecimal("1.10"), new BigInteger("-12345678901234567890"), new AtomicLong(11),
+        Long.MIN_VALUE, 1000000000000000000L, -10L));
+
+    // Assert
+    assertEquals("[7,-3,9,2.5,1.10,-12345678901234567890,11,-9223372036854775808,"
+        + "1000000000000000000,-10]", json);
+  }
+
+  @Test
+  public void testShortestDoubles() {
+    // Act
+    String json = JsonWriter.toJson(Arrays.asList(2e23, 1e23, 5e-324, Double.MAX_VALUE, 0.1, -0.0,
+        1e7, 1234567.0, 0.001, 1e-4, 100.0, 1.0E-323, 2e23f, 1e-45f, Float.MAX_VALUE, 0.3f));
+
+    // Assert
+    assertEquals("[2.0E23,1.0E23,4.9E-324,1.7976931348623157E308,0.1,-0.0,1.0E7,1234567.0,0.001,"
+        + "1.0E-4,100.0,9.9E-324,2.0E23,1.4E-45,3.4028235E38,0.3]", json);
+  }
+
+  @Test
+  public void testDoublesReadBack() {
+    // Arrange
+    Random random = new Random(42);
+    char[] buffer = new char[NumberFormatter.MAX_LENGTH];
+
+    for (int i = 0; i < 100_000; i++) {
+      double value = Double.longBitsToDouble(random.nextLong());
+      float single = Float.intBitsToFloat(random.nextInt());
+      if (Double.isNaN(value) || Double.isInfinite(value) || Float.isNaN(single)
+          || Float.isInfinite(single)) {
+        continue;
+      }
+
+      // Act
+      String text = new String(buffer, 0, NumberFormatter.format(value, buffer, 0));
+      String singleText = new String(buffer, 0, NumberFormatter.format(single, buffer, 0));
+
+      // Assert
+      assertEquals(value, Double.parseDouble(text), 0);
+      assertEquals(single, Float.parseFloat(singleText), 0);
+      assertTrue(text, text.length() <= Double.toString(value).length());
+      assertTrue(singleText, singleText.length() <= Float.toString(single).length());
+    }
+  }
+
+  @Test
+  public void testDeepNesting() {
+    // Arrange
+    int depth = 100_000;
+    String json = String.join("", Collections.nCopies(depth, "[{\"a\":")) + "0"
+        + String.join("", Collections.nCopies(depth, "}]"));
+    Object value = new Parser(json).parse();
+
+    // Act
+    String written = JsonWriter.toJson(value);
+
+    // Assert
+    assertEquals(json, written);
+  }
+
+  @Test
+  public void testEscapes() {
+    // Act
+    String json = JsonWriter.toJson("\"\\\b\f\n\r\t\u0000 \ud83d\ude00 \ud83d \ude00");
+
+    // Assert
+    assertEquals("\"\\\"\\\\\\b\\f\\n\\r\\t\\u0000 \ud83d\ude00 \\ud83d \\ude00\"", json);
+  }
+
+  @Test
+  public void testUtf8() {
+    // Arrange
+    StringBuilder builder = new StringBuilder();
+    for (int i = 0; i < 5000; i++) {
+      builder.append("aé😀");
+    }
+    Object value = Arrays.asList(builder.toString(), "ñ");
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+    // Act
+    JsonWriter writer = new JsonWriter(out);
+    writer.write(value).flush();
+    byte[] inMemory = new JsonWriter().write(value).toByteArray();
+
+    // Assert
+    byte[] expected = JsonWriter.toJson(value).getBytes(StandardCharsets.UTF_8);
+    assertArrayEquals(expected, out.toByteArray());
+    assertArrayEquals(expected, inMemory);
+  }
+
+  @Test
+  public void testTopLevelValues() {
+    // Arrange
+    JsonWriter writer = new JsonWriter();
+
+    // Act
+    writer.write(1).write(2).value(3.5).beginArray().value(4).endArray().write("5");
+
+    // Assert
+    assertEquals("1\n2\n3.5\n[4]\n\"5\"", writer.toString());
+    Parser parser = new Parser(writer.toString());
+    assertEquals(1L, parser.parseNext());
+    assertEquals(2L, parser.parseNext());
+  }
+
+  @Test
+  public void testWriterAndReset() {
+    // Arrange
+    StringWriter out = new StringWriter();
+    JsonWriter reused = new JsonWriter();
+
+    // Act
+    new JsonWriter(out).write(1).write(Arrays.asList(2)).flush();
+    reused.write("discarded");
+    reused.reset();
+    reused.write(3);
+
+    // Assert
+    assertEquals("1\n[2]", out.toString());
+    assertEquals("3", reused.toString());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNaN() {
+    // Act
+    JsonWriter.toJson(Arrays.asList(Double.NaN));
+
+    // Assert
+    assertTrue(false);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testUnsupportedType() {
+    // Act
+    JsonWriter.toJson(new Object());
+
+    // Assert
+    assertTrue(false);
+  }
+}
@@ -0,0 +1,61 @@
+package mx.sugus.json;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+public class KeyCacheTest {
+
+  @Test
+  public void testHit() {
+    // Arrange
+    KeyCache cache = new KeyCache(8);
+    char[] chars = "xxidxx".toCharArray();
+
+    // Act
+    String first = cache.intern(chars, 2, 2);
+    String second = cache.intern("id".toCharArray(), 0, 2);
+
+    // Assert
+    assertEquals("id", first);
+    assertSame(first, second);
+  }
+
+  @Test
+  public void testCollisionEvicts() {
+    // Arrange, "Aa" and "BB" have the same hash code.
+    KeyCache cache = new KeyCache(1);
+
+    // Act
+    String first = cache.intern("Aa".toCharArray(), 0, 2);
+    String other = cache.intern("BB".toCharArray(), 0, 2);
+    String again = cache.intern("Aa".toCharArray(), 0, 2);
+
+    // Assert
+    assertEquals("BB", other);
+    assertEquals("Aa", again);
+    assertNotSame(first, again);
+  }
+
+  @Test
+  public void testLongKeysAreNotCached() {
+    // Arrange
+    KeyCache cache = new KeyCache();
+    char[] chars = new char[KeyCache.MAX_KEY_LENGTH + 1];
+
+    // Act
+    String first = cache.intern(chars, 0, chars.length);
+    String second = cache.intern(chars, 0, chars.length);
+
+    // Assert
+    assertEquals(first, second);
+    assertNotSame(first, second);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidSize() {
+    new KeyCache(0);
+  }
+}
@@ -0,0 +1,128 @@
+package mx.sugus.json;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import org.junit.Test;
+
+public class LazyParserTest {
+
+  private static final String[] DOCUMENTS = {
+      "123",
+      " \"foo\\n\\u00e9\" ",
+      "null",
+      "[]",
+      "{}",
+      "[1, -2.5e3, \"x\", true, false, null, [], {}]",
+      "{\"a\": {\"b\": [1, {\"c\": \"d\"}]}, \"e\": [[[]]], \"f\": 99999999999999999999}",
+      "{\"k0\": 0, \"k1\": 1, \"k2\": 2, \"k3\": 3, \"k4\": 4, \"k5\": 5, \"k6\": 6, \"k7\": 7,"
+          + " \"k8\": 8, \"k9\": [9], \"k1\": \"again\"}",
+      "{\"a\": 1, \"a\": 2}",
+      "{\"quote\\\"in key\": \"brace } in value\"}",
+      "[\"café 😀\", \"ünïcödé\", 1.5]",
+      "{\"long\": \"" + new String(new char[300]).replace('\0', 'x') + "\", \"after\": true}",
+  };
+
+  @Test
+  public void testSameAsParser() {
+    for (String json : DOCUMENTS) {
+      // Act
+      Object expected = new Parser(json).parse();
+      Object value = new LazyParser(json).parse();
+      Object fromBytes = new LazyParser(json.getBytes(StandardCharsets.UTF_8)).parse();
+
+      // Assert
+      assertEquals(json, expected, value);
+      assertEquals(json, expected, fromBytes);
+    }
+  }
+
+  @Test
+  public void testValuesDecodedOnAccess() {
+    // Arrange
+    LazyParser parser = new LazyParser("{\"good\": [1, 2], \"bad\": 12abc}");
+
+    // Act
+    Map<?, ?> value = (Map<?, ?>) parser.parse();
+    List<?> good = (List<?>) value.get("good");
+
+    // Assert
+    assertEquals(2, value.size());
+    assertEquals(2L, good.get(1));
+    try {
+      value.get("bad");
+      assertTrue(false);
+    } catch (ParseException e) {
+      // Expected, the invalid value is only found when accessed.
+    }
+  }
+
+  @Test(timeout = 10_000)
+  public void testCollidingKeys() {
+    // Arrange, "Aa" and "BB" share a hash code, and so do all keys made of 16 of them.
+    StringBuilder json = new StringBuilder("{");
+    for (int i = 0; i < 1 << 16; i++) {
+      json.append('"').append(collidingKey(i)).append("\": ").append(i).append(", ");
+    }
+    // A repeated key after the index fell back to a HashMap keeps the last value.
+    json.append('"').append(collidingKey(0)).append("\": \"again\"}");
+
+    // Act
+    Map<?, ?> value = (Map<?, ?>) new LazyParser(json.toString()).parse();
+
+    // Assert
+    assertEquals(1 << 16, value.size());
+    assertEquals(collidingKey(0).hashCode(), collidingKey(42).hashCode());
+    assertEquals("again", value.get(collidingKey(0)));
+    assertEquals(42L, value.get(collidingKey(42)));
+    assertNull(value.get("AaAa"));
+    assertEquals(new Parser(json.toString()).parse(), value);
+  }
+
+  @Test(expected = ParseException.class)
+  public void testMissingComma() {
+    new LazyParser("[1 2]").parse();
+  }
+
+  @Test(expected = ParseException.class)
+  public void testMissingColon() {
+    new LazyParser("{\"a\" 1}").parse();
+  }
+
+  @Test(expected = ParseException.class)
+  public void testUnbalanced() {
+    new LazyParser("{\"a\": [1}").parse();
+  }
+
+  @Test(expected = ParseException.class)
+  public void testUnterminated() {
+    new LazyParser("[1, [2]").parse();
+  }
+
+  @Test(expected = ParseException.class)
+  public void testUnterminatedString() {
+    new LazyParser("[\"abc]").parse();
+  }
+
+  @Test(expected = ParseException.class)
+  public void testTwoValues() {
+    new LazyParser("{} []").parse();
+  }
+
+  @Test(expected = ParseException.class)
+  public void testEmpty() {
+    new LazyParser("  ").parse();
+  }
+
+  private static String collidingKey(int i) {
+    StringBuilder key = new StringBuilder();
+    for (int bit = 0; bit < 16; bit++) {
+      key.append((i >> bit & 1) == 0 ? "Aa" : "BB");
+    }
+    return key.toString();
+  }
+}
@@ -0,0 +1,191 @@
+package mx.sugus.json;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.AfterClass;
+import org.junit.Test;
+
+public class ParallelParserTest {
+
+  private static final ForkJoinPool POOL = new ForkJoinPool(4);
+
+  private static final String[] INVALID = {
+      "[1, 2, x, 4]",
+      "[1, 2] 3",
+      "[1, [2, 3}, 4]",
+      "[1, \"2, 3]",
+      "[1, 2 3, 4]",
+      "[1, 2, 3",
+      "[1, 2, 3}",
+      "[1, {\"a\" 2}, 3]",
+      "[1,,2]",
+      "[1, ,2]",
+      "[10,20,30,,40,50,60,70]",
+      "[1,2,,]",
+      "[,1,2]",
+  };
+
+  @AfterClass
+  public static void shutdown() {
+    POOL.shutdown();
+  }
+
+  @Test
+  public void testSameAsParser() {
+    // Arrange
+    StringBuilder builder = new StringBuilder("[");
+    for (int i = 0; i < 1000; i++) {
+      if (i > 0) {
+        builder.append(", ");
+      }
+      builder.append(i % 3 == 0 ? "{\"id\": " + i + ", \"tags\": [\"a,b\", \"]\"]}" : i + ".5");
+    }
+    String json = builder.append("] ").toString();
+
+    for (ParseOptions options : new ParseOptions[] {ParseOptions.DEFAULT,
+        ParseOptions.DEFAULT.withCompactContainers(true).withKeyCache(new KeyCache())}) {
+      // Act
+      Object expected = new Parser(json, options).parse();
+      Object fromChars = parser(json, options).parse();
+      Object fromBytes = new ParallelParser(null, json.getBytes(StandardCharsets.UTF_8),
+          json.length(), options, POOL, 16).parse();
+
+      // Assert
+      assertEquals(expected.getClass(), fromChars.getClass());
+      assertEquals(expected, fromChars);
+      assertEquals(expected, fromBytes);
+    }
+  }
+
+  @Test
+  public void testPrimitiveArrays() {
+    // Arrange
+    StringBuilder builder = new StringBuilder("[");
+    for (int i = 0; i < 200_000; i++) {
+      builder.append(i > 0 ? ", " : "").append(i * 1000L);
+    }
+    String series = builder.append(']').toString();
+    String[] documents = {series, "[1, 2, 3, 4]", "[1, 2.5, 3, 4]", "[1.5, 2, 9007199254740993]",
+        "[9007199254740993, 2, 2.5]", "[1, 2.5, \"x\", 4]", "[\"x\", 1, 2.5]", "[1, 1e400, 2]",
+        "[1, 2, 99999999999999999999]", "[1.5, [2], 3]"};
+    ParseOptions primitive = ParseOptions.DEFAULT.withPrimitiveArrays(true);
+
+    for (ParseOptions options : new ParseOptions[] {primitive,
+        primitive.withCompactContainers(true)}) {
+      for (String json : documents) {
+        // Act
+        Object expected = new Parser(json, options).parse();
+        Object fromChars = parser(json, options).parse();
+        Object fromBytes = new ParallelParser(null, json.getBytes(StandardCharsets.UTF_8),
+            json.length(), options, POOL, 16).parse();
+
+        // Assert
+        assertEquals(json, expected.getClass(), fromChars.getClass());
+        assertEquals(json, expected.getClass(), fromBytes.getClass());
+        assertEquals(json, expected, fromChars);
+        assertEquals(json, expected, fromBytes);
+      }
+    }
+    assertEquals(LongList.class, parser(series, primitive).parse().getClass());
+    assertEquals(DoubleList.class, parser("[1, 2.5, 3]", primitive).parse().getClass());
+  }
+
+  @Test
+  public void testSmallDocuments() {
+    for (String json : new String[] {"[]", "[1]", " [ 1 , 2 ] ", "{\"a\": [1, 2]}", "\"x\"",
+        "[1, 2, ]", "[1,2,]", "[1.5, 2,]"}) {
+      // Act
+      Object value = parser(json, ParseOptions.DEFAULT).parse();
+
+      // Assert
+      assertEquals(json, new Parser(json).parse(), value);
+    }
+  }
+
+  @Test
+  public void testSameErrorsAsParser() {
+    for (String json : INVALID) {
+      // Arrange
+      String expected = null;
+      try {
+        new Parser(json).parse();
+      } catch (ParseException e) {
+        expected = e.getMessage();
+      }
+
+      for (ParseOptions options : new ParseOptions[] {ParseOptions.DEFAULT,
+          ParseOptions.DEFAULT.withPrimitiveArrays(true)}) {
+        for (int chunkSize : new int[] {1, 4, 10}) {
+          // Act
+          try {
+            new ParallelParser(json.toCharArray(), null, json.length(), options, POOL, chunkSize)
+                .parse();
+            assertTrue(json, false);
+          } catch (ParseException e) {
+            // Assert
+            assertEquals(json, expected, e.getMessage());
+          }
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testSplit() {
+    // Arrange
+    String json = " [1, \"a,\\\"b\", [2, 3], {\"c\": 4}, 5] ";
+
+    // Act
+    int[] cuts = ParallelParser.split(json.toCharArray(), json.length(), 1);
+    int[] bytes = ParallelParser.split(json.getBytes(StandardCharsets.UTF_8), json.length(), 1);
+
+    // Assert
+    assertArrayEquals(new int[] {1, 3, 12, 20, 30, 33}, cuts);
+    assertArrayEquals(cuts, bytes);
+    assertNull(ParallelParser.split("[1, 2".toCharArray(), 5, 1));
+  }
+
+  @Test
+  public void testNested() {
+    // Act
+    List<?> value = (List<?>) parser("[[1, 2], [3, [4, 5]], 6]", ParseOptions.DEFAULT).parse();
+
+    // Assert
+    assertEquals(3, value.size());
+    assertEquals(6L, value.get(2));
+  }
+
+  @Test
+  public void testLimits() {
+    // Arrange
+    ParseOptions depth = ParseOptions.DEFAULT.withMaxDepth(3);
+    ParseOptions length = ParseOptions.DEFAULT.withMaxInputLength(8);
+
+    // Act
+    List<?> value = (List<?>) parser("[[1, [2]], [[3]], 4]", depth).parse();
+
+    // Assert
+    assertEquals(3, value.size());
+    assertFails(parser("[[1, [2]], [[[3]]], 4]", depth));
+    assertFails(parser("[1, 2, 3]", length));
+  }
+
+  private static void assertFails(ParallelParser parser) {
+    try {
+      parser.parse();
+      assertTrue(false);
+    } catch (ParseException expected) {
+      // Expected.
+    }
+  }
+
+  private static ParallelParser parser(String json, ParseOptions options) {
+    return new ParallelParser(json.toCharArray(), null, json.length(), options, POOL, 1);
+  }
+}
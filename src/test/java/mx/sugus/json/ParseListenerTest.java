@@ -0,0 +1,244 @@
+package mx.sugus.json;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.StringReader;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.TabularData;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ParseListenerTest {
+
+  private static final String JSON = "{\"a\": [1, 2.5, \"x\"], \"b\": {\"c\": null}}";
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void testStats() {
+    // Arrange
+    RecordingListener listener = new RecordingListener();
+
+    // Act
+    new Parser(JSON, ParseOptions.DEFAULT.withListener(listener)).parse();
+
+    // Assert
+    assertEquals(1, listener.stats.size());
+    ParseStats stats = listener.stats.get(0);
+    assertEquals(JSON.length(), stats.inputBytes());
+    assertEquals(2, stats.tokens(Token.Type.START_MAP));
+    assertEquals(2, stats.tokens(Token.Type.END_MAP));
+    assertEquals(1, stats.tokens(Token.Type.START_LIST));
+    assertEquals(4, stats.tokens(Token.Type.STRING));
+    assertEquals(3, stats.tokens(Token.Type.COLON));
+    assertEquals(3, stats.tokens(Token.Type.COMMA));
+    assertEquals(1, stats.tokens(Token.Type.LONG));
+    assertEquals(1, stats.tokens(Token.Type.DOUBLE));
+    assertEquals(1, stats.tokens(Token.Type.NULL));
+    assertEquals(1, stats.tokens(Token.Type.EOF));
+    assertEquals(20, stats.tokens());
+    assertEquals(2, stats.maxDepth());
+    assertEquals(4, stats.strings());
+    assertEquals(2, stats.numbers());
+    assertTrue(stats.nanos() > 0);
+    assertFalse(stats.failed());
+  }
+
+  @Test
+  public void testInputBytes() {
+    // Arrange
+    RecordingListener listener = new RecordingListener();
+    ParseOptions options = ParseOptions.DEFAULT.withListener(listener);
+    String json = "[\"\u00e9\u20ac\ud83d\ude00\"]";
+    byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+
+    // Act
+    new Parser(json, options).parse();
+    new Parser(bytes, options).parse();
+    new Parser(new StringReader(json), options).parse();
+    Parser parser = new Parser("[1] \"a\"  {}", options);
+    while (parser.hasNext()) {
+      parser.parseNext();
+    }
+
+    // Assert
+    assertEquals(13, bytes.length);
+    assertEquals(13, listener.stats.get(0).inputBytes());
+    assertEquals(13, listener.stats.get(1).inputBytes());
+    assertEquals(13, listener.stats.get(2).inputBytes());
+    assertEquals(3, listener.stats.get(3).inputBytes());
+    assertEquals(4, listener.stats.get(4).inputBytes());
+    assertEquals(4, listener.stats.get(5).inputBytes());
+  }
+
+  @Test
+  public void testEachParse() {
+    // Arrange
+    RecordingListener listener = new RecordingListener();
+    Parser parser = new Parser("[1] \"a\" {}", ParseOptions.DEFAULT.withListener(listener));
+
+    // Act
+    while (parser.hasNext()) {
+      parser.parseNext();
+    }
+    parser.reset("[[2]]").parse(new JsonHandler() {
+    });
+    parser.reset("{\"a\": [1, 2]}").parse(PathSelector.of("/a/1"));
+
+    // Assert
+    assertEquals(5, listener.stats.size());
+    assertEquals(3, listener.stats.get(0).tokens());
+    assertEquals(1, listener.stats.get(0).numbers());
+    assertEquals(1, listener.stats.get(1).strings());
+    assertEquals(1, listener.stats.get(2).maxDepth());
+    assertEquals(2, listener.stats.get(3).maxDepth());
+    assertEquals(1, listener.stats.get(4).numbers());
+  }
+
+  @Test
+  public void testFailure() {
+    // Arrange
+    RecordingListener listener = new RecordingListener();
+    Parser parser = new Parser("[1, 2", ParseOptions.DEFAULT.withListener(listener));
+
+    // Act
+    try {
+      parser.parse();
+      assertTrue(false);
+    } catch (ParseException expected) {
+      // Expected.
+    }
+
+    // Assert
+    assertEquals(1, listener.stats.size());
+    assertTrue(listener.stats.get(0).failed());
+    assertEquals(2, listener.stats.get(0).numbers());
+  }
+
+  @Test
+  public void testParallelParser() {
+    // Arrange
+    StringBuilder json = new StringBuilder("[");
+    for (int i = 0; i < 100; i++) {
+      json.append(i == 0 ? "" : ", ").append("{\"id\": ").append(i).append(", \"v\": [\"x\"]}");
+    }
+    json.append("]");
+    RecordingListener listener = new RecordingListener();
+    ParseOptions options = ParseOptions.DEFAULT.withListener(listener);
+    ForkJoinPool pool = new ForkJoinPool(4);
+
+    // Act
+    new Parser(json.toString(), options).parse();
+    new ParallelParser(json.toString().toCharArray(), null, json.length(), options, pool, 64)
+        .parse();
+    pool.shutdown();
+
+    // Assert
+    assertEquals(2, listener.stats.size());
+    ParseStats expected = listener.stats.get(0);
+    ParseStats stats = listener.stats.get(1);
+    for (Token.Type type : Token.Type.values()) {
+      assertEquals(type.toString(), expected.tokens(type), stats.tokens(type));
+    }
+    assertEquals(expected.inputBytes(), stats.inputBytes());
+    assertEquals(expected.maxDepth(), stats.maxDepth());
+    assertEquals(expected.strings(), stats.strings());
+    assertEquals(expected.numbers(), stats.numbers());
+  }
+
+  @Test
+  public void testMetrics() throws Exception {
+    // Arrange
+    ParseMetrics metrics = new ParseMetrics();
+    ParseOptions options = ParseOptions.DEFAULT.withListener(metrics);
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+
+    // Act
+    ObjectName name = metrics.register("test");
+    try {
+      new Parser(JSON, options).parse();
+      new Parser("[[[1]]]", options).parse();
+      try {
+        new Parser("{", options).parse();
+      } catch (ParseException expected) {
+        // Expected.
+      }
+
+      // Assert
+      assertEquals(3L, server.getAttribute(name, "Parses"));
+      assertEquals(1L, server.getAttribute(name, "Failures"));
+      assertEquals(3, server.getAttribute(name, "MaxDepth"));
+      assertEquals(4L, server.getAttribute(name, "Strings"));
+      assertEquals(20L + 8L + 2L, metrics.getTokens());
+      Map<String, Long> tokens = metrics.getTokensByType();
+      assertEquals(Long.valueOf(3), tokens.get("START_MAP"));
+      assertEquals(Long.valueOf(4), tokens.get("START_LIST"));
+      assertTrue(server.getAttribute(name, "TokensByType") instanceof TabularData);
+      server.invoke(name, "reset", null, null);
+      assertEquals(0L, metrics.getParses());
+    } finally {
+      server.unregisterMBean(name);
+    }
+  }
+
+  @Test
+  public void testFlightRecorder() throws Exception {
+    // Arrange
+    ParseOptions options = ParseOptions.DEFAULT.withListener(ParseListener.flightRecorder());
+    Path file = folder.newFile("parse.jfr").toPath();
+    new Parser(JSON, options).parse();
+
+    // Act
+    try (Recording recording = new Recording()) {
+      recording.enable("mx.sugus.json.Parse").withoutThreshold();
+      recording.start();
+      new Parser(JSON, options).parse();
+      recording.stop();
+      recording.dump(file);
+    }
+
+    // Assert
+    List<RecordedEvent> events = new ArrayList<>();
+    for (RecordedEvent event : RecordingFile.readAllEvents(file)) {
+      if (event.getEventType().getName().equals("mx.sugus.json.Parse")) {
+        events.add(event);
+      }
+    }
+    assertEquals(1, events.size());
+    assertEquals(20L, events.get(0).getLong("tokens"));
+    assertEquals(2, events.get(0).getInt("maxDepth"));
+    assertFalse(events.get(0).getBoolean("failed"));
+  }
+
+  /**
+   * Keeps a copy of the stats of each parse.
+   */
+  private static class RecordingListener implements ParseListener {
+
+    private final List<ParseStats> stats = new ArrayList<>();
+
+    @Override
+    public void parsed(ParseStats stats) {
+      ParseStats copy = new ParseStats();
+      copy.add(stats);
+      copy.nanos = stats.nanos;
+      copy.failed = stats.failed;
+      this.stats.add(copy);
+    }
+  }
+}
@@ -0,0 +1,136 @@
+package mx.sugus.json;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.Test;
+
+public class ParserPoolTest {
+
+  private static final String[] DOCUMENTS = {
+      "{\"a\": [1, 2.5, \"x\\n\"], \"b\": {\"c\": null}}",
+      "[]",
+      "\"café 😀\"",
+      "[{\"k\": \"" + String.join("", Collections.nCopies(20000, "\\u0041")) + "\"}]",
+      "123",
+  };
+
+  @Test
+  public void testReset() {
+    // Arrange
+    Parser parser = new Parser("[1, 2]");
+    parser.parse();
+
+    for (String json : DOCUMENTS) {
+      // Act
+      Object fromString = parser.reset(json).parse();
+      Object fromBytes = parser.reset(json.getBytes(StandardCharsets.UTF_8)).parse();
+
+      // Assert
+      Object expected = new Parser(json).parse();
+      assertEquals(json, expected, fromString);
+      assertEquals(json, expected, fromBytes);
+    }
+  }
+
+  @Test
+  public void testResetAfterFailure() {
+    // Arrange
+    Parser parser = new Parser("{\"a\": [1, {\"b\": ", ParseOptions.DEFAULT
+        .withCompactContainers(true));
+    try {
+      parser.parse();
+      assertTrue(false);
+    } catch (ParseException expected) {
+      // Expected.
+    }
+
+    // Act
+    Object value = parser.reset("{\"c\": [true]}").parse();
+
+    // Assert
+    assertEquals(Collections.singletonMap("c", Arrays.asList(true)), value);
+  }
+
+  @Test
+  public void testThreadLocalPool() {
+    // Arrange
+    ParserPool pool = ParserPool.threadLocal(ParseOptions.DEFAULT);
+
+    // Act
+    Parser first = pool.acquire();
+    Parser nested = pool.acquire();
+    pool.release(nested);
+    pool.release(first);
+
+    // Assert
+    assertNotSame(first, nested);
+    assertSame(first, pool.acquire());
+    for (String json : DOCUMENTS) {
+      assertEquals(json, new Parser(json).parse(), pool.parse(json));
+    }
+  }
+
+  @Test
+  public void testSharedPool() throws Exception {
+    // Arrange
+    ParserPool pool = ParserPool.shared(2, ParseOptions.DEFAULT);
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+
+    // Act
+    List<Future<Boolean>> results = new ArrayList<>();
+    for (int i = 0; i < 8; i++) {
+      results.add(executor.submit(() -> {
+        for (int j = 0; j < 200; j++) {
+          for (String json : DOCUMENTS) {
+            if (!new Parser(json).parse().equals(
+                pool.parse(json.getBytes(StandardCharsets.UTF_8)))) {
+              return false;
+            }
+          }
+        }
+        return true;
+      }));
+    }
+
+    // Assert
+    for (Future<Boolean> result : results) {
+      assertTrue(result.get());
+    }
+    executor.shutdown();
+    Parser parser = pool.acquire();
+    pool.release(parser);
+    assertSame(parser, pool.acquire());
+  }
+
+  @Test(expected = ParseException.class)
+  public void testPoolFailure() {
+    // Arrange
+    ParserPool pool = ParserPool.shared(1, ParseOptions.DEFAULT);
+
+    // Act
+    pool.parse("[1,");
+
+    // Assert
+    assertTrue(false);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidCapacity() {
+    // Act
+    ParserPool.shared(0, ParseOptions.DEFAULT);
+
+    // Assert
+    assertTrue(false);
+  }
+}
@@ -1,16 +1,33 @@
 package mx.sugus.json;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.Reader;
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 public class ParserTest {
 
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
   @Test
   public void testParseString() {
     // Arrange
@@ -362,4 +379,449 @@ public class ParserTest {
     // Assert
     assertTrue(value instanceof BigDecimal);
   }
-}
\ No newline at end of file
+
+  @Test
+  public void testParseUtf8Bytes() {
+    // Arrange
+    byte[] json = "{\"caf\u00e9\": [\"\u2192\", \"\uD83D\uDE02\"]}".getBytes(StandardCharsets.UTF_8);
+
+    // Act
+    Object fromArray = new Parser(json).parse();
+    Object fromBuffer = new Parser(ByteBuffer.wrap(json)).parse();
+    Object fromStream = new Parser(new ByteArrayInputStream(json)).parse();
+
+    // Assert
+    assertTrue(fromArray instanceof Map);
+    assertEquals(Arrays.asList("\u2192", "\uD83D\uDE02"), ((Map) fromArray).get("caf\u00e9"));
+    assertEquals(fromArray, fromBuffer);
+    assertEquals(fromArray, fromStream);
+  }
+
+  @Test(expected = ParseException.class)
+  public void testParseInvalidUtf8Bytes() {
+    // Arrange
+    Parser parser = new Parser(new byte[] {'"', (byte) 0xFF, '"'});
+
+    // Act
+    Object value = parser.parse();
+
+    // Assert
+    assertTrue(false);
+  }
+
+  @Test
+  public void testParseMappedFile() throws IOException {
+    // Arrange
+    Path path = folder.newFile("test.json").toPath();
+    Files.write(path, "{\"caf\u00e9\": [1, 2.5, \"\uD83D\uDE02\"]}".getBytes(StandardCharsets.UTF_8));
+
+    // Act
+    Object value = Parser.parse(path);
+    // Windows of 3 bytes split tokens and multi-byte sequences across mappings.
+    Object windowed = Parser.parse(path, ParseOptions.DEFAULT, 3);
+
+    // Assert
+    assertTrue(value instanceof Map);
+    assertEquals(Arrays.asList(1L, 2.5, "\uD83D\uDE02"), ((Map) value).get("caf\u00e9"));
+    assertEquals(value, windowed);
+  }
+
+  @Test(expected = ParseException.class)
+  public void testParseEmptyMappedFile() throws IOException {
+    // Arrange
+    Path path = folder.newFile("empty.json").toPath();
+
+    // Act
+    Parser.parse(path);
+
+    // Assert
+    assertTrue(false);
+  }
+
+  @Test
+  public void testLongLimits() {
+    // Arrange
+    Parser parser = new Parser("[9223372036854775807, -9223372036854775808, "
+        + "9223372036854775808, -9223372036854775809, 18446744073709551616]");
+
+    // Act
+    Object value = parser.parse();
+
+    // Assert
+    assertEquals(Arrays.asList(Long.MAX_VALUE, Long.MIN_VALUE,
+        new BigInteger("9223372036854775808"), new BigInteger("-9223372036854775809"),
+        new BigInteger("18446744073709551616")), value);
+  }
+
+  @Test
+  public void testDoublesAreCorrectlyRounded() {
+    // Arrange
+    String[] values = {"1e23", "-0.0", "0e-20", "2.2250738585072014e-308", "4.9e-324",
+        "1.7976931348623157e308", "9007199254740993.0", "0.30000000000000004",
+        "123456789012345678901234567890e-10", "0.000000000000000000000000000001234",
+        "7.2057594037927933E16", "1e-400"};
+
+    for (String text : values) {
+      // Act
+      Object value = new Parser(text).parse();
+
+      // Assert
+      assertEquals(text, Double.parseDouble(text), value);
+    }
+  }
+
+  @Test
+  public void testKeyCache() {
+    // Arrange
+    ParseOptions options = ParseOptions.DEFAULT.withKeyCache(new KeyCache(16));
+    String json = "[{\"id\": 1, \"name\": \"a\"}, {\"id\": 2, \"name\": \"b\"}]";
+
+    // Act
+    List<?> first = (List<?>) new Parser(json, options).parse();
+    List<?> second = (List<?>) new Parser(json, options).parse();
+
+    // Assert
+    Map<?, ?> one = (Map<?, ?>) first.get(0);
+    Map<?, ?> two = (Map<?, ?>) first.get(1);
+    Map<?, ?> three = (Map<?, ?>) second.get(0);
+    assertEquals(2L, two.get("id"));
+    assertEquals("b", two.get("name"));
+    assertSame(key(one, "name"), key(two, "name"));
+    assertSame(key(one, "name"), key(three, "name"));
+  }
+
+  private static Object key(Map<?, ?> map, String key) {
+    for (Object candidate : map.keySet()) {
+      if (candidate.equals(key)) {
+        return candidate;
+      }
+    }
+    throw new AssertionError(key);
+  }
+
+  @Test
+  public void testCompactContainers() {
+    // Arrange
+    String json = "{\"a\": [1, {\"b\": [], \"c\": {}}], \"d\": {\"k0\": 0, \"k1\": 1, \"k2\": 2,"
+        + " \"k3\": 3, \"k4\": 4, \"k5\": 5, \"k6\": 6, \"k7\": 7, \"k8\": 8, \"k9\": 9},"
+        + " \"e\": null}";
+    ParseOptions options = ParseOptions.DEFAULT.withCompactContainers(true);
+
+    // Act
+    Object expected = new Parser(json).parse();
+    Object value = new Parser(json, options).parse();
+
+    // Assert
+    assertEquals(expected, value);
+    assertEquals(CompactMap.class, value.getClass());
+    assertEquals(CompactList.class, ((Map) value).get("a").getClass());
+  }
+
+  @Test
+  public void testPrimitiveArrays() {
+    // Arrange
+    String json = "{\"l\": [1, -2, 9223372036854775807], \"d\": [1, 2, 0.5, 3, 1e2],"
+        + " \"trailing\": [1, 2,], \"big\": [1, 1e400], \"huge\": [1, 18446744073709551616],"
+        + " \"inexact\": [9007199254740993, 0.5], \"mixed\": [1, 2.5, 3, \"x\", [4]],"
+        + " \"empty\": [], \"nested\": [[1, 2], [0.5]]}";
+    ParseOptions options = ParseOptions.DEFAULT.withPrimitiveArrays(true);
+
+    for (boolean compact : new boolean[]{false, true}) {
+      // Act
+      Map<?, ?> expected = (Map<?, ?>) new Parser(json).parse();
+      Map<?, ?> value = (Map<?, ?>) new Parser(json,
+          options.withCompactContainers(compact)).parse();
+
+      // Assert
+      assertEquals(LongList.class, value.get("l").getClass());
+      assertEquals(expected.get("l"), value.get("l"));
+      assertEquals(Long.MAX_VALUE, ((LongList) value.get("l")).getLong(2));
+      assertEquals(DoubleList.class, value.get("d").getClass());
+      assertEquals(Arrays.asList(1.0, 2.0, 0.5, 3.0, 100.0), value.get("d"));
+      assertEquals(Arrays.asList(1L, 2L), value.get("trailing"));
+      for (String key : new String[]{"big", "huge", "inexact", "mixed", "empty"}) {
+        assertEquals(key, expected.get(key), value.get(key));
+        Object list = value.get(key);
+        assertFalse(key, list instanceof LongList || list instanceof DoubleList);
+      }
+      List<?> nested = (List<?>) value.get("nested");
+      assertEquals(LongList.class, nested.get(0).getClass());
+      assertEquals(DoubleList.class, nested.get(1).getClass());
+      assertTrue(JsonWriter.toJson(value).contains("\"d\":[1.0,2.0,0.5,3.0,100.0]"));
+    }
+  }
+
+  @Test
+  public void testLazyNumbers() {
+    // Arrange
+    String[] numbers = {"0", "-0", "-0.0", "1.50", "1e2", "-12.5E-3", "0.1", "1e400", "4.9e-324",
+        "9223372036854775807", "-9223372036854775808", "9999999999999999999",
+        "12345678901234567890.123", "123456789012345678901234567890", "1000000000000000000000"};
+    String json = "[" + String.join(", ", numbers) + "]";
+    ParseOptions options = ParseOptions.DEFAULT.withLazyNumbers(true).withPrimitiveArrays(true);
+
+    // Act
+    List<?> values = (List<?>) new Parser(json, options).parse();
+
+    // Assert
+    for (int i = 0; i < numbers.length; i++) {
+      LazyNumber value = (LazyNumber) values.get(i);
+      BigDecimal expected = new BigDecimal(numbers[i]);
+      assertEquals(numbers[i], 0, expected.compareTo(value.bigDecimalValue()));
+      assertEquals(numbers[i], 0, expected.compareTo(new BigDecimal(value.toString())));
+      assertEquals(numbers[i], Double.parseDouble(numbers[i]), value.doubleValue(), 0);
+      assertEquals(numbers[i], Float.parseFloat(numbers[i]), value.floatValue(), 0);
+      assertEquals(numbers[i], expected.longValue(), value.longValue());
+      assertEquals(numbers[i], expected.toBigInteger(), value.bigIntegerValue());
+    }
+    assertEquals("-0.0", values.get(2).toString());
+    assertEquals("1.50", values.get(3).toString());
+    assertEquals("123456789012345678901234567890", values.get(13).toString());
+    assertEquals(values, new Parser(JsonWriter.toJson(values), options).parse());
+    assertEquals(values.get(3), new Parser("1.5", options).parse());
+    assertEquals(values.get(3).hashCode(), new Parser("1.5", options).parse().hashCode());
+  }
+
+  @Test
+  public void testLazyBigIntegerDigits() {
+    // Arrange
+    ParseOptions options = ParseOptions.DEFAULT.withLazyNumbers(true);
+    List<?> values = (List<?>) new Parser("[1.5e3, -1e-1000000000, 1e10000000]", options).parse();
+
+    // Act
+    BigInteger thousands = ((LazyNumber) values.get(0)).bigIntegerValue();
+    BigInteger fraction = ((LazyNumber) values.get(1)).bigIntegerValue();
+    try {
+      ((LazyNumber) values.get(2)).bigIntegerValue();
+      assertTrue(false);
+    } catch (ParseException expected) {
+      // Assert
+      assertTrue(expected.getMessage(), expected.getMessage().contains("integer digits"));
+    }
+    assertEquals(BigInteger.valueOf(1500), thousands);
+    assertEquals(BigInteger.ZERO, fraction);
+  }
+
+  @Test
+  public void testConcatenatedValues() {
+    // Arrange
+    Parser parser = new Parser("{\"a\": 1}{\"a\": 2} [3]\"x\"4\nnull ");
+
+    // Act
+    List<Object> values = new ArrayList<>();
+    while (parser.hasNext()) {
+      values.add(parser.parseNext());
+    }
+
+    // Assert
+    assertEquals(6, values.size());
+    assertEquals(2L, ((Map<?, ?>) values.get(1)).get("a"));
+    assertEquals(Arrays.asList(3L), values.get(2));
+    assertEquals("x", values.get(3));
+    assertEquals(4L, values.get(4));
+    assertEquals(null, values.get(5));
+  }
+
+  @Test
+  public void testNextValueDoesNotReadAhead() {
+    // Arrange
+    ChunkReader reader = new ChunkReader("{\"a\": [1]}", "  [2", "]");
+    Parser parser = new Parser(reader);
+
+    // Act
+    Object first = parser.parseNext();
+    int chunksAfterFirst = reader.next;
+    Object second = parser.parseNext();
+
+    // Assert
+    assertEquals(1, chunksAfterFirst);
+    assertEquals(Arrays.asList(1L), ((Map<?, ?>) first).get("a"));
+    assertEquals(Arrays.asList(2L), second);
+    assertTrue(!parser.hasNext());
+  }
+
+  @Test(expected = ParseException.class)
+  public void testNextValueAtEnd() {
+    // Arrange
+    Parser parser = new Parser(" ");
+
+    // Act
+    parser.parseNext();
+
+    // Assert
+    assertTrue(false);
+  }
+
+  @Test
+  public void testDeepNesting() {
+    // Arrange
+    int depth = 100_000;
+    String lists = String.join("", Collections.nCopies(depth, "["))
+        + String.join("", Collections.nCopies(depth, "]"));
+    String maps = String.join("", Collections.nCopies(depth, "{\"a\": "))
+        + "1" + String.join("", Collections.nCopies(depth, "}"));
+
+    for (boolean compact : new boolean[]{false, true}) {
+      ParseOptions options = ParseOptions.DEFAULT.withCompactContainers(compact);
+
+      // Act
+      Object list = new Parser(lists, options).parse();
+      Object map = new Parser(maps, options).parse();
+
+      // Assert
+      for (int i = 1; i < depth; i++) {
+        list = ((List<?>) list).get(0);
+        map = ((Map<?, ?>) map).get("a");
+      }
+      assertEquals(Collections.emptyList(), list);
+      assertEquals(Collections.singletonMap("a", 1L), map);
+    }
+  }
+
+  @Test
+  public void testLimits() {
+    // Arrange
+    ParseOptions depth = ParseOptions.DEFAULT.withMaxDepth(3);
+    ParseOptions strings = ParseOptions.DEFAULT.withMaxStringLength(3);
+    ParseOptions numbers = ParseOptions.DEFAULT.withMaxNumberLength(3);
+    ParseOptions entries = ParseOptions.DEFAULT.withMaxObjectEntries(2);
+    ParseOptions input = ParseOptions.DEFAULT.withMaxInputLength(10);
+
+    // Act
+    Object[] values = {
+        new Parser("[[[1]], {\"a\": [2]}]", depth).parse(),
+        new Parser("{\"abc\": \"a\\nc\"}", strings).parse(),
+        new Parser("[123, -12, 1.5]", numbers).parse(),
+        new Parser("{\"a\": {\"b\": 1, \"c\": 2}, \"d\": 3}", entries).parse(),
+        new Parser("[1, 2, 3] ", input).parse(),
+    };
+
+    // Assert
+    assertEquals(5, values.length);
+    assertFails(new Parser("[[[[1]]]]", depth));
+    assertFails(new Parser("[{\"a\": {\"b\": {}}}]", depth.withCompactContainers(true)));
+    assertFails(new Parser("{\"abcd\": 1}", strings));
+    assertFails(new Parser("\"a\\nbc\"", strings));
+    assertFails(new Parser("1234", numbers));
+    assertFails(new Parser("[1, -1.5]", numbers));
+    assertFails(new Parser("{\"a\": 1, \"b\": 2, \"c\": 3}", entries));
+    assertFails(new Parser("{\"a\": 1, \"b\": 2, \"c\": 3}",
+        entries.withCompactContainers(true)));
+    assertFails(new Parser("[1, 2, 3, 4]", input));
+    assertFails(new Parser("[1, 2, 3, 4]".getBytes(StandardCharsets.UTF_8), input));
+    try {
+      new Parser("[[[[1]]]]", depth).parse(new JsonHandler() {
+      });
+      assertTrue(false);
+    } catch (ParseException expected) {
+      // Expected.
+    }
+    try {
+      new Parser("{\"a\": [[[1]]]}", depth).parse(PathSelector.of("/a/0/0/0"));
+      assertTrue(false);
+    } catch (ParseException expected) {
+      // Expected.
+    }
+  }
+
+  @Test
+  public void testLimitsFailFast() {
+    // Arrange
+    ParseOptions options = ParseOptions.DEFAULT.withMaxStringLength(100_000)
+        .withMaxNumberLength(100_000).withMaxDepth(1000);
+
+    for (char ch : new char[] {'"', '1', '['}) {
+      // Act
+      try {
+        new Parser(new EndlessReader(ch), options).parse();
+        assertTrue(false);
+      } catch (ParseException expected) {
+        // Assert
+        assertTrue(expected.getMessage(), expected.getMessage().contains("at most"));
+      }
+    }
+  }
+
+  @Test
+  public void testMaxInputLengthInBytes() {
+    // Arrange
+    String json = "\"\u00e9\u00e9\u00e9\"";
+    byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+    ParseOptions chars = ParseOptions.DEFAULT.withMaxInputLength(5);
+    ParseOptions all = ParseOptions.DEFAULT.withMaxInputLength(8);
+
+    // Act
+    Object value = new Parser(json, chars).parse();
+
+    // Assert
+    assertEquals("\u00e9\u00e9\u00e9", value);
+    assertEquals(value, new Parser(bytes, all).parse());
+    assertFails(new Parser(bytes, chars));
+    assertFails(new Parser(new ByteArrayInputStream(bytes), chars));
+    assertFails(new Parser(ByteBuffer.wrap(bytes), ParseOptions.DEFAULT.withMaxInputLength(7)));
+  }
+
+  private static void assertFails(Parser parser) {
+    try {
+      parser.parse();
+      assertTrue(false);
+    } catch (ParseException expected) {
+      // Expected.
+    }
+  }
+
+  /**
+   * Returns the given char followed by an endless sequence of the same char or, for a quote, of
+   * the letter a.
+   */
+  private static class EndlessReader extends Reader {
+
+    private final char first;
+    private boolean started;
+
+    EndlessReader(char first) {
+      this.first = first;
+    }
+
+    @Override
+    public int read(char[] cbuf, int off, int len) {
+      Arrays.fill(cbuf, off, off + len, first == '"' ? 'a' : first);
+      if (!started) {
+        cbuf[off] = first;
+        started = true;
+      }
+      return len;
+    }
+
+    @Override
+    public void close() {
+    }
+  }
+
+  /**
+   * Returns each chunk from a separate read, like a stream where data arrives over time.
+   */
+  private static class ChunkReader extends Reader {
+
+    private final String[] chunks;
+    private int next;
+
+    ChunkReader(String... chunks) {
+      this.chunks = chunks;
+    }
+
+    @Override
+    public int read(char[] cbuf, int off, int len) {
+      if (next == chunks.length) {
+        return -1;
+      }
+      String chunk = chunks[next++];
+      chunk.getChars(0, chunk.length(), cbuf, off);
+      return chunk.length();
+    }
+
+    @Override
+    public void close() {
+    }
+  }
+}
@@ -0,0 +1,145 @@
+package mx.sugus.json;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import org.junit.Test;
+
+public class PathSelectorTest {
+
+  private static final String JSON = "{\"user\": {\"id\": 7, \"name\": \"x\"},"
+      + " \"items\": [{\"price\": 1.5, \"tags\": [\"a\", \"]\"]}, {\"price\": 2}, {\"name\": \"}\"}],"
+      + " \"a/b\": {\"~\": true}, \"skipped\": {\"deep\": [[[{\"x\": \"\\\"[\"}]]]}}";
+
+  @Test
+  public void testSelect() {
+    // Arrange
+    PathSelector selector = PathSelector.of("/user/id", "/items/*/price", "/items/0/tags/1",
+        "/a~1b/~0", "/missing", "/user/id");
+
+    // Act
+    Map<String, List<Object>> values = new Parser(JSON).parse(selector);
+
+    // Assert
+    assertEquals(Arrays.asList("/user/id", "/items/*/price", "/items/0/tags/1", "/a~1b/~0",
+        "/missing"), Arrays.asList(values.keySet().toArray()));
+    assertEquals(Arrays.asList(7L), values.get("/user/id"));
+    assertEquals(Arrays.asList(1.5, 2L), values.get("/items/*/price"));
+    assertEquals(Arrays.asList("]"), values.get("/items/0/tags/1"));
+    assertEquals(Arrays.asList(true), values.get("/a~1b/~0"));
+    assertEquals(Collections.emptyList(), values.get("/missing"));
+  }
+
+  @Test
+  public void testNestedPaths() {
+    // Arrange
+    PathSelector selector = PathSelector.of("", "/user", "/user/name", "/*/id");
+
+    // Act
+    Map<String, List<Object>> values = new Parser(JSON).parse(selector);
+
+    // Assert
+    assertEquals(Arrays.asList(new Parser(JSON).parse()), values.get(""));
+    assertEquals(1, values.get("/user").size());
+    assertEquals(Arrays.asList("x"), values.get("/user/name"));
+    assertEquals(Arrays.asList(7L), values.get("/*/id"));
+  }
+
+  @Test
+  public void testNestedPathsInDocumentOrder() {
+    // Arrange
+    StringBuilder builder = new StringBuilder("{\"o\": {");
+    for (int i = 0; i < 20; i++) {
+      builder.append(i > 0 ? ", " : "").append("\"k").append(i).append("\": ").append(i);
+    }
+    String json = builder.append(", \"k0\": 20, \"l\": [1, 2.5]}}").toString();
+    ParseOptions[] options = {ParseOptions.DEFAULT,
+        ParseOptions.DEFAULT.withCompactContainers(true).withPrimitiveArrays(true)};
+
+    for (ParseOptions option : options) {
+      // Act
+      Map<String, List<Object>> alone = new Parser(json, option).parse(PathSelector.of("/o/*"));
+      Map<String, List<Object>> nested =
+          new Parser(json, option).parse(PathSelector.of("/o", "/o/*", "/o/l/1"));
+
+      // Assert
+      assertEquals(alone.get("/o/*"), nested.get("/o/*"));
+      assertEquals(22, nested.get("/o/*").size());
+      assertEquals(20L, nested.get("/o/*").get(20));
+      Object expected = ((Map<?, ?>) new Parser(json, option).parse()).get("o");
+      assertEquals(Arrays.asList(expected), nested.get("/o"));
+      Object list = ((Map<?, ?>) nested.get("/o").get(0)).get("l");
+      assertEquals(((Map<?, ?>) expected).get("l").getClass(), list.getClass());
+      assertEquals(Arrays.asList(2.5), nested.get("/o/l/1"));
+    }
+  }
+
+  @Test
+  public void testSkipAcrossBuffers() {
+    // Arrange
+    StringBuilder builder = new StringBuilder("[");
+    for (int i = 0; i < 2000; i++) {
+      builder.append("{\"s\": \"\\\\\\\"}\", \"v\": [").append(i).append("]},");
+    }
+    String json = builder.append("{\"v\": [\"last\"]}]").toString();
+
+    // Act
+    Map<String, List<Object>> values = new Parser(new StringReader(json))
+        .parse(PathSelector.of("/2000/v/0", "/1999/s"));
+
+    // Assert
+    assertEquals(Arrays.asList("last"), values.get("/2000/v/0"));
+    assertEquals(Arrays.asList("\\\"}"), values.get("/1999/s"));
+  }
+
+  @Test(expected = ParseException.class)
+  public void testUnterminatedSkippedContainer() {
+    // Arrange
+    Parser parser = new Parser("{\"a\": 1, \"b\": [1, {\"c\": 2}");
+
+    // Act
+    parser.parse(PathSelector.of("/a"));
+
+    // Assert
+    assertTrue(false);
+  }
+
+  @Test
+  public void testMismatchedSkippedContainer() {
+    String[] documents = {"{\"a\": 1, \"b\": [1}}", "{\"b\": {\"c\": [{]}}, \"a\": 1}"};
+    for (String json : documents) {
+      // Arrange
+      Parser parser = new Parser(json);
+      try {
+        // Act
+        parser.parse(PathSelector.of("/a"));
+        assertTrue(json, false);
+      } catch (ParseException expected) {
+        // Assert
+      }
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidPointer() {
+    // Act
+    PathSelector.of("user/id");
+
+    // Assert
+    assertTrue(false);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidEscape() {
+    // Act
+    PathSelector.of("/a~2");
+
+    // Assert
+    assertTrue(false);
+  }
+}
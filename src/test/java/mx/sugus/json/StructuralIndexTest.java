@@ -0,0 +1,81 @@
+package mx.sugus.json;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import org.junit.Test;
+
+public class StructuralIndexTest {
+
+  private static final String[] DOCUMENTS = {
+      "",
+      "1",
+      "  true  ",
+      "[1,22,333,4444,55555,666666,7777777,88888888,999999999]",
+      "{\"a\":\"b\",\"cc\":[null,false],\"ddd\":{\"e\":-1.5e-3}}",
+      "\"\\\\\"",
+      "[\"\\\"\", \"\\\\\", \"x\\\\\\\"y\", \"\\\\\\\\\"]",
+      "{\"brackets [in] {strings}\": \"commas, and: colons\"}",
+      "[\"café\", \"😀\", é]",
+      "[1 2\t3\r\n4]",
+      "\\\"[1]\"",
+  };
+
+  @Test
+  public void testUtf8SameAsChars() {
+    for (String document : DOCUMENTS) {
+      // Shift the document so that every byte falls on each position of a word.
+      for (int shift = 0; shift < 8; shift++) {
+        // Arrange
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < shift; i++) {
+          builder.append(' ');
+        }
+        String json = builder.append(document).toString();
+        byte[] utf8 = json.getBytes(StandardCharsets.UTF_8);
+
+        // Act
+        StructuralIndex expected = StructuralIndex.of(json.toCharArray(), 0, json.length());
+        StructuralIndex index = StructuralIndex.of(utf8, 0, utf8.length);
+
+        // Assert
+        assertEquals(json, expected.size(), index.size());
+        for (int i = 0; i < expected.size(); i++) {
+          assertEquals(json, expected.kind(i), index.kind(i));
+          int offset = json.substring(0, expected.position(i)).getBytes(StandardCharsets.UTF_8)
+              .length;
+          assertEquals(json, offset, index.position(i));
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testEscapeAcrossWords() {
+    // Arrange
+    String json = "[\"1234567\\\"\", \"123456\\\\\", 1]";
+    byte[] utf8 = json.getBytes(StandardCharsets.UTF_8);
+
+    // Act
+    StructuralIndex index = StructuralIndex.of(utf8, 0, utf8.length);
+
+    // Assert
+    assertEquals(7, index.size());
+    assertEquals('1', index.kind(5));
+    assertEquals(json.indexOf(", 1") + 2, index.position(5));
+    assertEquals(']', index.kind(6));
+  }
+
+  @Test(expected = ParseException.class)
+  public void testUnterminatedString() {
+    // Arrange
+    byte[] utf8 = "[\"abc\\\"]".getBytes(StandardCharsets.UTF_8);
+
+    // Act
+    StructuralIndex.of(utf8, 0, utf8.length);
+
+    // Assert
+    assertTrue(false);
+  }
+}
@@ -3,6 +3,10 @@ package mx.sugus.json;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.Arrays;
 import mx.sugus.json.Token.Type;
 import org.junit.Test;
 
@@ -427,4 +431,70 @@ public class TokenizerTest {
     // Assert not reached
     assertTrue(false);
   }
+
+  @Test
+  public void testStringLongerThanBuffer() {
+    // Arrange
+    char[] chars = new char[20000];
+    Arrays.fill(chars, 'x');
+    chars[10000] = '\\';
+    chars[10001] = 'n';
+    String expected = new String(chars).replace("\\n", "\n");
+    Tokenizer tokenizer = new Tokenizer(new StringReader("\"" + new String(chars) + "\""));
+
+    // Act
+    Token result = tokenizer.next();
+
+    // Assert
+    assertEquals(Type.STRING, result.getType());
+    assertEquals(expected, result.getValue());
+    assertEquals(Token.EOF, tokenizer.next());
+  }
+
+  @Test
+  public void testOneCharAtATimeReader() {
+    // Arrange
+    Tokenizer tokenizer = new Tokenizer(new OneCharReader("[\"a\\u00e9b\", -12.5e3, true]"));
+
+    // Act
+    Token start = tokenizer.next();
+    Token string = tokenizer.next();
+    Token comma = tokenizer.next();
+    Token number = tokenizer.next();
+    Token comma2 = tokenizer.next();
+    Token literal = tokenizer.next();
+    Token end = tokenizer.next();
+
+    // Assert
+    assertEquals(Token.START_LIST, start);
+    assertEquals("a\u00e9b", string.getValue());
+    assertEquals(Token.COMMA, comma);
+    assertEquals(Type.DOUBLE, number.getType());
+    assertEquals("-12.5e3", number.getValue());
+    assertEquals(Token.COMMA, comma2);
+    assertEquals(Token.TRUE, literal);
+    assertEquals(Token.END_LIST, end);
+    assertEquals(Token.EOF, tokenizer.next());
+  }
+
+  /**
+   * Returns at most one char per read call, exercises the buffer refill paths.
+   */
+  static class OneCharReader extends Reader {
+
+    private final Reader delegate;
+
+    OneCharReader(String value) {
+      this.delegate = new StringReader(value);
+    }
+
+    @Override
+    public int read(char[] cbuf, int off, int len) throws IOException {
+      return delegate.read(cbuf, off, Math.min(len, 1));
+    }
+
+    @Override
+    public void close() {
+    }
+  }
 }
@@ -0,0 +1,136 @@
+package mx.sugus.json;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import org.junit.Test;
+
+public class Utf8ReaderTest {
+
+  private static final String TEXT = "ASCII, café, → €, 😂 and ü";
+
+  @Test
+  public void testDecodeByteArray() throws IOException {
+    // Arrange
+    byte[] bytes = TEXT.getBytes(StandardCharsets.UTF_8);
+
+    // Act
+    String result = readAll(new Utf8Reader(bytes, 0, bytes.length), 64);
+
+    // Assert
+    assertEquals(TEXT, result);
+  }
+
+  @Test
+  public void testDecodeDirectBuffer() throws IOException {
+    // Arrange
+    byte[] bytes = TEXT.getBytes(StandardCharsets.UTF_8);
+    ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length);
+    buffer.put(bytes).flip();
+
+    // Act
+    String result = readAll(new Utf8Reader(buffer), 64);
+
+    // Assert
+    assertEquals(TEXT, result);
+    assertEquals(0, buffer.position());
+  }
+
+  @Test
+  public void testDecodeOneByteAtATime() throws IOException {
+    // Arrange
+    byte[] bytes = TEXT.getBytes(StandardCharsets.UTF_8);
+
+    // Act
+    String result = readAll(new Utf8Reader(new OneByteInputStream(bytes)), 1);
+
+    // Assert
+    assertEquals(TEXT, result);
+  }
+
+  @Test(expected = ParseException.class)
+  public void testOverlongEncoding() throws IOException {
+    // Arrange
+    byte[] bytes = {'a', (byte) 0xC0, (byte) 0xAF};
+
+    // Act
+    readAll(new Utf8Reader(bytes, 0, bytes.length), 64);
+
+    // Assert
+    assertTrue(false);
+  }
+
+  @Test(expected = ParseException.class)
+  public void testEncodedSurrogate() throws IOException {
+    // Arrange
+    byte[] bytes = {(byte) 0xED, (byte) 0xA0, (byte) 0x80};
+
+    // Act
+    readAll(new Utf8Reader(bytes, 0, bytes.length), 64);
+
+    // Assert
+    assertTrue(false);
+  }
+
+  @Test(expected = ParseException.class)
+  public void testTruncatedSequence() throws IOException {
+    // Arrange
+    byte[] bytes = {'a', (byte) 0xE2, (byte) 0x86};
+
+    // Act
+    readAll(new Utf8Reader(new OneByteInputStream(bytes)), 64);
+
+    // Assert
+    assertTrue(false);
+  }
+
+  @Test(expected = ParseException.class)
+  public void testStrayContinuationByte() throws IOException {
+    // Arrange
+    byte[] bytes = {'a', (byte) 0x80};
+
+    // Act
+    readAll(new Utf8Reader(bytes, 0, bytes.length), 64);
+
+    // Assert
+    assertTrue(false);
+  }
+
+  private static String readAll(Reader reader, int chunk) throws IOException {
+    StringBuilder buf = new StringBuilder();
+    char[] chars = new char[chunk];
+    int count;
+    while ((count = reader.read(chars, 0, chars.length)) != -1) {
+      buf.append(chars, 0, count);
+    }
+    return buf.toString();
+  }
+
+  /**
+   * Returns at most one byte per read call, splits multi-byte sequences across refills.
+   */
+  static class OneByteInputStream extends InputStream {
+
+    private final ByteArrayInputStream delegate;
+
+    OneByteInputStream(byte[] bytes) {
+      this.delegate = new ByteArrayInputStream(bytes);
+    }
+
+    @Override
+    public int read() {
+      return delegate.read();
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) {
+      return delegate.read(b, off, Math.min(len, 1));
+    }
+  }
+}